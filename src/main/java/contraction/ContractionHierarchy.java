@@ -0,0 +1,686 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package contraction;
+
+import grammar.Graph;
+import grammar.CsrGraph;
+import grammar.IndexMinPQ;
+import grammar.DirectedGraph;
+import grammar.DistanceOracle;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Contraction Hierarchy of a graph with non-negative edge weights. Nodes are
+ * contracted one at a time in the order of their edge difference (shortcuts
+ * added minus arcs removed), plus the number of their already contracted
+ * neighbors and their depth in the hierarchy so far, which is recomputed
+ * lazily whenever a node reaches the top of the queue. A shortcut u-->w through the contracted node v is only added if
+ * a local witness search from u, bounded in distance and in the number of
+ * settled nodes, finds no path avoiding v that is as short.
+ * <p>
+ * Queries run a bidirectional Dijkstra that only follows arcs towards nodes
+ * contracted later, forwards from the source and backwards from the target,
+ * and shortcuts are unpacked recursively through their middle nodes. The
+ * hierarchy is immutable once built, and queries can be issued concurrently;
+ * attach it to its graph through {@link Graph#setDistanceOracle} for
+ * getPathCost and getPath to make use of it.
+ */
+public final class ContractionHierarchy<NodeT> implements DistanceOracle<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(ContractionHierarchy.class);
+
+    public static final int DEFAULT_WITNESS_SETTLE_LIMIT = 500;
+
+    private final CsrGraph<NodeT> frozen;
+    private final int[] rank;
+    private final int shortcuts;
+
+    /* arcs towards higher ranked nodes, grouped by their tail */
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final float[] upWeights;
+    private final int[] upMiddles;
+
+    /* arcs from higher ranked nodes, grouped by their head */
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final float[] downWeights;
+    private final int[] downMiddles;
+
+    private final AtomicLong settledNodes = new AtomicLong();
+
+    /* growable list of the arcs of a node while contracting */
+    private static final class ArcList {
+
+        int size = 0;
+        int[] nodes = new int[4];
+        float[] weights = new float[4];
+        int[] middles = new int[4];
+
+        int find(int node) {
+            for (int i = 0; i < size; ++i) {
+                if (nodes[i] == node) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void add(int node, float weight, int middle) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size << 1);
+                weights = Arrays.copyOf(weights, size << 1);
+                middles = Arrays.copyOf(middles, size << 1);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            middles[size++] = middle;
+        }
+
+        void remove(int node) {
+            int i = find(node);
+            if (i >= 0) {
+                --size;
+                nodes[i] = nodes[size];
+                weights[i] = weights[size];
+                middles[i] = middles[size];
+            }
+        }
+    }
+
+    public ContractionHierarchy(Graph<NodeT> graph) {
+        this(graph, DEFAULT_WITNESS_SETTLE_LIMIT);
+    }
+
+    public ContractionHierarchy(Graph<NodeT> graph, int witnessSettleLimit) {
+        long startTime = System.nanoTime();
+        frozen = graph.freeze();
+        if (frozen.containsNegativeWeightEdges()) {
+            throw new RuntimeException("\n!! ERROR - Contraction hierarchies cannot be built in the presence of edges with negative weights !!");
+        }
+
+        int n = frozen.numberNodes();
+        ArcList[] out = new ArcList[n], in = new ArcList[n];
+        for (int u = 0; u < n; ++u) {
+            out[u] = new ArcList();
+            in[u] = new ArcList();
+        }
+        for (int u = 0; u < n; ++u) {
+            for (int arc = frozen.firstOut(u); arc < frozen.endOut(u); ++arc) {
+                int v = frozen.target(arc);
+                if (u != v) {
+                    out[u].add(v, frozen.weight(arc), -1);
+                    in[v].add(u, frozen.weight(arc), -1);
+                }
+            }
+        }
+
+        Contractor contractor = new Contractor(out, in, witnessSettleLimit);
+        rank = contractor.contract();
+        shortcuts = contractor.shortcuts;
+
+        /* each arc is left only in the lists of its endpoint contracted first */
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int u = 0; u < n; ++u) {
+            upOffsets[u + 1] = upOffsets[u] + out[u].size;
+            downOffsets[u + 1] = downOffsets[u] + in[u].size;
+        }
+        upTargets = new int[upOffsets[n]];
+        upWeights = new float[upOffsets[n]];
+        upMiddles = new int[upOffsets[n]];
+        downSources = new int[downOffsets[n]];
+        downWeights = new float[downOffsets[n]];
+        downMiddles = new int[downOffsets[n]];
+        for (int u = 0; u < n; ++u) {
+            System.arraycopy(out[u].nodes, 0, upTargets, upOffsets[u], out[u].size);
+            System.arraycopy(out[u].weights, 0, upWeights, upOffsets[u], out[u].size);
+            System.arraycopy(out[u].middles, 0, upMiddles, upOffsets[u], out[u].size);
+            System.arraycopy(in[u].nodes, 0, downSources, downOffsets[u], in[u].size);
+            System.arraycopy(in[u].weights, 0, downWeights, downOffsets[u], in[u].size);
+            System.arraycopy(in[u].middles, 0, downMiddles, downOffsets[u], in[u].size);
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Contracted " + n + " nodes adding " + shortcuts
+                + " shortcuts to " + frozen.numberArcs() + " arcs in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+    }
+
+    /* node ordering and contraction, on the mutable arc lists */
+    private static final class Contractor {
+
+        final ArcList[] out, in;
+        final int witnessSettleLimit;
+        final int n;
+        final int[] contractedNeighbors;
+        final int[] levels;
+        int shortcuts = 0;
+
+        /* state of the witness searches, reset through the touched nodes */
+        final float[] dists;
+        final int[] touched;
+        int countTouched = 0;
+        final int[] targetStamps;
+        final int[] updateStamps;
+        int round = 0;
+        int stamp = 0;
+        final IndexMinPQ heap;
+
+        Contractor(ArcList[] out, ArcList[] in, int witnessSettleLimit) {
+            this.out = out;
+            this.in = in;
+            this.witnessSettleLimit = witnessSettleLimit;
+            n = out.length;
+            contractedNeighbors = new int[n];
+            levels = new int[n];
+            dists = new float[n];
+            Arrays.fill(dists, Float.POSITIVE_INFINITY);
+            touched = new int[n];
+            targetStamps = new int[n];
+            updateStamps = new int[n];
+            heap = new IndexMinPQ(n);
+        }
+
+        int[] contract() {
+            IndexMinPQ order = new IndexMinPQ(n);
+            for (int v = 0; v < n; ++v) {
+                order.insert(v, priority(v));
+            }
+
+            int[] rank = new int[n];
+            int next = 0;
+            while (!order.isEmpty()) {
+                int v = order.delMin();
+                float priority = priority(v);
+                if (!order.isEmpty() && priority > order.minPriority()) {
+                    order.insert(v, priority); // lazy update, somebody else comes first
+                    continue;
+                }
+
+                contractNode(v, true);
+                rank[v] = next++;
+
+                for (int i = 0; i < out[v].size; ++i) {
+                    in[out[v].nodes[i]].remove(v);
+                }
+                for (int i = 0; i < in[v].size; ++i) {
+                    out[in[v].nodes[i]].remove(v);
+                }
+                ++round; // neighbors on both sides are updated once
+                for (int i = 0; i < out[v].size; ++i) {
+                    update(order, out[v].nodes[i], levels[v]);
+                }
+                for (int i = 0; i < in[v].size; ++i) {
+                    update(order, in[v].nodes[i], levels[v]);
+                }
+            }
+            return rank;
+        }
+
+        private void update(IndexMinPQ order, int u, int level) {
+            if (!order.contains(u) || updateStamps[u] == round) {
+                return;
+            }
+            updateStamps[u] = round;
+            ++contractedNeighbors[u];
+            levels[u] = Math.max(levels[u], level + 1);
+            float priority = priority(u);
+            if (priority < order.priorityOf(u)) {
+                order.decreaseKey(u, priority);
+            } else {
+                order.increaseKey(u, priority);
+            }
+        }
+
+        private float priority(int v) {
+            return 2 * (contractNode(v, false) - out[v].size - in[v].size) + contractedNeighbors[v] + levels[v];
+        }
+
+        /**
+         * @return the number of shortcuts needed for contracting node v,
+         * which are also inserted when not just simulating.
+         */
+        private int contractNode(int v, boolean insert) {
+            float maxOut = 0.0f;
+            for (int j = 0; j < out[v].size; ++j) {
+                if (out[v].weights[j] > maxOut) {
+                    maxOut = out[v].weights[j];
+                }
+            }
+
+            int needed = 0;
+            for (int i = 0; i < in[v].size; ++i) {
+                int u = in[v].nodes[i];
+                float uv = in[v].weights[i];
+                int targets = 0;
+                ++stamp;
+                for (int j = 0; j < out[v].size; ++j) {
+                    if (out[v].nodes[j] != u) {
+                        targetStamps[out[v].nodes[j]] = stamp;
+                        ++targets;
+                    }
+                }
+                witnessSearch(u, v, uv + maxOut, targets);
+                for (int j = 0; j < out[v].size; ++j) {
+                    int w = out[v].nodes[j];
+                    if (w == u) {
+                        continue;
+                    }
+                    float uvw = uv + out[v].weights[j];
+                    if (dists[w] > uvw) {
+                        ++needed;
+                        if (insert) {
+                            addShortcut(u, w, uvw, v);
+                        }
+                    }
+                }
+                resetWitnessSearch();
+            }
+            return needed;
+        }
+
+        private void addShortcut(int u, int w, float weight, int middle) {
+            int i = out[u].find(w);
+            if (i < 0) {
+                out[u].add(w, weight, middle);
+                in[w].add(u, weight, middle);
+                ++shortcuts;
+            } else if (weight < out[u].weights[i]) {
+                out[u].weights[i] = weight;
+                out[u].middles[i] = middle;
+                int j = in[w].find(u);
+                in[w].weights[j] = weight;
+                in[w].middles[j] = middle;
+            }
+        }
+
+        /* Dijkstra from u avoiding v, until the stamped targets are settled or the limits are reached */
+        private void witnessSearch(int u, int v, float limit, int targets) {
+            dists[u] = 0.0f;
+            touched[countTouched++] = u;
+            heap.insert(u, 0.0f);
+            for (int settled = 0; !heap.isEmpty() && settled < witnessSettleLimit; ++settled) {
+                float dist = heap.minPriority();
+                if (dist > limit) {
+                    break;
+                }
+                int x = heap.delMin();
+                if (targetStamps[x] == stamp && --targets == 0) {
+                    break;
+                }
+                for (int j = 0; j < out[x].size; ++j) {
+                    int y = out[x].nodes[j];
+                    if (y == v) {
+                        continue;
+                    }
+                    float newdist = dist + out[x].weights[j];
+                    if (newdist < dists[y]) {
+                        if (dists[y] == Float.POSITIVE_INFINITY) {
+                            touched[countTouched++] = y;
+                        }
+                        dists[y] = newdist;
+                        heap.offer(y, newdist);
+                    }
+                }
+            }
+        }
+
+        private void resetWitnessSearch() {
+            heap.clear();
+            while (countTouched > 0) {
+                dists[touched[--countTouched]] = Float.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    /* state of a query in progress, reset through the touched nodes */
+    private static final class QueryState {
+
+        final float[] forwardDists, backwardDists;
+        final int[] forwardArcs, backwardArcs;
+        final int[] touched;
+        int countTouched = 0;
+        final IndexMinPQ forward, backward;
+
+        QueryState(int n) {
+            forwardDists = new float[n];
+            backwardDists = new float[n];
+            Arrays.fill(forwardDists, Float.POSITIVE_INFINITY);
+            Arrays.fill(backwardDists, Float.POSITIVE_INFINITY);
+            forwardArcs = new int[n];
+            backwardArcs = new int[n];
+            touched = new int[n << 1];
+            forward = new IndexMinPQ(n);
+            backward = new IndexMinPQ(n);
+        }
+
+        void touch(int u) {
+            if (forwardDists[u] == Float.POSITIVE_INFINITY && backwardDists[u] == Float.POSITIVE_INFINITY) {
+                touched[countTouched++] = u;
+            }
+        }
+
+        void reset() {
+            forward.clear();
+            backward.clear();
+            while (countTouched > 0) {
+                int u = touched[--countTouched];
+                forwardDists[u] = backwardDists[u] = Float.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    /* states of the queries not in progress */
+    private final ArrayDeque<QueryState> states = new ArrayDeque<>();
+
+    /* lends an idle state to a query, or a new one if all are in use */
+    private QueryState acquire() {
+        QueryState state;
+        synchronized (states) {
+            state = states.poll();
+        }
+        return state != null ? state : new QueryState(frozen.numberNodes());
+    }
+
+    private void release(QueryState state) {
+        state.reset();
+        synchronized (states) {
+            states.push(state);
+        }
+    }
+
+    public int numberNodes() {
+        return frozen.numberNodes();
+    }
+
+    public int numberShortcuts() {
+        return shortcuts;
+    }
+
+    /**
+     * @return the position of the node in the contraction order, or -1 if it
+     * does not exist.
+     */
+    public int getRank(NodeT u) {
+        int i = frozen.indexOf(u);
+        return i < 0 ? -1 : rank[i];
+    }
+
+    /**
+     * @return the number of nodes settled by queries so far, on both sides.
+     */
+    public long getSettledNodes() {
+        return settledNodes.get();
+    }
+
+    public void resetSettledNodes() {
+        settledNodes.set(0);
+    }
+
+    /* upward search from both ends; returns the meeting node, or -1 */
+    private int search(int s, int t, QueryState state) {
+        state.touch(s);
+        state.forwardDists[s] = 0.0f;
+        state.forwardArcs[s] = -1;
+        state.forward.insert(s, 0.0f);
+        state.touch(t);
+        state.backwardDists[t] = 0.0f;
+        state.backwardArcs[t] = -1;
+        state.backward.insert(t, 0.0f);
+
+        float best = s == t ? 0.0f : Float.POSITIVE_INFINITY;
+        int meeting = s == t ? s : -1;
+        long settled = 0;
+        for (;;) {
+            boolean forwards = !state.forward.isEmpty() && state.forward.minPriority() < best;
+            boolean backwards = !state.backward.isEmpty() && state.backward.minPriority() < best;
+            if (!forwards && !backwards) {
+                break;
+            } else if (forwards && backwards) {
+                forwards = state.forward.minPriority() <= state.backward.minPriority();
+            }
+
+            ++settled;
+            if (forwards) {
+                float dist = state.forward.minPriority();
+                int u = state.forward.delMin();
+                for (int arc = upOffsets[u]; arc < upOffsets[u + 1]; ++arc) {
+                    int v = upTargets[arc];
+                    float newdist = dist + upWeights[arc];
+                    if (newdist < state.forwardDists[v]) {
+                        state.touch(v);
+                        state.forwardDists[v] = newdist;
+                        state.forwardArcs[v] = arc;
+                        state.forward.offer(v, newdist);
+                        if (newdist + state.backwardDists[v] < best) {
+                            best = newdist + state.backwardDists[v];
+                            meeting = v;
+                        }
+                    }
+                }
+            } else {
+                float dist = state.backward.minPriority();
+                int u = state.backward.delMin();
+                for (int arc = downOffsets[u]; arc < downOffsets[u + 1]; ++arc) {
+                    int v = downSources[arc];
+                    float newdist = dist + downWeights[arc];
+                    if (newdist < state.backwardDists[v]) {
+                        state.touch(v);
+                        state.backwardDists[v] = newdist;
+                        state.backwardArcs[v] = arc;
+                        state.backward.offer(v, newdist);
+                        if (newdist + state.forwardDists[v] < best) {
+                            best = newdist + state.forwardDists[v];
+                            meeting = v;
+                        }
+                    }
+                }
+            }
+        }
+        settledNodes.addAndGet(settled);
+        return meeting;
+    }
+
+    @Override
+    public float getPathCost(NodeT from, NodeT to) {
+        int s = frozen.indexOf(from), t = frozen.indexOf(to);
+        if (s < 0 || t < 0) {
+            return from.equals(to) ? 0.0f : Float.MAX_VALUE;
+        }
+        QueryState state = acquire();
+        try {
+            int meeting = search(s, t, state);
+            return meeting < 0 ? Float.MAX_VALUE : state.forwardDists[meeting] + state.backwardDists[meeting];
+        } finally {
+            release(state);
+        }
+    }
+
+    @Override
+    public ArrayDeque<NodeT> getPath(NodeT from, NodeT to) {
+        int s = frozen.indexOf(from), t = frozen.indexOf(to);
+        ArrayDeque<NodeT> path = new ArrayDeque<>();
+        if (from.equals(to)) {
+            return path;
+        } else if (s < 0 || t < 0) {
+            throw new RuntimeException("\n!! ERROR - Source and target nodes not connected !!");
+        }
+
+        QueryState state = acquire();
+        try {
+            int meeting = search(s, t, state);
+            if (meeting < 0) {
+                throw new RuntimeException("\n!! ERROR - Source and target nodes not connected !!");
+            }
+
+            ArrayDeque<Integer> upwards = new ArrayDeque<>();
+            for (int v = meeting; state.forwardArcs[v] >= 0; ) {
+                int arc = state.forwardArcs[v];
+                upwards.push(arc);
+                v = tailOf(arc);
+            }
+            path.add(from);
+            for (int arc : upwards) {
+                unpack(tailOf(arc), upTargets[arc], upMiddles[arc], path);
+            }
+            for (int v = meeting; state.backwardArcs[v] >= 0; ) {
+                int arc = state.backwardArcs[v];
+                int head = headOf(arc);
+                unpack(v, head, downMiddles[arc], path);
+                v = head;
+            }
+            return path;
+        } finally {
+            release(state);
+        }
+    }
+
+    /* the node whose upward arcs include the given one */
+    private int tailOf(int arc) {
+        return upperBound(upOffsets, arc);
+    }
+
+    /* the node whose downward arcs include the given one */
+    private int headOf(int arc) {
+        return upperBound(downOffsets, arc);
+    }
+
+    private static int upperBound(int[] offsets, int arc) {
+        int lo = 0, hi = offsets.length - 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (offsets[mid] <= arc) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /* appends the nodes after u up to w, replacing shortcuts by the arcs they stand for */
+    private void unpack(int u, int w, int middle, ArrayDeque<NodeT> path) {
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{u, w, middle});
+        while (!stack.isEmpty()) {
+            int[] top = stack.pop();
+            if (top[2] < 0) {
+                path.add(frozen.getNode(top[1]));
+            } else {
+                int v = top[2]; // contracted before both ends
+                stack.push(new int[]{v, top[1], middleOf(upOffsets, upTargets, upMiddles, v, top[1])});
+                stack.push(new int[]{top[0], v, middleOf(downOffsets, downSources, downMiddles, v, top[0])});
+            }
+        }
+    }
+
+    private static int middleOf(int[] offsets, int[] nodes, int[] middles, int owner, int other) {
+        for (int arc = offsets[owner]; arc < offsets[owner + 1]; ++arc) {
+            if (nodes[arc] == other) {
+                return middles[arc];
+            }
+        }
+        throw new RuntimeException("\n!! ERROR - Shortcut cannot be unpacked !!");
+    }
+
+    /**
+     * @return a new graph with the original edges and the shortcuts.
+     */
+    public Graph<NodeT> toGraph() {
+        Graph<NodeT> graph = new DirectedGraph<>();
+        for (int u = 0; u < frozen.numberNodes(); ++u) {
+            graph.addNode(frozen.getNode(u));
+        }
+        for (int u = 0; u < frozen.numberNodes(); ++u) {
+            for (int arc = upOffsets[u]; arc < upOffsets[u + 1]; ++arc) {
+                graph.setEdge(frozen.getNode(u), frozen.getNode(upTargets[arc]), upWeights[arc]);
+            }
+            for (int arc = downOffsets[u]; arc < downOffsets[u + 1]; ++arc) {
+                graph.setEdge(frozen.getNode(downSources[arc]), frozen.getNode(u), downWeights[arc]);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Compares the hierarchy against plain Dijkstra on random queries; the
+     * graph is either a DIMACS .gr file or a random grid of the given side.
+     */
+    public static void main(String[] args) {
+        Graph<Long> graph;
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            graph = new DirectedGraph<>(args[0], java.text.NumberFormat.getNumberInstance(), true);
+        } else {
+            int side = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+            Random rand = new Random(7);
+            graph = new DirectedGraph<>();
+            for (long i = 0; i < side; ++i) {
+                for (long j = 0; j < side; ++j) {
+                    long u = i * side + j;
+                    if (i + 1 < side) {
+                        float weight = 1.0f + rand.nextFloat();
+                        graph.setEdge(u, u + side, weight);
+                        graph.setEdge(u + side, u, weight);
+                    }
+                    if (j + 1 < side) {
+                        float weight = 1.0f + rand.nextFloat();
+                        graph.setEdge(u, u + 1, weight);
+                        graph.setEdge(u + 1, u, weight);
+                    }
+                }
+            }
+        }
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        ContractionHierarchy<Long> hierarchy = new ContractionHierarchy<>(graph);
+        Random rand = new Random(13);
+        Long[] nodes = graph.getNodes().toArray(new Long[0]);
+        Long[] sources = new Long[queries], targets = new Long[queries];
+        for (int i = 0; i < queries; ++i) {
+            sources[i] = nodes[rand.nextInt(nodes.length)];
+            targets[i] = nodes[rand.nextInt(nodes.length)];
+        }
+
+        float[] expected = new float[queries];
+        graph.resetSettledNodes();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < queries; ++i) {
+            expected[i] = graph.getPathCost(sources[i], targets[i], false);
+        }
+        long dijkstraTime = System.nanoTime() - startTime;
+
+        int mismatches = 0;
+        startTime = System.nanoTime();
+        for (int i = 0; i < queries; ++i) {
+            if (Math.abs(hierarchy.getPathCost(sources[i], targets[i]) - expected[i]) > 1e-3f * Math.max(1.0f, expected[i])) {
+                ++mismatches;
+            }
+        }
+        long hierarchyTime = System.nanoTime() - startTime;
+
+        System.out.println("** Dijkstra took " + dijkstraTime / Math.pow(10, 9) + " secs settling " + graph.getSettledNodes()
+                + " nodes, the hierarchy took " + hierarchyTime / Math.pow(10, 9) + " secs settling " + hierarchy.getSettledNodes()
+                + " nodes, " + mismatches + " mismatches");
+    }
+}
@@ -22,11 +22,13 @@ import grammar.Graph;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 
 abstract class DivSetComparatorOrdered<NodeT> implements Comparator<ArrayList<NodeT>> {
 
     final protected Map<ArrayList<NodeT>,Float> cache = new HashMap<>();
+    final protected Map<NodeT,Map<NodeT,Float>> distances = new HashMap<>();
     final protected ContentSimilarity<NodeT> context;
     final protected Graph<NodeT> graph;
     final protected NodeT q;
@@ -56,6 +58,26 @@ abstract class DivSetComparatorOrdered<NodeT> implements Comparator<ArrayList<No
         }
     }
     abstract public float computeScore (ArrayList<NodeT> set);
+
+    /* Fills the distances among the query and the candidates out of one many-to-many
+     * distance table, rather than a point-to-point search per pair */
+    public void prefetch (Collection<NodeT> candidates) {
+        ArrayList<NodeT> nodes = new ArrayList<>(candidates);
+        nodes.add(q);
+        float[][] table = graph.distanceTable(nodes,nodes);
+        for (int i=0; i<nodes.size(); ++i) {
+            Map<NodeT,Float> row = distances.get(nodes.get(i));
+            if (row==null) distances.put(nodes.get(i),row=new HashMap<>());
+            for (int j=0; j<nodes.size(); ++j) row.put(nodes.get(j),table[i][j]);
+        }
+    }
+
+    /* network distance, out of the prefetched ones when there */
+    protected float distance (NodeT from,NodeT to) {
+        Map<NodeT,Float> row = distances.get(from);
+        Float dist = row==null?null:row.get(to);
+        return dist==null?graph.getPathCost(from,to):dist;
+    }
 }
 
 final class SumDivSetComparatorOrdered<NodeT> extends DivSetComparatorOrdered<NodeT> {
@@ -69,11 +91,11 @@ final class SumDivSetComparatorOrdered<NodeT> extends DivSetComparatorOrdered<No
             for (int i=0;i<set.size();++i) {
                 NodeT s = set.get(i);
 
-                qfactor += alpha*graph.getPathCost(q,s) + 
+                qfactor += alpha*distance(q,s) + 
                            (1-alpha)*graph.numberNodes()*(1-context.similarity(q,s));
                 for (int j=i+1; j<set.size(); ++j) {
                     NodeT recipr = set.get(j);
-                    Sfactor += beta*graph.getPathCost(s,recipr) + (1-beta)*graph.numberNodes()*(1-context.similarity(s,recipr));
+                    Sfactor += beta*distance(s,recipr) + (1-beta)*graph.numberNodes()*(1-context.similarity(s,recipr));
                 }
             }
             float score = (lambda*qfactor - 2*(1-lambda)*Sfactor/(set.size()-1))/set.size();
@@ -93,13 +115,13 @@ final class MaxDivSetComparatorOrdered<NodeT> extends DivSetComparatorOrdered<No
             float Sfactor = Float.MAX_VALUE;
             for (int i=0;i<set.size();++i) {
             NodeT s = set.get(i);
-                float qdist = alpha*graph.getPathCost(q,s) + 
+                float qdist = alpha*distance(q,s) + 
                                (1-alpha)*graph.numberNodes()*(1-context.similarity(q,s));
                 if (qdist>qfactor) qfactor = qdist;
                 for (int j=i+1; j<set.size(); ++j) {
                     NodeT recipr = set.get(j);
                     if (!recipr.equals(s)) {
-                        float Sdist = beta*graph.getPathCost(s,recipr) + (1-beta)*graph.numberNodes()*(1-context.similarity(s,recipr));
+                        float Sdist = beta*distance(s,recipr) + (1-beta)*graph.numberNodes()*(1-context.similarity(s,recipr));
                         if (Sdist<Sfactor) Sfactor = Sdist;
                     }
                 }
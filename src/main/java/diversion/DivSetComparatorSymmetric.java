@@ -22,11 +22,13 @@ import grammar.Graph;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 
 abstract class DivSetComparatorSymmetric<NodeT> implements Comparator<ArrayList<NodeT>> {
 
     final protected Map<ArrayList<NodeT>,Float> cache = new HashMap<>();
+    final protected Map<NodeT,Map<NodeT,Float>> distances = new HashMap<>();
     final protected ContentSimilarity<NodeT> context;
     final protected Graph<NodeT> graph;
     final protected NodeT q;
@@ -56,6 +58,26 @@ abstract class DivSetComparatorSymmetric<NodeT> implements Comparator<ArrayList<
         }
     }
     abstract public float computeScore (ArrayList<NodeT> set);
+
+    /* Fills the distances among the query and the candidates out of one many-to-many
+     * distance table, rather than a point-to-point search per pair */
+    public void prefetch (Collection<NodeT> candidates) {
+        ArrayList<NodeT> nodes = new ArrayList<>(candidates);
+        nodes.add(q);
+        float[][] table = graph.distanceTable(nodes,nodes);
+        for (int i=0; i<nodes.size(); ++i) {
+            Map<NodeT,Float> row = distances.get(nodes.get(i));
+            if (row==null) distances.put(nodes.get(i),row=new HashMap<>());
+            for (int j=0; j<nodes.size(); ++j) row.put(nodes.get(j),table[i][j]);
+        }
+    }
+
+    /* network distance, out of the prefetched ones when there */
+    protected float distance (NodeT from,NodeT to) {
+        Map<NodeT,Float> row = distances.get(from);
+        Float dist = row==null?null:row.get(to);
+        return dist==null?graph.getPathCost(from,to):dist;
+    }
 }
 
 final class SumDivSetComparatorSymmetric<NodeT> extends DivSetComparatorSymmetric<NodeT> {
@@ -67,11 +89,11 @@ final class SumDivSetComparatorSymmetric<NodeT> extends DivSetComparatorSymmetri
             float qfactor = 0.0f;
             float Sfactor = 0.0f;
             for (NodeT s : set) {
-                qfactor += .5*alpha*(graph.getPathCost(q,s)+graph.getPathCost(s,q)) + 
+                qfactor += .5*alpha*(distance(q,s)+distance(s,q)) + 
                            (1-alpha)*graph.numberNodes()*(1-context.similarity(q,s));
                 for (NodeT recipr : set) {
                     if (!recipr.equals(s)) {
-                        Sfactor += beta*graph.getPathCost(s,recipr) 
+                        Sfactor += beta*distance(s,recipr) 
                                 + (1-beta)*graph.numberNodes()*(1-context.similarity(s,recipr));
                     }
                 }
@@ -92,12 +114,12 @@ final class MaxDivSetComparatorSymmetric<NodeT> extends DivSetComparatorSymmetri
             float qfactor = 0.0f;
             float Sfactor = Float.MAX_VALUE;
             for (NodeT s : set) {
-                float qdist = .5f*alpha*(graph.getPathCost(q,s)+graph.getPathCost(s,q)) + 
+                float qdist = .5f*alpha*(distance(q,s)+distance(s,q)) + 
                                (1-alpha)*graph.numberNodes()*(1-context.similarity(q,s));
                 if (qdist>qfactor) qfactor = qdist;
                 for (NodeT recipr : set) {
                     if (!recipr.equals(s)) {
-                        float Sdist = beta*graph.getPathCost(s,recipr) + (1-beta)*graph.numberNodes()*(1-context.similarity(s,recipr));
+                        float Sdist = beta*distance(s,recipr) + (1-beta)*graph.numberNodes()*(1-context.similarity(s,recipr));
                         if (Sdist<Sfactor) Sfactor = Sdist;
                     }
                 }
@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.HashMap;
 import java.util.Map;
 import grammar.Edge;
+import grammar.EdgeCursor;
 import grammar.Graph;
 import grammar.MinPQ;
 import grammar.UndirectedGraph;
@@ -66,6 +67,7 @@ final class GraphDivIterable<NodeT> implements Iterable<NodeT> {
         private final ArrayList<NodeT> partialScoresList = new ArrayList<>();
 
         private final ArrayDeque<NodeT> returnedResults = new ArrayDeque<>();
+        private final EdgeCursor<NodeT> edges = new EdgeCursor<>();
 
         private final VertexComparator<NodeT> cmp;
         private final Graph<NodeT> graph;
@@ -279,32 +281,33 @@ final class GraphDivIterable<NodeT> implements Iterable<NodeT> {
                         if (logMemory && !exists) reservedBytesProcessing += 4;
                     }
 
-                    for (Edge<NodeT> edge : graph.getEdgesFrom(top.to)) {
-                        Map<NodeT,Float> tempmap = dists.get(edge.to);
-                        float newdist = edge.weight + top.weight;
+                    for (graph.getEdgesFrom(top.to,edges); edges.next(); ) {
+                        NodeT neighbor = edges.to();
+                        Map<NodeT,Float> tempmap = dists.get(neighbor);
+                        float newdist = edges.weight() + top.weight;
                         if (tempmap==null) {
                             tempmap = new HashMap<>();
-                            dists.put(edge.to,tempmap);
+                            dists.put(neighbor,tempmap);
                             tempmap.put(top.from,newdist);
-                            minCostExpansionHeap.insert (new Edge<>(top.from,edge.to,newdist));
+                            minCostExpansionHeap.insert (new Edge<>(top.from,neighbor,newdist));
 
                             if (logMemory) reservedBytesProcessing += 48;
 
                             boolean exists = removeFromSortedList (top.to,partialScoresList);
                             if (logMemory && !exists) reservedBytesProcessing += 4;
 
-                            cmp.computeStoreScore (edge.to,tempmap);
+                            cmp.computeStoreScore (neighbor,tempmap);
                             addToSortedList(top.to,partialScoresList);
                         }else if (!tempmap.containsKey(top.from) || newdist<tempmap.get(top.from)) {
                             tempmap.put (top.from,newdist);
-                            minCostExpansionHeap.insert (new Edge<>(top.from,edge.to,newdist));
+                            minCostExpansionHeap.insert (new Edge<>(top.from,neighbor,newdist));
 
                             if (logMemory) reservedBytesProcessing += 32;
 
                             boolean exists = removeFromSortedList (top.to,partialScoresList);
                             if (logMemory && !exists) reservedBytesProcessing += 4;
 
-                            cmp.computeStoreScore (edge.to,tempmap);
+                            cmp.computeStoreScore (neighbor,tempmap);
                             addToSortedList(top.to,partialScoresList);
                         }
                     }
@@ -185,6 +185,12 @@ final public class GreedyDiversion {
                                             new diversion.MaxDivSetComparatorSymmetric<>(q,graph,context,l,a,b)
                                             :new diversion.MaxDivSetComparatorOrdered<>(q,graph,context,l,a,b));
 
+        /* the sets are scored out of the distances among their nodes, fetched at once */
+        HashSet<NodeT> members = new HashSet<>();
+        for (ArrayList<NodeT> candidate : candidates) members.addAll(candidate);
+        if (cmp instanceof DivSetComparatorSymmetric<?>) ((DivSetComparatorSymmetric<NodeT>)cmp).prefetch(members);
+        else ((DivSetComparatorOrdered<NodeT>)cmp).prefetch(members);
+
         long memConsumption = 0L;
         Map<ArrayList<NodeT>,Iterator<NodeT>> iterators = new HashMap<>();
         for (ArrayList<NodeT> candidate : candidates) {
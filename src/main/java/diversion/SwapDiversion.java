@@ -28,6 +28,7 @@ import java.util.Collection;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
 /*
@@ -107,6 +108,12 @@ final public class SwapDiversion {
                                                   new MaxDivSetComparatorSymmetric<>(q,graph,context,l,a,b)
                                                   :new MaxDivSetComparatorOrdered<>(q,graph,context,l,a,b));
 
+        /* the sets are scored out of the distances among their nodes, fetched at once */
+        HashSet<NodeT> members = new HashSet<>();
+        for (ArrayList<NodeT> S : seeds) members.addAll(S);
+        if (cmp instanceof DivSetComparatorSymmetric<?>) ((DivSetComparatorSymmetric<NodeT>)cmp).prefetch(members);
+        else ((DivSetComparatorOrdered<NodeT>)cmp).prefetch(members);
+
         Map<ArrayList<NodeT>,Iterator<NodeT>> iterators = new HashMap<>();
         Map<ArrayList<NodeT>,Map<NodeT,NodeT>> lineages = new HashMap<>();
         MinPQ<ArrayList<NodeT>> subsets = new MinPQ<>(cmp);
@@ -0,0 +1,304 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Parallel all-pairs shortest paths over the CSR snapshot of a graph, into
+ * a {@link DistanceTable}. Johnson's algorithm forks Dijkstra searches over
+ * ranges of sources, each worker reusing its own heap, after re-weighting
+ * the arcs with Bellman-Ford potentials if some are negative. Floyd-Warshall
+ * runs on a dense matrix in tiles of TILE x TILE distances: for each block of
+ * pivots the diagonal tile is updated first, then the tiles in its row and
+ * column, and finally all the rest, tiles of the same phase in parallel.
+ * Johnson's is the one for sparse graphs; Floyd-Warshall pays off only for
+ * small dense ones.
+ */
+public final class AllPairsShortestPaths {
+
+    private static final Logger logger = Logger.getLogger(AllPairsShortestPaths.class);
+
+    public static final int TILE = 64;
+
+    /* sources per task, below which ranges are no longer split */
+    private static final int GRAIN = 16;
+
+    /* largest matrix with rows of int-indexed arrays, for Floyd-Warshall */
+    private static final int MAX_DENSE_NODES = 46340;
+
+    private AllPairsShortestPaths() {}
+
+    public static <NodeT> DistanceTable<NodeT> johnson(Graph<NodeT> graph) {
+        return johnson(graph.freeze(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public static <NodeT> DistanceTable<NodeT> floyd(Graph<NodeT> graph) {
+        return floyd(graph.freeze(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public static <NodeT> DistanceTable<NodeT> johnson(final CsrGraph<NodeT> graph, int threads) {
+        long startTime = System.nanoTime();
+        final int n = graph.numberNodes();
+        final float[] potentials = graph.containsNegativeWeightEdges() ? potentials(graph) : new float[n];
+
+        /* re-weighted arcs are non-negative, up to rounding */
+        final float[] weights = new float[graph.numberArcs()];
+        for (int u = 0; u < n; ++u) {
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                weights[arc] = Math.max(0.0f, graph.weights[arc] + potentials[u] - potentials[graph.targets[arc]]);
+            }
+        }
+
+        final float[][] dists = new float[n][];
+        final ThreadLocal<IndexMinPQ> heaps = new ThreadLocal<IndexMinPQ>() {
+            @Override
+            protected IndexMinPQ initialValue() {
+                return new IndexMinPQ(n);
+            }
+        };
+
+        final class Sources extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final int from, to;
+
+            Sources(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > GRAIN) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new Sources(from, middle), new Sources(middle, to));
+                    return;
+                }
+                IndexMinPQ heap = heaps.get();
+                for (int s = from; s < to; ++s) {
+                    float[] row = new float[n];
+                    Arrays.fill(row, Float.POSITIVE_INFINITY);
+                    row[s] = 0.0f;
+                    heap.insert(s, 0.0f);
+                    while (!heap.isEmpty()) {
+                        float dist = heap.minPriority();
+                        int u = heap.delMin();
+                        for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                            int v = graph.targets[arc];
+                            float newdist = dist + weights[arc];
+                            if (newdist < row[v]) {
+                                row[v] = newdist;
+                                heap.offer(v, newdist);
+                            }
+                        }
+                    }
+                    for (int t = 0; t < n; ++t) {
+                        row[t] = row[t] < Float.POSITIVE_INFINITY ? row[t] - potentials[s] + potentials[t] : Float.MAX_VALUE;
+                    }
+                    dists[s] = row;
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.invoke(new Sources(0, n));
+        } finally {
+            pool.shutdown();
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Johnson's algorithm computed " + n + "x" + n
+                + " distances with " + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        ArrayList<NodeT> nodes = graph.getNodes();
+        return new DistanceTable<>(nodes, nodes, dists);
+    }
+
+    /**
+     * @return the distances from a virtual source linked to every node with
+     * zero-weight arcs, computed with Bellman-Ford, for re-weighting the arcs.
+     */
+    private static <NodeT> float[] potentials(CsrGraph<NodeT> graph) {
+        int n = graph.numberNodes();
+        float[] potentials = new float[n];
+        for (int round = 0; round <= n; ++round) {
+            boolean relaxed = false;
+            for (int u = 0; u < n; ++u) {
+                for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                    int v = graph.targets[arc];
+                    if (potentials[u] + graph.weights[arc] < potentials[v]) {
+                        potentials[v] = potentials[u] + graph.weights[arc];
+                        relaxed = true;
+                    }
+                }
+            }
+            if (!relaxed) {
+                return potentials;
+            }
+        }
+        throw new RuntimeException("\n!! Johnson's algortihm cannot be used in the presence of cycles with negative weight edges !!");
+    }
+
+    public static <NodeT> DistanceTable<NodeT> floyd(CsrGraph<NodeT> graph, int threads) {
+        long startTime = System.nanoTime();
+        final int n = graph.numberNodes();
+        if (n > MAX_DENSE_NODES) {
+            throw new RuntimeException("\n!! ERROR - Graph of " + n + " nodes is too large for a dense distance matrix !!");
+        }
+
+        final float[][] dists = new float[n][n];
+        for (int u = 0; u < n; ++u) {
+            Arrays.fill(dists[u], Float.POSITIVE_INFINITY);
+            dists[u][u] = 0.0f;
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                int v = graph.targets[arc];
+                dists[u][v] = Math.min(dists[u][v], graph.weights[arc]);
+            }
+        }
+
+        final int blocks = (n + TILE - 1) / TILE;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            for (int kb = 0; kb < blocks; ++kb) {
+                final int k = kb;
+                relaxTile(dists, n, k, k, k);
+
+                ArrayList<Callable<Void>> tasks = new ArrayList<>();
+                for (int b = 0; b < blocks; ++b) {
+                    if (b != k) {
+                        final int other = b;
+                        tasks.add(new Callable<Void>() {
+                            @Override
+                            public Void call() {
+                                relaxTile(dists, n, k, other, k);
+                                relaxTile(dists, n, other, k, k);
+                                return null;
+                            }
+                        });
+                    }
+                }
+                pool.invokeAll(tasks);
+
+                tasks.clear();
+                for (int b = 0; b < blocks; ++b) {
+                    if (b != k) {
+                        final int ib = b;
+                        tasks.add(new Callable<Void>() {
+                            @Override
+                            public Void call() {
+                                for (int jb = 0; jb < blocks; ++jb) {
+                                    if (jb != k) {
+                                        relaxTile(dists, n, ib, jb, k);
+                                    }
+                                }
+                                return null;
+                            }
+                        });
+                    }
+                }
+                pool.invokeAll(tasks);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int u = 0; u < n; ++u) {
+            if (dists[u][u] < 0.0f) {
+                throw new RuntimeException("\n!! Floyd-Warshall algortihm cannot be used in the presence of cycles with negative weight edges !!");
+            }
+            for (int v = 0; v < n; ++v) {
+                if (dists[u][v] == Float.POSITIVE_INFINITY) {
+                    dists[u][v] = Float.MAX_VALUE;
+                }
+            }
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Floyd-Warshall algorithm computed " + n + "x" + n
+                + " distances with " + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        ArrayList<NodeT> nodes = graph.getNodes();
+        return new DistanceTable<>(nodes, nodes, dists);
+    }
+
+    /* relaxes the distances of tile (ib,jb) through the pivots of block kb */
+    private static void relaxTile(float[][] dists, int n, int ib, int jb, int kb) {
+        int iend = Math.min(n, (ib + 1) * TILE), jend = Math.min(n, (jb + 1) * TILE), kend = Math.min(n, (kb + 1) * TILE);
+        for (int k = kb * TILE; k < kend; ++k) {
+            float[] pivot = dists[k];
+            for (int i = ib * TILE; i < iend; ++i) {
+                float dik = dists[i][k];
+                if (dik == Float.POSITIVE_INFINITY) {
+                    continue;
+                }
+                float[] row = dists[i];
+                for (int j = jb * TILE; j < jend; ++j) {
+                    float sum = dik + pivot[j];
+                    if (sum < row[j]) {
+                        row[j] = sum;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the engines against Graph.johnson on a random directed graph;
+     * use as: AllPairsShortestPaths [nodes] [edges per node] [threads]
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int degree = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Random rand = new Random(7);
+        Graph<Integer> graph = new DirectedGraph<>();
+        for (int u = 0; u < n; ++u) {
+            graph.addNode(u);
+            for (int i = 0; i < degree; ++i) {
+                graph.setEdge(u, rand.nextInt(n), 1.0f + rand.nextFloat());
+            }
+        }
+
+        long startTime = System.nanoTime();
+        java.util.Map<Integer, Graph<Integer>> apsp = graph.johnson();
+        long endTime = System.nanoTime();
+        System.out.println("** Graph.johnson took " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+
+        CsrGraph<Integer> frozen = graph.freeze();
+        DistanceTable<Integer> johnson = johnson(frozen, threads);
+        DistanceTable<Integer> floyd = floyd(frozen, threads);
+        int mismatches = 0;
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                if (Math.abs(johnson.get(i, j) - floyd.get(i, j)) > 1e-3f * Math.max(1.0f, johnson.get(i, j))) {
+                    ++mismatches;
+                }
+            }
+        }
+        System.out.println("** " + mismatches + " mismatches between Johnson's and Floyd-Warshall tables, " + apsp.size() + " trees from Graph.johnson.");
+    }
+}
@@ -0,0 +1,435 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.text.NumberFormat;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Versioned binary snapshots of graphs, and the means for other modules to
+ * store their own data (coordinates, content models) the same way, so that
+ * they are loaded without parsing any text. Every snapshot starts with a
+ * header of the magic number, the format version, the kind of its content
+ * and the type of its node keys (strings, longs or ints), followed by the
+ * content itself in big-endian order. Snapshots are read through memory
+ * mapped windows of the file, and primitive arrays are copied in bulk.
+ * <p>
+ * Graphs are stored in CSR layout, as given by {@link Graph#freeze()}: the
+ * node, arc and negative edge counts, the offsets, targets and weights arrays,
+ * and finally the node keys in index order.
+ */
+public final class BinarySnapshot {
+
+    private static final Logger logger = Logger.getLogger(BinarySnapshot.class);
+
+    public static final int MAGIC = 0x47524d52; // "GRMR"
+    public static final int VERSION = 1;
+
+    public static final byte GRAPH = 1;
+    public static final byte COORDINATES = 2;
+    public static final byte CONTENT_MODEL = 3;
+    public static final byte TABLE = 4;
+
+    public static final byte STRING_KEYS = 0;
+    public static final byte LONG_KEYS = 1;
+    public static final byte INT_KEYS = 2;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private BinarySnapshot() {}
+
+    /**
+     * @return the key type tag of the given node, assuming that all nodes of
+     * the same collection are of the same type.
+     */
+    public static byte keyTypeOf(Object sample) {
+        if (sample == null || sample instanceof String) {
+            return STRING_KEYS;
+        } else if (sample instanceof Long) {
+            return LONG_KEYS;
+        } else if (sample instanceof Integer) {
+            return INT_KEYS;
+        } else {
+            throw new IllegalArgumentException("\n!! ERROR - Nodes of type " + sample.getClass().getName() + " cannot be stored in snapshots !!");
+        }
+    }
+
+    public static final class Writer {
+
+        private static final int BUFFER_SIZE = 1 << 20;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final byte keyType;
+
+        @SuppressWarnings("resource")
+        public Writer(String filename, byte kind, byte keyType) throws IOException {
+            channel = new FileOutputStream(filename).getChannel();
+            this.keyType = keyType;
+            writeInt(MAGIC);
+            writeInt(VERSION);
+            writeByte(kind);
+            writeByte(keyType);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        public void writeByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        public void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        public void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        public void writeFloat(float value) throws IOException {
+            ensure(4);
+            buffer.putFloat(value);
+        }
+
+        public void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(UTF8);
+            writeInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        public void writeInts(int[] values, int from, int to) throws IOException {
+            while (from < to) {
+                ensure(4);
+                int length = Math.min(buffer.remaining() >> 2, to - from);
+                buffer.asIntBuffer().put(values, from, length);
+                buffer.position(buffer.position() + (length << 2));
+                from += length;
+            }
+        }
+
+        public void writeFloats(float[] values, int from, int to) throws IOException {
+            while (from < to) {
+                ensure(4);
+                int length = Math.min(buffer.remaining() >> 2, to - from);
+                buffer.asFloatBuffer().put(values, from, length);
+                buffer.position(buffer.position() + (length << 2));
+                from += length;
+            }
+        }
+
+        public void writeNode(Object node) throws IOException {
+            if (keyTypeOf(node) != keyType) {
+                throw new IllegalArgumentException("\n!! ERROR - Node " + node + " does not match the key type of the snapshot !!");
+            }
+            switch (keyType) {
+                case LONG_KEYS:
+                    writeLong((Long) node);
+                    break;
+                case INT_KEYS:
+                    writeInt((Integer) node);
+                    break;
+                default:
+                    writeString((String) node);
+            }
+        }
+
+        public void close() throws IOException {
+            flush();
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    public static final class Reader {
+
+        private static final long WINDOW_SIZE = 1L << 30;
+
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final long length;
+        private final byte kind;
+        private final byte keyType;
+        private final int version;
+
+        private MappedByteBuffer window;
+        private long base = 0;
+
+        public Reader(String filename, byte expectedKind) throws IOException {
+            file = new RandomAccessFile(filename, "r");
+            channel = file.getChannel();
+            length = channel.size();
+            map(0);
+
+            if (length < 10 || readInt() != MAGIC) {
+                close();
+                throw new IOException("File '" + filename + "' is not a snapshot");
+            }
+            version = readInt();
+            if (version > VERSION) {
+                close();
+                throw new IOException("Snapshot '" + filename + "' is of version " + version + ", while up to version " + VERSION + " is supported");
+            }
+            kind = readByte();
+            if (kind != expectedKind) {
+                close();
+                throw new IOException("Snapshot '" + filename + "' is of kind " + kind + " instead of " + expectedKind);
+            }
+            keyType = readByte();
+        }
+
+        private void map(long position) throws IOException {
+            base = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, length - position));
+        }
+
+        /* slides the window, so that the next bytes are mapped */
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = base + window.position();
+                if (position + bytes > length) {
+                    throw new IOException("Unexpected end of snapshot");
+                }
+                map(position);
+            }
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public byte getKeyType() {
+            return keyType;
+        }
+
+        public byte readByte() throws IOException {
+            ensure(1);
+            return window.get();
+        }
+
+        public int readInt() throws IOException {
+            ensure(4);
+            return window.getInt();
+        }
+
+        public long readLong() throws IOException {
+            ensure(8);
+            return window.getLong();
+        }
+
+        public float readFloat() throws IOException {
+            ensure(4);
+            return window.getFloat();
+        }
+
+        public String readString() throws IOException {
+            int size = readInt();
+            ensure(size);
+            byte[] bytes = new byte[size];
+            window.get(bytes);
+            return new String(bytes, UTF8);
+        }
+
+        public void readInts(int[] values, int from, int to) throws IOException {
+            while (from < to) {
+                ensure(4);
+                int length = Math.min(window.remaining() >> 2, to - from);
+                window.asIntBuffer().get(values, from, length);
+                window.position(window.position() + (length << 2));
+                from += length;
+            }
+        }
+
+        public void readFloats(float[] values, int from, int to) throws IOException {
+            while (from < to) {
+                ensure(4);
+                int length = Math.min(window.remaining() >> 2, to - from);
+                window.asFloatBuffer().get(values, from, length);
+                window.position(window.position() + (length << 2));
+                from += length;
+            }
+        }
+
+        public Object readNode() throws IOException {
+            switch (keyType) {
+                case LONG_KEYS:
+                    return readLong();
+                case INT_KEYS:
+                    return readInt();
+                default:
+                    return readString();
+            }
+        }
+
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+            file.close();
+        }
+    }
+
+    public static <NodeT> void saveGraph(Graph<NodeT> graph, String filename) {
+        saveGraph(graph.freeze(), filename);
+    }
+
+    public static <NodeT> void saveGraph(CsrGraph<NodeT> graph, String filename) {
+        long startTime = System.nanoTime();
+        int n = graph.numberNodes();
+        try {
+            Writer out = new Writer(filename, GRAPH, keyTypeOf(n > 0 ? graph.getNode(0) : null));
+            try {
+                out.writeByte(graph.isDirected() ? (byte) 1 : (byte) 0);
+                out.writeInt(n);
+                out.writeInt(graph.numberArcs());
+                out.writeInt(graph.numberEdges());
+                out.writeInt(graph.numberNegativeEdges());
+                out.writeInts(graph.offsets, 0, n + 1);
+                out.writeInts(graph.targets, 0, graph.numberArcs());
+                out.writeFloats(graph.weights, 0, graph.numberArcs());
+                for (int i = 0; i < n; ++i) {
+                    out.writeNode(graph.getNode(i));
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("\n!! ERROR - Unable to save snapshot '" + filename + "': " + e.getMessage() + " !!");
+        }
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Saved " + n + " nodes and " + graph.numberArcs() + " arcs to snapshot '" + filename + "' in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+    }
+
+    /**
+     * @return the immutable CSR graph stored in the snapshot, which involves
+     * no more than copying its arrays and hashing its node keys.
+     */
+    @SuppressWarnings("unchecked")
+    public static <NodeT> CsrGraph<NodeT> loadFrozenGraph(String filename) {
+        long startTime = System.nanoTime();
+        CsrGraph<NodeT> graph;
+        try {
+            Reader in = new Reader(filename, GRAPH);
+            try {
+                boolean directed = in.readByte() != 0;
+                int n = in.readInt();
+                int m = in.readInt();
+                int countEdges = in.readInt();
+                int countNegativeWeightEdges = in.readInt();
+
+                int[] offsets = new int[n + 1];
+                int[] targets = new int[m];
+                float[] weights = new float[m];
+                in.readInts(offsets, 0, n + 1);
+                in.readInts(targets, 0, m);
+                in.readFloats(weights, 0, m);
+
+                ArrayList<NodeT> nodes = new ArrayList<>(n);
+                for (int i = 0; i < n; ++i) {
+                    nodes.add((NodeT) in.readNode());
+                }
+
+                graph = new CsrGraph<>(directed, countEdges, countNegativeWeightEdges, nodes, offsets, targets, weights);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("\n!! ERROR - Unable to load snapshot '" + filename + "': " + e.getMessage() + " !!");
+        }
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Loaded " + graph.numberNodes() + " nodes and " + graph.numberArcs() + " arcs from snapshot '" + filename + "' in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return graph;
+    }
+
+    /**
+     * @return a new mutable graph, directed or undirected as the one stored in
+     * the snapshot; more expensive than {@link #loadFrozenGraph(String)}, as
+     * the edges are inserted in the hash-based adjacency of the graph, albeit
+     * at once through a {@link GraphBuilder}.
+     */
+    public static <NodeT> Graph<NodeT> loadGraph(String filename) {
+        CsrGraph<NodeT> frozen = loadFrozenGraph(filename);
+        long startTime = System.nanoTime();
+        GraphBuilder<NodeT> edges = new GraphBuilder<>(frozen.numberEdges());
+        for (int u = 0; u < frozen.numberNodes(); ++u) {
+            NodeT from = frozen.getNode(u);
+            for (int arc = frozen.firstOut(u); arc < frozen.endOut(u); ++arc) {
+                if (frozen.isDirected() || frozen.target(arc) >= u) {
+                    edges.add(from, frozen.getNode(frozen.target(arc)), frozen.weight(arc));
+                }
+            }
+        }
+        Graph<NodeT> graph = frozen.isDirected() ? new DirectedGraph<NodeT>() : new UndirectedGraph<NodeT>();
+        graph.setEdges(edges);
+        for (int u = 0; u < frozen.numberNodes(); ++u) {  // the nodes without any edges
+            graph.addNode(frozen.getNode(u));
+        }
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Built graph of " + graph.numberEdges() + " edges from snapshot '" + filename + "' in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return graph;
+    }
+
+    /**
+     * Converts a text edge-list to a snapshot; use as:
+     * BinarySnapshot edgelist snapshot [directed|undirected] [weighted|adjacency] [numeric|text]
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("\n!! ERROR - Should provide the paths to an edge-list and the snapshot to be produced !!");
+        }
+        boolean directed = args.length < 3 || !args[2].equalsIgnoreCase("undirected");
+        boolean weighted = args.length < 4 || !args[3].equalsIgnoreCase("adjacency");
+        boolean numeric = args.length < 5 || !args[4].equalsIgnoreCase("text");
+        NumberFormat format = numeric ? NumberFormat.getNumberInstance() : null;
+
+        Graph<Object> graph = directed ? new DirectedGraph<>(args[0], format, weighted) : new UndirectedGraph<>(args[0], format, weighted);
+        saveGraph(graph, args[1]);
+
+        Graph<Object> loaded = loadGraph(args[1]);
+        System.out.println("** Stored " + graph.numberNodes() + " nodes and " + graph.numberEdges() + " edges in " + new File(args[1]).length()
+                + " bytes; loaded back " + loaded.numberNodes() + " nodes and " + loaded.numberEdges() + " edges.");
+    }
+}
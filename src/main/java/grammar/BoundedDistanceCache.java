@@ -0,0 +1,327 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Distance cache bounded by the number of cached distances (or by an
+ * estimate of their footprint in bytes). Distances are grouped in rows by
+ * their source node, since that is how searches consult them, and whole rows
+ * are evicted once the bound is exceeded, either the least recently or the
+ * least frequently used ones, until the cache is back to 7/8 of its capacity.
+ * <p>
+ * Lookups never block; insertions only synchronize on the row they update,
+ * and eviction is carried out by a single thread at a time, while the others
+ * carry on.
+ */
+public final class BoundedDistanceCache<NodeT> implements DistanceCache<NodeT> {
+
+    public enum Policy {LRU, LFU}
+
+    /* rough footprint of a cached distance: hash entry, boxed key and value */
+    public static final int BYTES_PER_ENTRY = 64;
+
+    private final ConcurrentHashMap<NodeT, Row<NodeT>> rows = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final long maxEntries;
+    private final Policy policy;
+    private volatile float maxCachingRadius = Float.POSITIVE_INFINITY;
+
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicInteger maxDistance = new AtomicInteger(Float.floatToIntBits(0.0f)); // bits of the bound on cached distances
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static final class Row<NodeT> {
+
+        final NodeT source;
+        final ConcurrentHashMap<NodeT, Float> distances = new ConcurrentHashMap<>();
+        final AtomicLong frequency = new AtomicLong();
+        volatile long lastAccess;
+        boolean evicted = false; // guarded by the row itself
+
+        Row(NodeT source) {
+            this.source = source;
+            lastAccess = System.nanoTime();
+        }
+    }
+
+    public BoundedDistanceCache(long maxEntries, Policy policy) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("\n!! ERROR - Cache capacity should be positive !!");
+        }
+        this.maxEntries = maxEntries;
+        this.policy = policy;
+    }
+
+    public static <NodeT> BoundedDistanceCache<NodeT> withMaxBytes(long maxBytes, Policy policy) {
+        return new BoundedDistanceCache<>(Math.max(1, maxBytes / BYTES_PER_ENTRY), policy);
+    }
+
+    public long getCapacity() {
+        return maxEntries;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    private void touch(Row<NodeT> row) {
+        if (policy == Policy.LRU) {
+            row.lastAccess = System.nanoTime();
+        } else {
+            row.frequency.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Float get(NodeT from, NodeT to) {
+        Row<NodeT> row = rows.get(from);
+        Float distance = row == null ? null : row.distances.get(to);
+        if (distance == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+            touch(row);
+        }
+        return distance;
+    }
+
+    @Override
+    public Map<NodeT, Float> getDistancesFrom(NodeT from) {
+        Row<NodeT> row = rows.get(from);
+        if (row == null) {
+            return null;
+        }
+        touch(row);
+        return Collections.unmodifiableMap(row.distances);
+    }
+
+    @Override
+    public Set<NodeT> getSources() {
+        return Collections.unmodifiableSet(rows.keySet());
+    }
+
+    @Override
+    public boolean put(NodeT from, NodeT to, float distance) {
+        if (!(distance <= maxCachingRadius)) {
+            return false;
+        }
+
+        for (;;) {
+            Row<NodeT> row = rows.get(from);
+            if (row == null) {
+                Row<NodeT> fresh = new Row<>(from);
+                row = rows.putIfAbsent(from, fresh);
+                if (row == null) {
+                    row = fresh;
+                }
+            }
+            synchronized (row) {
+                if (row.evicted) {
+                    continue; // lost the race against eviction, try a new row
+                }
+                boolean added = row.distances.put(to, distance) == null;
+                touch(row);
+                raiseMaxDistance(distance);
+                if (!added || entries.incrementAndGet() <= maxEntries) {
+                    return true;
+                }
+            }
+            evict();
+            return true;
+        }
+    }
+
+    private void raiseMaxDistance(float distance) {
+        for (int bits = maxDistance.get(); distance > Float.intBitsToFloat(bits); bits = maxDistance.get()) {
+            if (maxDistance.compareAndSet(bits, Float.floatToIntBits(distance))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(NodeT from, NodeT to) {
+        Row<NodeT> row = rows.get(from);
+        if (row == null) {
+            return false;
+        }
+        synchronized (row) {
+            if (!row.evicted && row.distances.remove(to) != null) {
+                entries.decrementAndGet();
+                if (row.distances.isEmpty()) { // empty rows are not left behind as victims of no use
+                    row.evicted = true;
+                    rows.remove(row.source, row);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* a row as it stood when the eviction began, ordered by its priority to stay */
+    private static final class Candidate<NodeT> implements Comparable<Candidate<NodeT>> {
+
+        final Row<NodeT> row;
+        final long key;
+
+        Candidate(Row<NodeT> row, long key) {
+            this.row = row;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Candidate<NodeT> other) {
+            return key < other.key ? -1 : key > other.key ? 1 : 0;
+        }
+    }
+
+    /* victims are chosen in a single pass over a sorted snapshot of the rows,
+     * rather than by a scan of all rows per victim */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return; // somebody else is already on it
+        }
+        try {
+            long lowWaterMark = maxEntries - (maxEntries >> 3);
+            if (entries.get() <= lowWaterMark) {
+                return;
+            }
+            ArrayList<Candidate<NodeT>> candidates = new ArrayList<>(rows.size());
+            for (Row<NodeT> row : rows.values()) {
+                candidates.add(new Candidate<>(row, policy == Policy.LRU ? row.lastAccess : row.frequency.get()));
+            }
+            Collections.sort(candidates);
+            for (int i = 0; i < candidates.size() && entries.get() > lowWaterMark; ++i) {
+                Row<NodeT> victim = candidates.get(i).row;
+                synchronized (victim) {
+                    if (victim.evicted) {
+                        continue;
+                    }
+                    victim.evicted = true;
+                    rows.remove(victim.source, victim);
+                    entries.addAndGet(-victim.distances.size());
+                    evictions.addAndGet(victim.distances.size());
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        maxDistance.set(Float.floatToIntBits(0.0f)); // first, so that rows inserted meanwhile raise it again
+        for (Row<NodeT> row : rows.values()) {
+            synchronized (row) {
+                row.evicted = true;
+                rows.remove(row.source, row);
+                entries.addAndGet(-row.distances.size());
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        return entries.get();
+    }
+
+    @Override
+    public float getMaxCachedDistance() {
+        return Float.intBitsToFloat(maxDistance.get());
+    }
+
+    @Override
+    public float getMaxCachingRadius() {
+        return maxCachingRadius;
+    }
+
+    @Override
+    public void setMaxCachingRadius(float radius) {
+        maxCachingRadius = radius;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return policy + " cache of " + entries.get() + "/" + maxEntries + " distances in " + rows.size() + " rows, "
+                + hits.get() + " hits, " + misses.get() + " misses, " + evictions.get() + " evictions";
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final BoundedDistanceCache<Integer> cache = new BoundedDistanceCache<>(100000, Policy.LRU);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; ++t) {
+            final long seed = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    Random rand = new Random(seed);
+                    for (int i = 0; i < 1000000; ++i) {
+                        int u = rand.nextInt(1000), v = rand.nextInt(1000);
+                        if (cache.get(u, v) == null) {
+                            cache.put(u, v, u + v);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long counted = 0;
+        for (Integer u : cache.getSources()) {
+            counted += cache.getDistancesFrom(u).size();
+        }
+        System.out.println("** " + cache + " (" + counted + " distances actually stored)");
+    }
+}
@@ -0,0 +1,590 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Strongly and weakly connected components over the CSR snapshot of a graph,
+ * as int labels 0,1,...,k-1 indexed like the snapshot. Depth-first searches
+ * keep their frames on explicit stacks of arc positions, so that long paths,
+ * as those of road networks, cannot overflow the stack of the thread.
+ * <p>
+ * The parallel strongly connected components trim the nodes without incoming
+ * or without outgoing arcs first, which are components of their own, and then
+ * split the rest with forward-backward searches: the nodes both reachable from
+ * a pivot and reaching it make up its component, while the ones reachable
+ * only, the ones reaching it only, and the remaining ones are three disjoint
+ * subproblems solved in parallel, down to a size below which Tarjan's
+ * algorithm takes over. Weakly connected components come from a lock-free
+ * union-find, whose roots are linked through compare-and-set.
+ */
+public final class ConnectedComponents {
+
+    private static final Logger logger = Logger.getLogger(ConnectedComponents.class);
+
+    /* nodes of a subproblem below which forward-backward gives way to Tarjan's algorithm */
+    private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    /* nodes per union-find task */
+    private static final int GRAIN = 8192;
+
+    private ConnectedComponents() {}
+
+    /**
+     * @return the number of components given their labels.
+     */
+    public static int count(int[] labels) {
+        int max = -1;
+        for (int label : labels) {
+            max = Math.max(max, label);
+        }
+        return max + 1;
+    }
+
+    /**
+     * @return the node-to-component mapping of the given labels.
+     */
+    public static <NodeT> Map<NodeT, Integer> toMap(CsrGraph<NodeT> graph, int[] labels) {
+        Map<NodeT, Integer> components = new HashMap<>((labels.length << 2) / 3 + 1);
+        for (int u = 0; u < labels.length; ++u) {
+            components.put(graph.getNode(u), labels[u]);
+        }
+        return components;
+    }
+
+    /**
+     * Tarjan's algorithm, iterative.
+     */
+    public static int[] tarjan(CsrGraph<?> graph) {
+        int n = graph.numberNodes();
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        int[] nodes = new int[n];
+        for (int u = 0; u < n; ++u) {
+            nodes[u] = u;
+        }
+        tarjan(graph, nodes, n, null, 0, labels, new AtomicInteger(), new int[n], new int[n], new Frames(n));
+        return labels;
+    }
+
+    /* explicit stacks of the depth-first searches, of nodes and of their next arcs */
+    private static final class Frames {
+
+        final int[] nodes;
+        final int[] arcs;
+        final int[] visited; // nodes visited but not yet assigned to a component
+        int size = 0, visitedSize = 0;
+
+        Frames(int capacity) {
+            nodes = new int[capacity];
+            arcs = new int[capacity];
+            visited = new int[capacity];
+        }
+
+        void push(int u, int arc) {
+            nodes[size] = u;
+            arcs[size++] = arc;
+        }
+    }
+
+    /**
+     * Tarjan's algorithm upon the first count nodes of the given array, which
+     * follows only arcs towards nodes of the same color, if colors are given;
+     * index and low hold meaningful values only for those nodes, so disjoint
+     * subproblems may share them.
+     */
+    private static void tarjan(CsrGraph<?> graph, int[] nodes, int count, int[] colors, int color, int[] labels,
+            AtomicInteger counter, int[] index, int[] low, Frames frames) {
+        for (int i = 0; i < count; ++i) {
+            index[nodes[i]] = -1;
+        }
+        int order = 0;
+        for (int i = 0; i < count; ++i) {
+            int s = nodes[i];
+            if (index[s] >= 0) {
+                continue;
+            }
+            index[s] = low[s] = order++;
+            frames.visited[frames.visitedSize++] = s;
+            frames.push(s, graph.offsets[s]);
+            while (frames.size > 0) {
+                int top = frames.size - 1, u = frames.nodes[top];
+                if (frames.arcs[top] < graph.offsets[u + 1]) {
+                    int v = graph.targets[frames.arcs[top]++];
+                    if (colors != null && colors[v] != color) {
+                        continue;
+                    }
+                    if (index[v] < 0) {
+                        index[v] = low[v] = order++;
+                        frames.visited[frames.visitedSize++] = v;
+                        frames.push(v, graph.offsets[v]);
+                    } else if (labels[v] < 0) {
+                        low[u] = Math.min(low[u], index[v]);
+                    }
+                    continue;
+                }
+
+                --frames.size;
+                if (low[u] == index[u]) {
+                    int label = counter.getAndIncrement(), v;
+                    do {
+                        v = frames.visited[--frames.visitedSize];
+                        labels[v] = label;
+                    } while (v != u);
+                }
+                if (frames.size > 0) {
+                    int parent = frames.nodes[frames.size - 1];
+                    low[parent] = Math.min(low[parent], low[u]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gabow's path-based algorithm, iterative.
+     */
+    public static int[] gabow(CsrGraph<?> graph) {
+        int n = graph.numberNodes();
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        int[] preorder = new int[n];
+        Arrays.fill(preorder, -1);
+        int[] boundaries = new int[n];
+        Frames frames = new Frames(n);
+        int order = 0, counter = 0, countBoundaries = 0;
+        for (int s = 0; s < n; ++s) {
+            if (preorder[s] >= 0) {
+                continue;
+            }
+            preorder[s] = order++;
+            frames.visited[frames.visitedSize++] = s;
+            boundaries[countBoundaries++] = s;
+            frames.push(s, graph.offsets[s]);
+            while (frames.size > 0) {
+                int top = frames.size - 1, u = frames.nodes[top];
+                if (frames.arcs[top] < graph.offsets[u + 1]) {
+                    int v = graph.targets[frames.arcs[top]++];
+                    if (preorder[v] < 0) {
+                        preorder[v] = order++;
+                        frames.visited[frames.visitedSize++] = v;
+                        boundaries[countBoundaries++] = v;
+                        frames.push(v, graph.offsets[v]);
+                    } else if (labels[v] < 0) {
+                        while (preorder[boundaries[countBoundaries - 1]] > preorder[v]) {
+                            --countBoundaries;
+                        }
+                    }
+                    continue;
+                }
+
+                --frames.size;
+                if (boundaries[countBoundaries - 1] == u) {
+                    --countBoundaries;
+                    int v;
+                    do {
+                        v = frames.visited[--frames.visitedSize];
+                        labels[v] = counter;
+                    } while (v != u);
+                    ++counter;
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Kosaraju's algorithm, iterative: the nodes are taken in reverse
+     * postorder of the reverse graph, and each one not yet assigned collects
+     * the unassigned nodes it reaches into a new component.
+     */
+    public static int[] kosaraju(CsrGraph<?> graph) {
+        int n = graph.numberNodes();
+        int[] postorder = new int[n];
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        boolean[] marked = new boolean[n];
+        Frames frames = new Frames(n);
+        int visited = 0;
+        for (int s = 0; s < n; ++s) {
+            if (marked[s]) {
+                continue;
+            }
+            marked[s] = true;
+            frames.push(s, graph.reverseOffsets[s]);
+            while (frames.size > 0) {
+                int top = frames.size - 1, u = frames.nodes[top];
+                if (frames.arcs[top] < graph.reverseOffsets[u + 1]) {
+                    int v = graph.sources[frames.arcs[top]++];
+                    if (!marked[v]) {
+                        marked[v] = true;
+                        frames.push(v, graph.reverseOffsets[v]);
+                    }
+                } else {
+                    postorder[visited++] = u;
+                    --frames.size;
+                }
+            }
+        }
+
+        int counter = 0;
+        int[] stack = frames.visited;
+        for (int i = n - 1; i >= 0; --i) {
+            int s = postorder[i];
+            if (labels[s] >= 0) {
+                continue;
+            }
+            int size = 0;
+            labels[s] = counter;
+            stack[size++] = s;
+            while (size > 0) {
+                int u = stack[--size];
+                for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                    int v = graph.targets[arc];
+                    if (labels[v] < 0) {
+                        labels[v] = counter;
+                        stack[size++] = v;
+                    }
+                }
+            }
+            ++counter;
+        }
+        return labels;
+    }
+
+    public static int[] strong(CsrGraph<?> graph) {
+        return strong(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Strongly connected components by trimming and forward-backward searches
+     * run in parallel with the given number of threads.
+     */
+    public static int[] strong(final CsrGraph<?> graph, int threads) {
+        long startTime = System.nanoTime();
+        final int n = graph.numberNodes();
+        final int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        final AtomicInteger counter = new AtomicInteger();
+
+        /* trimming, repeatedly, as every removal may expose new nodes without arcs in or out */
+        int[] indegrees = new int[n], outdegrees = new int[n], queue = new int[n];
+        int head = 0, tail = 0;
+        for (int u = 0; u < n; ++u) {
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                if (graph.targets[arc] != u) {
+                    ++outdegrees[u];
+                    ++indegrees[graph.targets[arc]];
+                }
+            }
+        }
+        for (int u = 0; u < n; ++u) {
+            if (indegrees[u] == 0 || outdegrees[u] == 0) {
+                labels[u] = counter.getAndIncrement();
+                queue[tail++] = u;
+            }
+        }
+        while (head < tail) {
+            int u = queue[head++];
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                int v = graph.targets[arc];
+                if (labels[v] < 0 && --indegrees[v] == 0) {
+                    labels[v] = counter.getAndIncrement();
+                    queue[tail++] = v;
+                }
+            }
+            for (int arc = graph.reverseOffsets[u]; arc < graph.reverseOffsets[u + 1]; ++arc) {
+                int v = graph.sources[arc];
+                if (labels[v] < 0 && --outdegrees[v] == 0) {
+                    labels[v] = counter.getAndIncrement();
+                    queue[tail++] = v;
+                }
+            }
+        }
+        final int trimmed = tail;
+
+        /* nodes of a subproblem share its color; colors of settled nodes are -1 */
+        final int[] colors = new int[n];
+        int[] remaining = new int[n - trimmed];
+        int count = 0;
+        for (int u = 0; u < n; ++u) {
+            if (labels[u] < 0) {
+                remaining[count++] = u;
+            } else {
+                colors[u] = -1;
+            }
+        }
+        final int[] index = indegrees, low = outdegrees; // no longer needed for trimming
+        final AtomicInteger palette = new AtomicInteger(1);
+
+        final class Partition extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final int[] nodes;
+            private final int color;
+
+            Partition(int[] nodes, int color) {
+                this.nodes = nodes;
+                this.color = color;
+            }
+
+            /* marks with the given color the nodes of the subproblem reached from the pivot */
+            private int reach(int pivot, int from, int to, int[] queue, boolean backwards) {
+                int[] offs = backwards ? graph.reverseOffsets : graph.offsets;
+                int[] adjs = backwards ? graph.sources : graph.targets;
+                int head = 0, tail = 0;
+                queue[tail++] = pivot;
+                while (head < tail) {
+                    int u = queue[head++];
+                    for (int arc = offs[u]; arc < offs[u + 1]; ++arc) {
+                        int v = adjs[arc];
+                        if (colors[v] == from) {
+                            colors[v] = to;
+                            queue[tail++] = v;
+                        }
+                    }
+                }
+                return tail;
+            }
+
+            @Override
+            protected void compute() {
+                if (nodes.length == 0) {
+                    return;
+                }
+                if (nodes.length <= SEQUENTIAL_THRESHOLD) {
+                    tarjan(graph, nodes, nodes.length, colors, color, labels, counter, index, low, new Frames(nodes.length));
+                    return;
+                }
+
+                int pivot = nodes[0], forward = palette.getAndIncrement(), backward = palette.getAndIncrement();
+                int[] queue = new int[nodes.length];
+                colors[pivot] = forward;
+                reach(pivot, color, forward, queue, false);
+
+                /* nodes reaching the pivot are either in its component or reached backwards only */
+                int label = counter.getAndIncrement();
+                colors[pivot] = -1;
+                labels[pivot] = label;
+                int head = 0, tail = 0;
+                queue[tail++] = pivot;
+                while (head < tail) {
+                    int u = queue[head++];
+                    for (int arc = graph.reverseOffsets[u]; arc < graph.reverseOffsets[u + 1]; ++arc) {
+                        int v = graph.sources[arc];
+                        if (colors[v] == forward) {
+                            colors[v] = -1;
+                            labels[v] = label;
+                            queue[tail++] = v;
+                        } else if (colors[v] == color) {
+                            colors[v] = backward;
+                            queue[tail++] = v;
+                        }
+                    }
+                }
+
+                int countForward = 0, countBackward = 0, countRest = 0;
+                for (int u : nodes) {
+                    if (colors[u] == forward) {
+                        ++countForward;
+                    } else if (colors[u] == backward) {
+                        ++countBackward;
+                    } else if (colors[u] == color) {
+                        ++countRest;
+                    }
+                }
+                int[] forwardNodes = new int[countForward], backwardNodes = new int[countBackward], restNodes = new int[countRest];
+                countForward = countBackward = countRest = 0;
+                for (int u : nodes) {
+                    if (colors[u] == forward) {
+                        forwardNodes[countForward++] = u;
+                    } else if (colors[u] == backward) {
+                        backwardNodes[countBackward++] = u;
+                    } else if (colors[u] == color) {
+                        restNodes[countRest++] = u;
+                    }
+                }
+                invokeAll(new Partition(forwardNodes, forward), new Partition(backwardNodes, backward), new Partition(restNodes, color));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.invoke(new Partition(remaining, 0));
+        } finally {
+            pool.shutdown();
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Found " + counter.get() + " strongly connected components ("
+                + trimmed + " trimmed) with " + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return labels;
+    }
+
+    public static int[] weak(CsrGraph<?> graph) {
+        return weak(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /* root of u, halving the path towards it on the way */
+    private static int find(AtomicIntegerArray parents, int u) {
+        for (;;) {
+            int parent = parents.get(u);
+            if (parent == u) {
+                return u;
+            }
+            int grandparent = parents.get(parent);
+            if (parent != grandparent) {
+                parents.compareAndSet(u, parent, grandparent);
+            }
+            u = grandparent;
+        }
+    }
+
+    /* links the root of the larger index under the other one, so that roots are the least nodes of their components */
+    private static void union(AtomicIntegerArray parents, int u, int v) {
+        for (;;) {
+            u = find(parents, u);
+            v = find(parents, v);
+            if (u == v) {
+                return;
+            } else if (u < v) {
+                int swap = u;
+                u = v;
+                v = swap;
+            }
+            if (parents.compareAndSet(u, u, v)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Weakly connected components, i.e. the connected components of an
+     * undirected graph, by a union-find over the arcs run in parallel with
+     * the given number of threads.
+     */
+    public static int[] weak(final CsrGraph<?> graph, int threads) {
+        long startTime = System.nanoTime();
+        final int n = graph.numberNodes();
+        final AtomicIntegerArray parents = new AtomicIntegerArray(n);
+        for (int u = 0; u < n; ++u) {
+            parents.set(u, u);
+        }
+        final boolean directed = graph.isDirected();
+
+        final class Unions extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final int from, to;
+
+            Unions(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > GRAIN) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new Unions(from, middle), new Unions(middle, to));
+                    return;
+                }
+                for (int u = from; u < to; ++u) {
+                    for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                        int v = graph.targets[arc];
+                        if (directed || v < u) { // each undirected edge is stored both ways
+                            union(parents, u, v);
+                        }
+                    }
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.invoke(new Unions(0, n));
+        } finally {
+            pool.shutdown();
+        }
+
+        /* roots precede the other nodes of their components */
+        int[] labels = new int[n];
+        int counter = 0;
+        for (int u = 0; u < n; ++u) {
+            int root = find(parents, u);
+            labels[u] = root == u ? counter++ : labels[root];
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Found " + counter + " weakly connected components with "
+                + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return labels;
+    }
+
+    /**
+     * Compares the algorithms on a random directed graph of long chains;
+     * use as: ConnectedComponents [nodes] [threads]
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        Random rand = new Random(7);
+        GraphBuilder<Integer> builder = new GraphBuilder<>(3 * n);
+        for (int u = 0; u + 1 < n; ++u) {
+            builder.add(u, u + 1, 1.0f);
+            if (rand.nextInt(4) > 0) {
+                builder.add(u + 1, u, 1.0f);
+            }
+            builder.add(u, rand.nextInt(n), 1.0f);
+        }
+        Graph<Integer> graph = new DirectedGraph<>();
+        graph.setEdges(builder);
+        CsrGraph<Integer> frozen = graph.freeze();
+
+        ArrayList<String> timings = new ArrayList<>();
+        long startTime = System.nanoTime();
+        int components = count(tarjan(frozen));
+        timings.add("tarjan " + (System.nanoTime() - startTime) / Math.pow(10, 9));
+        startTime = System.nanoTime();
+        components = Math.min(components, count(gabow(frozen)));
+        timings.add("gabow " + (System.nanoTime() - startTime) / Math.pow(10, 9));
+        startTime = System.nanoTime();
+        components = Math.min(components, count(kosaraju(frozen)));
+        timings.add("kosaraju " + (System.nanoTime() - startTime) / Math.pow(10, 9));
+        startTime = System.nanoTime();
+        components = Math.min(components, count(strong(frozen, threads)));
+        timings.add("forward-backward " + (System.nanoTime() - startTime) / Math.pow(10, 9));
+        startTime = System.nanoTime();
+        int weak = count(weak(frozen, threads));
+        timings.add("union-find " + (System.nanoTime() - startTime) / Math.pow(10, 9));
+        System.out.println("** " + components + " strongly and " + weak + " weakly connected components; secs: " + timings);
+    }
+}
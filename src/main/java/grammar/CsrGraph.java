@@ -0,0 +1,966 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Immutable snapshot of a graph in Compressed Sparse Row (CSR) layout.
+ * Nodes are renumbered to dense indices 0..n-1, and the outgoing arcs of
+ * node i occupy positions offsets[i] up to offsets[i+1]-1 of the parallel
+ * arrays targets and weights, sorted by target index. A second CSR over the
+ * reversed arcs serves the backlinks; for undirected graphs both directions
+ * are stored anyway, so that one simply aliases the forward arrays.
+ * Instances are obtained through {@link Graph#freeze()}, and later updates
+ * of the originating graph are not reflected.
+ */
+public final class CsrGraph<NodeT> implements Iterable<Edge<NodeT>> {
+
+    private static final Logger logger = Logger.getLogger(CsrGraph.class);
+
+    private final boolean directed;
+    private final int countEdges;
+    private final int countNegativeWeightEdges;
+
+    private final ArrayList<NodeT> nodes;
+    private final HashMap<NodeT, Integer> dictionary;
+
+    /* scratch space of the path existence queries in progress */
+    private final TraversalContext.Pool<NodeT> traversals = new TraversalContext.Pool<>();
+
+    /* scratch space of the shortest path searches not in progress */
+    private final ArrayDeque<Scratch> scratches = new ArrayDeque<>();
+
+    final int[] offsets;
+    final int[] targets;
+    final float[] weights;
+
+    final int[] reverseOffsets;
+    final int[] sources;
+    final float[] reverseWeights;
+
+    CsrGraph(Graph<NodeT> graph) {
+        long startTime = System.nanoTime();
+
+        directed = !(graph instanceof UndirectedGraph<?>);
+        countEdges = graph.numberEdges();
+        countNegativeWeightEdges = graph.numberNegativeEdges();
+
+        nodes = graph.getNodes();
+        int n = nodes.size();
+        dictionary = new HashMap<>((n << 2) / 3 + 1);
+        for (int i = 0; i < n; ++i) {
+            dictionary.put(nodes.get(i), i);
+        }
+
+        int maxDegree = 0;
+        offsets = new int[n + 1];
+        for (int i = 0; i < n; ++i) {
+            Map<NodeT, Float> row = graph.matrix.mat.get(nodes.get(i));
+            int degree = row == null ? 0 : row.size();
+            offsets[i + 1] = offsets[i] + degree;
+            if (degree > maxDegree) {
+                maxDegree = degree;
+            }
+        }
+
+        targets = new int[offsets[n]];
+        weights = new float[offsets[n]];
+        long[] packed = new long[maxDegree];
+        for (int i = 0; i < n; ++i) {
+            Map<NodeT, Float> row = graph.matrix.mat.get(nodes.get(i));
+            if (row == null) {
+                continue;
+            }
+
+            int degree = 0;
+            for (Entry<NodeT, Float> entry : row.entrySet()) {
+                Integer to = dictionary.get(entry.getKey());
+                if (to == null) {
+                    throw new RuntimeException("\n!! ERROR - Edge target " + entry.getKey() + " is not a node of the graph !!");
+                }
+                packed[degree++] = ((long) to << 32) | (Float.floatToRawIntBits(entry.getValue()) & 0xffffffffL);
+            }
+            Arrays.sort(packed, 0, degree);
+            for (int pos = offsets[i], k = 0; k < degree; ++k, ++pos) {
+                targets[pos] = (int) (packed[k] >>> 32);
+                weights[pos] = Float.intBitsToFloat((int) packed[k]);
+            }
+        }
+
+        if (directed) {
+            reverseOffsets = new int[n + 1];
+            sources = new int[targets.length];
+            reverseWeights = new float[targets.length];
+            transpose(offsets, targets, weights, reverseOffsets, sources, reverseWeights);
+        } else {
+            reverseOffsets = offsets;
+            sources = targets;
+            reverseWeights = weights;
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Froze " + n + " nodes and " + targets.length + " arcs in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+    }
+
+    /**
+     * Adopts the given CSR arrays as they are, e.g. when loaded from a
+     * {@link BinarySnapshot}; the arcs of each node should be sorted by target.
+     */
+    CsrGraph(boolean directed, int countEdges, int countNegativeWeightEdges, ArrayList<NodeT> nodes, int[] offsets, int[] targets, float[] weights) {
+        if (offsets.length != nodes.size() + 1 || targets.length != weights.length || offsets[nodes.size()] != targets.length) {
+            throw new IllegalArgumentException("\n!! ERROR - Inconsistent CSR arrays !!");
+        }
+
+        this.directed = directed;
+        this.countEdges = countEdges;
+        this.countNegativeWeightEdges = countNegativeWeightEdges;
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+
+        int n = nodes.size();
+        dictionary = new HashMap<>((n << 2) / 3 + 1);
+        for (int i = 0; i < n; ++i) {
+            dictionary.put(nodes.get(i), i);
+        }
+
+        if (directed) {
+            reverseOffsets = new int[n + 1];
+            sources = new int[targets.length];
+            reverseWeights = new float[targets.length];
+            transpose(offsets, targets, weights, reverseOffsets, sources, reverseWeights);
+        } else {
+            reverseOffsets = offsets;
+            sources = targets;
+            reverseWeights = weights;
+        }
+    }
+
+    /* counting sort of the arcs by target; sources come out sorted as well */
+    private static void transpose(int[] offsets, int[] targets, float[] weights, int[] reverseOffsets, int[] sources, float[] reverseWeights) {
+        int n = offsets.length - 1;
+        for (int arc = 0; arc < targets.length; ++arc) {
+            ++reverseOffsets[targets[arc] + 1];
+        }
+        for (int i = 0; i < n; ++i) {
+            reverseOffsets[i + 1] += reverseOffsets[i];
+        }
+
+        int[] fill = Arrays.copyOf(reverseOffsets, n);
+        for (int i = 0; i < n; ++i) {
+            for (int arc = offsets[i]; arc < offsets[i + 1]; ++arc) {
+                int pos = fill[targets[arc]]++;
+                sources[pos] = i;
+                reverseWeights[pos] = weights[arc];
+            }
+        }
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    public int numberNodes() {
+        return nodes.size();
+    }
+
+    public int numberEdges() {
+        return countEdges;
+    }
+
+    /**
+     * @return the number of stored arcs; for undirected graphs each edge
+     * accounts for two arcs, unless it is a self-loop.
+     */
+    public int numberArcs() {
+        return targets.length;
+    }
+
+    public int numberNegativeEdges() {
+        return countNegativeWeightEdges;
+    }
+
+    public boolean containsNegativeWeightEdges() {
+        return countNegativeWeightEdges > 0;
+    }
+
+    public boolean containsNode(NodeT u) {
+        return dictionary.containsKey(u);
+    }
+
+    /**
+     * @return the dense index of the given node, or -1 if it does not exist.
+     */
+    public int indexOf(NodeT u) {
+        Integer index = dictionary.get(u);
+        return index == null ? -1 : index;
+    }
+
+    public NodeT getNode(int index) {
+        return nodes.get(index);
+    }
+
+    public ArrayList<NodeT> getNodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    /* arcs leaving node i are the ones in [firstOut(i),endOut(i)) */
+    public int firstOut(int i) {
+        return offsets[i];
+    }
+
+    public int endOut(int i) {
+        return offsets[i + 1];
+    }
+
+    public int target(int arc) {
+        return targets[arc];
+    }
+
+    public float weight(int arc) {
+        return weights[arc];
+    }
+
+    /* arcs entering node i are the ones in [firstIn(i),endIn(i)) */
+    public int firstIn(int i) {
+        return reverseOffsets[i];
+    }
+
+    public int endIn(int i) {
+        return reverseOffsets[i + 1];
+    }
+
+    public int source(int arc) {
+        return sources[arc];
+    }
+
+    public float reverseWeight(int arc) {
+        return reverseWeights[arc];
+    }
+
+    public int getOutDegree(NodeT u) {
+        int i = indexOf(u);
+        return i < 0 ? 0 : offsets[i + 1] - offsets[i];
+    }
+
+    public int getInDegree(NodeT u) {
+        int i = indexOf(u);
+        return i < 0 ? 0 : reverseOffsets[i + 1] - reverseOffsets[i];
+    }
+
+    public boolean containsEdge(NodeT from, NodeT to) {
+        return !Float.isNaN(getEdgeWeight(from, to));
+    }
+
+    /**
+     * @return the weight of the edge, or Float.NaN when there is no such edge,
+     * just like the adjacency matrix of the originating graph does.
+     */
+    public float getEdgeWeight(NodeT from, NodeT to) {
+        int u = indexOf(from), v = indexOf(to);
+        if (u < 0 || v < 0) {
+            return Float.NaN;
+        }
+        int arc = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+        return arc < 0 ? Float.NaN : weights[arc];
+    }
+
+    public ArrayDeque<NodeT> getNeighbors(NodeT from) {
+        ArrayDeque<NodeT> result = new ArrayDeque<>();
+        int u = indexOf(from);
+        if (u >= 0) {
+            for (int arc = offsets[u]; arc < offsets[u + 1]; ++arc) {
+                result.add(nodes.get(targets[arc]));
+            }
+        }
+        return result;
+    }
+
+    public ArrayDeque<Edge<NodeT>> getEdgesFrom(NodeT from) {
+        ArrayDeque<Edge<NodeT>> result = new ArrayDeque<>();
+        int u = indexOf(from);
+        if (u >= 0) {
+            for (int arc = offsets[u]; arc < offsets[u + 1]; ++arc) {
+                result.add(new Edge<>(from, nodes.get(targets[arc]), weights[arc]));
+            }
+        }
+        return result;
+    }
+
+    public ArrayDeque<Edge<NodeT>> getEdgesTo(NodeT to) {
+        ArrayDeque<Edge<NodeT>> result = new ArrayDeque<>();
+        int v = indexOf(to);
+        if (v >= 0) {
+            for (int arc = reverseOffsets[v]; arc < reverseOffsets[v + 1]; ++arc) {
+                result.add(new Edge<>(nodes.get(sources[arc]), to, reverseWeights[arc]));
+            }
+        }
+        return result;
+    }
+
+    private int checkedIndexOf(NodeT u) {
+        Integer index = dictionary.get(u);
+        if (index == null) {
+            throw new RuntimeException("\n!! ERROR - Node " + u + " not in the graph !!");
+        }
+        return index;
+    }
+
+    private void checkNonNegativeWeights() {
+        if (containsNegativeWeightEdges()) {
+            throw new RuntimeException("\n!! Dijkstra's algortihm cannot be used in the presence of edges with negative weights !!");
+        }
+    }
+
+    /*
+     * Distances and predecessors of the nodes reached by the last search run
+     * on the scratch space, along with the heap of the search. They hold only
+     * for the nodes stamped by that search, so the next one starts in
+     * constant time rather than by filling arrays as large as the graph.
+     */
+    private static final class Scratch {
+
+        final float[] dists;
+        final int[] paths;
+        final int[] stamps;
+        final IndexMinPQ heap;
+        int stamp = 0;
+
+        Scratch(int n) {
+            dists = new float[n];
+            paths = new int[n];
+            stamps = new int[n];
+            heap = new IndexMinPQ(n);
+        }
+
+        void reset() {
+            heap.clear();
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+        }
+
+        float dist(int u) {
+            return stamps[u] == stamp ? dists[u] : Float.POSITIVE_INFINITY;
+        }
+
+        int path(int u) {
+            return stamps[u] == stamp ? paths[u] : -1;
+        }
+    }
+
+    /* lends idle scratch space to a search, or new one if all is in use */
+    private Scratch acquire() {
+        Scratch scratch;
+        synchronized (scratches) {
+            scratch = scratches.poll();
+        }
+        return scratch != null ? scratch : new Scratch(nodes.size());
+    }
+
+    private void release(Scratch scratch) {
+        synchronized (scratches) {
+            scratches.push(scratch);
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm over the arrays of the snapshot, within the
+     * given scratch space, which holds the distances and the predecessors of
+     * the reached nodes until the next search run on it.
+     * @param source index of the node upon which distances are computed
+     * @param target index of the node where the search may stop, or -1 to
+     * settle the whole reachable part of the graph
+     * @param radius the search does not settle nodes further than this
+     * @param backwards follow the reversed arcs instead
+     * @param settled receives the indices of the settled nodes in increasing
+     * distance order excluding the source, or null when it is not needed
+     * @param limit the search stops after settling that many nodes besides the source
+     */
+    private Scratch dijkstra(Scratch scratch, int source, int target, float radius, boolean backwards, ArrayList<Integer> settled, int limit) {
+        final int[] offs = backwards ? reverseOffsets : offsets;
+        final int[] adjs = backwards ? sources : targets;
+        final float[] ws = backwards ? reverseWeights : weights;
+
+        scratch.reset();
+        final int[] stamps = scratch.stamps;
+        final float[] dists = scratch.dists;
+        final int[] paths = scratch.paths;
+        final int stamp = scratch.stamp;
+        final IndexMinPQ heap = scratch.heap;
+
+        stamps[source] = stamp;
+        dists[source] = 0.0f;
+        paths[source] = source;
+        heap.insert(source, 0.0f);
+        while (!heap.isEmpty()) {
+            float dist = heap.minPriority();
+            int u = heap.delMin();
+            if (u == target) {
+                break;
+            }
+            if (u != source && settled != null) {
+                settled.add(u);
+                if (settled.size() >= limit) {
+                    break;
+                }
+            }
+
+            for (int arc = offs[u]; arc < offs[u + 1]; ++arc) {
+                int v = adjs[arc];
+                float newdist = dist + ws[arc];
+                if (newdist < radius && (stamps[v] != stamp || newdist < dists[v])) {
+                    stamps[v] = stamp;
+                    dists[v] = newdist;
+                    paths[v] = u;
+                    heap.offer(v, newdist);
+                }
+            }
+        }
+        return scratch;
+    }
+
+    /**
+     * @return the distances from the node with the given index to every other
+     * node, indexed like the snapshot; Float.POSITIVE_INFINITY if unreachable.
+     */
+    public float[] dijkstraDistances(int source) {
+        checkNonNegativeWeights();
+        Scratch scratch = acquire();
+        try {
+            dijkstra(scratch, source, -1, Float.POSITIVE_INFINITY, false, null, Integer.MAX_VALUE);
+            float[] dists = new float[nodes.size()];
+            for (int v = 0; v < dists.length; ++v) {
+                dists[v] = scratch.dist(v);
+            }
+            return dists;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * @return the distances from every node to the one with the given index,
+     * indexed like the snapshot; Float.POSITIVE_INFINITY if it is unreachable.
+     */
+    public float[] reverseDijkstraDistances(int target) {
+        checkNonNegativeWeights();
+        Scratch scratch = acquire();
+        try {
+            dijkstra(scratch, target, -1, Float.POSITIVE_INFINITY, true, null, Integer.MAX_VALUE);
+            float[] dists = new float[nodes.size()];
+            for (int v = 0; v < dists.length; ++v) {
+                dists[v] = scratch.dist(v);
+            }
+            return dists;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * @param dists receives the distances from the node with the given index
+     * @return the predecessor of each node in the shortest path tree, the
+     * source for itself, or -1 for the nodes that cannot be reached.
+     */
+    public int[] dijkstraTree(int source, float[] dists) {
+        checkNonNegativeWeights();
+        Scratch scratch = acquire();
+        try {
+            dijkstra(scratch, source, -1, Float.POSITIVE_INFINITY, false, null, Integer.MAX_VALUE);
+            int[] paths = new int[nodes.size()];
+            for (int v = 0; v < paths.length; ++v) {
+                dists[v] = scratch.dist(v);
+                paths[v] = scratch.path(v);
+            }
+            return paths;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    public Map<NodeT, Float> dijkstraDistances(NodeT source) {
+        float[] dists = dijkstraDistances(checkedIndexOf(source));
+        Map<NodeT, Float> result = new HashMap<>();
+        for (int i = 0; i < dists.length; ++i) {
+            if (dists[i] < Float.POSITIVE_INFINITY) {
+                result.put(nodes.get(i), dists[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the shortest path tree rooted at the given node as a mutable
+     * graph of the same kind with the originating one.
+     */
+    public Graph<NodeT> dijkstra(NodeT source) {
+        Graph<NodeT> sssp = directed ? new DirectedGraph<NodeT>() : new UndirectedGraph<NodeT>();
+        if (isEmpty()) {
+            return sssp;
+        }
+        checkNonNegativeWeights();
+
+        Scratch scratch = acquire();
+        try {
+            dijkstra(scratch, checkedIndexOf(source), -1, Float.POSITIVE_INFINITY, false, null, Integer.MAX_VALUE);
+            for (int v = 0; v < nodes.size(); ++v) {
+                int u = scratch.path(v);
+                if (u >= 0 && u != v) {
+                    int arc = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+                    sssp.setEdge(nodes.get(u), nodes.get(v), weights[arc]);
+                }
+            }
+        } finally {
+            release(scratch);
+        }
+        for (NodeT u : nodes) {
+            if (!sssp.matrix.mat.containsKey(u)) {
+                sssp.sinks.add(u);
+            }
+        }
+        return sssp;
+    }
+
+    /**
+     * @return the cost of the shortest path, Float.MAX_VALUE if the nodes are
+     * not connected, or Float.NaN if the graph has no edges at all.
+     */
+    public float getPathCost(NodeT u, NodeT v) {
+        if (targets.length == 0) {
+            return Float.NaN;
+        }
+        if (u.equals(v)) {
+            return 0.0f;
+        }
+        checkNonNegativeWeights();
+
+        int source = indexOf(u), target = indexOf(v);
+        if (source < 0 || target < 0) {
+            return Float.MAX_VALUE;
+        }
+        Scratch scratch = acquire();
+        try {
+            float dist = dijkstra(scratch, source, target, Float.POSITIVE_INFINITY, false, null, Integer.MAX_VALUE).dist(target);
+            return dist < Float.POSITIVE_INFINITY ? dist : Float.MAX_VALUE;
+        } finally {
+            release(scratch);
+        }
+    }
+
+    public ArrayDeque<NodeT> getPath(NodeT u, NodeT v) {
+        ArrayDeque<NodeT> path = new ArrayDeque<>();
+        if (targets.length == 0 || u.equals(v)) {
+            return path;
+        }
+        checkNonNegativeWeights();
+
+        int source = checkedIndexOf(u), target = checkedIndexOf(v);
+        Scratch scratch = acquire();
+        try {
+            dijkstra(scratch, source, target, Float.POSITIVE_INFINITY, false, null, Integer.MAX_VALUE);
+            if (scratch.path(target) < 0) {
+                throw new RuntimeException("\n!! ERROR - Source and target nodes not connected !!");
+            }
+
+            for (int w = target; w != source; w = scratch.paths[w]) {
+                path.addFirst(nodes.get(w));
+            }
+        } finally {
+            release(scratch);
+        }
+        path.addFirst(u);
+        return path;
+    }
+
+    private ArrayList<NodeT> search(NodeT q, float radius, int k, boolean backwards) {
+        ArrayList<Integer> settled = new ArrayList<>();
+        if (k > 0) {
+            checkNonNegativeWeights();
+            int source = checkedIndexOf(q);
+            Scratch scratch = acquire();
+            try {
+                dijkstra(scratch, source, -1, radius, backwards, settled, k);
+            } finally {
+                release(scratch);
+            }
+        }
+
+        ArrayList<NodeT> collection = new ArrayList<>(settled.size());
+        for (int i : settled) {
+            collection.add(nodes.get(i));
+        }
+        return collection;
+    }
+
+    /**
+     * @return the nodes within network distance strictly less than the radius
+     * from the query node, in increasing distance order.
+     */
+    public ArrayList<NodeT> rangeQuery(NodeT q, float radius) {
+        return search(q, radius, Integer.MAX_VALUE, false);
+    }
+
+    public ArrayList<NodeT> reverseRangeQuery(NodeT q, float radius) {
+        return search(q, radius, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * @return the k nodes closest to the query node, in increasing distance order.
+     */
+    public ArrayList<NodeT> nearestQuery(NodeT q, int k) {
+        return search(q, Float.POSITIVE_INFINITY, k, false);
+    }
+
+    public ArrayList<NodeT> reverseNearestQuery(NodeT q, int k) {
+        return search(q, Float.POSITIVE_INFINITY, k, true);
+    }
+
+    /**
+     * Breadth-first search on a traversal context of the snapshot, which is
+     * reused from query to query, so that no memory is allocated.
+     */
+    public boolean pathExistence(NodeT u, NodeT v) {
+        if (u.equals(v)) {
+            return true;
+        }
+        int source = checkedIndexOf(u), target = checkedIndexOf(v);
+        TraversalContext<NodeT> context = traversals.acquire(nodes.size());
+        try {
+            context.mark(source);
+            context.enqueue(source);
+            while (!context.isQueueEmpty()) {
+                int w = context.dequeue();
+                for (int arc = offsets[w]; arc < offsets[w + 1]; ++arc) {
+                    if (context.mark(targets[arc])) {
+                        if (targets[arc] == target) {
+                            return true;
+                        }
+                        context.enqueue(targets[arc]);
+                    }
+                }
+            }
+            return false;
+        } finally {
+            traversals.release(context, nodes.size());
+        }
+    }
+
+    public Iterable<NodeT> BFS(NodeT source) {
+        return BFS(source, new TraversalContext<>(nodes.size()));
+    }
+
+    public Iterable<NodeT> DFS(NodeT source) {
+        return DFS(source, new TraversalContext<>(nodes.size()));
+    }
+
+    public Iterable<NodeT> preorder(NodeT source) {
+        return preorder(source, new TraversalContext<>(nodes.size()));
+    }
+
+    public Iterable<NodeT> preorder() {
+        return preorder(new TraversalContext<>(nodes.size()));
+    }
+
+    public Iterable<NodeT> postorder(NodeT source) {
+        return postorder(source, new TraversalContext<>(nodes.size()));
+    }
+
+    public Iterable<NodeT> postorder() {
+        return postorder(new TraversalContext<>(nodes.size()));
+    }
+
+    /*
+     * The following traversals run on the given context, which they begin
+     * anew; a context serves a single traversal at a time, so the previous
+     * traversal on it should not be iterated further.
+     */
+
+    public Iterable<NodeT> BFS(NodeT source, TraversalContext<?> context) {
+        return new NodeTraversal(new IndexTraversal(checkedIndexOf(source), false, false, context));
+    }
+
+    public Iterable<NodeT> DFS(NodeT source, TraversalContext<?> context) {
+        return new NodeTraversal(new IndexTraversal(checkedIndexOf(source), true, false, context));
+    }
+
+    public Iterable<NodeT> preorder(NodeT source, TraversalContext<?> context) {
+        return new NodeTraversal(new IndexTraversal(checkedIndexOf(source), true, false, context));
+    }
+
+    public Iterable<NodeT> preorder(TraversalContext<?> context) {
+        return new NodeTraversal(new IndexTraversal(-1, true, false, context));
+    }
+
+    public Iterable<NodeT> postorder(NodeT source, TraversalContext<?> context) {
+        return new NodeTraversal(new IndexTraversal(checkedIndexOf(source), true, true, context));
+    }
+
+    public Iterable<NodeT> postorder(TraversalContext<?> context) {
+        return new NodeTraversal(new IndexTraversal(-1, true, true, context));
+    }
+
+    private final class NodeTraversal implements Iterator<NodeT>, Iterable<NodeT> {
+
+        private final IndexTraversal traversal;
+
+        NodeTraversal(IndexTraversal traversal) {
+            this.traversal = traversal;
+        }
+
+        @Override
+        public Iterator<NodeT> iterator() {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return traversal.hasNext();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public NodeT next() {
+            return nodes.get(traversal.nextIndex());
+        }
+    }
+
+    /**
+     * Breadth-first, depth-first, preorder and postorder traversals on node
+     * indices, upon the int queue or stack and the visited bitmap of a
+     * {@link TraversalContext}. In postorder the stack holds, as the cursor
+     * of every open node, the position of the next arc to examine. Starting
+     * from no particular source, all nodes are taken as roots in index order.
+     */
+    private final class IndexTraversal implements Iterator<Integer>, Iterable<Integer> {
+
+        private final TraversalContext<?> context;
+        private final int source;
+        private final boolean depthFirst;
+        private final boolean postorder;
+
+        private int nextRoot = 0;
+        private int next = -1;
+
+        IndexTraversal(int source, boolean depthFirst, boolean postorder, TraversalContext<?> context) {
+            this.source = source;
+            this.depthFirst = depthFirst;
+            this.postorder = postorder;
+            this.context = context;
+            context.begin(nodes.size());
+            advance();
+        }
+
+        private void push(int u) {
+            if (depthFirst) {
+                context.push(u, offsets[u]);
+            } else {
+                context.enqueue(u);
+            }
+        }
+
+        private boolean isEmpty() {
+            return depthFirst ? context.isStackEmpty() : context.isQueueEmpty();
+        }
+
+        private boolean pushRoot() {
+            if (source >= 0) {
+                if (nextRoot++ == 0) {
+                    context.mark(source);
+                    push(source);
+                    return true;
+                }
+                return false;
+            }
+            while (nextRoot < nodes.size()) {
+                int root = nextRoot++;
+                if (context.mark(root)) {
+                    push(root);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void advance() {
+            next = -1;
+            if (postorder) {
+                while (next < 0 && (!isEmpty() || pushRoot())) {
+                    int u = context.peek(), arc = context.cursor();
+                    if (arc < offsets[u + 1]) {
+                        context.setCursor(arc + 1);
+                        if (context.mark(targets[arc])) {
+                            push(targets[arc]);
+                        }
+                    } else {
+                        next = context.pop();
+                    }
+                }
+            } else if (depthFirst) {
+                if (!isEmpty() || pushRoot()) {
+                    int u = context.pop();
+                    for (int arc = offsets[u + 1] - 1; arc >= offsets[u]; --arc) {
+                        if (context.mark(targets[arc])) {
+                            push(targets[arc]);
+                        }
+                    }
+                    next = u;
+                }
+            } else {
+                if (!isEmpty() || pushRoot()) {
+                    int u = context.dequeue();
+                    for (int arc = offsets[u]; arc < offsets[u + 1]; ++arc) {
+                        if (context.mark(targets[arc])) {
+                            push(targets[arc]);
+                        }
+                    }
+                    next = u;
+                }
+            }
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Integer next() {
+            return nextIndex();
+        }
+
+        /**
+         * Unboxed counterpart of next().
+         */
+        int nextIndex() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            int current = next;
+            advance();
+            return current;
+        }
+    }
+
+    /**
+     * Iterates over the edges of the snapshot; for undirected graphs each
+     * edge is returned once, from its endpoint with the smaller index.
+     */
+    @Override
+    public Iterator<Edge<NodeT>> iterator() {
+        return new Iterator<Edge<NodeT>>() {
+            private int u = 0, arc = -1;
+            {
+                advance();
+            }
+
+            private void advance() {
+                for (++arc; u < nodes.size(); ++arc) {
+                    while (u < nodes.size() && arc >= offsets[u + 1]) {
+                        ++u;
+                    }
+                    if (u >= nodes.size() || directed || targets[arc] >= u) {
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return u < nodes.size();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Edge<NodeT> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Edge<NodeT> edge = new Edge<>(nodes.get(u), nodes.get(targets[arc]), weights[arc]);
+                advance();
+                return edge;
+            }
+        };
+    }
+
+    public static void main(String[] args) {
+        DirectedGraph<Long> graph = new DirectedGraph<>();
+        for (long u = 0; u < 1000; ++u) {
+            graph.addNode(u);
+        }
+        graph.setErdosRenyiGraph(.01f);
+
+        CsrGraph<Long> frozen = graph.freeze();
+        System.out.println("** Frozen " + frozen.numberNodes() + " nodes and " + frozen.numberArcs() + " arcs.");
+
+        long mapTime = 0, csrTime = 0;
+        int mismatches = 0;
+        for (long u = 0; u < 1000; u += 50) {
+            for (long v = 1; v < 1000; v += 50) {
+                long startTime = System.nanoTime();
+                float expected = graph.getPathCost(u, v);
+                mapTime += System.nanoTime() - startTime;
+
+                startTime = System.nanoTime();
+                float actual = frozen.getPathCost(u, v);
+                csrTime += System.nanoTime() - startTime;
+
+                if (Math.abs(expected - actual) > 1e-3f * Math.max(1.0f, expected)) {
+                    System.out.println("!! Different path costs from " + u + " to " + v + " (" + expected + "/" + actual + ") !!");
+                    ++mismatches;
+                }
+            }
+        }
+        System.out.println("** " + mismatches + " mismatches; hashed adjacency took " + mapTime / Math.pow(10, 9)
+                + " secs, CSR took " + csrTime / Math.pow(10, 9) + " secs.");
+    }
+}
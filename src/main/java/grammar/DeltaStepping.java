@@ -0,0 +1,307 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Delta-stepping single-source shortest paths over the CSR snapshot of a
+ * graph with non-negative weights. Tentative distances are kept in buckets
+ * of width delta; the nodes of the first non-empty bucket are settled
+ * together by relaxing their light arcs (no heavier than delta) over and over
+ * until the bucket stays empty, and their heavy arcs once at the end. The
+ * arcs of each round are relaxed in parallel, with distances lowered through
+ * compare-and-set, while the buckets themselves are only updated in between.
+ * <p>
+ * The larger the delta the fewer the rounds but the more the re-relaxed arcs;
+ * the default is the largest arc weight over the average out-degree.
+ */
+public final class DeltaStepping<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(DeltaStepping.class);
+
+    /* shared by all instances, as searches are short-lived */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /* nodes of a round below which arcs are relaxed by the calling thread alone */
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    /* upper bound on the number of buckets in the cyclic array */
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private final CsrGraph<NodeT> graph;
+    private final float delta;
+    private final int countBuckets;
+
+    /* growable list of node indices */
+    private static final class IntList {
+
+        int size = 0;
+        int[] items = new int[16];
+
+        void add(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size << 1);
+            }
+            items[size++] = item;
+        }
+    }
+
+    public DeltaStepping(CsrGraph<NodeT> graph) {
+        this(graph, Float.NaN);
+    }
+
+    /**
+     * @param delta width of the buckets, or NaN for the default one
+     */
+    public DeltaStepping(CsrGraph<NodeT> graph, float delta) {
+        if (graph.containsNegativeWeightEdges()) {
+            throw new RuntimeException("\n!! Delta-stepping cannot be used in the presence of edges with negative weights !!");
+        }
+        this.graph = graph;
+
+        float maxWeight = 0.0f;
+        for (int arc = 0; arc < graph.numberArcs(); ++arc) {
+            maxWeight = Math.max(maxWeight, graph.weights[arc]);
+        }
+        if (Float.isNaN(delta) || delta <= 0.0f) {
+            float degree = graph.numberNodes() > 0 ? Math.max(1.0f, graph.numberArcs() / (float) graph.numberNodes()) : 1.0f;
+            delta = maxWeight > 0.0f ? maxWeight / degree : 1.0f;
+        }
+        this.delta = Math.max(delta, maxWeight / (MAX_BUCKETS - 2));
+
+        /* tentative distances never exceed the current bucket by more than the largest weight */
+        countBuckets = (int) Math.min(MAX_BUCKETS, (long) Math.ceil(maxWeight / this.delta) + 2);
+    }
+
+    public float getDelta() {
+        return delta;
+    }
+
+    private int bucketOf(float dist) {
+        return (int) (dist / delta);
+    }
+
+    /* lowers the distance of v, returning true if it was improved; non-negative floats order as their bits */
+    private static boolean lower(AtomicIntegerArray dists, int v, float newdist) {
+        int bits = Float.floatToIntBits(newdist);
+        for (;;) {
+            int current = dists.get(v);
+            if (bits >= current) {
+                return false;
+            } else if (dists.compareAndSet(v, current, bits)) {
+                return true;
+            }
+        }
+    }
+
+    /* relaxes the light or heavy arcs of nodes[from,to), returning the improved targets */
+    private IntList relax(AtomicIntegerArray dists, int[] nodes, int from, int to, boolean light) {
+        IntList improved = new IntList();
+        for (int i = from; i < to; ++i) {
+            int u = nodes[i];
+            float dist = Float.intBitsToFloat(dists.get(u));
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                float weight = graph.weights[arc];
+                if ((weight <= delta) == light && lower(dists, graph.targets[arc], dist + weight)) {
+                    improved.add(graph.targets[arc]);
+                }
+            }
+        }
+        return improved;
+    }
+
+    private ArrayList<IntList> relaxAll(final AtomicIntegerArray dists, final int[] nodes, final int size, final boolean light) {
+        ArrayList<IntList> results = new ArrayList<>();
+        if (size < PARALLEL_THRESHOLD || POOL.getParallelism() == 1) {
+            results.add(relax(dists, nodes, 0, size, light));
+            return results;
+        }
+
+        int chunks = POOL.getParallelism() << 2;
+        ArrayList<Callable<IntList>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; ++c) {
+            final int from = (int) ((long) size * c / chunks), to = (int) ((long) size * (c + 1) / chunks);
+            tasks.add(new Callable<IntList>() {
+                @Override
+                public IntList call() {
+                    return relax(dists, nodes, from, to, light);
+                }
+            });
+        }
+        try {
+            for (Future<IntList> result : POOL.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("\n!! ERROR - Delta-stepping was interrupted: " + e.getMessage() + " !!");
+        }
+        return results;
+    }
+
+    /**
+     * @return the distances from the node with the given index to every other
+     * node, indexed like the snapshot; Float.POSITIVE_INFINITY if unreachable.
+     */
+    public float[] distances(int source) {
+        int n = graph.numberNodes();
+        AtomicIntegerArray dists = new AtomicIntegerArray(n);
+        int infinity = Float.floatToIntBits(Float.POSITIVE_INFINITY);
+        for (int u = 0; u < n; ++u) {
+            dists.set(u, infinity);
+        }
+        dists.set(source, Float.floatToIntBits(0.0f));
+
+        IntList[] buckets = new IntList[countBuckets];
+        for (int b = 0; b < countBuckets; ++b) {
+            buckets[b] = new IntList();
+        }
+        buckets[0].add(source);
+        int pending = 1;
+
+        int[] stamps = new int[n]; // round when each node last joined a frontier
+        int round = 0;
+        IntList settled = new IntList();
+        for (int current = 0; pending > 0; ++current) {
+            IntList bucket = buckets[current % countBuckets];
+            settled.size = 0;
+            while (bucket.size > 0) {
+                /* keep the entries still belonging to this bucket, once each */
+                ++round;
+                int[] frontier = new int[bucket.size];
+                int size = 0;
+                for (int i = 0; i < bucket.size; ++i) {
+                    int u = bucket.items[i];
+                    if (stamps[u] != round && bucketOf(Float.intBitsToFloat(dists.get(u))) == current) {
+                        stamps[u] = round;
+                        frontier[size++] = u;
+                        settled.add(u);
+                    }
+                }
+                pending -= bucket.size;
+                bucket.size = 0;
+
+                pending += enqueue(relaxAll(dists, frontier, size, true), dists, buckets);
+            }
+            pending += enqueue(relaxAll(dists, Arrays.copyOf(settled.items, settled.size), settled.size, false), dists, buckets);
+        }
+
+        float[] result = new float[n];
+        for (int u = 0; u < n; ++u) {
+            result[u] = Float.intBitsToFloat(dists.get(u));
+        }
+        return result;
+    }
+
+    /* @return the number of entries added to the buckets */
+    private int enqueue(ArrayList<IntList> improved, AtomicIntegerArray dists, IntList[] buckets) {
+        int added = 0;
+        for (IntList list : improved) {
+            for (int i = 0; i < list.size; ++i) {
+                int v = list.items[i];
+                buckets[bucketOf(Float.intBitsToFloat(dists.get(v))) % countBuckets].add(v);
+            }
+            added += list.size;
+        }
+        return added;
+    }
+
+    /**
+     * @return the distance of every node reachable from the given one.
+     */
+    public Map<NodeT, Float> distances(NodeT source) {
+        Map<NodeT, Float> result = new HashMap<>();
+        int s = graph.indexOf(source);
+        if (s < 0) {
+            result.put(source, 0.0f);
+            return result;
+        }
+        float[] dists = distances(s);
+        for (int u = 0; u < dists.length; ++u) {
+            if (dists[u] < Float.POSITIVE_INFINITY) {
+                result.put(graph.getNode(u), dists[u]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compares delta-stepping against Dijkstra on a random grid; use as:
+     * DeltaStepping [side] [delta] [sources]
+     */
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        float delta = args.length > 1 ? Float.parseFloat(args[1]) : Float.NaN;
+        int sources = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Random rand = new Random(7);
+        Graph<Integer> graph = new UndirectedGraph<>();
+        for (int i = 0; i < side; ++i) {
+            for (int j = 0; j < side; ++j) {
+                int u = i * side + j;
+                if (i + 1 < side) {
+                    graph.setEdge(u, u + side, 1.0f + 9.0f * rand.nextFloat());
+                }
+                if (j + 1 < side) {
+                    graph.setEdge(u, u + 1, 1.0f + 9.0f * rand.nextFloat());
+                }
+            }
+        }
+        CsrGraph<Integer> frozen = graph.freeze();
+        DeltaStepping<Integer> stepping = new DeltaStepping<>(frozen, delta);
+
+        int[] picked = new int[sources];
+        for (int i = 0; i < sources; ++i) {
+            picked[i] = rand.nextInt(frozen.numberNodes());
+        }
+
+        long startTime = System.nanoTime();
+        float[][] expected = new float[sources][];
+        for (int i = 0; i < sources; ++i) {
+            expected[i] = frozen.dijkstraDistances(picked[i]);
+        }
+        long dijkstraTime = System.nanoTime() - startTime;
+
+        int mismatches = 0;
+        startTime = System.nanoTime();
+        for (int i = 0; i < sources; ++i) {
+            float[] actual = stepping.distances(picked[i]);
+            for (int u = 0; u < actual.length; ++u) {
+                if (Math.abs(actual[u] - expected[i][u]) > 1e-3f * Math.max(1.0f, expected[i][u])) {
+                    ++mismatches;
+                }
+            }
+        }
+        long steppingTime = System.nanoTime() - startTime;
+
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Dijkstra took " + dijkstraTime / Math.pow(10, 9)
+                + " secs, delta-stepping (delta=" + stepping.getDelta() + ", " + POOL.getParallelism() + " threads) took "
+                + steppingTime / Math.pow(10, 9) + " secs, " + mismatches + " mismatches.");
+    }
+}
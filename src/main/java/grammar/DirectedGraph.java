@@ -19,15 +19,19 @@
 package grammar;
 
 import java.util.Map;
-import java.util.Stack;
 import java.util.Iterator;
 import java.util.TreeSet;
-import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.NoSuchElementException;
 import java.util.Map.Entry;
 import java.util.ArrayList;
 import java.util.ArrayDeque;
 import java.util.PriorityQueue;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 
 import java.text.NumberFormat;
@@ -40,14 +44,108 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
 
 	private static final org.apache.log4j.Logger logger = org.apache.log4j.Logger.getLogger(DirectedGraph.class);
 
-	private Map<NodeT,TreeSet<NodeT>> backlinks; // simple backlink structure
+	/* incoming edges of each node, with their weights alongside; created upon the
+	 * first edge, as the constructors of Graph may insert edges already */
+	private HashMap<NodeT,Backlinks<NodeT>> backlinks;
+
+	private Backlinks<NodeT> incoming (NodeT to) {return backlinks==null?null:backlinks.get(to);}
+
+	/**
+	 * Incoming edges of a node in two parallel arrays, of the sources and of
+	 * the weights, which takes a fraction of the space of a tree or a hash
+	 * set. Edges are appended, and removed by moving the last one in their
+	 * place. Lookups scan the arrays while the in-degree is small, and go
+	 * through a hash index from the sources to their slots above that, so
+	 * that updates on hub nodes take constant time. Seen as a map from the
+	 * sources to the weights, it is read-only.
+	 */
+	private static final class Backlinks<NodeT> extends AbstractMap<NodeT,Float> {
+		private static final int INDEX_THRESHOLD = 16;
+
+		private Object[] sources = new Object[2];
+		private float[] weights = new float[2];
+		private int size = 0;
+		private HashMap<Object,Integer> slots = null;	// built once the in-degree exceeds the threshold
+
+		private int indexOf (Object u) {
+			if (slots!=null) {
+				Integer i = slots.get(u);
+				return i==null?-1:i;
+			}
+			for (int i=0;i<size;++i)
+				if (sources[i].equals(u)) return i;
+			return -1;
+		}
+
+		/* the edge should not be there already */
+		void append (NodeT u, float weight) {
+			if (size==sources.length) {
+				sources = Arrays.copyOf (sources,size<<1);
+				weights = Arrays.copyOf (weights,size<<1);
+			}
+			if (slots!=null) slots.put (u,size);
+			sources[size] = u;
+			weights[size++] = weight;
+			if (slots==null && size>INDEX_THRESHOLD) {
+				slots = new HashMap<>(size<<1);
+				for (int i=0;i<size;++i) slots.put (sources[i],i);
+			}
+		}
+
+		void set (NodeT u, float weight) {
+			int i = indexOf (u);
+			if (i<0) append (u,weight);
+			else weights[i] = weight;
+		}
+
+		boolean delete (Object u) {
+			int i = indexOf (u);
+			if (i<0) return false;
+			sources[i] = sources[--size];
+			weights[i] = weights[size];
+			sources[size] = null;
+			if (slots!=null) {
+				slots.remove (u);
+				if (i<size) slots.put (sources[i],i);
+				if (size<=INDEX_THRESHOLD>>1) slots = null;
+			}
+			return true;
+		}
+
+		@Override public int size () {return size;}
+		@Override public boolean containsKey (Object u) {return indexOf(u)>=0;}
+		@Override public Float get (Object u) {int i = indexOf(u); return i<0?null:weights[i];}
+
+		@Override
+		public Set<Entry<NodeT,Float>> entrySet () {
+			return new AbstractSet<Entry<NodeT,Float>>() {
+				@Override public int size () {return size;}
+				@Override
+				public Iterator<Entry<NodeT,Float>> iterator () {
+					return new Iterator<Entry<NodeT,Float>>() {
+						private int next = 0;
+						@Override public boolean hasNext () {return next<size;}
+						@Override public void remove () {throw new UnsupportedOperationException();}
+						@Override
+						public Entry<NodeT,Float> next () {
+							if (next>=size) throw new NoSuchElementException();
+							Entry<NodeT,Float> entry = new SimpleImmutableEntry<>((NodeT) sources[next],weights[next]);
+							++next;
+							return entry;
+						}
+					};
+				}
+			};
+		}
+	}
 
 	public DirectedGraph () {}
-	public DirectedGraph (Graph<NodeT> other) {super(other);}
+	public DirectedGraph (Graph<NodeT> other) {super(other); rebuildBacklinks();}
 	public DirectedGraph (String filename, Format format, boolean isEdgeList) {super(filename,format,isEdgeList);}
 
 	@Override public Iterator<Edge<NodeT>> iterator () {return new GraphEdgesIterable();}
-        public Iterable<NodeT> reverseGraphPostorder () {return new ReverseGraphPostorderIterable(getNodes());}
+        public Iterable<NodeT> reverseGraphPostorder () {return reverseGraphPostorder(new TraversalContext<NodeT>());}
+        public Iterable<NodeT> reverseGraphPostorder (TraversalContext<NodeT> context) {return new ReverseGraphPostorderIterable(getNodes(),context);}
 	public Iterable<NodeT> topologicalOrder () {return new TopologicalSorter();}
 
 	@Override
@@ -65,42 +163,66 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
                 throw new IllegalArgumentException ("\n!! ERROR - Neither end of the edge should be null !!");
             Float previous = getEdgeWeight (from, to);
             if (!(weight.equals(Float.NaN) || previous.equals(weight))) {
+                modified(from,to,previous,weight);
 		if (previous.equals (Float.NaN)) {
                     if (from.equals(to)) ++countSelfLoops;
                     if (weight<0) ++countNegativeWeightEdges;
                     ++countEdges;
 
-                    if (backlinks==null) backlinks = new TreeMap<>();
-
-                    if (backlinks.containsKey(to)) {
-                        backlinks.get(to).add(from);
-                    }else{
-                        TreeSet<NodeT> preceding = new TreeSet<>();
-                        preceding.add(from);
-                        backlinks.put (to,preceding);
-                    }
-
                     if (isSink(to)) sinks.add(to);
                     sinks.remove(from);
                 }
                 matrix.set(from,to,weight);
-                resetCache();
+                if (backlinks==null) backlinks = new HashMap<>();
+                Backlinks<NodeT> incoming = backlinks.get(to);
+                if (incoming==null) {
+                    incoming = new Backlinks<>();
+                    backlinks.put (to,incoming);
+                }
+                if (previous.equals(Float.NaN)) incoming.append (from,weight);
+                else incoming.set (from,weight);
             }
 	}
 
+	@Override
+	public void setEdges (GraphBuilder<NodeT> edges) {
+		boolean bulk = matrix.mat.isEmpty();
+		super.setEdges (edges);
+		if (bulk) rebuildBacklinks();
+	}
+
+	/* backlinks in one pass over the rows of the matrix */
+	private void rebuildBacklinks () {
+		backlinks = new HashMap<>((numberNodes()<<2)/3+1);
+		for (Entry<NodeT,Map<NodeT,Float>> row : matrix.mat.entrySet()) {
+			for (Entry<NodeT,Float> entry : row.getValue().entrySet()) {
+				Backlinks<NodeT> incoming = backlinks.get(entry.getKey());
+				if (incoming==null) {
+					incoming = new Backlinks<>();
+					backlinks.put (entry.getKey(),incoming);
+				}
+				incoming.append (row.getKey(),entry.getValue());
+			}
+		}
+	}
+
 	@Override
 	public boolean removeEdge (NodeT from, NodeT to) {
             if (!(containsNode(to) && containsNode(from))) 
                 throw new RuntimeException("!! ERROR - Both nodes should belong in the graph !!");
-            Float weight = matrix.remove (from, to);
+            Float weight = getEdgeWeight (from, to);
             if (!weight.equals(Float.NaN)) {
-                assert (backlinks.get(to).contains(from));
-                backlinks.get(to).remove(from);
+                modified(from,to,weight,Float.NaN);
+                matrix.remove (from, to);
+                assert (backlinks.get(to).containsKey(from));
+                Backlinks<NodeT> incoming = backlinks.get(to);
+                incoming.delete(from);
+                if (incoming.isEmpty()) backlinks.remove(to);
+                if (!matrix.mat.containsKey(from)) sinks.add(from); // no longer a row of the matrix
 
 		if (weight.compareTo(0.0f)<0) --countNegativeWeightEdges;
 		if (from.equals(to)) --countSelfLoops;
                 --countEdges;
-                resetCache();
                 return true;
             }else return false;
 	}
@@ -108,12 +230,14 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
 	@Override
 	public boolean removeNode (NodeT u) {
 		if (containsNode(u)) {
-			if (sinks.contains(u)) return sinks.remove(u);
+			/* cached distances first, while all edges are still in place */
+                        modified(u);
+                        cached.remove(u,u);
 
 			/* take care of backlinks first */
-                        if (backlinks.containsKey(u)) {
-                            resetCache();
-                            for (NodeT preceding : backlinks.get(u)) {
+                        if (incoming(u)!=null) {
+                            for (NodeT preceding : backlinks.remove(u).keySet()) {
+                                if (preceding.equals(u)) continue; // counted with the outgoing edges
                                 if (matrix.mat.get(preceding).remove(u).compareTo(0.0f)<0)
                                     --countNegativeWeightEdges;
                                 --countEdges;
@@ -121,16 +245,22 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
                         }
 
 			if (matrix.mat.containsKey(u)) {
-                                resetCache();
 				for (Entry<NodeT,Float> entry : matrix.mat.get(u).entrySet()) {
 					if (entry.getValue()<0) --countNegativeWeightEdges;
                                         if (entry.getKey().equals(u)) --countSelfLoops;
+                                        --countEdges;
+                                        Backlinks<NodeT> incoming = backlinks.get(entry.getKey());
+                                        if (incoming!=null) {
+                                            incoming.delete(u);
+                                            if (incoming.isEmpty()) backlinks.remove(entry.getKey());
+                                        }
                                 }
+				matrix.mat.get(u).clear();
                         }
-			matrix.mat.get(u).clear();
 
 			/* remove from node-list */
 			matrix.mat.remove(u);
+			sinks.remove(u);
 			return true;
 		}else return false;
 	}
@@ -146,12 +276,13 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
                 v = swap;
             }
             */
+            /* one structural update: the cache is dropped once, rather than repaired per moved edge */
+            modified();
 
             for (Edge<NodeT> edge : getEdgesFrom(v)) {
                 if (!edge.to.equals(u)) {
                     if (containsEdge(u,edge.to)) setEdge(u,edge.to,getEdgeWeight(u,edge.to)+edge.weight);
                     else setEdge(u,edge.to,edge.weight);
-                    resetCache();
                 }
             }
 
@@ -159,30 +290,43 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
                 if (!edge.from.equals(u)) {
                     if (containsEdge(edge.from,u)) setEdge(edge.from,u,getEdgeWeight(edge.from,u)+edge.weight);
                     else setEdge(edge.from,u,edge.weight);
-                    resetCache();
                 }
             }
 
             removeNode(v);
         }
 	public Collection<NodeT> getBacklinks (NodeT to) {
-            return backlinks.containsKey(to)?new ArrayDeque<>(backlinks.get(to)):new ArrayDeque<NodeT>();
+            Backlinks<NodeT> incoming = incoming(to);
+            return incoming!=null?new ArrayDeque<>(incoming.keySet()):new ArrayDeque<NodeT>();
+	}
+
+	@Override
+	protected Map<NodeT,Float> getIncomingView (NodeT to) {
+            Backlinks<NodeT> incoming = incoming(to);
+            return incoming!=null?incoming:Collections.<NodeT,Float>emptyMap();
 	}
 
 	@Override
 	public ArrayDeque<Edge<NodeT>> getEdgesTo (NodeT to) {
             ArrayDeque<Edge<NodeT>> result = new ArrayDeque<>();
-            if (backlinks.containsKey(to))
-                for (NodeT u : backlinks.get(to))
-                    result.add(new Edge<>(u,to,getEdgeWeight(u,to)));
+            Backlinks<NodeT> incoming = incoming(to);
+            if (incoming!=null)
+                for (int i=0;i<incoming.size;++i)
+                    result.add(new Edge<>((NodeT) incoming.sources[i],to,incoming.weights[i]));
             return result;
 	}
 
+	@Override
+	public EdgeCursor<NodeT> getEdgesTo (NodeT to, EdgeCursor<NodeT> cursor) {
+            Backlinks<NodeT> incoming = incoming(to);
+            return incoming!=null?cursor.reset(to,incoming.sources,incoming.weights,incoming.size,false):cursor.reset(to,null,false);
+	}
+
 	public Collection<NodeT> getRoots () {return new TopologicalSorter().buffer;}
 
 	@Override public float getDensity () {return numberEdges()/(float)(numberNodes()*(numberNodes()-1));}
 	public boolean isSink (NodeT u) {return !matrix.mat.containsKey(u)||matrix.mat.get(u).isEmpty();}
-	@Override public int getInDegree (NodeT u) {return backlinks.containsKey(u)?backlinks.get(u).size():0;}
+	@Override public int getInDegree (NodeT u) {return incoming(u)!=null?incoming(u).size():0;}
 
 	public int[] getHistOutDegree () {
 		VectorSparse<Integer,Integer> histvec = new VectorSparse<> (0);
@@ -253,12 +397,11 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
 	@Override
 	protected long numberTriples () {
 		long triples=0L;
+		EdgeCursor<NodeT> first = new EdgeCursor<>(), second = new EdgeCursor<>();
 		for (NodeT u : getActiveNodesShallowCopy())
-			for (NodeT v : getNeighbors(u)) {
-				Collection<NodeT> vlinks = getNeighbors(v);
-				vlinks.remove(u);
-				triples += vlinks.size();
-			}
+			for (getEdgesFrom(u,first); first.next(); )
+				for (getEdgesFrom(first.to(),second); second.next(); )
+					if (!second.to().equals(u)) ++triples;
 		return triples;
 	}
 /*
@@ -316,6 +459,7 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
 		private final ArrayDeque<NodeT> buffer = new ArrayDeque<>();
 		private final ArrayDeque<NodeT> sorted = new ArrayDeque<>();
 		private final VectorSparse<NodeT,Integer> inputDegree = new VectorSparse<> (0);
+		private final EdgeCursor<NodeT> edges = new EdgeCursor<>();
 
 		public TopologicalSorter () {
 			for (Edge<NodeT> edge : DirectedGraph.this)
@@ -336,7 +480,8 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
 			while (sorted.isEmpty() && !buffer.isEmpty()) {
 				NodeT probed = buffer.remove();
 				sorted.add (probed);
-				for (NodeT adjacent : getNeighbors(probed)) {
+				for (getEdgesFrom(probed,edges); edges.next(); ) {
+					NodeT adjacent = edges.to();
 					int fanin = inputDegree.get(adjacent);
 					if (fanin>1) inputDegree.set(adjacent,fanin-1);
 					else{
@@ -364,222 +509,62 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
         @Override
 	public int numberConnectedComponents () {
                 if (isEmpty()) return 0;
-		BitsetSparse<NodeT> marked = new BitsetSparse<>();
-		Stack<NodeT> stack = new Stack<>();
-		int counter = 0;
-		for (NodeT u : getActiveNodesShallowCopy()) {
-			if (!marked.get(u)) { // unprocessed node
-				marked.set(u);
-				stack.push(u);
-				while (!stack.isEmpty()) {
-					NodeT v = stack.pop();
-					for (NodeT w : getNeighbors(v)) {
-						if (!marked.get(w) && pathExistence(w,u)) {
-							marked.set(w);
-							stack.push(w);
-						}
-					}
-				}
-				++counter;
-			}
-		}
-		return counter + sinks.size();
+		return ConnectedComponents.count(ConnectedComponents.strong(freeze()));
 	}
 
 	/**
-	 * Traces the strongly connected components of the directed graph
+	 * Traces the strongly connected components of the directed graph,
+	 * in parallel by forward-backward searches upon a snapshot of it.
 	 * @return A mapping of each node to the component it belongs.
 	 */
 	@Override
 	public Map<NodeT,Integer> getConnectedComponents () {
-		TreeMap<NodeT,Integer> components = new TreeMap<>();
-		int counterid = 0;
-		for (NodeT u : getActiveNodesShallowCopy()) {
-			if (!components.containsKey(u)) { // unprocessed node
-				components.put (u,counterid);
-                                for (NodeT v : DFS(u))
-                                    if (!components.containsKey(v) && pathExistence(v,u))
-                                        components.put (v,counterid);
-				++counterid;
-			}
-		}
-		for (NodeT v : sinks) components.put(v,counterid++);
-		return components;
+		CsrGraph<NodeT> frozen = freeze();
+		return ConnectedComponents.toMap(frozen,ConnectedComponents.strong(frozen));
 	}
 
-	public Map<NodeT,Integer> gabow () {
-		int counter = 0;
-		TreeMap<NodeT,Integer> components = new TreeMap<>();
-		for (NodeT u : getActiveNodesShallowCopy()) {
-                    if (!components.containsKey(u)) {
-                        TreeMap<NodeT,Integer> localcomponents = new TreeMap<>();
-
-                        counter = gabow (u,0,counter,
-                            new TreeMap<NodeT,Integer>(),
-                            localcomponents,
-                            new Stack<NodeT>(),new Stack<NodeT>());
-                        //++counter;
-
-                        for (Entry<NodeT,Integer> entry : localcomponents.entrySet())
-                            components.put (entry.getKey(),entry.getValue());
-                    }
-                }
+	@Override
+	public int[] getComponentLabels (CsrGraph<NodeT> frozen) {
+		return ConnectedComponents.strong(frozen);
+	}
 
-		for (NodeT v : sinks)
-                    if (!components.containsKey(v))
-                        components.put(v,counter++);
-		return components;
-	}
-
-	private int gabow (NodeT u, int order, int counter, 
-                    TreeMap<NodeT,Integer> preorder, 
-                    TreeMap<NodeT,Integer> components, 
-                    Stack<NodeT> forward, Stack<NodeT> backward) {
-
-                forward.push(u);
-                backward.push(u);
-                preorder.put(u, order++);
-		for (NodeT v : getNeighbors(u))
-			if (!preorder.containsKey(v))
-                            counter = gabow (v,order,counter,preorder,components,forward,backward);
-			else if (!components.containsKey(v))
-                            while (preorder.get(backward.peek()) > preorder.get(v))
-                                backward.pop();
-
-		if (!backward.peek().equals(u)) return counter;
-		else backward.pop();
-
-		while (!forward.isEmpty()) {
-			NodeT v = forward.pop();
-                        //if (!components.containsKey(v)) {
-                        {
-                            //System.out.println ("** gabow sets node " + v + " to cluster " + counter);
-                            components.put (v,counter);
-                        }
-			if (u.equals(v)) break;
-		}
-		return ++counter;
+	public Map<NodeT,Integer> gabow () {
+		CsrGraph<NodeT> frozen = freeze();
+		return ConnectedComponents.toMap(frozen,ConnectedComponents.gabow(frozen));
 	}
 
 	public Map<NodeT,Integer> tarjan () {
-            int counter = 0;
-            Map<NodeT,Integer> components = new TreeMap<>();
-            for (NodeT u : getActiveNodesShallowCopy()) {
-                if (!components.containsKey(u)) {
-                    counter = tarjan (u,0,counter,
-                        new TreeMap<NodeT,Integer>(),
-                        components,
-                        new TreeMap<NodeT,Integer>(),
-                        new Stack<NodeT>());
-                    //++counter;
-                }
-            }
-
-            for (NodeT v : sinks) 
-                if (!components.containsKey(v)) 
-                    components.put(v,counter++);
-            return components;
-	}
-
-	private int tarjan (NodeT u, int order, int counter, 
-                Map<NodeT,Integer> preorder, 
-                Map<NodeT,Integer> components, 
-                Map<NodeT,Integer> low, 
-                Stack<NodeT> stack) {
-
-            int min = order;
-            stack.push(u);
-            low.put (u,order);
-            preorder.put (u,order++);
-            for (NodeT v : getNeighbors(u))
-                if (!preorder.containsKey(v))
-                    counter = tarjan (v,order,counter,preorder,components,low,stack);
-                else if (!components.containsKey(v))
-                    while (low.get(v) < min)
-                        min = low.get(v);
-
-            if (min<low.get(u)) {
-                low.put (u,min);
-                return counter;
-            }
-
-            while (!stack.isEmpty()) {
-                NodeT v = stack.pop();
-                components.put (v,counter);
-                low.put (v,numberNodes());
-                if (u.equals(v)) break;
-            }
-            return ++counter;
+		CsrGraph<NodeT> frozen = freeze();
+		return ConnectedComponents.toMap(frozen,ConnectedComponents.tarjan(frozen));
 	}
 
         public Map<NodeT,Integer> kosaraju () {
-            BitsetSparse<NodeT> marked = new BitsetSparse<>();
-            Map<NodeT,Integer> components = new TreeMap<>();
-            int counter = 0;
-            for (NodeT u : reversedReverseGraphPostorder()) { //reverseReverseGraphPostorder()) {
-                if (!marked.get(u)) {
-                    for (NodeT v : DFS(u)) {
-                        if (!marked.get(v)) {
-                            marked.set (v);
-                            components.put (v, counter);
-                        }
-                    }
-                    counter++;
-                }
-            }
-            return components;
-        }
-        
-        private Stack<NodeT> reversedReverseGraphPostorder () {
-            Stack<NodeT> stack = new Stack<>();
-            for (NodeT u : reverseGraphPostorder()) stack.add(u);
-            return stack;
+		CsrGraph<NodeT> frozen = freeze();
+		return ConnectedComponents.toMap(frozen,ConnectedComponents.kosaraju(frozen));
         }
 
-	private final class ReverseGraphPostorderIterable implements Iterator<NodeT>, Iterable<NodeT> {
-		private final BitsetSparse<NodeT> marked = new BitsetSparse<>();
-		private final Stack<NodeT> stack = new Stack<>();
-                private final ArrayList<NodeT> buffer;
-
-                public ReverseGraphPostorderIterable (ArrayList<NodeT> sources) {buffer=sources;}
-                public ReverseGraphPostorderIterable (NodeT source) {buffer = new ArrayList<>(); buffer.add(source);}
-                @Override public Iterator<NodeT> iterator () {return this;}
-                @Override public boolean hasNext () {return !(buffer.isEmpty()&&stack.isEmpty());}
-                @Override public void remove () {throw new UnsupportedOperationException();}
+	private final class ReverseGraphPostorderIterable extends ContextTraversal {
+                public ReverseGraphPostorderIterable (ArrayList<NodeT> sources, TraversalContext<NodeT> context) {super(sources,false,context);}
                 @Override public NodeT next () {
-                    while (stack.isEmpty()) {
-                        if (stack.isEmpty()) {
-                            while (!buffer.isEmpty()) {
-                                NodeT u = buffer.remove(0);
-                                if (!marked.get(u)) {
-                                    marked.set(u);
-                                    stack.push(u);
-                                    break;
-                                }
-                            }
-                        }
-                    }
-
-                    while (!stack.isEmpty()) {
-			NodeT top = stack.peek();
+                    if (!fillFrontier()) throw new NoSuchElementException();
+                    while (true) {
+			NodeT top = context.node(context.peek());
                         boolean newElements = false;
-			if (backlinks!=null && backlinks.containsKey(top)) {
-                            for (NodeT u : backlinks.get(top)) {
-                                if (!marked.get(u)) {
-                                    marked.set(u);
-                                    stack.push(u);
-
-                                    buffer.remove(u);
-
+			if (incoming(top)!=null) {
+                            for (NodeT u : incoming(top).keySet()) {
+                                int i = context.indexOf(u);
+                                if (context.mark(i)) {
+                                    context.push(i);
                                     newElements = true;
                                     break;
                                 }
                             }
                         }
-                        if (!newElements) 
-                            return stack.pop();
+                        if (!newElements) {
+                            context.pop();
+                            return top;
+                        }
                     }
-                    return null;
 		}
 	}
 
@@ -689,10 +674,12 @@ public class DirectedGraph<NodeT> extends Graph<NodeT> {
 		sinks.addAll (getActiveNodesShallowCopy());
 		TreeSet<NodeT> allNodes = new TreeSet<>(sinks);
 		matrix.clear();
+		GraphBuilder<NodeT> edges = new GraphBuilder<>((int) Math.min(Integer.MAX_VALUE-8,(long)(p*allNodes.size()*allNodes.size())));
 		for (NodeT u : allNodes)
 			for (NodeT v : allNodes)
 				if (!u.equals(v) && Math.random()<p) 
-					setEdge (u, v, weight);
+					edges.add (u, v, weight);
+		setEdges (edges);
 	}
 
 	@Override
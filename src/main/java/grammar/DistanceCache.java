@@ -0,0 +1,74 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage of already computed shortest path distances, consulted by
+ * {@link Graph#getPathCost} before running any search. Implementations are
+ * expected to be safe for concurrent readers and writers, and to refuse
+ * distances beyond the caching radius.
+ */
+public interface DistanceCache<NodeT> {
+
+    /**
+     * @return the cached distance, or null on a miss.
+     */
+    Float get(NodeT from, NodeT to);
+
+    /**
+     * @return a read-only view of the distances cached from the given node,
+     * or null when there are none.
+     */
+    Map<NodeT, Float> getDistancesFrom(NodeT from);
+
+    Set<NodeT> getSources();
+
+    /**
+     * @return false when the distance lies beyond the caching radius and was
+     * therefore not cached.
+     */
+    boolean put(NodeT from, NodeT to, float distance);
+
+    boolean remove(NodeT from, NodeT to);
+
+    void clear();
+
+    long size();
+
+    /**
+     * @return a bound on the cached distances, raised as they are inserted and
+     * dropped along with them by clear(), so that it is known without a scan;
+     * other removals may leave it loose.
+     */
+    float getMaxCachedDistance();
+
+    float getMaxCachingRadius();
+
+    void setMaxCachingRadius(float radius);
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    void resetStatistics();
+}
@@ -0,0 +1,42 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayDeque;
+
+/**
+ * Precomputed structure answering point-to-point shortest path queries on a
+ * given graph faster than a search over the graph itself, e.g. a contraction
+ * hierarchy. Once attached to a graph through
+ * {@link Graph#setDistanceOracle(DistanceOracle)}, it serves its getPathCost
+ * and getPath calls until the graph is modified.
+ */
+public interface DistanceOracle<NodeT> {
+
+    /**
+     * @return the cost of the shortest path, or Float.MAX_VALUE when there is
+     * no path between the two nodes.
+     */
+    float getPathCost(NodeT from, NodeT to);
+
+    /**
+     * @return the nodes of the shortest path, both ends included.
+     * @throws RuntimeException when the two nodes are not connected.
+     */
+    ArrayDeque<NodeT> getPath(NodeT from, NodeT to);
+}
@@ -0,0 +1,186 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Distances from a list of source nodes to a list of target nodes, kept in
+ * one primitive array per source; Float.MAX_VALUE stands for unreachable
+ * targets, as with {@link Graph#getPathCost}. Tables are immutable, and may
+ * be stored to and loaded from binary snapshots.
+ */
+public final class DistanceTable<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(DistanceTable.class);
+
+    private final ArrayList<NodeT> sources;
+    private final ArrayList<NodeT> targets;
+    private final HashMap<NodeT, Integer> sourceIndex = new HashMap<>();
+    private final HashMap<NodeT, Integer> targetIndex;
+    private final float[][] dists;
+
+    /**
+     * @param dists one row per source, one column per target; the rows are
+     * not copied
+     */
+    DistanceTable(List<NodeT> sources, List<NodeT> targets, float[][] dists) {
+        this.sources = new ArrayList<>(sources);
+        for (int i = 0; i < this.sources.size(); ++i) {
+            sourceIndex.put(this.sources.get(i), i);
+        }
+        if (sources == targets) {
+            this.targets = this.sources;
+            targetIndex = sourceIndex;
+        } else {
+            this.targets = new ArrayList<>(targets);
+            targetIndex = new HashMap<>();
+            for (int j = 0; j < this.targets.size(); ++j) {
+                targetIndex.put(this.targets.get(j), j);
+            }
+        }
+        this.dists = dists;
+    }
+
+    public int numberSources() {
+        return sources.size();
+    }
+
+    public int numberTargets() {
+        return targets.size();
+    }
+
+    public NodeT getSource(int i) {
+        return sources.get(i);
+    }
+
+    public NodeT getTarget(int j) {
+        return targets.get(j);
+    }
+
+    /**
+     * @return the row of the given source, or -1 if it is not in the table.
+     */
+    public int indexOfSource(NodeT u) {
+        Integer i = sourceIndex.get(u);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * @return the column of the given target, or -1 if it is not in the table.
+     */
+    public int indexOfTarget(NodeT v) {
+        Integer j = targetIndex.get(v);
+        return j == null ? -1 : j;
+    }
+
+    public float get(int i, int j) {
+        return dists[i][j];
+    }
+
+    public float get(NodeT from, NodeT to) {
+        int i = indexOfSource(from), j = indexOfTarget(to);
+        if (i < 0 || j < 0) {
+            throw new RuntimeException("\n!! ERROR - No distance from " + from + " to " + to + " in the table !!");
+        }
+        return dists[i][j];
+    }
+
+    /**
+     * @return the distances from the i-th source; not a copy, hence not to be
+     * modified.
+     */
+    public float[] getRow(int i) {
+        return dists[i];
+    }
+
+    public void save(String filename) {
+        long startTime = System.nanoTime();
+        boolean square = sources == targets;
+        try {
+            BinarySnapshot.Writer out = new BinarySnapshot.Writer(filename, BinarySnapshot.TABLE,
+                    BinarySnapshot.keyTypeOf(sources.isEmpty() ? null : sources.get(0)));
+            try {
+                out.writeByte(square ? (byte) 1 : (byte) 0);
+                out.writeInt(sources.size());
+                out.writeInt(targets.size());
+                for (NodeT u : sources) {
+                    out.writeNode(u);
+                }
+                if (!square) {
+                    for (NodeT v : targets) {
+                        out.writeNode(v);
+                    }
+                }
+                for (float[] row : dists) {
+                    out.writeFloats(row, 0, row.length);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("\n!! ERROR - Unable to save distance table '" + filename + "': " + e.getMessage() + " !!");
+        }
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Saved " + sources.size() + "x" + targets.size()
+                + " distances to '" + filename + "' in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <NodeT> DistanceTable<NodeT> load(String filename) {
+        long startTime = System.nanoTime();
+        DistanceTable<NodeT> table;
+        try {
+            BinarySnapshot.Reader in = new BinarySnapshot.Reader(filename, BinarySnapshot.TABLE);
+            try {
+                boolean square = in.readByte() != 0;
+                int rows = in.readInt();
+                int columns = in.readInt();
+                ArrayList<NodeT> sources = new ArrayList<>(rows);
+                for (int i = 0; i < rows; ++i) {
+                    sources.add((NodeT) in.readNode());
+                }
+                ArrayList<NodeT> targets = sources;
+                if (!square) {
+                    targets = new ArrayList<>(columns);
+                    for (int j = 0; j < columns; ++j) {
+                        targets.add((NodeT) in.readNode());
+                    }
+                }
+                float[][] dists = new float[rows][columns];
+                for (float[] row : dists) {
+                    in.readFloats(row, 0, columns);
+                }
+                table = new DistanceTable<>(sources, targets, dists);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("\n!! ERROR - Unable to load distance table '" + filename + "': " + e.getMessage() + " !!");
+        }
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Loaded " + table.numberSources() + "x" + table.numberTargets()
+                + " distances from '" + filename + "' in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return table;
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reusable cursor over the edges leaving or entering a node, as positioned by
+ * {@link Graph#getEdgesFrom(Object, EdgeCursor)} and
+ * {@link Graph#getEdgesTo(Object, EdgeCursor)}:
+ * <pre>
+ *     for (graph.getEdgesFrom(u, cursor); cursor.next(); ) {
+ *         relax(cursor.to(), cursor.weight());
+ *     }
+ * </pre>
+ * Unlike the collections of edges returned by the other overloads, neither
+ * an Edge nor a collection is created per edge; rows kept in hash maps cost
+ * a single iterator per node, and rows kept in arrays nothing at all.
+ * <p>
+ * The cursor reads the adjacency lists of the graph in place, so the graph
+ * should not be modified until the cursor is positioned anew. A cursor is
+ * not thread-safe, and nested loops need a cursor each.
+ */
+public final class EdgeCursor<NodeT> {
+
+    private NodeT node;         // the common end of the edges
+    private boolean outgoing;
+
+    private Iterator<Entry<NodeT, Float>> entries;  // for rows kept in hash maps
+
+    private Object[] ends;                          // for rows kept in arrays
+    private float[] weights;
+    private int size = 0, position = 0;
+
+    private NodeT neighbor;
+    private float weight;
+
+    EdgeCursor<NodeT> reset(NodeT node, Map<NodeT, Float> row, boolean outgoing) {
+        this.node = node;
+        this.outgoing = outgoing;
+        entries = row == null || row.isEmpty() ? null : row.entrySet().iterator();
+        ends = null;
+        weights = null;
+        size = position = 0;
+        neighbor = null;
+        return this;
+    }
+
+    EdgeCursor<NodeT> reset(NodeT node, Object[] ends, float[] weights, int size, boolean outgoing) {
+        this.node = node;
+        this.outgoing = outgoing;
+        entries = null;
+        this.ends = ends;
+        this.weights = weights;
+        this.size = size;
+        position = 0;
+        neighbor = null;
+        return this;
+    }
+
+    /**
+     * Moves on to the next edge.
+     * @return false when there are no edges left.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean next() {
+        if (entries != null) {
+            if (entries.hasNext()) {
+                Entry<NodeT, Float> entry = entries.next();
+                neighbor = entry.getKey();
+                weight = entry.getValue();
+                return true;
+            }
+            entries = null;
+        } else if (position < size) {
+            neighbor = (NodeT) ends[position];
+            weight = weights[position++];
+            return true;
+        }
+        neighbor = null;
+        return false;
+    }
+
+    private void checkPositioned() {
+        if (neighbor == null) {
+            throw new RuntimeException("\n!! ERROR - Edge cursor is not positioned on an edge !!");
+        }
+    }
+
+    /**
+     * @return the end of the current edge other than the node the cursor
+     * was positioned at.
+     */
+    public NodeT neighbor() {
+        checkPositioned();
+        return neighbor;
+    }
+
+    public NodeT from() {
+        checkPositioned();
+        return outgoing ? node : neighbor;
+    }
+
+    public NodeT to() {
+        checkPositioned();
+        return outgoing ? neighbor : node;
+    }
+
+    public float weight() {
+        checkPositioned();
+        return weight;
+    }
+
+    /**
+     * @return a new Edge object for the current edge, for the few callers that
+     * need to keep it.
+     */
+    public Edge<NodeT> edge() {
+        checkPositioned();
+        return outgoing ? new Edge<>(node, neighbor, weight) : new Edge<>(neighbor, node, weight);
+    }
+
+    /* bytes allocated so far by the calling thread, or -1 where the JVM does not tell */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    /**
+     * Allocation benchmark: every query sums the weights of the two-hop paths
+     * out of a random node, and then of the ones into it, either by the edge
+     * collections of Graph or by a cursor per hop.
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int degree = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+
+        Random rand = new Random(7);
+        DirectedGraph<Integer> graph = new DirectedGraph<>();
+        for (int u = 0; u < n; ++u) {
+            for (int i = 0; i < degree; ++i) {
+                graph.setEdge(u, rand.nextInt(n), 1.0f + rand.nextFloat());
+            }
+        }
+        int[] sources = new int[queries];
+        for (int q = 0; q < queries; ++q) {
+            sources[q] = rand.nextInt(n);
+        }
+
+        EdgeCursor<Integer> outer = new EdgeCursor<>(), inner = new EdgeCursor<>();
+        for (int round = 0; round < 3; ++round) {   // the last round is measured, after warming up
+            double sumCollections = 0.0, sumCursors = 0.0;
+
+            long startBytes = allocatedBytes(), startTime = System.nanoTime();
+            for (int q = 0; q < queries; ++q) {
+                for (Edge<Integer> first : graph.getEdgesFrom(sources[q])) {
+                    for (Edge<Integer> second : graph.getEdgesFrom(first.to)) {
+                        sumCollections += first.weight + second.weight;
+                    }
+                }
+                for (Edge<Integer> first : graph.getEdgesTo(sources[q])) {
+                    for (Edge<Integer> second : graph.getEdgesTo(first.from)) {
+                        sumCollections += first.weight + second.weight;
+                    }
+                }
+            }
+            long collectionBytes = allocatedBytes() - startBytes, collectionTime = System.nanoTime() - startTime;
+
+            startBytes = allocatedBytes();
+            startTime = System.nanoTime();
+            for (int q = 0; q < queries; ++q) {
+                for (graph.getEdgesFrom(sources[q], outer); outer.next(); ) {
+                    for (graph.getEdgesFrom(outer.to(), inner); inner.next(); ) {
+                        sumCursors += outer.weight() + inner.weight();
+                    }
+                }
+                for (graph.getEdgesTo(sources[q], outer); outer.next(); ) {
+                    for (graph.getEdgesTo(outer.from(), inner); inner.next(); ) {
+                        sumCursors += outer.weight() + inner.weight();
+                    }
+                }
+            }
+            long cursorBytes = allocatedBytes() - startBytes, cursorTime = System.nanoTime() - startTime;
+
+            if (Math.abs(sumCollections - sumCursors) > 1e-6 * sumCollections) {
+                throw new RuntimeException("\n!! ERROR - Edge cursors disagree with edge collections !!");
+            }
+            if (round == 2) {
+                System.out.println("** " + queries + " two-hop queries on " + n + " nodes and " + graph.numberEdges() + " edges; "
+                        + "edge collections: " + collectionBytes / queries + " bytes/query in " + collectionTime / Math.pow(10, 9) + " secs, "
+                        + "edge cursors: " + cursorBytes / queries + " bytes/query in " + cursorTime / Math.pow(10, 9) + " secs.");
+            }
+        }
+    }
+}
@@ -0,0 +1,603 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Parallel parser of edge-lists, adjacency lists and coordinate files. The
+ * file is split in byte ranges aligned to line boundaries, each range is
+ * memory mapped and tokenized by hand on a separate thread into primitive
+ * buffers, and the edges are then inserted in file order while the remaining
+ * ranges are still being parsed.
+ * <p>
+ * Numeric node keys are parsed as longs, like NumberFormat does for integers,
+ * while textual ones are kept as strings. Lines starting with '#' are
+ * comments; with numeric keys the DIMACS 'c' and 'p' lines are skipped as
+ * well, and the 'a' (or 'e') and 'v' prefixes of arcs and coordinates are
+ * ignored, so that both the original .gr/.co files and their stripped down
+ * versions are accepted. Weighted edge-lists carry the weight in their third
+ * column, and edges without one get the default weight.
+ */
+public final class EdgeListParser {
+
+    private static final Logger logger = Logger.getLogger(EdgeListParser.class);
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final long MIN_CHUNK_SIZE = 1L << 16;
+
+    private final boolean numeric;
+    private final boolean isWeightedEdgeList;
+    private final int threads;
+    private float defaultWeight = 1.0f;
+
+    public EdgeListParser(boolean numeric, boolean isWeightedEdgeList) {
+        this(numeric, isWeightedEdgeList, Runtime.getRuntime().availableProcessors());
+    }
+
+    public EdgeListParser(boolean numeric, boolean isWeightedEdgeList, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("\n!! ERROR - At least one thread is required for parsing !!");
+        }
+        this.numeric = numeric;
+        this.isWeightedEdgeList = isWeightedEdgeList;
+        this.threads = threads;
+    }
+
+    public float getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    public void setDefaultWeight(float weight) {
+        defaultWeight = weight;
+    }
+
+    /**
+     * @return the file at the given path, or else the resource of the same
+     * name on the classpath, the way the text constructors look them up.
+     */
+    public static File resolve(String filename) throws FileNotFoundException {
+        File file = new File(filename);
+        if (file.isFile()) {
+            return file;
+        }
+        URL resource = EdgeListParser.class.getClassLoader().getResource(filename);
+        if (resource == null) {
+            throw new FileNotFoundException(filename);
+        }
+        return new File(resource.getFile());
+    }
+
+    /* common interface of the structures that edges are inserted to */
+    private interface EdgeSink {
+
+        void put(Object from, Object to, float weight);
+    }
+
+    /**
+     * Inserts all edges of the file to the given graph, in bulk.
+     * @return the number of edges read.
+     */
+    public <NodeT> long parseInto(final Graph<NodeT> graph, String filename) throws IOException, ParseException {
+        final GraphBuilder<NodeT> builder = new GraphBuilder<>((int) Math.min(Integer.MAX_VALUE - 8, resolve(filename).length() >> 4));
+        long edges = parse(filename, new EdgeSink() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void put(Object from, Object to, float weight) {
+                builder.add((NodeT) from, (NodeT) to, weight);
+            }
+        });
+        graph.setEdges(builder);
+        return edges;
+    }
+
+    /**
+     * Sets the entries of the given matrix, one for each edge of the file.
+     * @return the number of edges read.
+     */
+    public <RowT, ColT> long parseInto(final MatrixSparse<RowT, ColT> matrix, String filename) throws IOException, ParseException {
+        return parse(filename, new EdgeSink() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void put(Object from, Object to, float weight) {
+                matrix.set((RowT) from, (ColT) to, weight);
+            }
+        });
+    }
+
+    private long parse(String filename, EdgeSink sink) throws IOException, ParseException {
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Importing now data from file '" + filename + "' on " + threads + " threads...");
+        long startTime = System.nanoTime();
+
+        File file = resolve(filename);
+        long[] boundaries = split(file);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long edges = 0, insertionTime = 0;
+        try {
+            ArrayList<Future<EdgeChunk>> futures = new ArrayList<>();
+            for (int i = 1; i < boundaries.length; ++i) {
+                futures.add(executor.submit(new EdgeChunk(file, boundaries[i - 1], boundaries[i])));
+            }
+            for (Future<EdgeChunk> future : futures) {
+                EdgeChunk chunk = get(future);
+                long insertionStart = System.nanoTime();
+                chunk.drain(sink);
+                insertionTime += System.nanoTime() - insertionStart;
+                edges += chunk.size;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long endTime = System.nanoTime();
+        double secs = (endTime - startTime) / Math.pow(10, 9);
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Loaded " + edges + " edges in " + secs + " secs ("
+                + (long) (edges / secs) + " edges/sec, " + insertionTime / Math.pow(10, 9) + " secs spent on insertions).");
+        return edges;
+    }
+
+    /**
+     * Coordinates of the nodes of a spatial network, in file order.
+     */
+    public static final class Coordinates {
+
+        public final int size;
+        public final long[] ids;
+        public final float[] xs;
+        public final float[] ys;
+
+        Coordinates(int size, long[] ids, float[] xs, float[] ys) {
+            this.size = size;
+            this.ids = ids;
+            this.xs = xs;
+            this.ys = ys;
+        }
+    }
+
+    /**
+     * @return the coordinates of the file, each line of which consists of a
+     * numeric node key followed by its two coordinates.
+     */
+    public Coordinates parseCoordinates(String filename) throws IOException, ParseException {
+        if (!numeric) {
+            throw new UnsupportedOperationException("\n!! ERROR - Coordinates are only supported for numeric node keys !!");
+        }
+        long startTime = System.nanoTime();
+
+        File file = resolve(filename);
+        long[] boundaries = split(file);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayList<CoordinateChunk> chunks = new ArrayList<>();
+        int size = 0;
+        try {
+            ArrayList<Future<CoordinateChunk>> futures = new ArrayList<>();
+            for (int i = 1; i < boundaries.length; ++i) {
+                futures.add(executor.submit(new CoordinateChunk(file, boundaries[i - 1], boundaries[i])));
+            }
+            for (Future<CoordinateChunk> future : futures) {
+                CoordinateChunk chunk = get(future);
+                chunks.add(chunk);
+                size += chunk.size;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long[] ids = new long[size];
+        float[] xs = new float[size], ys = new float[size];
+        int offset = 0;
+        for (CoordinateChunk chunk : chunks) {
+            System.arraycopy(chunk.ids, 0, ids, offset, chunk.size);
+            System.arraycopy(chunk.xs, 0, xs, offset, chunk.size);
+            System.arraycopy(chunk.ys, 0, ys, offset, chunk.size);
+            offset += chunk.size;
+        }
+
+        long endTime = System.nanoTime();
+        double secs = (endTime - startTime) / Math.pow(10, 9);
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Loaded " + size + " coordinates from file '" + filename + "' in " + secs + " secs (" + (long) (size / secs) + " points/sec).");
+        return new Coordinates(size, ids, xs, ys);
+    }
+
+    private static <T> T get(Future<T> future) throws IOException, ParseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ParseException) {
+                throw (ParseException) e.getCause();
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /* byte offsets of the chunks, each one moved right after the next line feed */
+    private long[] split(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            long length = in.length();
+            int chunks = (int) Math.max(Math.min(threads << 2, length / MIN_CHUNK_SIZE), (length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+            chunks = Math.max(chunks, 1);
+
+            long[] boundaries = new long[chunks + 1];
+            byte[] buffer = new byte[1 << 12];
+            for (int i = 1; i < chunks; ++i) {
+                long position = Math.max(length / chunks * i, boundaries[i - 1]);
+                boundaries[i] = length;
+                in.seek(position);
+                for (int read; position < length && (read = in.read(buffer)) > 0; position += read) {
+                    int k = 0;
+                    while (k < read && buffer[k] != '\n') {
+                        ++k;
+                    }
+                    if (k < read) {
+                        boundaries[i] = position + k + 1;
+                        break;
+                    }
+                }
+            }
+            boundaries[chunks] = length;
+            return boundaries;
+        } finally {
+            in.close();
+        }
+    }
+
+    /* hand-written tokenizer over a memory mapped range of whole lines */
+    private abstract static class Tokenizer {
+
+        final long start;
+        final MappedByteBuffer buffer;
+        final int limit;
+        int pos = 0;
+        private byte[] scratch = new byte[64];
+
+        Tokenizer(File file, long start, long end) throws IOException {
+            this.start = start;
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } finally {
+                in.close();
+            }
+            limit = (int) (end - start);
+        }
+
+        static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r' || b == '\f';
+        }
+
+        void skipSpaces() {
+            while (pos < limit && isSpace(buffer.get(pos))) {
+                ++pos;
+            }
+        }
+
+        /* at the end of the line, once the spaces are skipped */
+        boolean atEndOfLine() {
+            skipSpaces();
+            return pos == limit || buffer.get(pos) == '\n';
+        }
+
+        void skipLine() {
+            while (pos < limit && buffer.get(pos++) != '\n') {
+            }
+        }
+
+        /* skips a DIMACS line designator followed by a space, or alone on its
+         * line as are the bare comment lines of some files */
+        boolean skipPrefix(char designator) {
+            if (pos < limit && buffer.get(pos) == designator) {
+                if (pos + 1 == limit || buffer.get(pos + 1) == '\n') {
+                    ++pos;
+                    return true;
+                } else if (isSpace(buffer.get(pos + 1))) {
+                    pos += 2;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        ParseException error(String expected) {
+            int from = pos;
+            while (from > 0 && buffer.get(from - 1) != '\n') {
+                --from;
+            }
+            int to = pos;
+            while (to < limit && buffer.get(to) != '\n') {
+                ++to;
+            }
+            byte[] line = new byte[to - from];
+            for (int k = from; k < to; ++k) {
+                line[k - from] = buffer.get(k);
+            }
+            return new ParseException("Expected " + expected + " in line '" + new String(line, UTF8).trim() + "' at byte " + (start + from),
+                    (int) Math.min(start + pos, Integer.MAX_VALUE));
+        }
+
+        long parseLong() throws ParseException {
+            boolean negative = false;
+            if (pos < limit && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+                negative = buffer.get(pos++) == '-';
+            }
+            int first = pos;
+            long value = 0;
+            while (pos < limit) {
+                int digit = buffer.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                ++pos;
+            }
+            if (pos == first || pos - first > 18 || (pos < limit && !isSpace(buffer.get(pos)) && buffer.get(pos) != '\n')) {
+                throw error("an integer");
+            }
+            return negative ? -value : value;
+        }
+
+        /* parses [+-]digits[.digits][(e|E)[+-]digits], and falls back to Float.parseFloat for anything longer */
+        float parseFloat() throws ParseException {
+            int first = pos;
+            boolean negative = false;
+            if (pos < limit && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+                negative = buffer.get(pos++) == '-';
+            }
+            long mantissa = 0;
+            int digits = 0, scale = 0;
+            boolean dot = false;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    ++digits;
+                    if (dot) {
+                        --scale;
+                    }
+                } else if (b == '.' && !dot) {
+                    dot = true;
+                } else {
+                    break;
+                }
+                ++pos;
+            }
+            if (pos < limit && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+                ++pos;
+                boolean negativeExponent = false;
+                if (pos < limit && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+                    negativeExponent = buffer.get(pos++) == '-';
+                }
+                int exponent = 0, exponentDigits = 0;
+                while (pos < limit && buffer.get(pos) >= '0' && buffer.get(pos) <= '9' && exponentDigits < 4) {
+                    exponent = exponent * 10 + (buffer.get(pos++) - '0');
+                    ++exponentDigits;
+                }
+                if (exponentDigits == 0) {
+                    throw error("a number");
+                }
+                scale += negativeExponent ? -exponent : exponent;
+            }
+            if (digits == 0 || (pos < limit && !isSpace(buffer.get(pos)) && buffer.get(pos) != '\n')) {
+                throw error("a number");
+            }
+            if (digits > 15 || scale < -22 || scale > 22) {
+                int end = pos;
+                pos = first;
+                String token = readString();
+                pos = end;
+                return Float.parseFloat(token);
+            }
+            double value = scale < 0 ? mantissa / POWERS[-scale] : mantissa * POWERS[scale];
+            return (float) (negative ? -value : value);
+        }
+
+        String readString() {
+            int length = 0;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (isSpace(b) || b == '\n') {
+                    break;
+                }
+                if (length == scratch.length) {
+                    scratch = Arrays.copyOf(scratch, length << 1);
+                }
+                scratch[length++] = b;
+                ++pos;
+            }
+            return new String(scratch, 0, length, UTF8);
+        }
+    }
+
+    /* doubles represent exactly the powers of ten up to 10^22 */
+    private static final double[] POWERS = new double[23];
+
+    static {
+        POWERS[0] = 1.0;
+        for (int i = 1; i < POWERS.length; ++i) {
+            POWERS[i] = POWERS[i - 1] * 10.0;
+        }
+    }
+
+    private final class EdgeChunk extends Tokenizer implements Callable<EdgeChunk> {
+
+        int size = 0;
+        long[] from, to;
+        Object[] fromKeys, toKeys;
+        float[] weights;
+
+        EdgeChunk(File file, long start, long end) throws IOException {
+            super(file, start, end);
+            int capacity = Math.max(16, limit >> 5);
+            if (numeric) {
+                from = new long[capacity];
+                to = new long[capacity];
+            } else {
+                fromKeys = new Object[capacity];
+                toKeys = new Object[capacity];
+            }
+            weights = new float[capacity];
+        }
+
+        private void add(long u, long v, Object x, Object y, float weight) {
+            if (size == weights.length) {
+                int capacity = size + (size >> 1);
+                if (numeric) {
+                    from = Arrays.copyOf(from, capacity);
+                    to = Arrays.copyOf(to, capacity);
+                } else {
+                    fromKeys = Arrays.copyOf(fromKeys, capacity);
+                    toKeys = Arrays.copyOf(toKeys, capacity);
+                }
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            if (numeric) {
+                from[size] = u;
+                to[size] = v;
+            } else {
+                fromKeys[size] = x;
+                toKeys[size] = y;
+            }
+            weights[size++] = weight;
+        }
+
+        @Override
+        public EdgeChunk call() throws ParseException {
+            while (pos < limit) {
+                if (atEndOfLine() || buffer.get(pos) == '#'
+                        || (numeric && (skipPrefix('c') || skipPrefix('p')))) {
+                    skipLine();
+                    continue;
+                }
+                if (numeric && !skipPrefix('a')) {
+                    skipPrefix('e');
+                }
+                skipSpaces();
+
+                long u = 0;
+                String x = null;
+                if (numeric) {
+                    u = parseLong();
+                } else {
+                    x = readString();
+                }
+
+                if (isWeightedEdgeList) {
+                    if (atEndOfLine()) {
+                        throw error("the target of the edge");
+                    }
+                    long v = 0;
+                    String y = null;
+                    if (numeric) {
+                        v = parseLong();
+                    } else {
+                        y = readString();
+                    }
+                    float weight = atEndOfLine() ? defaultWeight : parseFloat();
+                    add(u, v, x, y, weight);
+                } else {
+                    while (!atEndOfLine()) {
+                        if (numeric) {
+                            add(u, parseLong(), null, null, defaultWeight);
+                        } else {
+                            add(0, 0, x, readString(), defaultWeight);
+                        }
+                    }
+                }
+                skipLine();
+            }
+            return this;
+        }
+
+        void drain(EdgeSink sink) {
+            for (int i = 0; i < size; ++i) {
+                if (numeric) {
+                    sink.put(from[i], to[i], weights[i]);
+                } else {
+                    sink.put(fromKeys[i], toKeys[i], weights[i]);
+                }
+            }
+            from = to = null;
+            fromKeys = toKeys = null;
+            weights = null;
+        }
+    }
+
+    private static final class CoordinateChunk extends Tokenizer implements Callable<CoordinateChunk> {
+
+        int size = 0;
+        long[] ids;
+        float[] xs, ys;
+
+        CoordinateChunk(File file, long start, long end) throws IOException {
+            super(file, start, end);
+            int capacity = Math.max(16, limit >> 5);
+            ids = new long[capacity];
+            xs = new float[capacity];
+            ys = new float[capacity];
+        }
+
+        @Override
+        public CoordinateChunk call() throws ParseException {
+            while (pos < limit) {
+                if (atEndOfLine() || buffer.get(pos) == '#' || skipPrefix('c') || skipPrefix('p')) {
+                    skipLine();
+                    continue;
+                }
+                skipPrefix('v');
+                skipSpaces();
+                if (size == ids.length) {
+                    int capacity = size + (size >> 1);
+                    ids = Arrays.copyOf(ids, capacity);
+                    xs = Arrays.copyOf(xs, capacity);
+                    ys = Arrays.copyOf(ys, capacity);
+                }
+                ids[size] = parseLong();
+                skipSpaces();
+                xs[size] = parseFloat();
+                skipSpaces();
+                ys[size++] = parseFloat();
+                skipLine();
+            }
+            return this;
+        }
+    }
+}
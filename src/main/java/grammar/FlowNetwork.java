@@ -0,0 +1,351 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Residual network in arrays, built upon the CSR snapshot of the pipes of a
+ * {@link NetworkFlow}, for the max-flow engines. Every pipe u-&gt;v gives a
+ * forward arc of u and a reverse arc of v of zero capacity, each one knowing
+ * the position of its mate; the flow through a pipe is the residual capacity
+ * of its reverse arc. Residual capacities and excesses are doubles, so that
+ * rounding hardly accumulates over long runs of pushes.
+ */
+final class FlowNetwork<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(FlowNetwork.class);
+
+    final CsrGraph<NodeT> pipes;
+    final int n;
+
+    /* arcs of each node, forward and reverse ones alike */
+    final int[] offsets;
+    final int[] heads;
+    final int[] mates;
+    final double[] residuals;
+
+    /* position of the forward arc of each arc of the snapshot */
+    final int[] forward;
+
+    FlowNetwork(CsrGraph<NodeT> pipes) {
+        this.pipes = pipes;
+        n = pipes.numberNodes();
+        offsets = new int[n + 1];
+        for (int u = 0; u < n; ++u) {
+            offsets[u + 1] += pipes.offsets[u + 1] - pipes.offsets[u];
+            for (int arc = pipes.offsets[u]; arc < pipes.offsets[u + 1]; ++arc) {
+                ++offsets[pipes.targets[arc] + 1];
+            }
+        }
+        for (int u = 0; u < n; ++u) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        int m = offsets[n];
+        heads = new int[m];
+        mates = new int[m];
+        residuals = new double[m];
+        forward = new int[pipes.numberArcs()];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int u = 0; u < n; ++u) {
+            for (int arc = pipes.offsets[u]; arc < pipes.offsets[u + 1]; ++arc) {
+                int v = pipes.targets[arc], a = fill[u]++, b = fill[v]++;
+                heads[a] = v;
+                heads[b] = u;
+                mates[a] = b;
+                mates[b] = a;
+                residuals[a] = Math.max(0.0f, pipes.weights[arc]);
+                forward[arc] = a;
+            }
+        }
+    }
+
+    /**
+     * @return the flow through the given arc of the snapshot.
+     */
+    double flow(int arc) {
+        return residuals[mates[forward[arc]]];
+    }
+
+    private int[] levels(int root, boolean towards, int[] queue) {
+        return levels(root, -1, towards, queue);
+    }
+
+    /*
+     * distances to (or from) the given node over arcs of positive residual
+     * capacity, -1 if unreachable; the search stops short of the nodes farther
+     * than the given one, if any
+     */
+    private int[] levels(int root, int last, boolean towards, int[] queue) {
+        int[] levels = new int[n];
+        Arrays.fill(levels, -1);
+        levels[root] = 0;
+        int head = 0, tail = 0;
+        queue[tail++] = root;
+        while (head < tail) {
+            int u = queue[head++];
+            if (last >= 0 && levels[last] >= 0 && levels[u] >= levels[last]) {
+                break;
+            }
+            for (int a = offsets[u]; a < offsets[u + 1]; ++a) {
+                int v = heads[a];
+                if (levels[v] < 0 && (towards ? residuals[mates[a]] : residuals[a]) > 0.0) {
+                    levels[v] = levels[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * @return which nodes are on the source side of the minimum cut, i.e.
+     * which ones cannot reach the target in the residual network.
+     */
+    boolean[] sourceSide(int target) {
+        int[] levels = levels(target, true, new int[n]);
+        boolean[] side = new boolean[n];
+        for (int u = 0; u < n; ++u) {
+            side[u] = levels[u] < 0;
+        }
+        return side;
+    }
+
+    /**
+     * Dinic's algorithm: blocking flows along the level graph of the residual
+     * network, found by a depth-first search that keeps its path on an
+     * explicit stack and never retries an arc found useless before.
+     * @return the value of the maximum flow.
+     */
+    double dinic(int source, int target) {
+        long startTime = System.nanoTime();
+        int[] queue = new int[n];
+        int[] current = new int[n];
+        int[] path = new int[n]; // arcs from the source to the tip
+        double value = 0.0;
+        int phases = 0;
+        for (;;) {
+            int[] levels = levels(source, target, false, queue);
+            if (levels[target] < 0) {
+                break;
+            }
+            ++phases;
+            System.arraycopy(offsets, 0, current, 0, n);
+
+            int depth = 0, u = source;
+            while (true) {
+                if (u == target) {
+                    double bottleneck = Double.POSITIVE_INFINITY;
+                    for (int i = 0; i < depth; ++i) {
+                        bottleneck = Math.min(bottleneck, residuals[path[i]]);
+                    }
+                    int retreat = depth;
+                    for (int i = depth - 1; i >= 0; --i) {
+                        int a = path[i];
+                        residuals[a] -= bottleneck;
+                        residuals[mates[a]] += bottleneck;
+                        if (residuals[a] <= 0.0) {
+                            retreat = i;
+                        }
+                    }
+                    value += bottleneck;
+                    depth = retreat; // back to the tail of the first saturated arc
+                    u = depth == 0 ? source : heads[path[depth - 1]];
+                    continue;
+                }
+
+                int a = current[u];
+                while (a < offsets[u + 1] && (residuals[a] <= 0.0 || levels[heads[a]] != levels[u] + 1)) {
+                    ++a;
+                }
+                current[u] = a;
+                if (a < offsets[u + 1]) {
+                    path[depth++] = a;
+                    u = heads[a];
+                } else if (u == source) {
+                    break;
+                } else {
+                    levels[u] = -1; // dead end for the rest of the phase
+                    u = --depth == 0 ? source : heads[path[depth - 1]];
+                    ++current[u];
+                }
+            }
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Dinic's algorithm found a flow of " + value + " in "
+                + phases + " phases in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return value;
+    }
+
+    /**
+     * Push-relabel, always discharging an active node of the highest label.
+     * Labels are recomputed from scratch as distances to the target, or to the
+     * source plus n for the nodes that cannot reach the target, every n
+     * relabels; once no node is left at some label below n, the nodes above
+     * it cannot reach the target either, and are lifted past n at once. The
+     * excess that cannot reach the target returns to the source, so that the
+     * preflow ends up a flow.
+     * @return the value of the maximum flow.
+     */
+    double pushRelabel(int source, int target) {
+        long startTime = System.nanoTime();
+        final int top = n << 1;
+        double[] excess = new double[n];
+        int[] heights = new int[n];
+        int[] current = new int[n];
+        int[] buckets = new int[top + 1]; // first active node of each label
+        int[] next = new int[n];
+        int[] counts = new int[top + 1];
+        int[] queue = new int[n];
+
+        for (int a = offsets[source]; a < offsets[source + 1]; ++a) {
+            double delta = residuals[a];
+            if (delta > 0.0) {
+                residuals[a] = 0.0;
+                residuals[mates[a]] += delta;
+                excess[heads[a]] += delta;
+                excess[source] -= delta;
+            }
+        }
+
+        int highest = relabelAll(source, target, heights, excess, buckets, next, counts, queue);
+        System.arraycopy(offsets, 0, current, 0, n);
+        int relabels = 0, globals = 1;
+        long pushes = 0L;
+        while (highest >= 0) {
+            int u = buckets[highest];
+            if (u < 0) {
+                --highest;
+                continue;
+            }
+            buckets[highest] = next[u];
+
+            /* discharge u */
+            int h = heights[u];
+            while (excess[u] > 0.0) {
+                int a = current[u];
+                if (a == offsets[u + 1]) {
+                    int min = top;
+                    for (int b = offsets[u]; b < offsets[u + 1]; ++b) {
+                        if (residuals[b] > 0.0) {
+                            min = Math.min(min, heights[heads[b]] + 1);
+                        }
+                    }
+                    --counts[h];
+                    if (h < n && counts[h] == 0) {
+                        /* gap: nothing above h and below n can reach the target any more */
+                        for (int w = 0; w < n; ++w) {
+                            if (heights[w] > h && heights[w] < n) {
+                                --counts[heights[w]];
+                                heights[w] = n + 1;
+                                ++counts[n + 1];
+                                current[w] = offsets[w]; // arcs skipped so far may be admissible at the new label
+                            }
+                        }
+                        for (int b = h + 1; b < n; ++b) {
+                            int w = buckets[b];
+                            while (w >= 0) {
+                                int following = next[w];
+                                next[w] = buckets[n + 1];
+                                buckets[n + 1] = w;
+                                w = following;
+                            }
+                            buckets[b] = -1;
+                        }
+                        min = Math.max(min, n + 1);
+                    }
+                    h = heights[u] = Math.min(min, top);
+                    ++counts[h];
+                    current[u] = offsets[u];
+                    ++relabels;
+                    break;
+                }
+
+                int v = heads[a];
+                if (residuals[a] > 0.0 && h == heights[v] + 1) {
+                    double delta = Math.min(excess[u], residuals[a]);
+                    residuals[a] -= delta;
+                    residuals[mates[a]] += delta;
+                    excess[u] -= delta;
+                    if (excess[v] <= 0.0 && v != source && v != target) {
+                        next[v] = buckets[heights[v]];
+                        buckets[heights[v]] = v;
+                    }
+                    excess[v] += delta;
+                    ++pushes;
+                } else {
+                    ++current[u];
+                }
+            }
+
+            if (excess[u] > 0.0 && h < top) {
+                next[u] = buckets[h];
+                buckets[h] = u;
+                highest = Math.max(highest, h);
+            }
+            if (relabels >= n) {
+                relabels = 0;
+                ++globals;
+                highest = relabelAll(source, target, heights, excess, buckets, next, counts, queue);
+                System.arraycopy(offsets, 0, current, 0, n);
+            }
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Push-relabel found a flow of " + excess[target] + " after "
+                + pushes + " pushes and " + globals + " global relabels in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return excess[target];
+    }
+
+    /**
+     * Global relabeling: exact distances to the target, or to the source plus
+     * n, through arcs of positive residual capacity.
+     * @return the highest label of an active node, or -1 if none is left.
+     */
+    private int relabelAll(int source, int target, int[] heights, double[] excess, int[] buckets, int[] next, int[] counts, int[] queue) {
+        int top = n << 1;
+        int[] toTarget = levels(target, true, queue);
+        int[] toSource = levels(source, true, queue);
+        Arrays.fill(buckets, -1);
+        Arrays.fill(counts, 0);
+        int highest = -1;
+        for (int u = 0; u < n; ++u) {
+            if (u == source) {
+                heights[u] = n;
+            } else if (toTarget[u] >= 0) {
+                heights[u] = toTarget[u];
+            } else if (toSource[u] >= 0) {
+                heights[u] = n + toSource[u];
+            } else {
+                heights[u] = top;
+            }
+            heights[u] = Math.min(heights[u], top);
+            ++counts[heights[u]];
+            if (excess[u] > 0.0 && u != source && u != target && heights[u] < top) {
+                next[u] = buckets[heights[u]];
+                buckets[heights[u]] = u;
+                highest = Math.max(highest, heights[u]);
+            }
+        }
+        return highest;
+    }
+}
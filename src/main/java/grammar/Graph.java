@@ -19,22 +19,28 @@ package grammar;
 
 import java.io.*;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.ArrayList;
 import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.NoSuchElementException;
 
 import java.util.Scanner;
 import java.text.Format;
+import java.text.NumberFormat;
 import java.text.ParseException;
 
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.FontMetrics;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.JFrame;
 
 import org.apache.log4j.Logger;
@@ -51,28 +57,318 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
     protected int countSelfLoops = 0;
     protected int countNegativeWeightEdges = 0;
 
-    private int maxCachingRadius = 0;
+    public static final int DEFAULT_CACHE_CAPACITY = 1 << 22;
+
+    protected DistanceCache<NodeT> cached = newDistanceCache();
+
+    private static <NodeT> DistanceCache<NodeT> newDistanceCache() {
+        DistanceCache<NodeT> cache = new BoundedDistanceCache<>(DEFAULT_CACHE_CAPACITY, BoundedDistanceCache.Policy.LRU);
+        cache.setMaxCachingRadius(0.0f);
+        return cache;
+    }
 
     public int getMaxCachingRadius() {
-        return maxCachingRadius;
+        return (int) Math.min(cached.getMaxCachingRadius(), Integer.MAX_VALUE);
     }
 
+    /**
+     * Distances longer than the radius are never cached, which bounds also the
+     * part of each shortest path tree that a cached search records.
+     */
     public void setMaxCachingRadius(int radius) {
-        maxCachingRadius = radius;
+        cached.setMaxCachingRadius(radius);
+    }
+
+    public DistanceCache<NodeT> getDistanceCache() {
+        return cached;
+    }
+
+    /**
+     * Replaces the distance cache, e.g. with a differently bounded one or with
+     * one shared among several graphs; the caching radius is carried over.
+     */
+    public void setDistanceCache(DistanceCache<NodeT> cache) {
+        cache.setMaxCachingRadius(cached.getMaxCachingRadius());
+        cached = cache;
+    }
+
+    /**
+     * Search strategies for single pairs of nodes, as by getPathCost(u,v) and
+     * getPath(u,v); the bidirectional one grows a second search tree from the
+     * target over the reversed edges and stops as soon as both trees meet on
+     * a shortest path, which typically settles far fewer nodes.
+     */
+    public enum PointToPointSearch {UNIDIRECTIONAL, BIDIRECTIONAL}
+
+    private PointToPointSearch pointToPointSearch = PointToPointSearch.UNIDIRECTIONAL;
+
+    private final AtomicLong settledNodes = new AtomicLong();
+
+    private final TraversalContext.Pool<NodeT> traversals = new TraversalContext.Pool<>();
+
+    public PointToPointSearch getPointToPointSearch() {
+        return pointToPointSearch;
+    }
+
+    public void setPointToPointSearch(PointToPointSearch search) {
+        pointToPointSearch = search;
+    }
+
+    /**
+     * @return the number of nodes settled by point-to-point searches so far,
+     * counting the nodes settled by both directions of bidirectional ones.
+     */
+    public long getSettledNodes() {
+        return settledNodes.get();
+    }
+
+    public void resetSettledNodes() {
+        settledNodes.set(0);
+    }
+
+    public enum SingleSourceSearch {DIJKSTRA, DELTA_STEPPING}
+
+    private SingleSourceSearch singleSourceSearch = SingleSourceSearch.DIJKSTRA;
+
+    private float delta = Float.NaN;
+
+    private volatile DeltaStepping<NodeT> deltaStepping = null;
+
+    public SingleSourceSearch getSingleSourceSearch() {
+        return singleSourceSearch;
+    }
+
+    /**
+     * Chooses the implementation behind {@link #dijkstraDistances}; parallel
+     * delta-stepping works on a CSR snapshot of the graph, which is taken
+     * upon the first search after every modification.
+     */
+    public void setSingleSourceSearch(SingleSourceSearch search) {
+        singleSourceSearch = search;
+    }
+
+    public float getDelta() {
+        return delta;
     }
 
-    protected final Map<NodeT, Map<NodeT, Float>> cached = new HashMap<>();
+    /**
+     * @param delta bucket width of delta-stepping, or NaN for the default one
+     */
+    public void setDelta(float delta) {
+        this.delta = delta;
+        deltaStepping = null;
+    }
 
     public Map<NodeT, Float> getCachedDistancesFrom(NodeT u) {
-        return cached.get(u);
+        return cached.getDistancesFrom(u);
     }
 
     public void resetCache() {
-        if (!cached.isEmpty()) {
-            for (Entry<NodeT, Map<NodeT, Float>> entry : cached.entrySet()) {
-                entry.getValue().clear();
+        cached.clear();
+    }
+
+    private volatile DistanceOracle<NodeT> oracle = null;
+
+    public DistanceOracle<NodeT> getDistanceOracle() {
+        return oracle;
+    }
+
+    /**
+     * Point-to-point queries are answered by the given oracle, which should
+     * have been built upon this graph, until the graph is modified, or until
+     * the oracle is detached by passing null.
+     */
+    public void setDistanceOracle(DistanceOracle<NodeT> oracle) {
+        this.oracle = oracle;
+    }
+
+    private final AtomicLong invalidatedEntries = new AtomicLong();
+    private final AtomicLong repairedEntries = new AtomicLong();
+    private volatile long lastInvalidatedEntries = 0;
+
+    /**
+     * @return the number of cached distances dropped by updates of the graph
+     * so far.
+     */
+    public long getInvalidatedEntries() {
+        return invalidatedEntries.get();
+    }
+
+    /**
+     * @return the number of cached distances lowered in place by updates of
+     * the graph so far.
+     */
+    public long getRepairedEntries() {
+        return repairedEntries.get();
+    }
+
+    /**
+     * @return the number of cached distances dropped by the latest update.
+     */
+    public long getLastInvalidatedEntries() {
+        return lastInvalidatedEntries;
+    }
+
+    /**
+     * Called upon every modification of the graph other than the update of a
+     * single edge; cached distances, any distance oracle and the snapshot of
+     * delta-stepping no longer hold.
+     */
+    protected void modified() {
+        oracle = null;
+        deltaStepping = null;
+        lastInvalidatedEntries = cached.size();
+        invalidatedEntries.addAndGet(lastInvalidatedEntries);
+        resetCache();
+    }
+
+    /**
+     * Called right before the weight of the edge from u to v changes, where
+     * NaN stands for a missing edge (in both directions for undirected
+     * graphs). Cached distances are maintained rather than dropped: with d
+     * the distances before the update, the cached d(s,t) may only change if
+     * d(s,u)+w+d(v,t) is no larger, which takes a search backwards from u and
+     * one forwards from v, as far as the bound the cache keeps on its
+     * distances. On an
+     * increase such entries are dropped, as their shortest paths may use the
+     * edge; on a decrease they are lowered to d(s,u)+w'+d(v,t), as a shortest
+     * path uses the cheaper edge at most once. Negative weights fall back to
+     * dropping the whole cache.
+     */
+    protected void modified(NodeT u, NodeT v, float previous, float weight) {
+        oracle = null;
+        deltaStepping = null;
+        if (cached.size() == 0) {
+            lastInvalidatedEntries = 0;
+            return;
+        } else if (previous < 0 || weight < 0 || containsNegativeWeightEdges()) {
+            modified();
+            return;
+        }
+
+        float before = Float.isNaN(previous) ? Float.POSITIVE_INFINITY : previous;
+        float after = Float.isNaN(weight) ? Float.POSITIVE_INFINITY : weight;
+        boolean increase = after > before;
+        float w = increase ? before : after;
+
+        ArrayList<NodeT> sources = new ArrayList<>(cached.getSources());
+        float radius = cached.getMaxCachedDistance();
+
+        /* in undirected graphs either end may come first, and searches are symmetric */
+        boolean undirected = this instanceof UndirectedGraph<?>;
+        Map<NodeT, Float> toU = radiusSearch(u, radius, !undirected);
+        Map<NodeT, Float> fromV = undirected && u.equals(v) ? toU : radiusSearch(v, radius, false);
+
+        long invalidated = 0, repaired = 0;
+        for (NodeT s : sources) {
+            Map<NodeT, Float> row = cached.getDistancesFrom(s);
+            if (row == null) {
+                continue;
+            }
+            Float su = toU.get(s), sv = undirected ? fromV.get(s) : null;
+            if (su == null && sv == null) {
+                continue;
+            }
+            ArrayList<NodeT> targets = new ArrayList<>();
+            ArrayList<Float> dists = new ArrayList<>();
+            for (Entry<NodeT, Float> entry : row.entrySet()) {
+                float via = Float.POSITIVE_INFINITY;
+                Float vt = fromV.get(entry.getKey());
+                if (su != null && vt != null) {
+                    via = su + w + vt;
+                }
+                Float ut = undirected ? toU.get(entry.getKey()) : null;
+                if (sv != null && ut != null) {
+                    via = Math.min(via, sv + w + ut);
+                }
+                float dist = entry.getValue();
+                if (increase ? via <= dist + 1e-5f * Math.max(1.0f, dist) : via < dist) {
+                    targets.add(entry.getKey());
+                    dists.add(via);
+                }
+            }
+            for (int i = 0; i < targets.size(); ++i) {
+                if (increase) {
+                    if (cached.remove(s, targets.get(i))) {
+                        ++invalidated;
+                    }
+                } else if (cached.put(s, targets.get(i), dists.get(i))) {
+                    ++repaired;
+                }
+            }
+        }
+        lastInvalidatedEntries = invalidated;
+        invalidatedEntries.addAndGet(invalidated);
+        repairedEntries.addAndGet(repaired);
+    }
+
+    /**
+     * Called right before the node u is removed along with its edges. The
+     * cached d(s,t) may only change if d(s,u)+d(u,t) is no larger, just as if
+     * an edge of zero weight from u to itself were removed, so that the edges
+     * of u are served at once by a single search in either direction, rather
+     * than by two searches per edge.
+     */
+    protected void modified(NodeT u) {
+        modified(u, u, 0.0f, Float.NaN);
+    }
+
+    /* distances from the origin, or to it, that do not exceed the radius */
+    private Map<NodeT, Float> radiusSearch(NodeT origin, float radius, boolean backwards) {
+        VectorSparse<NodeT, Float> dists = new VectorSparse<>(Float.POSITIVE_INFINITY);
+        HashMap<NodeT, Float> settled = new HashMap<>();
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
+        dists.set(origin, 0.0f);
+        heap.insert(index.get(origin), 0.0f);
+        EdgeCursor<NodeT> incoming = new EdgeCursor<>();
+        while (!heap.isEmpty() && heap.minPriority() <= radius) {
+            float dist = heap.minPriority();
+            NodeT probed = index.node(heap.delMin());
+            settled.put(probed, dist);
+            if (!backwards) {
+                if (matrix.mat.containsKey(probed)) {
+                    for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                        float newdist = dist + entry.getValue();
+                        if (newdist < dists.get(entry.getKey())) {
+                            dists.set(entry.getKey(), newdist);
+                            heap.offer(index.get(entry.getKey()), newdist);
+                        }
+                    }
+                }
+            } else {
+                for (getEdgesTo(probed, incoming); incoming.next(); ) {
+                    NodeT w = incoming.from();
+                    float newdist = dist + incoming.weight();
+                    if (newdist < dists.get(w)) {
+                        dists.set(w, newdist);
+                        heap.offer(index.get(w), newdist);
+                    }
+                }
+            }
+        }
+        return settled;
+    }
+
+    /* caches the distance of every given node from each one of its ancestors in
+     * the shortest path tree, climbing up as long as the caching radius allows;
+     * subpaths of shortest paths are shortest paths as well */
+    private void cacheShortestPathTree(Iterable<NodeT> targets, VectorSparse<NodeT, NodeT> paths, VectorSparse<NodeT, Float> dists) {
+        boolean symmetric = this instanceof UndirectedGraph<?>;
+        float radius = cached.getMaxCachingRadius();
+        for (NodeT target : targets) {
+            float pathcost = dists.get(target);
+            NodeT curr = target;
+            for (NodeT prec = paths.get(curr); prec != null && !prec.equals(curr); curr = prec, prec = paths.get(prec)) {
+                float partialdist = pathcost - dists.get(prec);
+                if (partialdist > radius) {
+                    break;
+                }
+                cached.put(prec, target, partialdist);
+                if (symmetric) {
+                    cached.put(target, prec, partialdist);
+                }
             }
-            cached.clear();
         }
     }
 
@@ -84,36 +380,107 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         return matrix;
     }
 
+    /**
+     * @return an immutable int-indexed CSR snapshot of the graph, better
+     * suited for serving many read-only queries; subsequent updates of this
+     * graph are not reflected on the snapshot.
+     */
+    public CsrGraph<NodeT> freeze() {
+        return new CsrGraph<>(this);
+    }
+
+    /**
+     * @return an immutable view of the graph, upon a snapshot of it, whose
+     * queries may be served from many threads at once without locking;
+     * subsequent updates of this graph are not reflected on the view.
+     */
+    public GraphView<NodeT> view() {
+        return new GraphView<>(freeze());
+    }
+
+    /**
+     * Lends a traversal context of this graph to a search, which should
+     * hand it back by {@link #releaseTraversalContext} once done; searches
+     * in progress at the same time, whether nested or concurrent, are lent
+     * contexts of their own.
+     */
+    public TraversalContext<NodeT> acquireTraversalContext() {
+        return traversals.acquire(numberNodes());
+    }
+
+    public void releaseTraversalContext(TraversalContext<NodeT> context) {
+        traversals.release(context, numberNodes());
+    }
+
     public Iterable<NodeT> BFS(NodeT source) {
-        return new BFSiterable(source);
+        return BFS(source, new TraversalContext<NodeT>());
     }
 
     public Iterable<NodeT> DFS(NodeT source) {
-        return new DFSiterable(source);
+        return DFS(source, new TraversalContext<NodeT>());
     }
 
     public Iterable<NodeT> inorder(NodeT source) {
-        return new InorderIterable(source);
+        return inorder(source, new TraversalContext<NodeT>());
     }
 
     public Iterable<NodeT> preorder(NodeT source) {
-        return new PreorderIterable(source);
+        return preorder(source, new TraversalContext<NodeT>());
     }
 
     public Iterable<NodeT> postorder(NodeT source) {
-        return new PostorderIterable(source);
+        return postorder(source, new TraversalContext<NodeT>());
     }
 
     public Iterable<NodeT> inorder() {
-        return new InorderIterable(getNodes());
+        return inorder(new TraversalContext<NodeT>());
     }
 
     public Iterable<NodeT> preorder() {
-        return new PreorderIterable(getNodes());
+        return preorder(new TraversalContext<NodeT>());
     }
 
     public Iterable<NodeT> postorder() {
-        return new PostorderIterable(getNodes());
+        return postorder(new TraversalContext<NodeT>());
+    }
+
+    /*
+     * The following traversals run on the given context, which they begin
+     * anew and which keeps its numbering of the nodes from one traversal to
+     * the next; a context serves a single traversal at a time, so the
+     * previous traversal on it should not be iterated further.
+     */
+
+    public Iterable<NodeT> BFS(NodeT source, TraversalContext<NodeT> context) {
+        return new BFSiterable(source, context);
+    }
+
+    public Iterable<NodeT> DFS(NodeT source, TraversalContext<NodeT> context) {
+        return new DFSiterable(source, context);
+    }
+
+    public Iterable<NodeT> inorder(NodeT source, TraversalContext<NodeT> context) {
+        return new InorderIterable(source, context);
+    }
+
+    public Iterable<NodeT> preorder(NodeT source, TraversalContext<NodeT> context) {
+        return new PreorderIterable(source, context);
+    }
+
+    public Iterable<NodeT> postorder(NodeT source, TraversalContext<NodeT> context) {
+        return new PostorderIterable(source, context);
+    }
+
+    public Iterable<NodeT> inorder(TraversalContext<NodeT> context) {
+        return new InorderIterable(getNodes(), context);
+    }
+
+    public Iterable<NodeT> preorder(TraversalContext<NodeT> context) {
+        return new PreorderIterable(getNodes(), context);
+    }
+
+    public Iterable<NodeT> postorder(TraversalContext<NodeT> context) {
+        return new PostorderIterable(getNodes(), context);
     }
 
     public Graph() {
@@ -129,9 +496,34 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         countNegativeWeightEdges = other.countNegativeWeightEdges;
     }
 
+    /**
+     * Imports the edges of a text file; numeric and textual node keys are
+     * handled by the parallel {@link EdgeListParser}, whereas other formats
+     * are parsed line by line.
+     */
     public Graph(String filename, Format format, boolean isWeightedEdgeList) {
         matrix = new MatrixSparse<>(Float.NaN);
         sinks = new HashSet<>();
+        long startTime = System.nanoTime();
+        if (format == null || format instanceof NumberFormat) {
+            try {
+                new EdgeListParser(format != null, isWeightedEdgeList).parseInto(this, filename);
+            }catch (FileNotFoundException e) {
+                logger.error(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Input file '" + filename + "' does not exist...");
+            }catch (ParseException e) {
+                logger.error(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Unable to parse file '" + filename + "': " + e.getMessage());
+            }catch (IOException e) {
+                logger.error(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> IOException while processing file '" + filename + "'.");
+            }
+        } else {
+            importEdges(filename, format, isWeightedEdgeList);
+        }
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Built graph of " + numberNodes() + " nodes and "
+                + numberEdges() + " edges from '" + filename + "' in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+    }
+
+    private void importEdges(String filename, Format format, boolean isWeightedEdgeList) {
         String inputline = null;
         try{
             //Scanner in = new Scanner(new File(filename)); ///////////////////////////////////////////////////////
@@ -141,6 +533,7 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
 
             File file = new File(this.getClass().getClassLoader().getResource(filename).getFile());
             BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF8"));
+            GraphBuilder<NodeT> edges = new GraphBuilder<>();
             for (inputline = in.readLine(); inputline != null ; inputline = in.readLine()) {
                 //inputline = in.nextLine();
                 String[] line = inputline.split("\\s+");
@@ -158,30 +551,31 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
                     for (int i = 1; i < line.length; ++i) {
                         String col = line[i];
                         if (format == null) {
-                            setEdge((NodeT) row, (NodeT) col, 1.0f);
+                            edges.add((NodeT) row, (NodeT) col, 1.0f);
                         } else {
-                            setEdge((NodeT) format.parseObject(row), (NodeT) format.parseObject(col), 1.0f);
+                            edges.add((NodeT) format.parseObject(row), (NodeT) format.parseObject(col), 1.0f);
                         }
 
-                        if ((numberEdges() % 1000000) == 0) {
-                            logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> So far " + numberEdges() + " edges have been set.");
+                        if ((edges.size() % 1000000) == 0) {
+                            logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> So far " + edges.size() + " edges have been read.");
                         }
                     }
                 } else {
                     String col = line[1];
                     float val = line.length == 3f ? Float.parseFloat(line[2]) : 1.0f;
                     if (format == null) {
-                        setEdge((NodeT) row, (NodeT) col, val);
+                        edges.add((NodeT) row, (NodeT) col, val);
                     } else {
-                        setEdge((NodeT) format.parseObject(row), (NodeT) format.parseObject(col), val);
+                        edges.add((NodeT) format.parseObject(row), (NodeT) format.parseObject(col), val);
                     }
 
-                    if ((numberEdges() % 1000000) == 0) {
-                        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> So far " + numberEdges() + " edges have been set.");
+                    if ((edges.size() % 1000000) == 0) {
+                        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> So far " + edges.size() + " edges have been read.");
                     }
                 }
             }
             in.close();
+            setEdges(edges);
             long endTime = System.nanoTime();
             logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Loaded " + numberEdges() + " edges in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
         }catch (FileNotFoundException e) {
@@ -237,6 +631,80 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
 
     abstract public void setEdge(NodeT from, NodeT to, Float weight);
 
+    /**
+     * Inserts all edges of the builder, as if by calling setEdge in the order
+     * they were added. On a graph without edges, e.g. one of isolated nodes,
+     * the rows of the adjacency matrix are sized to their degrees and filled
+     * directly, the counters and the sinks are set in a single pass, and the
+     * caches are invalidated once; otherwise the caches are invalidated once
+     * up front, so that no cached distance is repaired per edge, and the
+     * sorted and deduplicated edges are inserted one by one.
+     */
+    public void setEdges(GraphBuilder<NodeT> edges) {
+        long startTime = System.nanoTime();
+        boolean undirected = this instanceof UndirectedGraph<?>;
+        GraphBuilder.Arcs arcs = edges.arcs(undirected);
+        int n = edges.numberNodes();
+
+        if (!matrix.mat.isEmpty()) {
+            modified();
+            for (int u = 0; u < n; ++u) {
+                for (int arc = arcs.offsets[u]; arc < arcs.offsets[u + 1]; ++arc) {
+                    if (!undirected || u <= arcs.targets[arc]) {
+                        setEdge(edges.getNode(u), edges.getNode(arcs.targets[arc]), arcs.weights[arc]);
+                    }
+                }
+            }
+            return;
+        }
+
+        int edgesSet = 0, selfLoops = 0, negativeWeights = 0;
+        boolean[] isTarget = new boolean[n];
+        for (int u = 0; u < n; ++u) {
+            int degree = arcs.offsets[u + 1] - arcs.offsets[u];
+            if (degree == 0) {
+                continue;
+            }
+            HashMap<NodeT, Float> row = new HashMap<>((degree << 2) / 3 + 1);
+            for (int arc = arcs.offsets[u]; arc < arcs.offsets[u + 1]; ++arc) {
+                int v = arcs.targets[arc];
+                float weight = arcs.weights[arc];
+                row.put(edges.getNode(v), weight);
+                isTarget[v] = true;
+                if (!undirected || u <= v) {
+                    ++edgesSet;
+                    if (u == v) {
+                        ++selfLoops;
+                    }
+                    if (weight < 0) {
+                        ++negativeWeights;
+                    }
+                }
+            }
+            matrix.putRow(edges.getNode(u), row);
+        }
+        countEdges = edgesSet;
+        countSelfLoops = selfLoops;
+        countNegativeWeightEdges = negativeWeights;
+
+        for (int u = 0; u < n; ++u) {
+            NodeT node = edges.getNode(u);
+            if (isTarget[u]) {
+                matrix.columnSet.add(node);
+            }
+            if (arcs.offsets[u + 1] > arcs.offsets[u]) {
+                sinks.remove(node);
+            } else {
+                sinks.add(node);
+            }
+        }
+        modified();
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Inserted " + countEdges + " edges out of "
+                + edges.size() + " in bulk in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+    }
+
     abstract public ArrayDeque<Edge<NodeT>> getEdgesTo(NodeT to);
 
     public ArrayDeque<Edge<NodeT>> getEdgesFrom(NodeT from) {
@@ -249,6 +717,24 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         return result;
     }
 
+    /**
+     * Positions the cursor before the first edge leaving the node, without
+     * copying the adjacency list or creating an Edge per neighbor.
+     * @return the cursor
+     */
+    public EdgeCursor<NodeT> getEdgesFrom(NodeT from, EdgeCursor<NodeT> cursor) {
+        return cursor.reset(from, matrix.mat.get(from), true);
+    }
+
+    /**
+     * Positions the cursor before the first edge entering the node, without
+     * copying the adjacency list or creating an Edge per neighbor.
+     * @return the cursor
+     */
+    public EdgeCursor<NodeT> getEdgesTo(NodeT to, EdgeCursor<NodeT> cursor) {
+        return cursor.reset(to, getIncomingView(to), false);
+    }
+
     abstract public boolean removeEdge(NodeT from, NodeT to);
 
     public void removeSelfLoops() {
@@ -286,9 +772,12 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
     }
 
     public void printCached() {
-        for (Entry<NodeT, Map<NodeT, Float>> over : cached.entrySet()) {
-            for (Entry<NodeT, Float> under : over.getValue().entrySet()) {
-                System.out.println(over.getKey() + "\t" + under.getKey() + "\t" + under.getValue());
+        for (NodeT over : cached.getSources()) {
+            Map<NodeT, Float> distances = cached.getDistancesFrom(over);
+            if (distances != null) {
+                for (Entry<NodeT, Float> under : distances.entrySet()) {
+                    System.out.println(over + "\t" + under.getKey() + "\t" + under.getValue());
+                }
             }
         }
     }
@@ -307,6 +796,13 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
 
     abstract public Map<NodeT, Integer> getConnectedComponents();
 
+    /**
+     * @return the component label of each node of the given snapshot of the
+     * graph, indexed like the snapshot; labels range from 0 to the number of
+     * components minus one.
+     */
+    abstract public int[] getComponentLabels(CsrGraph<NodeT> frozen);
+
     abstract public int numberConnectedComponents();
 
     abstract public boolean removeNode(NodeT u);
@@ -337,14 +833,57 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         return containsNegativeWeightEdges() && bellman() == null;
     }
 
-    private final class BFSiterable implements Iterator<NodeT>, Iterable<NodeT> {
+    /**
+     * Base of the traversals, which run on the int queue or stack and the
+     * visited bitmap of a {@link TraversalContext}, upon its numbering of
+     * the nodes. Whenever the frontier is exhausted, the next root not yet
+     * visited is pushed onto it, as long as there are roots left.
+     */
+    protected abstract class ContextTraversal implements Iterator<NodeT>, Iterable<NodeT> {
+
+        protected final TraversalContext<NodeT> context;
+        private final List<NodeT> roots;
+        private final boolean breadthFirst;
+        private int nextRoot = 0;
 
-        private final BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        private final ArrayDeque<NodeT> queue = new ArrayDeque<>();
+        protected ContextTraversal(List<NodeT> roots, boolean breadthFirst, TraversalContext<NodeT> context) {
+            this.roots = roots;
+            this.breadthFirst = breadthFirst;
+            this.context = context;
+            context.begin();
+        }
+
+        protected final boolean isFrontierEmpty() {
+            return breadthFirst ? context.isQueueEmpty() : context.isStackEmpty();
+        }
 
-        public BFSiterable(NodeT source) {
-            queue.add(source);
-            marked.set(source);
+        private boolean hasRoot() {
+            while (nextRoot < roots.size()) {
+                if (!context.isMarked(context.indexOf(roots.get(nextRoot)))) {
+                    return true;
+                }
+                ++nextRoot;
+            }
+            return false;
+        }
+
+        /**
+         * @return false if the frontier is empty and no roots are left.
+         */
+        protected final boolean fillFrontier() {
+            if (isFrontierEmpty()) {
+                if (!hasRoot()) {
+                    return false;
+                }
+                int root = context.indexOf(roots.get(nextRoot++));
+                context.mark(root);
+                if (breadthFirst) {
+                    context.enqueue(root);
+                } else {
+                    context.push(root);
+                }
+            }
+            return true;
         }
 
         @Override
@@ -354,22 +893,32 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
 
         @Override
         public boolean hasNext() {
-            return !queue.isEmpty();
+            return !isFrontierEmpty() || hasRoot();
         }
 
         @Override
         public void remove() {
             throw new UnsupportedOperationException();
         }
+    }
+
+    private final class BFSiterable extends ContextTraversal {
+
+        public BFSiterable(NodeT source, TraversalContext<NodeT> context) {
+            super(Collections.singletonList(source), true, context);
+        }
 
         @Override
         public NodeT next() {
-            NodeT w = queue.remove();
+            if (!fillFrontier()) {
+                throw new NoSuchElementException();
+            }
+            NodeT w = context.node(context.dequeue());
             if (matrix.mat.containsKey(w)) {
                 for (NodeT v : matrix.mat.get(w).keySet()) {
-                    if (!marked.get(v)) {
-                        marked.set(v);
-                        queue.add(v);
+                    int i = context.indexOf(v);
+                    if (context.mark(i)) {
+                        context.enqueue(i);
                     }
                 }
             }
@@ -377,39 +926,23 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         }
     }
 
-    private final class DFSiterable implements Iterator<NodeT>, Iterable<NodeT> {
-
-        private final BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        private final Stack<NodeT> stack = new Stack<>();
+    private final class DFSiterable extends ContextTraversal {
 
-        public DFSiterable(NodeT source) {
-            stack.push(source);
-            marked.set(source);
-        }
-
-        @Override
-        public Iterator<NodeT> iterator() {
-            return this;
-        }
-
-        @Override
-        public boolean hasNext() {
-            return !stack.isEmpty();
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        public DFSiterable(NodeT source, TraversalContext<NodeT> context) {
+            super(Collections.singletonList(source), false, context);
         }
 
         @Override
         public NodeT next() {
-            NodeT top = stack.pop();
+            if (!fillFrontier()) {
+                throw new NoSuchElementException();
+            }
+            NodeT top = context.node(context.pop());
             if (matrix.mat.containsKey(top)) {
                 for (NodeT u : matrix.mat.get(top).keySet()) {
-                    if (!marked.get(u)) {
-                        marked.set(u);
-                        stack.push(u);
+                    int i = context.indexOf(u);
+                    if (context.mark(i)) {
+                        context.push(i);
                     }
                 }
             }
@@ -417,213 +950,97 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         }
     }
 
-    private final class PreorderIterable implements Iterator<NodeT>, Iterable<NodeT> {
-
-        private final BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        private final Stack<NodeT> stack = new Stack<>();
-        private final ArrayList<NodeT> buffer;
-
-        public PreorderIterable(ArrayList<NodeT> sources) {
-            buffer = sources;
-        }
-
-        public PreorderIterable(NodeT source) {
-            buffer = new ArrayList<>();
-            buffer.add(source);
-        }
+    private final class PreorderIterable extends ContextTraversal {
 
-        @Override
-        public Iterator<NodeT> iterator() {
-            return this;
+        public PreorderIterable(List<NodeT> sources, TraversalContext<NodeT> context) {
+            super(sources, false, context);
         }
 
-        @Override
-        public boolean hasNext() {
-            return !(buffer.isEmpty() && stack.isEmpty());
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        public PreorderIterable(NodeT source, TraversalContext<NodeT> context) {
+            super(Collections.singletonList(source), false, context);
         }
 
         @Override
         public NodeT next() {
-            if (stack.isEmpty()) {
-                while (!buffer.isEmpty()) {
-                    NodeT u = buffer.remove(0);
-                    if (!marked.get(u)) {
-                        marked.set(u);
-                        stack.push(u);
-                        break;
-                    }
-                }
+            if (!fillFrontier()) {
+                throw new NoSuchElementException();
             }
-
-            while (!stack.isEmpty()) {
-                NodeT top = stack.pop();
-                if (matrix.mat.containsKey(top)) {
-                    for (NodeT u : matrix.mat.get(top).keySet()) {
-                        if (!marked.get(u)) {
-                            marked.set(u);
-                            stack.push(u);
-
-                            buffer.remove(u);
-                        }
+            NodeT top = context.node(context.pop());
+            if (matrix.mat.containsKey(top)) {
+                for (NodeT u : matrix.mat.get(top).keySet()) {
+                    int i = context.indexOf(u);
+                    if (context.mark(i)) {
+                        context.push(i);
                     }
                 }
-                return top;
             }
-            return null;    // should never reach this point
+            return top;
         }
     }
 
-    private final class PostorderIterable implements Iterator<NodeT>, Iterable<NodeT> {
-
-        //private final BitsetSparse<NodeT> processed = new BitsetSparse<>();
-
-        private final BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        private final Stack<NodeT> stack = new Stack<>();
-        private final ArrayList<NodeT> buffer;
-
-        public PostorderIterable(ArrayList<NodeT> sources) {
-            buffer = sources;
-        }
-
-        public PostorderIterable(NodeT source) {
-            buffer = new ArrayList<>();
-            buffer.add(source);
-        }
+    private final class PostorderIterable extends ContextTraversal {
 
-        @Override
-        public Iterator<NodeT> iterator() {
-            return this;
+        public PostorderIterable(List<NodeT> sources, TraversalContext<NodeT> context) {
+            super(sources, false, context);
         }
 
-        @Override
-        public boolean hasNext() {
-            return !(buffer.isEmpty() && stack.isEmpty());
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        public PostorderIterable(NodeT source, TraversalContext<NodeT> context) {
+            super(Collections.singletonList(source), false, context);
         }
 
         @Override
         public NodeT next() {
-            if (stack.isEmpty()) {
-                while (!buffer.isEmpty()) {
-                    NodeT u = buffer.remove(0);
-                    if (!marked.get(u)) {
-                        marked.set(u);
-                        stack.push(u);
-                        break;
-                    }
-                }
+            if (!fillFrontier()) {
+                throw new NoSuchElementException();
             }
-
-            while (!stack.isEmpty()) {
-                NodeT top = stack.peek();
+            while (true) {
+                NodeT top = context.node(context.peek());
                 boolean newElements = false;
                 if (matrix.mat.containsKey(top)) {
                     for (NodeT u : matrix.mat.get(top).keySet()) {
-                        if (!marked.get(u)) {
-                            marked.set(u);
-                            stack.push(u);
-
-                            buffer.remove(u);
-
+                        int i = context.indexOf(u);
+                        if (context.mark(i)) {
+                            context.push(i);
                             newElements = true;
                             break;
                         }
                     }
                 }
                 if (!newElements) {
-                    return stack.pop();
+                    context.pop();
+                    return top;
                 }
             }
-            /*
-             while (!stack.isEmpty()) {
-             NodeT top = stack.peek();
-             if (processed.get(top)) {
-             return stack.pop();
-             }else{
-             processed.set(top);
-             if (matrix.mat.containsKey(top)) {
-             for (NodeT u : matrix.mat.get(top).keySet()) {
-             if (!marked.get(u)) {
-             marked.set(u);
-             stack.push(u);
-
-             buffer.remove(u);
-             }
-             }
-             }
-             }
-             }
-             */
-            return null; // should never happen!
         }
     }
 
-    private final class InorderIterable implements Iterator<NodeT>, Iterable<NodeT> {
+    private final class InorderIterable extends ContextTraversal {
 
-        private final BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        private final Stack<NodeT> stack = new Stack<>();
-        private final ArrayList<NodeT> buffer;
-
-        public InorderIterable(ArrayList<NodeT> sources) {
-            buffer = sources;
-        }
-
-        public InorderIterable(NodeT source) {
-            buffer = new ArrayList<>();
-            buffer.add(source);
+        public InorderIterable(List<NodeT> sources, TraversalContext<NodeT> context) {
+            super(sources, false, context);
         }
 
-        @Override
-        public Iterator<NodeT> iterator() {
-            return this;
-        }
-
-        @Override
-        public boolean hasNext() {
-            return !(buffer.isEmpty() && stack.isEmpty());
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        public InorderIterable(NodeT source, TraversalContext<NodeT> context) {
+            super(Collections.singletonList(source), false, context);
         }
 
         @Override
         public NodeT next() {
-            if (stack.isEmpty()) {
-                while (!buffer.isEmpty()) {
-                    NodeT u = buffer.remove(0);
-                    if (!marked.get(u)) {
-                        marked.set(u);
-                        stack.push(u);
-                        break;
-                    }
-                }
+            if (!fillFrontier()) {
+                throw new NoSuchElementException();
             }
-
-            while (!stack.isEmpty()) {
-                NodeT top = stack.pop();
+            while (true) {
+                int i = context.pop();
+                NodeT top = context.node(i);
                 int counter = 0;
                 if (matrix.mat.containsKey(top)) {
                     for (NodeT neighbor : matrix.mat.get(top).keySet()) {
-                        if (!marked.get(neighbor)) {
-                            marked.set(neighbor);
-                            stack.push(neighbor);
+                        int j = context.indexOf(neighbor);
+                        if (context.mark(j)) {
+                            context.push(j);
                             if (counter == 0) {
-                                stack.push(top);
+                                context.push(i);
                             }
-
-                            buffer.remove(neighbor);
-
                             ++counter;
                         }
                     }
@@ -632,7 +1049,6 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
                     return top;
                 }
             }
-            return null; // should never reach this point !!!
         }
     }
 
@@ -659,132 +1075,97 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
     }
 
     public ArrayList<NodeT> rangeQuery(NodeT q, float radius) {
-        ArrayList<NodeT> collection = new ArrayList<>();
-        MinPQ<Edge<NodeT>> heap = new MinPQ<>();
-        HashSet<NodeT> marked = new HashSet<>();
-        marked.add(q);
-
-        for (Edge<NodeT> edge : getEdgesFrom(q)) {
-            if (edge.weight < radius && !edge.to.equals(q)) {
-                marked.add(edge.to);
-                heap.insert(edge);
-            }
-        }
-
-        while (!heap.isEmpty()) {
-            Edge<NodeT> top = heap.delMin();
-            collection.add(top.to);
-
-            for (Edge<NodeT> edge : getEdgesFrom(top.to)) {
-                if (top.weight + edge.weight < radius && !marked.contains(edge.to)) {
-                    heap.insert(new Edge<>(q, edge.to, top.weight + edge.weight));
-                    marked.add(edge.to);
-                }
-            }
-        }
-
-        return collection;
+        return expand(q, radius, Integer.MAX_VALUE, false);
     }
 
     public ArrayList<NodeT> reverseRangeQuery(NodeT q, float radius) {
-        ArrayList<NodeT> collection = new ArrayList<>();
-        MinPQ<Edge<NodeT>> heap = new MinPQ<>();
-        HashSet<NodeT> marked = new HashSet<>();
-        marked.add(q);
-
-        for (Edge<NodeT> edge : getEdgesTo(q)) {
-            if (edge.weight < radius && !edge.from.equals(q)) {
-                marked.add(edge.from);
-                heap.insert(edge);
-            }
-        }
-
-        while (!heap.isEmpty()) {
-            Edge<NodeT> top = heap.delMin();
-            collection.add(top.from);
-
-            for (Edge<NodeT> edge : getEdgesTo(top.from)) {
-                if (top.weight + edge.weight < radius && !marked.contains(edge.from)) {
-                    heap.insert(new Edge<>(edge.from, q, top.weight + edge.weight));
-                    marked.add(edge.from);
-                }
-            }
-        }
-
-        return collection;
+        return expand(q, radius, Integer.MAX_VALUE, true);
     }
 
     public ArrayList<NodeT> nearestQuery(NodeT q, int k) {
-        ArrayList<NodeT> collection = new ArrayList<>();
-        MinPQ<Edge<NodeT>> heap = new MinPQ<>();
-        HashSet<NodeT> marked = new HashSet<>();
-        marked.add(q);
-
-        for (Edge<NodeT> edge : getEdgesFrom(q)) {
-            if (!edge.to.equals(q)) {
-                marked.add(edge.to);
-                heap.insert(edge);
-            }
-        }
-
-        while (!heap.isEmpty()) {
-            Edge<NodeT> top = heap.delMin();
-            collection.add(top.to);
-            if (collection.size() >= k) {
-                break;
-            }
-
-            for (Edge<NodeT> edge : getEdgesFrom(top.to)) {
-                if (!marked.contains(edge.to)) {
-                    heap.insert(new Edge<>(q, edge.to, top.weight + edge.weight));
-                    marked.add(edge.to);
-                }
-            }
-        }
-
-        while (!heap.isEmpty()) {
-            heap.delMin();
-        }
-
-        return collection;
+        return expand(q, Float.POSITIVE_INFINITY, k, false);
     }
 
     public ArrayList<NodeT> reverseNearestQuery(NodeT q, int k) {
-        ArrayList<NodeT> collection = new ArrayList<>();
-        MinPQ<Edge<NodeT>> heap = new MinPQ<>();
-        HashSet<NodeT> marked = new HashSet<>();
-        marked.add(q);
+        return expand(q, Float.POSITIVE_INFINITY, k, true);
+    }
 
-        while (!heap.isEmpty()) {
-            heap.delMin();
+    /* settles nodes in increasing network distance from (or to) the query node,
+     * which is left out of the result, until either the radius is reached or k
+     * nodes are collected */
+    private ArrayList<NodeT> expand(NodeT q, float radius, int k, boolean backwards) {
+        ArrayList<NodeT> collection = new ArrayList<>();
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
+        BitSet settled = new BitSet();
+
+        heap.insert(index.get(q), 0.0f);
+        EdgeCursor<NodeT> incoming = new EdgeCursor<>();
+        while (!heap.isEmpty() && collection.size() < k) {
+            float dist = heap.minPriority();
+            int top = heap.delMin();
+            settled.set(top);
+
+            NodeT u = index.node(top);
+            if (top > 0) {
+                collection.add(u);
+            }
+
+            if (backwards) {
+                for (getEdgesTo(u, incoming); incoming.next(); ) {
+                    float newdist = dist + incoming.weight();
+                    if (newdist < radius) {
+                        int i = index.get(incoming.from());
+                        if (!settled.get(i)) {
+                            heap.offer(i, newdist);
+                        }
+                    }
+                }
+            } else if (matrix.mat.containsKey(u)) {
+                for (Entry<NodeT, Float> entry : matrix.mat.get(u).entrySet()) {
+                    float newdist = dist + entry.getValue();
+                    if (newdist < radius) {
+                        int i = index.get(entry.getKey());
+                        if (!settled.get(i)) {
+                            heap.offer(i, newdist);
+                        }
+                    }
+                }
+            }
         }
-
         return collection;
     }
 
     /* a preferable choice in the presence of sparse graphs (just a few links per node), 
-     * or when suspecting that such a path really exists and it is also not that long */
+     * or when suspecting that such a path really exists and it is also not that long;
+     * both searches run on a traversal context lent by the graph */
     private boolean existsBFSpath(NodeT u, NodeT v) {
         if (u.equals(v)) {
             return true;
         }
-        BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        ArrayDeque<NodeT> queue = new ArrayDeque<>();
-        queue.add(u);
-        marked.set(u);
-        while (!queue.isEmpty()) {
-            NodeT top = queue.remove();
-            if (top.equals(v)) {
-                return true;
-            }
-            for (NodeT w : getNeighbors(top)) {
-                if (!marked.get(w)) {
-                    queue.add(w);
-                    marked.set(w);
+        TraversalContext<NodeT> context = acquireTraversalContext();
+        try {
+            int source = context.indexOf(u);
+            context.mark(source);
+            context.enqueue(source);
+            while (!context.isQueueEmpty()) {
+                NodeT top = context.node(context.dequeue());
+                if (top.equals(v)) {
+                    return true;
+                }
+                if (matrix.mat.containsKey(top)) {
+                    for (NodeT w : matrix.mat.get(top).keySet()) {
+                        int i = context.indexOf(w);
+                        if (context.mark(i)) {
+                            context.enqueue(i);
+                        }
+                    }
                 }
             }
+            return false;
+        } finally {
+            releaseTraversalContext(context);
         }
-        return false;
     }
 
     /* better choice in the presence of small world phenomena, where the diameter of the graph is not long. */
@@ -792,122 +1173,93 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         if (u.equals(v)) {
             return true;
         }
-        BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        Stack<NodeT> stack = new Stack<>();
-        marked.set(u);
-        stack.push(u);
-        while (!stack.isEmpty()) {
-            NodeT w = stack.pop();
-            if (w.equals(v)) {
-                return true;
-            }
-            for (NodeT y : getNeighbors(w)) {
-                if (!marked.get(y)) {
-                    stack.push(y);
-                    marked.set(y);
+        TraversalContext<NodeT> context = acquireTraversalContext();
+        try {
+            int source = context.indexOf(u);
+            context.mark(source);
+            context.push(source);
+            while (!context.isStackEmpty()) {
+                NodeT w = context.node(context.pop());
+                if (w.equals(v)) {
+                    return true;
+                }
+                if (matrix.mat.containsKey(w)) {
+                    for (NodeT y : matrix.mat.get(w).keySet()) {
+                        int i = context.indexOf(y);
+                        if (context.mark(i)) {
+                            context.push(i);
+                        }
+                    }
                 }
             }
+            return false;
+        } finally {
+            releaseTraversalContext(context);
         }
-        return false;
     }
 
+    /**
+     * @return the average number of hops between reachable pairs of distinct
+     * nodes, by bit-parallel breadth-first searches in {@link HopStatistics}.
+     */
     public float getAveragePathHops() {
         if (isEmpty() || matrix.mat.isEmpty()) {
             return 0.0f;
         }
-        int counter = 0;
-        long sumhops = 0L;
-        ArrayDeque<NodeT> queue = new ArrayDeque<>();
-        BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        VectorSparse<NodeT, Integer> dists = new VectorSparse<>(Integer.MAX_VALUE);
-        for (NodeT u : getActiveNodesShallowCopy()) {
-            queue.add(u);
-            marked.set(u);
-            dists.set(u, 0);
-
-            while (!queue.isEmpty()) {
-                NodeT top = queue.remove();
-                int hops = dists.get(top);
-
-                sumhops += hops;
-                for (NodeT w : getNeighbors(top)) {
-                    if (!marked.get(w)) {
-                        queue.add(w);
-                        marked.set(w);
-                        dists.set(w, hops + 1);
-                        ++counter;
-                    }
-                }
-            }
-            queue.clear();
-            dists.clear();
-            marked.clear();
-        }
-        return sumhops / (float) (counter); // decrement so as not to account for the source node at zero distance
+        return getHopDistribution().averageDistance();
     }
 
     public int getMaxPathHops() {
         if (isEmpty() || matrix.mat.isEmpty()) {
             return 0;
         }
-        int maxhops = 0;
-        ArrayDeque<NodeT> queue = new ArrayDeque<>();
-        BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        VectorSparse<NodeT, Integer> dists = new VectorSparse<>(Integer.MAX_VALUE);
-        for (NodeT u : getActiveNodesShallowCopy()) {
-            queue.add(u);
-            marked.set(u);
-            dists.set(u, 0);
-
-            int hops = 0;
-            while (!queue.isEmpty()) {
-                NodeT top = queue.remove();
-                hops = dists.get(top);
-                for (NodeT w : getNeighbors(top)) {
-                    if (!marked.get(w)) {
-                        queue.add(w);
-                        marked.set(w);
-                        dists.set(w, hops + 1);
-                    }
-                }
-            }
-            queue.clear();
-            dists.clear();
-            marked.clear();
-            if (hops > maxhops) {
-                maxhops = hops;
-            }
-        }
-        return maxhops;
+        return getHopDistribution().diameter();
+    }
+
+    public HopStatistics.Distribution getHopDistribution() {
+        return new HopStatistics<>(freeze()).exact(Runtime.getRuntime().availableProcessors());
     }
 
+    /**
+     * @return the neighbourhood function estimated by HyperANF, with 2^log2m
+     * registers per node, for the average distance and effective diameter of
+     * graphs too large for {@link #getHopDistribution()}.
+     */
+    public HopStatistics.Distribution estimateHopDistribution(int log2m) {
+        return new HopStatistics<>(freeze()).hyperANF(log2m);
+    }
+
+    /* breadth-first search on a traversal context lent by the graph,
+     * level by level, so that no hop counts need to be kept per node */
     public int getPathHops(NodeT u, NodeT v) {
         if (u.equals(v)) {
             return 0;
         }
-        BitsetSparse<NodeT> marked = new BitsetSparse<>();
-        ArrayDeque<NodeT> queue = new ArrayDeque<>();
-        VectorSparse<NodeT, Integer> dists = new VectorSparse<>(Integer.MAX_VALUE);
-        queue.add(u);
-        marked.set(u);
-        dists.set(u, 0);
-
-        while (!queue.isEmpty()) {
-            NodeT top = queue.remove();
-            int hops = dists.get(top);
-            if (top.equals(v)) {
-                return hops;
-            }
-
-            for (NodeT w : getNeighbors(u)) {
-                if (!marked.get(w)) {
-                    queue.add(w);
-                    marked.set(w);
-                    dists.set(w, hops + 1);
+        TraversalContext<NodeT> context = acquireTraversalContext();
+        try {
+            int source = context.indexOf(u);
+            context.mark(source);
+            context.enqueue(source);
+            for (int hops = 1; !context.isQueueEmpty(); ++hops) {
+                for (int level = context.queueSize(); level > 0; --level) {
+                    NodeT top = context.node(context.dequeue());
+                    if (matrix.mat.containsKey(top)) {
+                        for (NodeT w : matrix.mat.get(top).keySet()) {
+                            if (w.equals(v)) {
+                                return hops;
+                            }
+                            int i = context.indexOf(w);
+                            if (context.mark(i)) {
+                                context.enqueue(i);
+                            }
+                        }
+                    }
                 }
             }
+            return -1;
+        } finally {
+            releaseTraversalContext(context);
         }
-        return -1;
     }
 
     abstract public float getDensity();
@@ -916,17 +1268,22 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
 
     abstract protected long numberTriples();
 
+    /**
+     * @return the number of triangles of an undirected graph, or of transitive
+     * triads u-&gt;v, v-&gt;w, u-&gt;w of a directed one, counted in parallel
+     * over a snapshot of the graph by a {@link TriangleCounter}.
+     */
     public long numberTriangles() {
-        long triangles = 0L;
-        for (NodeT u : getActiveNodesShallowCopy()) {
-            Collection<NodeT> ulinks = getNeighbors(u);
-            for (NodeT v : getNeighbors(u)) {
-                Collection<NodeT> vlinks = getNeighbors(v);
-                vlinks.retainAll(ulinks);
-                triangles += vlinks.size();
-            }
-        }
-        return triangles;
+        return new TriangleCounter<>(freeze()).count();
+    }
+
+    /**
+     * @return an estimate of {@link #numberTriangles()} from the given number
+     * of uniformly sampled paths of two edges, along with bounds holding
+     * with probability 0.95, for graphs too large for an exact count.
+     */
+    public TriangleCounter.Estimate estimateTriangles(long samples) {
+        return new TriangleCounter<>(freeze()).estimate(samples, 0.95, System.nanoTime());
     }
 
     public float getGlobalClusteringCoefficient() {
@@ -936,23 +1293,31 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
     public float getLocalClusteringCoefficient() {
         long counter = 0L;
         float sumcoeff = 0.0f;
-        for (NodeT u : getActiveNodesShallowCopy()) {
-            Collection<NodeT> ulinks = getNeighbors(u);
-            if (ulinks.size() > 1) {
-                int compl = numberNeighbors(u);
-                int crossing = 0;
-                for (NodeT v : ulinks) {
-                    Collection<NodeT> vlinks = getNeighbors(v);
-                    vlinks.retainAll(ulinks);
-                    crossing += vlinks.size();
-                }
-                sumcoeff += crossing / (compl * (compl - 1));
+        for (float coeff : new TriangleCounter<>(freeze()).localClusteringCoefficients()) {
+            if (!Float.isNaN(coeff)) {
+                sumcoeff += coeff;
                 ++counter;
             }
         }
         return sumcoeff / counter;
     }
 
+    /**
+     * @return the value of a minimum cut, found by Karger-Stein with at least
+     * the given probability; arcs are taken as undirected edges.
+     */
+    public float kargerStein(double probability) {
+        return minimumCut(probability).value;
+    }
+
+    public MinCut.Cut<NodeT> minimumCut(double probability) {
+        return new MinCut<>(freeze()).kargerStein(probability);
+    }
+
+    /**
+     * A single run of Karger's contraction on a copy of the graph, left as the
+     * reference for {@link #kargerStein(double)}.
+     */
     public float karger() {
         float cutCost = 0;
         try {
@@ -1029,50 +1394,14 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
                     }
                 }
             }
-        }
-
-        for (Entry<NodeT, NodeT> pair : paths.entrySet()) {
-            sssp.setEdge(pair.getValue(), pair.getKey(), getEdgeWeight(pair.getValue(), pair.getKey()));
-        }
-
-        if (enableCache) {
-            for (Entry<NodeT, NodeT> pair : paths.entrySet()) {
-                NodeT curr = pair.getKey();
-                float pathcost = dists.get(curr);
-                for (NodeT prec = pair.getValue(); !prec.equals(curr);) {
-                    Map<NodeT, Float> dprec;
-                    if (cached.containsKey(prec)) {
-                        dprec = cached.get(prec);
-                    } else {
-                        dprec = new HashMap<>();
-                        cached.put(prec, dprec);
-                    }
-
-                    float partialdist = pathcost - dists.get(prec);
-                    if (dprec.containsKey(curr) && dprec.get(curr) <= partialdist) {
-                        break;
-                    } else {
-                        dprec.put(curr, partialdist);
-                    }
-
-                    if (this instanceof UndirectedGraph<?>) {
-                        Map<NodeT, Float> dcurr;
-                        if (cached.containsKey(curr)) {
-                            dcurr = cached.get(curr);
-                        } else {
-                            dcurr = new HashMap<>();
-                            cached.put(curr, dcurr);
-                        }
-
-                        if (!dcurr.containsKey(prec) || dcurr.get(prec) > partialdist) {
-                            dcurr.put(prec, partialdist);
-                        }
-                    }
-
-                    curr = prec;
-                    prec = paths.get(prec);
-                }
-            }
+        }
+
+        for (Entry<NodeT, NodeT> pair : paths.entrySet()) {
+            sssp.setEdge(pair.getValue(), pair.getKey(), getEdgeWeight(pair.getValue(), pair.getKey()));
+        }
+
+        if (enableCache) {
+            cacheShortestPathTree(paths.thisMap().keySet(), paths, dists);
         }
 
         sssp.sinks.addAll(getActiveNodesShallowCopy());
@@ -1109,15 +1438,20 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         VectorSparse<NodeT, NodeT> paths = new VectorSparse<>();
         paths.set(source, source);
         dists.set(source, 0.0f);
-        for (NodeT u : new BFSiterable(source)) {
-            if (matrix.mat.containsKey(u)) {
-                for (Entry<NodeT, Float> entry : matrix.mat.get(u).entrySet()) {
-                    if (dists.get(u) + entry.getValue() < dists.get(entry.getKey())) {
-                        dists.set(entry.getKey(), dists.get(u) + entry.getValue());
-                        paths.set(entry.getKey(), u);
+        TraversalContext<NodeT> context = acquireTraversalContext();
+        try {
+            for (NodeT u : BFS(source, context)) {
+                if (matrix.mat.containsKey(u)) {
+                    for (Entry<NodeT, Float> entry : matrix.mat.get(u).entrySet()) {
+                        if (dists.get(u) + entry.getValue() < dists.get(entry.getKey())) {
+                            dists.set(entry.getKey(), dists.get(u) + entry.getValue());
+                            paths.set(entry.getKey(), u);
+                        }
                     }
                 }
             }
+        } finally {
+            releaseTraversalContext(context);
         }
 
         for (NodeT u : getActiveNodesShallowCopy()) {
@@ -1134,43 +1468,7 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         }
 
         if (enableCache) {
-            for (Entry<NodeT, NodeT> pair : paths.entrySet()) {
-                NodeT curr = pair.getKey();
-                float pathcost = dists.get(curr);
-                for (NodeT prec = pair.getValue(); !prec.equals(curr);) {
-                    Map<NodeT, Float> dprec;
-                    if (cached.containsKey(prec)) {
-                        dprec = cached.get(prec);
-                    } else {
-                        dprec = new HashMap<>();
-                        cached.put(prec, dprec);
-                    }
-
-                    float partialdist = pathcost - dists.get(prec);
-                    if (dprec.containsKey(curr) && dprec.get(curr) <= partialdist) {
-                        break;
-                    } else {
-                        dprec.put(curr, partialdist);
-                    }
-
-                    if (this instanceof UndirectedGraph<?>) {
-                        Map<NodeT, Float> dcurr;
-                        if (cached.containsKey(curr)) {
-                            dcurr = cached.get(curr);
-                        } else {
-                            dcurr = new HashMap<>();
-                            cached.put(curr, dcurr);
-                        }
-
-                        if (!dcurr.containsKey(prec) || dcurr.get(prec) > partialdist) {
-                            dcurr.put(prec, partialdist);
-                        }
-                    }
-
-                    curr = prec;
-                    prec = paths.get(prec);
-                }
-            }
+            cacheShortestPathTree(paths.thisMap().keySet(), paths, dists);
         }
 
         sssp.sinks.addAll(getActiveNodesShallowCopy());
@@ -1210,8 +1508,12 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
     }
 
     public ArrayDeque<NodeT> getPath(NodeT u, NodeT v, boolean enableCache) {
+        DistanceOracle<NodeT> accelerated = oracle;
+        if (accelerated != null) {
+            return accelerated.getPath(u, v);
+        }
         //return containsNegativeWeightEdges() || !isSparse() ? bellmanPath(u, v, enableCache) : dijkstraPath(u, v, enableCache);
-        return dijkstraPath(u, v, enableCache);
+        return pointToPointSearch == PointToPointSearch.BIDIRECTIONAL ? bidirectionalPath(u, v, enableCache) : dijkstraPath(u, v, enableCache);
     }
 
     public ArrayDeque<NodeT> getPath(NodeT u, NodeT v) {
@@ -1219,31 +1521,24 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
     }
 
     public float getPathCost(NodeT u, NodeT v) {
-        if (cached.containsKey(u)) {
-            if (cached.get(u).containsKey(v)) {
-                return cached.get(u).get(v);
-            } else {
-                float cost = getPathCost(u, v, true);
-                //cached.get(u).put(v,cost);
-                return cost;
-            }
-        } else {
-            float cost = getPathCost(u, v, true);
-                //Map<NodeT,Float> tempmap = new HashMap<>();
-            //tempmap.put(v, cost);
-            //cached.put(u, tempmap);
-            return cost;
-        }
+        return getPathCost(u, v, true);
     }
 
     public float getPathCost(NodeT u, NodeT v, boolean enableCache) {
-        if (enableCache && cached.containsKey(u)) {
-            Map<NodeT, Float> dux = cached.get(u);
-            if (dux.containsKey(v)) {
-                return dux.get(v);
+        DistanceOracle<NodeT> accelerated = oracle;
+        if (accelerated != null) {
+            return accelerated.getPathCost(u, v);
+        }
+        if (enableCache) {
+            Float duv = cached.get(u, v);
+            if (duv != null) {
+                return duv;
             }
         }
-        return containsNegativeWeightEdges() ? bellmanPathCost(u, v, enableCache) : dijkstraPathCost(u, v, enableCache);
+        if (containsNegativeWeightEdges()) {
+            return bellmanPathCost(u, v, enableCache);
+        }
+        return pointToPointSearch == PointToPointSearch.BIDIRECTIONAL ? bidirectionalPathCost(u, v, enableCache) : dijkstraPathCost(u, v, enableCache);
     }
 
     private float bellmanPathCost(NodeT source, NodeT target) {
@@ -1262,21 +1557,27 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         VectorSparse<NodeT, NodeT> paths = new VectorSparse<>();
         paths.set (source,source);
         dists.set (source,0.0f);
-        if (cached.containsKey(source)) {
-            for (Entry<NodeT, Float> entry : cached.get(source).entrySet()) {
+        Map<NodeT, Float> sourcecache = cached.getDistancesFrom(source);
+        if (sourcecache != null) {
+            for (Entry<NodeT, Float> entry : sourcecache.entrySet()) {
                 dists.set(entry.getKey(), entry.getValue());
                 paths.set(entry.getKey(), source);
             }
         }
-        for (NodeT u : new BFSiterable(source)) {
-            if (matrix.mat.containsKey(u)) {
-                for (Entry<NodeT, Float> entry : matrix.mat.get(u).entrySet()) {
-                    if (dists.get(u) + entry.getValue() < dists.get(entry.getKey())) {
-                        dists.set(entry.getKey(), dists.get(u) + entry.getValue());
-                        paths.set(entry.getKey(), u);
+        TraversalContext<NodeT> context = acquireTraversalContext();
+        try {
+            for (NodeT u : BFS(source, context)) {
+                if (matrix.mat.containsKey(u)) {
+                    for (Entry<NodeT, Float> entry : matrix.mat.get(u).entrySet()) {
+                        if (dists.get(u) + entry.getValue() < dists.get(entry.getKey())) {
+                            dists.set(entry.getKey(), dists.get(u) + entry.getValue());
+                            paths.set(entry.getKey(), u);
+                        }
                     }
                 }
             }
+        } finally {
+            releaseTraversalContext(context);
         }
 
         /* exists at least one cycle on the route from u to v with a negative edge */
@@ -1291,43 +1592,7 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         }
 
         if (enableCache) {
-            for (Entry<NodeT, NodeT> pair : paths.entrySet()) {
-                NodeT curr = pair.getKey();
-                float pathcost = dists.get(curr);
-                for (NodeT prec = pair.getValue(); !prec.equals(curr);) {
-                    Map<NodeT, Float> dprec;
-                    if (cached.containsKey(prec)) {
-                        dprec = cached.get(prec);
-                    } else {
-                        dprec = new HashMap<>();
-                        cached.put(prec, dprec);
-                    }
-
-                    float partialdist = pathcost - dists.get(prec);
-                    if (dprec.containsKey(curr) && dprec.get(curr) <= partialdist) {
-                        break;
-                    } else {
-                        dprec.put(curr, partialdist);
-                    }
-
-                    if (this instanceof UndirectedGraph<?>) {
-                        Map<NodeT, Float> dcurr;
-                        if (cached.containsKey(curr)) {
-                            dcurr = cached.get(curr);
-                        } else {
-                            dcurr = new HashMap<>();
-                            cached.put(curr, dcurr);
-                        }
-
-                        if (!dcurr.containsKey(prec) || dcurr.get(prec) > partialdist) {
-                            dcurr.put(prec, partialdist);
-                        }
-                    }
-
-                    curr = prec;
-                    prec = paths.get(prec);
-                }
-            }
+            cacheShortestPathTree(paths.thisMap().keySet(), paths, dists);
         }
         return dists.get(target);
     }
@@ -1348,15 +1613,20 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         VectorSparse<NodeT, NodeT> paths = new VectorSparse<>();
         paths.set(source, source);
         dists.set(source, 0.0f);
-        for (NodeT u : new BFSiterable(source)) {
-            if (matrix.mat.containsKey(u)) {
-                for (Entry<NodeT, Float> entry : matrix.mat.get(u).entrySet()) {
-                    if (dists.get(u) + entry.getValue() < dists.get(entry.getKey())) {
-                        dists.set(entry.getKey(), dists.get(u) + entry.getValue());
-                        paths.set(entry.getKey(), u);
+        TraversalContext<NodeT> context = acquireTraversalContext();
+        try {
+            for (NodeT u : BFS(source, context)) {
+                if (matrix.mat.containsKey(u)) {
+                    for (Entry<NodeT, Float> entry : matrix.mat.get(u).entrySet()) {
+                        if (dists.get(u) + entry.getValue() < dists.get(entry.getKey())) {
+                            dists.set(entry.getKey(), dists.get(u) + entry.getValue());
+                            paths.set(entry.getKey(), u);
+                        }
                     }
                 }
             }
+        } finally {
+            releaseTraversalContext(context);
         }
 
         /* exists at least one cycle on the route from u to v with a negative edge */
@@ -1371,43 +1641,7 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         }
 
         if (enableCache) {
-            for (Entry<NodeT, NodeT> pair : paths.entrySet()) {
-                NodeT curr = pair.getKey();
-                float pathcost = dists.get(curr);
-                for (NodeT prec = pair.getValue(); !prec.equals(curr);) {
-                    Map<NodeT, Float> dprec;
-                    if (cached.containsKey(prec)) {
-                        dprec = cached.get(prec);
-                    } else {
-                        dprec = new HashMap<>();
-                        cached.put(prec, dprec);
-                    }
-
-                    float partialdist = pathcost - dists.get(prec);
-                    if (dprec.containsKey(curr) && dprec.get(curr) <= partialdist) {
-                        break;
-                    } else {
-                        dprec.put(curr, partialdist);
-                    }
-
-                    if (this instanceof UndirectedGraph<?>) {
-                        Map<NodeT, Float> dcurr;
-                        if (cached.containsKey(curr)) {
-                            dcurr = cached.get(curr);
-                        } else {
-                            dcurr = new HashMap<>();
-                            cached.put(curr, dcurr);
-                        }
-
-                        if (!dcurr.containsKey(prec) || dcurr.get(prec) > partialdist) {
-                            dcurr.put(prec, partialdist);
-                        }
-                    }
-
-                    curr = prec;
-                    prec = paths.get(prec);
-                }
-            }
+            cacheShortestPathTree(paths.thisMap().keySet(), paths, dists);
         }
 
         ArrayDeque<NodeT> path = new ArrayDeque<>();
@@ -1441,41 +1675,29 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
 
         VectorSparse<NodeT, NodeT> paths = new VectorSparse<>();
         VectorSparse<NodeT, Float> dists = new VectorSparse<>(Float.POSITIVE_INFINITY);
-        MinPQ<Edge<NodeT>> edges = new MinPQ<>();
-        HashSet<NodeT> processed = new HashSet<>();
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
 
-        processed.add(source);
         dists.set(source, 0.0f);
         paths.set(source, source);
 
-        if (matrix.mat.containsKey(source)) {
-            for (Entry<NodeT, Float> entry : matrix.mat.get(source).entrySet()) {
-                edges.insert(new Edge<>(source, entry.getKey(), entry.getValue()));
-            }
-        } else {
+        if (!matrix.mat.containsKey(source)) {
             sssp.sinks.addAll(getActiveNodesShallowCopy());
             sssp.sinks.addAll(sinks);
             return sssp;
         }
 
-        while (!edges.isEmpty()) {
-            Edge<NodeT> probed = edges.delMin();
-            if (probed.weight < dists.get(probed.to)) {
-                processed.add(probed.to);
-                paths.set(probed.to, probed.from);
-                dists.set(probed.to, probed.weight);
-                /*
-                 edges.clear();
-                 for (NodeT u : processed)
-                 for (NodeT v : getNeighbors(u)) {
-                 float newdist = dists.get(u)+getEdgeWeight(u,v);
-                 if (newdist < dists.get(v))
-                 edges.insert(new Edge<>(u,v,newdist));
-                 }
-                 */
-                for (Edge<NodeT> edge : getEdgesFrom(probed.to)) {
-                    if (probed.weight + edge.weight < dists.get(edge.to)) {
-                        edges.insert(new Edge<>(probed.to, edge.to, probed.weight + edge.weight));
+        heap.insert(index.get(source), 0.0f);
+        while (!heap.isEmpty()) {
+            float dist = heap.minPriority();
+            NodeT probed = index.node(heap.delMin());
+            if (matrix.mat.containsKey(probed)) {
+                for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                    float newdist = dist + entry.getValue();
+                    if (newdist < dists.get(entry.getKey())) {
+                        dists.set(entry.getKey(), newdist);
+                        paths.set(entry.getKey(), probed);
+                        heap.offer(index.get(entry.getKey()), newdist);
                     }
                 }
             }
@@ -1486,43 +1708,7 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         }
 
         if (enableCache) {
-            for (Entry<NodeT, NodeT> pair : paths.entrySet()) {
-                NodeT curr = pair.getKey();
-                float pathcost = dists.get(curr);
-                for (NodeT prec = pair.getValue(); !prec.equals(curr);) {
-                    Map<NodeT, Float> dprec;
-                    if (cached.containsKey(prec)) {
-                        dprec = cached.get(prec);
-                    } else {
-                        dprec = new HashMap<>();
-                        cached.put(prec, dprec);
-                    }
-
-                    float partialdist = pathcost - dists.get(prec);
-                    if (dprec.containsKey(curr) && dprec.get(curr) <= partialdist) {
-                        break;
-                    } else {
-                        dprec.put(curr, partialdist);
-                    }
-
-                    if (this instanceof UndirectedGraph<?>) {
-                        Map<NodeT, Float> dcurr;
-                        if (cached.containsKey(curr)) {
-                            dcurr = cached.get(curr);
-                        } else {
-                            dcurr = new HashMap<>();
-                            cached.put(curr, dcurr);
-                        }
-
-                        if (!dcurr.containsKey(prec) || dcurr.get(prec) > partialdist) {
-                            dcurr.put(prec, partialdist);
-                        }
-                    }
-
-                    curr = prec;
-                    prec = paths.get(prec);
-                }
-            }
+            cacheShortestPathTree(paths.thisMap().keySet(), paths, dists);
         }
 
         sssp.sinks.addAll(getActiveNodesShallowCopy());
@@ -1535,42 +1721,34 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         if (containsNegativeWeightEdges()) {
             throw new RuntimeException("\n!! Dijkstra's algortihm cannot be used in the presence of edges with negative weights !!");
         }
+        if (singleSourceSearch == SingleSourceSearch.DELTA_STEPPING) {
+            DeltaStepping<NodeT> stepping = deltaStepping;
+            if (stepping == null) {
+                stepping = new DeltaStepping<>(freeze(), delta);
+                deltaStepping = stepping;
+            }
+            return stepping.distances(source);
+        }
 
-        VectorSparse<NodeT, NodeT> paths = new VectorSparse<>();
         VectorSparse<NodeT, Float> dists = new VectorSparse<>(Float.POSITIVE_INFINITY);
-        MinPQ<Edge<NodeT>> edges = new MinPQ<>();
-        HashSet<NodeT> processed = new HashSet<>();
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
 
-        processed.add(source);
         dists.set(source, 0.0f);
-        paths.set(source, source);
-
-        if (matrix.mat.containsKey(source)) {
-            for (Entry<NodeT, Float> entry : matrix.mat.get(source).entrySet()) {
-                edges.insert(new Edge<>(source, entry.getKey(), entry.getValue()));
-            }
-        } else {
+        if (!matrix.mat.containsKey(source)) {
             return dists.thisMap();
         }
 
-        while (!edges.isEmpty()) {
-            Edge<NodeT> probed = edges.delMin();
-            if (probed.weight < dists.get(probed.to)) {
-                processed.add(probed.to);
-                paths.set(probed.to, probed.from);
-                dists.set(probed.to, probed.weight);
-                /*
-                 edges.clear();
-                 for (NodeT u : processed)
-                 for (NodeT v : getNeighbors(u)) {
-                 float newdist = dists.get(u)+getEdgeWeight(u,v);
-                 if (newdist < dists.get(v))
-                 edges.insert(new Edge<>(u,v,newdist));
-                 }
-                 */
-                for (Edge<NodeT> edge : getEdgesFrom(probed.to)) {
-                    if (probed.weight + edge.weight < dists.get(edge.to)) {
-                        edges.insert(new Edge<>(probed.to, edge.to, probed.weight + edge.weight));
+        heap.insert(index.get(source), 0.0f);
+        while (!heap.isEmpty()) {
+            float dist = heap.minPriority();
+            NodeT probed = index.node(heap.delMin());
+            if (matrix.mat.containsKey(probed)) {
+                for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                    float newdist = dist + entry.getValue();
+                    if (newdist < dists.get(entry.getKey())) {
+                        dists.set(entry.getKey(), newdist);
+                        heap.offer(index.get(entry.getKey()), newdist);
                     }
                 }
             }
@@ -1578,6 +1756,115 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         return dists.thisMap();
     }
 
+    public float[][] distanceTable(Collection<NodeT> sources, Collection<NodeT> targets) {
+        return distanceTable(sources, targets, false);
+    }
+
+    /**
+     * Many-to-many distances, with one Dijkstra search per source that stops
+     * as soon as all targets are settled, or one backward search per target
+     * if there are fewer targets than sources.
+     * @param enableCache whether the distances found are also cached, to be
+     * reused by subsequent calls of getPathCost
+     * @return the cost of the shortest path from the i-th source to the j-th
+     * target, in the iteration order of the collections; Float.MAX_VALUE for
+     * targets not reachable from their source.
+     */
+    public float[][] distanceTable(Collection<NodeT> sources, Collection<NodeT> targets, boolean enableCache) {
+        ArrayList<NodeT> rows = new ArrayList<>(sources), columns = new ArrayList<>(targets);
+        float[][] table = new float[rows.size()][columns.size()];
+        if (rows.isEmpty() || columns.isEmpty()) {
+            return table;
+        }
+
+        if (oracle != null || containsNegativeWeightEdges()) { // nothing to share among pairs
+            for (int i = 0; i < rows.size(); ++i) {
+                for (int j = 0; j < columns.size(); ++j) {
+                    table[i][j] = getPathCost(rows.get(i), columns.get(j), enableCache);
+                }
+            }
+            return table;
+        }
+
+        boolean backwards = columns.size() < rows.size();
+        ArrayList<NodeT> origins = backwards ? columns : rows;
+        ArrayList<NodeT> goals = backwards ? rows : columns;
+        HashMap<NodeT, Integer> goalIndex = new HashMap<>();
+        for (int j = 0; j < goals.size(); ++j) {
+            if (!goalIndex.containsKey(goals.get(j))) {
+                goalIndex.put(goals.get(j), goalIndex.size());
+            }
+        }
+
+        float[] found = new float[goalIndex.size()];
+        for (int i = 0; i < origins.size(); ++i) {
+            boundedSearch(origins.get(i), goalIndex, backwards, enableCache, found);
+            for (int j = 0; j < goals.size(); ++j) {
+                float dist = found[goalIndex.get(goals.get(j))];
+                if (backwards) {
+                    table[j][i] = dist;
+                } else {
+                    table[i][j] = dist;
+                }
+            }
+        }
+        return table;
+    }
+
+    /* Dijkstra from the origin, forwards or backwards, until every goal is settled */
+    private void boundedSearch(NodeT origin, HashMap<NodeT, Integer> goals, boolean backwards, boolean enableCache, float[] found) {
+        Arrays.fill(found, Float.MAX_VALUE);
+        VectorSparse<NodeT, Float> dists = new VectorSparse<>(Float.POSITIVE_INFINITY);
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
+        boolean undirected = this instanceof UndirectedGraph<?>;
+
+        int remaining = goals.size();
+        long settled = 0;
+        dists.set(origin, 0.0f);
+        heap.insert(index.get(origin), 0.0f);
+        EdgeCursor<NodeT> incoming = new EdgeCursor<>();
+        while (!heap.isEmpty() && remaining > 0) {
+            float dist = heap.minPriority();
+            NodeT probed = index.node(heap.delMin());
+            ++settled;
+            Integer goal = goals.get(probed);
+            if (goal != null) {
+                found[goal] = dist;
+                --remaining;
+                if (enableCache) {
+                    if (backwards) {
+                        cached.put(probed, origin, dist);
+                    } else {
+                        cached.put(origin, probed, dist);
+                    }
+                }
+            }
+
+            if (!backwards || undirected) {
+                if (matrix.mat.containsKey(probed)) {
+                    for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                        float newdist = dist + entry.getValue();
+                        if (newdist < dists.get(entry.getKey())) {
+                            dists.set(entry.getKey(), newdist);
+                            heap.offer(index.get(entry.getKey()), newdist);
+                        }
+                    }
+                }
+            } else {
+                for (getEdgesTo(probed, incoming); incoming.next(); ) {
+                    NodeT u = incoming.from();
+                    float newdist = dist + incoming.weight();
+                    if (newdist < dists.get(u)) {
+                        dists.set(u, newdist);
+                        heap.offer(index.get(u), newdist);
+                    }
+                }
+            }
+        }
+        settledNodes.addAndGet(settled);
+    }
+
     private float dijkstraPathCost(NodeT source, NodeT target) {
         return dijkstraPathCost(source, target, false);
     }
@@ -1593,77 +1880,55 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         }
 
         VectorSparse<NodeT, Float> dists = new VectorSparse<>(Float.POSITIVE_INFINITY);
-        MinPQ<Edge<NodeT>> edges = new MinPQ<>();
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
 
         dists.set(source, 0.0f);
         /**/
-        Map<NodeT, Float> sourcecache = cached.get(source);
-        if (enableCache) {
-            if (sourcecache != null) { // exploit cached distances
-                ArrayDeque<NodeT> pool = new ArrayDeque<>();
-                for (Entry<NodeT, Float> cachedEntry : sourcecache.entrySet()) {
-                    dists.set(cachedEntry.getKey(), cachedEntry.getValue());
-                }
-
-                for (Entry<NodeT, Float> cachedEntry : sourcecache.entrySet()) {
-                    if (matrix.mat.containsKey(cachedEntry.getKey())) {
-                        for (Entry<NodeT, Float> entry : matrix.mat.get(cachedEntry.getKey()).entrySet()) {
-                            if (cachedEntry.getValue() + entry.getValue() < dists.get(entry.getKey())) {
-                                edges.insert(new Edge<>(cachedEntry.getKey(), entry.getKey(), cachedEntry.getValue() + entry.getValue()));
-
-                                dists.set(entry.getKey(), cachedEntry.getValue() + entry.getValue());
-
-                                if (cachedEntry.getValue() + entry.getValue() <= maxCachingRadius) {
-                                    pool.add(entry.getKey());
-                                }
-                            }
-                        }
-                    }
-                }
-                for (NodeT u : pool) {
-                    sourcecache.put(u, dists.get(u));
-                }
-            } else {
-                edges.insert(new Edge<>(source, source, 0.0f));
-
-                sourcecache = new HashMap<>();
-                cached.put (source,sourcecache);
-                sourcecache.put (source,0.0f);
+        heap.insert(index.get(source), 0.0f);
+        Map<NodeT, Float> sourcecache = enableCache ? cached.getDistancesFrom(source) : null;
+        if (sourcecache != null) { // exploit cached distances
+            for (Entry<NodeT, Float> cachedEntry : sourcecache.entrySet()) {
+                dists.set(cachedEntry.getKey(), cachedEntry.getValue());
+                heap.offer(index.get(cachedEntry.getKey()), cachedEntry.getValue());
             }
-        } else {
-            edges.insert(new Edge<>(source, source, 0.0f));
         }
-        /**/
-        while (!edges.isEmpty()) {
-            Edge<NodeT> probed = edges.delMin();
-            if (target.equals(probed.to)) {
-                return probed.weight;
+
+        long settled = 0;
+        while (!heap.isEmpty()) {
+            float dist = heap.minPriority();
+            NodeT probed = index.node(heap.delMin());
+            ++settled;
+            if (enableCache) {
+                cached.put(source, probed, dist); // settled, hence exact
+            }
+            if (target.equals(probed)) {
+                settledNodes.addAndGet(settled);
+                return dist;
             } else {
-                Map<NodeT, Float> nodecache = cached.get(probed.to);
+                Map<NodeT, Float> nodecache = probed.equals(source) ? null : cached.getDistancesFrom(probed);
                 if (nodecache != null) {
                     for (Entry<NodeT, Float> cachedEntry : nodecache.entrySet()) {
-                        if (probed.weight + cachedEntry.getValue() < dists.get(cachedEntry.getKey())) {
-                            dists.set(cachedEntry.getKey(), probed.weight + cachedEntry.getValue());
-
-                            if (enableCache && cachedEntry.getValue() + probed.weight <= maxCachingRadius) {
-                                sourcecache.put(cachedEntry.getKey(), probed.weight + cachedEntry.getValue());
-                            }
+                        float newdist = dist + cachedEntry.getValue();
+                        if (newdist < dists.get(cachedEntry.getKey())) {
+                            dists.set(cachedEntry.getKey(), newdist);
+                            heap.offer(index.get(cachedEntry.getKey()), newdist);
                         }
                     }
                 }
 
-                for (Edge<NodeT> edge : getEdgesFrom(probed.to)) {
-                    if (probed.weight + edge.weight < dists.get(edge.to)) {
-                        edges.insert(new Edge<>(probed.to, edge.to, probed.weight + edge.weight));
-                        dists.set(edge.to, probed.weight + edge.weight);
-
-                        if (enableCache && edge.weight + probed.weight <= maxCachingRadius) {
-                            sourcecache.put(edge.to, probed.weight + edge.weight);
+                if (matrix.mat.containsKey(probed)) {
+                    for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                        float newdist = dist + entry.getValue();
+                        if (newdist < dists.get(entry.getKey())) {
+                            dists.set(entry.getKey(), newdist);
+                            heap.offer(index.get(entry.getKey()), newdist);
                         }
                     }
                 }
             }
         }
+        settledNodes.addAndGet(settled);
         return Float.MAX_VALUE;
         //throw new RuntimeException("\n!! ERROR - Source node "+source+" and target node "+target+" not connected !!");
     }
@@ -1684,93 +1949,206 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
 
         VectorSparse<NodeT, NodeT> paths = new VectorSparse<>();
         VectorSparse<NodeT, Float> dists = new VectorSparse<>(Float.POSITIVE_INFINITY);
-        MinPQ<Edge<NodeT>> edges = new MinPQ<>();
-        HashSet<NodeT> processed = new HashSet<>();
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
+        BitSet settled = new BitSet();
 
         dists.set(source, 0.0f);
         paths.set(source, source);
-        processed.add(source);
-        if (matrix.mat.containsKey(source)) {
-            for (Entry<NodeT, Float> entry : matrix.mat.get(source).entrySet()) {
-                edges.insert(new Edge<>(source, entry.getKey(), entry.getValue()));
-            }
-        } else {
+        if (!matrix.mat.containsKey(source)) {
             throw new RuntimeException("\n!! ERROR - Source of path not in the graph !!");
         }
 
-        while (!edges.isEmpty()) {
-            Edge<NodeT> probed = edges.delMin();
-            if (target.equals(probed.to)) {
+        heap.insert(index.get(source), 0.0f);
+        while (!heap.isEmpty()) {
+            float dist = heap.minPriority();
+            int top = heap.delMin();
+            NodeT probed = index.node(top);
+            settled.set(top);
+            if (target.equals(probed)) {
+                settledNodes.addAndGet(settled.cardinality());
                 if (enableCache) {
-                    for (Entry<NodeT, NodeT> pair : paths.entrySet()) {
-                        NodeT curr = pair.getKey();
-                        float pathcost = dists.get(curr);
-                        for (NodeT prec = pair.getValue(); !prec.equals(curr);) {
-                            Map<NodeT, Float> dprec;
-                            if (cached.containsKey(prec)) {
-                                dprec = cached.get(prec);
-                            } else {
-                                dprec = new HashMap<>();
-                                cached.put(prec, dprec);
-                            }
-
-                            float partialdist = pathcost - dists.get(prec);
-                            if (dprec.containsKey(curr) && dprec.get(curr) <= partialdist) {
-                                break;
-                            } else {
-                                dprec.put(curr, partialdist);
-                            }
-
-                            if (this instanceof UndirectedGraph<?>) {
-                                Map<NodeT, Float> dcurr;
-                                if (cached.containsKey(curr)) {
-                                    dcurr = cached.get(curr);
-                                } else {
-                                    dcurr = new HashMap<>();
-                                    cached.put(curr, dcurr);
-                                }
-
-                                if (!dcurr.containsKey(prec) || dcurr.get(prec) > partialdist) {
-                                    dcurr.put(prec, partialdist);
-                                }
-                            }
-
-                            curr = prec;
-                            prec = paths.get(prec);
-                        }
+                    ArrayList<NodeT> reached = new ArrayList<>();
+                    for (int i = settled.nextSetBit(0); i >= 0; i = settled.nextSetBit(i + 1)) {
+                        reached.add(index.node(i)); // tentative distances are not worth caching
                     }
+                    cacheShortestPathTree(reached, paths, dists);
                 }
 
                 ArrayDeque<NodeT> path = new ArrayDeque<>();
-                path.addFirst(target);
-                for (NodeT u = probed.from; !u.equals(source); u = paths.get(u)) {
+                for (NodeT u = target; !u.equals(source); u = paths.get(u)) {
                     path.addFirst(u);
                 }
                 path.addFirst(source);
                 return path;
             }
 
-            if (probed.weight < dists.get(probed.to)) {
-                paths.set(probed.to, probed.from);
-                dists.set(probed.to, probed.weight);
-                processed.add(probed.to);
-                /*
-                 edges.clear();
-                 for (NodeT u : processed)
-                 for (NodeT v : getNeighbors(u))
-                 if (!processed.contains(v))
-                 edges.insert(new Edge<>(u,v,dists.get(u)+getEdgeWeight(u,v)));
-                 */
-                for (Edge<NodeT> edge : getEdgesFrom(probed.to)) {
-                    if (probed.weight + edge.weight < dists.get(edge.to)) {
-                        edges.insert(new Edge<>(probed.to, edge.to, probed.weight + edge.weight));
+            if (matrix.mat.containsKey(probed)) {
+                for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                    float newdist = dist + entry.getValue();
+                    if (newdist < dists.get(entry.getKey())) {
+                        dists.set(entry.getKey(), newdist);
+                        paths.set(entry.getKey(), probed);
+                        heap.offer(index.get(entry.getKey()), newdist);
                     }
                 }
             }
         }
+        settledNodes.addAndGet(settled.cardinality());
         throw new RuntimeException("\n!! ERROR - Source and target nodes not connected !!");
     }
 
+    /**
+     * @return the nodes with an edge towards the given one along with the
+     * weights of these edges; for undirected graphs these are its neighbors.
+     */
+    protected Map<NodeT, Float> getIncomingView(NodeT u) {
+        Map<NodeT, Float> row = matrix.mat.get(u);
+        return row == null ? Collections.<NodeT, Float>emptyMap() : Collections.unmodifiableMap(row);
+    }
+
+    private float bidirectionalPathCost(NodeT source, NodeT target, boolean enableCache) {
+        if (isEmpty() || matrix.mat.isEmpty()) {
+            return Float.NaN;
+        }
+        return bidirectionalSearch(source, target, enableCache, null);
+    }
+
+    private ArrayDeque<NodeT> bidirectionalPath(NodeT source, NodeT target, boolean enableCache) {
+        ArrayDeque<NodeT> path = new ArrayDeque<>();
+        if (isEmpty() || matrix.mat.isEmpty() || source.equals(target)) {
+            return path;
+        } else if (!matrix.mat.containsKey(source)) {
+            throw new RuntimeException("\n!! ERROR - Source of path not in the graph !!");
+        }
+        if (bidirectionalSearch(source, target, enableCache, path) == Float.MAX_VALUE) {
+            throw new RuntimeException("\n!! ERROR - Source and target nodes not connected !!");
+        }
+        return path;
+    }
+
+    /* one direction of a bidirectional search, over nodes numbered by a shared index */
+    private static final class Frontier {
+
+        final IndexMinPQ heap = new IndexMinPQ();
+        float[] dists = new float[64];
+        int[] predecessors = new int[64];
+
+        Frontier() {
+            Arrays.fill(dists, Float.POSITIVE_INFINITY);
+        }
+
+        float dist(int u) {
+            return u < dists.length ? dists[u] : Float.POSITIVE_INFINITY;
+        }
+
+        /* @return true if the tentative distance of v has been improved */
+        boolean relax(int u, int v, float newdist) {
+            if (v >= dists.length) {
+                int capacity = Math.max(v + 1, dists.length << 1);
+                int length = dists.length;
+                dists = Arrays.copyOf(dists, capacity);
+                predecessors = Arrays.copyOf(predecessors, capacity);
+                Arrays.fill(dists, length, capacity, Float.POSITIVE_INFINITY);
+            }
+            if (newdist < dists[v]) {
+                dists[v] = newdist;
+                predecessors[v] = u;
+                heap.offer(v, newdist);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Bidirectional Dijkstra; each step settles the node with the smallest
+     * tentative distance on either side, and the search stops once the sum of
+     * the two smallest tentative distances reaches the cost of the best path
+     * through a node reached from both sides.
+     * @param path filled with the nodes of the shortest path, if not null
+     * @return the cost of the shortest path, or Float.MAX_VALUE when none exists
+     */
+    private float bidirectionalSearch(NodeT source, NodeT target, boolean enableCache, ArrayDeque<NodeT> path) {
+        if (source.equals(target)) {
+            if (path != null) {
+                path.add(source);
+            }
+            return 0.0f;
+        } else if (containsNegativeWeightEdges()) {
+            throw new RuntimeException("\n!! Dijkstra's algortihm cannot be used in the presence of edges with negative weights !!");
+        }
+
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        Frontier forward = new Frontier(), backward = new Frontier();
+        int s = index.get(source), t = index.get(target);
+        forward.relax(s, s, 0.0f);
+        backward.relax(t, t, 0.0f);
+
+        boolean undirected = this instanceof UndirectedGraph<?>;
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        long settled = 0;
+        EdgeCursor<NodeT> incoming = new EdgeCursor<>();
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()
+                && forward.heap.minPriority() + backward.heap.minPriority() < best) {
+            boolean forwards = forward.heap.minPriority() <= backward.heap.minPriority();
+            Frontier frontier = forwards ? forward : backward;
+            Frontier other = forwards ? backward : forward;
+
+            float dist = frontier.heap.minPriority();
+            int top = frontier.heap.delMin();
+            NodeT probed = index.node(top);
+            ++settled;
+            if (enableCache) { // settled, hence exact
+                if (forwards) {
+                    cached.put(source, probed, dist);
+                } else {
+                    cached.put(probed, target, dist);
+                }
+            }
+
+            if (forwards || undirected) { // undirected edges are stored in both directions
+                if (matrix.mat.containsKey(probed)) {
+                    for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                        int v = index.get(entry.getKey());
+                        if (frontier.relax(top, v, dist + entry.getValue()) && frontier.dists[v] + other.dist(v) < best) {
+                            best = frontier.dists[v] + other.dist(v);
+                            meeting = v;
+                        }
+                    }
+                }
+            } else {
+                for (getEdgesTo(probed, incoming); incoming.next(); ) {
+                    int v = index.get(incoming.from());
+                    if (frontier.relax(top, v, dist + incoming.weight()) && frontier.dists[v] + other.dist(v) < best) {
+                        best = frontier.dists[v] + other.dist(v);
+                        meeting = v;
+                    }
+                }
+            }
+        }
+        settledNodes.addAndGet(settled);
+
+        if (meeting < 0) {
+            return Float.MAX_VALUE;
+        }
+        if (enableCache) {
+            cached.put(source, target, best);
+        }
+        if (path != null) {
+            for (int u = meeting; u != s; u = forward.predecessors[u]) {
+                path.addFirst(index.node(u));
+            }
+            path.addFirst(source);
+            for (int u = meeting; u != t; ) {
+                u = backward.predecessors[u];
+                path.addLast(index.node(u));
+            }
+        }
+        return best;
+    }
+
     /**
      * @param source node upon which the distances are computed
      * @return The maximum distance of the path originated from the specified
@@ -1790,49 +2168,38 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
             throw new RuntimeException("\n!! Dijkstra's algortihm cannot be used in the presence of edges with negative weights !!");
         }
 
-        VectorSparse<NodeT, NodeT> paths = new VectorSparse<>();
         VectorSparse<NodeT, Float> dists = new VectorSparse<>(Float.POSITIVE_INFINITY);
-        MinPQ<Edge<NodeT>> edges = new MinPQ<>();
-        HashSet<NodeT> processed = new HashSet<>();
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
 
         dists.set(source, 0.0f);
-        paths.set(source, source);
-        processed.add(source);
-        if (matrix.mat.containsKey(source)) {
-            for (Entry<NodeT, Float> entry : matrix.mat.get(source).entrySet()) {
-                edges.insert(new Edge<>(source, entry.getKey(), entry.getValue()));
-            }
-        } else {
+        if (!matrix.mat.containsKey(source)) {
             return Float.NaN;
         }
 
         float maxdist = Float.NEGATIVE_INFINITY;
-        while (!edges.isEmpty()) {
-            Edge<NodeT> probed = edges.delMin();
-            if (probed.weight < dists.get(probed.to)) {
-                paths.set(probed.to, probed.from);
-                dists.set(probed.to, probed.weight);
-                processed.add(probed.to);
-
+        heap.insert(index.get(source), 0.0f);
+        while (!heap.isEmpty()) {
+            float dist = heap.minPriority();
+            NodeT probed = index.node(heap.delMin());
+            if (!probed.equals(source)) {
                 if (distTransformation == null) {
-                    if (maxdist < probed.weight) {
-                        maxdist = probed.weight;
+                    if (maxdist < dist) {
+                        maxdist = dist;
                     }
                 } else {
-                    if (maxdist < probed.weight + distTransformation.get(probed.to)) {
-                        maxdist = probed.weight + distTransformation.get(probed.to);
+                    if (maxdist < dist + distTransformation.get(probed)) {
+                        maxdist = dist + distTransformation.get(probed);
                     }
                 }
-                /*
-                 edges.clear();
-                 for (NodeT u : processed)
-                 for (NodeT v : getNeighbors(u))
-                 if (!processed.contains(v))
-                 edges.insert(new Edge<>(u,v,dists.get(u)+getEdgeWeight(u,v)));
-                 */
-                for (Edge<NodeT> edge : getEdgesFrom(probed.to)) {
-                    if (probed.weight + edge.weight < dists.get(edge.to)) {
-                        edges.insert(new Edge<>(probed.to, edge.to, probed.weight + edge.weight));
+            }
+
+            if (matrix.mat.containsKey(probed)) {
+                for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                    float newdist = dist + entry.getValue();
+                    if (newdist < dists.get(entry.getKey())) {
+                        dists.set(entry.getKey(), newdist);
+                        heap.offer(index.get(entry.getKey()), newdist);
                     }
                 }
             }
@@ -1854,46 +2221,54 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
             throw new RuntimeException("\n!! Dijkstra's algortihm cannot be used in the presence of edges with negative weights !!");
         }
 
-        VectorSparse<NodeT, NodeT> paths = new VectorSparse<>();
         VectorSparse<NodeT, Float> dists = new VectorSparse<>(Float.POSITIVE_INFINITY);
-        MinPQ<Edge<NodeT>> edges = new MinPQ<>();
-        HashSet<NodeT> processed = new HashSet<>();
+        NodeIndex<NodeT> index = new NodeIndex<>();
+        IndexMinPQ heap = new IndexMinPQ();
 
         dists.set(source, 0.0f);
-        paths.set(source, source);
-        processed.add(source);
-        if (matrix.mat.containsKey(source)) {
-            for (Entry<NodeT, Float> entry : matrix.mat.get(source).entrySet()) {
-                edges.insert(new Edge<>(source, entry.getKey(), entry.getValue()));
-            }
-        } else {
+        if (!matrix.mat.containsKey(source)) {
             return Float.NaN;
         }
 
+        int reached = 0;
         float sumdist = 0.0f;
-        while (!edges.isEmpty()) {
-            Edge<NodeT> probed = edges.delMin();
-            if (probed.weight < dists.get(probed.to)) {
-                paths.set(probed.to, probed.from);
-                dists.set(probed.to, probed.weight);
-                processed.add(probed.to);
-
-                sumdist += distTransformation == null ? probed.weight : probed.weight + distTransformation.get(probed.to);
-                /*
-                 edges.clear();
-                 for (NodeT u : processed)
-                 for (NodeT v : getNeighbors(u))
-                 if (!processed.contains(v))
-                 edges.insert(new Edge<>(u,v,dists.get(u)+getEdgeWeight(u,v)));
-                 */
-                for (Edge<NodeT> edge : getEdgesFrom(probed.to)) {
-                    if (probed.weight + edge.weight < dists.get(edge.to)) {
-                        edges.insert(new Edge<>(probed.to, edge.to, probed.weight + edge.weight));
+        heap.insert(index.get(source), 0.0f);
+        while (!heap.isEmpty()) {
+            float dist = heap.minPriority();
+            NodeT probed = index.node(heap.delMin());
+            if (!probed.equals(source)) {
+                sumdist += distTransformation == null ? dist : dist + distTransformation.get(probed);
+                ++reached;
+            }
+
+            if (matrix.mat.containsKey(probed)) {
+                for (Entry<NodeT, Float> entry : matrix.mat.get(probed).entrySet()) {
+                    float newdist = dist + entry.getValue();
+                    if (newdist < dists.get(entry.getKey())) {
+                        dists.set(entry.getKey(), newdist);
+                        heap.offer(index.get(entry.getKey()), newdist);
                     }
                 }
             }
         }
-        return distTransformation == null ? sumdist / (paths.size() - 1) : (sumdist - (paths.size() - 1) * distTransformation.get(source)) / (paths.size() - 1);
+        return distTransformation == null ? sumdist / reached : (sumdist - reached * distTransformation.get(source)) / reached;
+    }
+
+    /**
+     * @return the distances between all pairs of nodes, computed in parallel
+     * with Johnson's algorithm; much cheaper than {@link #johnson()} when the
+     * shortest path trees themselves are not needed.
+     */
+    public DistanceTable<NodeT> johnsonDistances() {
+        return AllPairsShortestPaths.johnson(this);
+    }
+
+    /**
+     * @return the distances between all pairs of nodes, computed in parallel
+     * with a cache-blocked Floyd-Warshall; for small dense graphs only.
+     */
+    public DistanceTable<NodeT> floydDistances() {
+        return AllPairsShortestPaths.floyd(this);
     }
 
     public Map<NodeT, Graph<NodeT>> johnson() {
@@ -2065,12 +2440,10 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
         if (enableCache) {
             resetCache();
             for (NodeT u : getActiveNodesShallowCopy()) {
-                Map<NodeT, Float> dux = new HashMap<>();
-                cached.put(u, dux);
                 for (NodeT v : getActiveNodesShallowCopy()) {
                     float dist = apspPathReconstruction(u, v, paths, apsp.get(u));
-                    if (dist != Float.NaN) {
-                        dux.put(v, dist);
+                    if (!Float.isNaN(dist)) {
+                        cached.put(u, v, dist);
                     }
                 }
                 if (paths.get(u).isEmpty()) {
@@ -2079,9 +2452,11 @@ abstract public class Graph<NodeT> implements Iterable<Edge<NodeT>> {
             }
 
             for (NodeT u : getActiveNodesShallowCopy()) {
-                Map<NodeT, Float> dux = cached.get(u);
                 for (NodeT v : sinks) {
-                    dux.put(v, apspPathReconstruction(u, v, paths, apsp.get(u)));
+                    float dist = apspPathReconstruction(u, v, paths, apsp.get(u));
+                    if (!Float.isNaN(dist)) {
+                        cached.put(u, v, dist);
+                    }
                 }
             }
         } else {
@@ -0,0 +1,233 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.text.NumberFormat;
+
+/**
+ * Collects edges in primitive arrays for inserting them to a graph at once
+ * through {@link Graph#setEdges(GraphBuilder)}, instead of one setEdge call
+ * after the other. Nodes are numbered in order of appearance, so adding an
+ * edge costs two hash lookups at most; the arcs are sorted by source and
+ * target only when inserted, when repeated pairs keep the weight they were
+ * given last, as with setEdge. Edges of NaN weight are ignored.
+ */
+public final class GraphBuilder<NodeT> {
+
+    private final HashMap<NodeT, Integer> dictionary;
+    private final ArrayList<NodeT> nodes;
+
+    private int size = 0;
+    private int[] froms;
+    private int[] tos;
+    private float[] weights;
+
+    public GraphBuilder() {
+        this(16);
+    }
+
+    /**
+     * @param expectedEdges number of edges the arrays are sized for up front
+     */
+    public GraphBuilder(int expectedEdges) {
+        int capacity = Math.max(16, expectedEdges);
+        froms = new int[capacity];
+        tos = new int[capacity];
+        weights = new float[capacity];
+        dictionary = new HashMap<>();
+        nodes = new ArrayList<>();
+    }
+
+    private int intern(NodeT u) {
+        Integer index = dictionary.get(u);
+        if (index == null) {
+            index = nodes.size();
+            dictionary.put(u, index);
+            nodes.add(u);
+        }
+        return index;
+    }
+
+    public void add(NodeT from, NodeT to, float weight) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("\n!! ERROR - Neither end of the edge should be null !!");
+        }
+        if (Float.isNaN(weight)) {
+            return;
+        }
+        if (size == froms.length) {
+            int capacity = size + (size >> 1);
+            froms = Arrays.copyOf(froms, capacity);
+            tos = Arrays.copyOf(tos, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        froms[size] = intern(from);
+        tos[size] = intern(to);
+        weights[size++] = weight;
+    }
+
+    /**
+     * @return the number of edges added so far, repetitions included.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int numberNodes() {
+        return nodes.size();
+    }
+
+    NodeT getNode(int index) {
+        return nodes.get(index);
+    }
+
+    /* arcs in CSR layout over the builder's numbering of the nodes */
+    static final class Arcs {
+
+        final int[] offsets;
+        final int[] targets;
+        final float[] weights;
+
+        Arcs(int[] offsets, int[] targets, float[] weights) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * Counting sort of the arcs by source, which keeps the order they were
+     * added within each source, followed by a sort of each row on target and
+     * position, so that the last one of a run of equal targets is kept.
+     * @param symmetric each edge stands for the arcs of both directions
+     */
+    Arcs arcs(boolean symmetric) {
+        int n = nodes.size();
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < size; ++i) {
+            ++offsets[froms[i] + 1];
+            if (symmetric) {
+                ++offsets[tos[i] + 1];
+            }
+        }
+        for (int u = 0; u < n; ++u) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[offsets[n]];
+        float[] values = new float[offsets[n]];
+        for (int i = 0; i < size; ++i) {
+            int pos = fill[froms[i]]++;
+            targets[pos] = tos[i];
+            values[pos] = weights[i];
+            if (symmetric) {
+                pos = fill[tos[i]]++;
+                targets[pos] = froms[i];
+                values[pos] = weights[i];
+            }
+        }
+
+        int maxDegree = 0;
+        for (int u = 0; u < n; ++u) {
+            maxDegree = Math.max(maxDegree, offsets[u + 1] - offsets[u]);
+        }
+        long[] packed = new long[maxDegree];
+        float[] row = new float[maxDegree];
+        int count = 0;
+        for (int u = 0; u < n; ++u) {
+            int first = offsets[u], degree = offsets[u + 1] - first;
+            for (int k = 0; k < degree; ++k) {
+                packed[k] = ((long) targets[first + k] << 32) | k;
+                row[k] = values[first + k];
+            }
+            Arrays.sort(packed, 0, degree);
+
+            offsets[u] = count;
+            for (int k = 0; k < degree; ++k) {
+                int target = (int) (packed[k] >>> 32);
+                if (k + 1 < degree && (int) (packed[k + 1] >>> 32) == target) {
+                    continue; // overwritten later on
+                }
+                targets[count] = target;
+                values[count++] = row[(int) packed[k]];
+            }
+        }
+        offsets[n] = count;
+        return new Arcs(offsets, Arrays.copyOf(targets, count), Arrays.copyOf(values, count));
+    }
+
+    /* peak usage of the heap since the last reset, summed over its memory pools */
+    private static long peakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Build benchmark: loads the weighted edge list of a file, or else a
+     * random graph of n nodes and n*degree edges inserted at once, and reports
+     * the build time along with the peak heap usage, whose pools are reset
+     * right before.
+     */
+    public static void main(String[] args) {
+        boolean directed = args.length < 2 || !args[1].equals("undirected");
+        resetPeakHeapUsage();
+        long startTime = System.nanoTime();
+        Graph<Integer> graph;
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            graph = directed ? new DirectedGraph<Integer>(args[0], NumberFormat.getNumberInstance(), true)
+                    : new UndirectedGraph<Integer>(args[0], NumberFormat.getNumberInstance(), true);
+        } else {
+            int n = args.length > 0 ? Integer.parseInt(args[0]) : 300000;
+            int degree = 4;
+            Random rand = new Random(7);
+            GraphBuilder<Integer> edges = new GraphBuilder<>(n * degree);
+            for (int u = 0; u < n; ++u) {
+                for (int i = 0; i < degree; ++i) {
+                    edges.add(u, rand.nextInt(n), 1.0f + rand.nextFloat());
+                }
+            }
+            graph = directed ? new DirectedGraph<Integer>() : new UndirectedGraph<Integer>();
+            graph.setEdges(edges);
+        }
+        long endTime = System.nanoTime();
+        System.out.println("** Built " + (directed ? "directed" : "undirected") + " graph of " + graph.numberNodes() + " nodes and "
+                + graph.numberEdges() + " edges in " + (endTime - startTime) / Math.pow(10, 9) + " secs (peak heap "
+                + (peakHeapUsage() >> 20) + " MB).");
+    }
+}
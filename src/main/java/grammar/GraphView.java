@@ -0,0 +1,166 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Read-only view of a graph for serving queries from many threads at once.
+ * The view is built upon the CSR snapshot of the graph and all its fields
+ * are final, so it is safely published to any thread that obtains a
+ * reference to it, and queries need no locks at all. Unlike the ones of
+ * {@link Graph}, path, range and nearest neighbor queries never touch a
+ * shared distance cache; they are answered by the snapshot, whose searches
+ * borrow scratch space of their own for as long as they run.
+ * <p>
+ * As a {@link DistanceOracle} the view may also be attached to the graph it
+ * was built upon, so that its getPathCost and getPath calls become safe for
+ * concurrent use, for as long as the graph is not modified.
+ */
+public final class GraphView<NodeT> implements DistanceOracle<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(GraphView.class);
+
+    private final CsrGraph<NodeT> frozen;
+
+    public GraphView(Graph<NodeT> graph) {
+        this(graph.freeze());
+    }
+
+    public GraphView(CsrGraph<NodeT> frozen) {
+        this.frozen = frozen;
+    }
+
+    /**
+     * @return the immutable snapshot upon which the view is built, for the
+     * queries that the view does not serve itself.
+     */
+    public CsrGraph<NodeT> getSnapshot() {
+        return frozen;
+    }
+
+    public int numberNodes() {
+        return frozen.numberNodes();
+    }
+
+    public int numberEdges() {
+        return frozen.numberEdges();
+    }
+
+    public boolean containsNode(NodeT u) {
+        return frozen.containsNode(u);
+    }
+
+    /**
+     * @return the cost of the shortest path, Float.MAX_VALUE if the nodes are
+     * not connected, or Float.NaN if the graph has no edges at all.
+     */
+    @Override
+    public float getPathCost(NodeT u, NodeT v) {
+        return frozen.getPathCost(u, v);
+    }
+
+    @Override
+    public ArrayDeque<NodeT> getPath(NodeT u, NodeT v) {
+        return frozen.getPath(u, v);
+    }
+
+    /**
+     * @return the nodes within network distance strictly less than the radius
+     * from the query node, in increasing distance order.
+     */
+    public ArrayList<NodeT> rangeQuery(NodeT q, float radius) {
+        return frozen.rangeQuery(q, radius);
+    }
+
+    public ArrayList<NodeT> reverseRangeQuery(NodeT q, float radius) {
+        return frozen.reverseRangeQuery(q, radius);
+    }
+
+    /**
+     * @return the k nodes closest to the query node, in increasing distance order.
+     */
+    public ArrayList<NodeT> nearestQuery(NodeT q, int k) {
+        return frozen.nearestQuery(q, k);
+    }
+
+    public ArrayList<NodeT> reverseNearestQuery(NodeT q, int k) {
+        return frozen.reverseNearestQuery(q, k);
+    }
+
+    /**
+     * Answers random path cost queries on a random grid from a single thread
+     * and then from several ones sharing the view; use as:
+     * GraphView [side] [queries] [threads]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Random rand = new Random(7);
+        Graph<Integer> graph = new UndirectedGraph<>();
+        for (int i = 0; i < side; ++i) {
+            for (int j = 0; j < side; ++j) {
+                int u = i * side + j;
+                if (i + 1 < side) {
+                    graph.setEdge(u, u + side, 1.0f + 9.0f * rand.nextFloat());
+                }
+                if (j + 1 < side) {
+                    graph.setEdge(u, u + 1, 1.0f + 9.0f * rand.nextFloat());
+                }
+            }
+        }
+        final GraphView<Integer> view = graph.view();
+        final int n = side * side;
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < queries; ++i) {
+            graph.getPathCost(rand.nextInt(n), rand.nextInt(n), false);
+        }
+        long graphTime = System.nanoTime() - startTime;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        startTime = System.nanoTime();
+        for (int t = 0; t < threads; ++t) {
+            final Random local = new Random(t);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < queries; ++i) {
+                        view.getPathCost(local.nextInt(n), local.nextInt(n));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        long viewTime = System.nanoTime() - startTime;
+
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> " + queries + " queries on the graph took "
+                + graphTime / Math.pow(10, 9) + " secs, " + threads + "x" + queries + " queries on the shared view took "
+                + viewTime / Math.pow(10, 9) + " secs.");
+    }
+}
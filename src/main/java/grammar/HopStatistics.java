@@ -0,0 +1,394 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Hop distances over the CSR snapshot of a graph, following the arcs, summed
+ * up as the neighbourhood function N(t), the number of ordered pairs of nodes
+ * within t hops, nodes paired with themselves included.
+ * <p>
+ * The exact engine runs breadth-first searches from 64 sources at once, one
+ * bit of a long per source: the frontier of a node holds the sources that
+ * have just reached it, and is or-ed into its neighbours that have not been
+ * reached by those sources yet. Batches of sources are shared among threads.
+ * <p>
+ * HyperANF estimates N(t) instead, keeping a HyperLogLog counter of 2^b
+ * registers per node for its ball of radius t; the ball of radius t+1 is the
+ * union of the balls of its neighbours, i.e. the register-wise maximum, so
+ * that each iteration costs a pass over the arcs, and the estimates have a
+ * relative standard deviation of about 1.04/sqrt(2^b).
+ */
+public final class HopStatistics<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(HopStatistics.class);
+
+    private final CsrGraph<NodeT> graph;
+    private final int n;
+
+    /**
+     * The neighbourhood function, exact or estimated, up to the diameter.
+     */
+    public static final class Distribution {
+
+        private final double[] pairs;
+        public final boolean exact;
+
+        Distribution(double[] pairs, boolean exact) {
+            this.pairs = pairs;
+            this.exact = exact;
+        }
+
+        /**
+         * @return the number of pairs within t hops, for t up to the diameter.
+         */
+        public double[] neighbourhoodFunction() {
+            return pairs.clone();
+        }
+
+        /**
+         * @return the number of ordered pairs of distinct nodes, the second
+         * reachable from the first.
+         */
+        public double reachablePairs() {
+            return pairs[pairs.length - 1] - pairs[0];
+        }
+
+        /**
+         * @return the greatest distance between reachable pairs; for HyperANF,
+         * the number of iterations until no counter changes, a lower bound.
+         */
+        public int diameter() {
+            return pairs.length - 1;
+        }
+
+        /**
+         * @return the average distance between reachable pairs of distinct
+         * nodes; NaN if there are none.
+         */
+        public float averageDistance() {
+            double sum = 0.0;
+            for (int t = 1; t < pairs.length; ++t) {
+                sum += t * (pairs[t] - pairs[t - 1]);
+            }
+            return (float) (sum / reachablePairs());
+        }
+
+        /**
+         * @return the least distance, interpolated between consecutive hops,
+         * within which the given fraction of the reachable pairs of distinct
+         * nodes lies.
+         */
+        public float effectiveDiameter(double fraction) {
+            double wanted = fraction * reachablePairs();
+            for (int t = 1; t < pairs.length; ++t) {
+                double within = pairs[t] - pairs[0];
+                if (within >= wanted) {
+                    double before = pairs[t - 1] - pairs[0];
+                    return (float) (t - 1 + (within > before ? (wanted - before) / (within - before) : 1.0));
+                }
+            }
+            return pairs.length - 1;
+        }
+
+        public float effectiveDiameter() {
+            return effectiveDiameter(0.9);
+        }
+
+        @Override
+        public String toString() {
+            return (exact ? "exact" : "estimated") + " hop distribution of " + reachablePairs() + " reachable pairs, average distance "
+                    + averageDistance() + ", effective diameter " + effectiveDiameter() + " and diameter " + diameter();
+        }
+    }
+
+    public HopStatistics(Graph<NodeT> graph) {
+        this(graph.freeze());
+    }
+
+    public HopStatistics(CsrGraph<NodeT> graph) {
+        this.graph = graph;
+        n = graph.numberNodes();
+    }
+
+    private Distribution distribution(long[] counts, boolean exact) {
+        int last = counts.length - 1;
+        while (last > 0 && counts[last] == 0L) {
+            --last;
+        }
+        double[] pairs = new double[last + 1];
+        double sum = 0.0;
+        for (int t = 0; t <= last; ++t) {
+            sum += counts[t];
+            pairs[t] = sum;
+        }
+        return new Distribution(pairs, exact);
+    }
+
+    /* the searches from a stripe of batches of 64 sources, counting the pairs found at each distance */
+    private final class Batches implements Callable<long[]> {
+
+        final int first;
+        final int stride;
+
+        Batches(int first, int stride) {
+            this.first = first;
+            this.stride = stride;
+        }
+
+        @Override
+        public long[] call() {
+            long[] counts = new long[Math.max(2, n)];
+            long[] seen = new long[n];
+            long[] frontier = new long[n];
+            long[] next = new long[n];
+            int[] active = new int[n];
+            int[] touched = new int[n];
+            for (int batch = first; (long) batch << 6 < n; batch += stride) {
+                int from = batch << 6, to = Math.min(n, from + 64);
+                Arrays.fill(seen, 0L);
+                int size = 0;
+                for (int s = from; s < to; ++s) {
+                    seen[s] = frontier[s] = 1L << (s - from);
+                    active[size++] = s;
+                }
+                counts[0] += to - from;
+
+                for (int hops = 1; size > 0; ++hops) {
+                    int reached = 0;
+                    for (int i = 0; i < size; ++i) {
+                        int u = active[i];
+                        long bits = frontier[u];
+                        frontier[u] = 0L;
+                        for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                            int v = graph.targets[arc];
+                            long fresh = bits & ~seen[v];
+                            if (fresh != 0L) {
+                                if (next[v] == 0L) {
+                                    touched[reached++] = v;
+                                }
+                                next[v] |= fresh;
+                            }
+                        }
+                    }
+                    size = 0;
+                    long found = 0L;
+                    for (int i = 0; i < reached; ++i) {
+                        int v = touched[i];
+                        long fresh = next[v] & ~seen[v];
+                        next[v] = 0L;
+                        if (fresh != 0L) {
+                            seen[v] |= fresh;
+                            frontier[v] = fresh;
+                            active[size++] = v;
+                            found += Long.bitCount(fresh);
+                        }
+                    }
+                    if (found != 0L) {
+                        counts[hops] += found;
+                    }
+                }
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Exact distances between all pairs, by bit-parallel breadth-first
+     * searches from 64 sources at a time, with the given number of threads.
+     */
+    public Distribution exact(int threads) {
+        long startTime = System.nanoTime();
+        threads = Math.max(1, Math.min(threads, (n + 63) >>> 6));
+        ArrayList<Batches> tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; ++i) {
+            tasks.add(new Batches(i, threads));
+        }
+        long[] counts = new long[Math.max(2, n)];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<long[]> result : pool.invokeAll(tasks)) {
+                long[] partial = result.get();
+                for (int t = 0; t < counts.length; ++t) {
+                    counts[t] += partial[t];
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("\n!! ERROR - Bit-parallel breadth-first searches were interrupted: " + e.getMessage() + " !!");
+        } finally {
+            pool.shutdown();
+        }
+        Distribution distribution = distribution(counts, true);
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Computed the " + distribution + " with "
+                + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return distribution;
+    }
+
+    /* the finalizer of splitmix64 */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * HyperANF with 2^log2m registers per node, in [4,16], and the given
+     * number of threads; nodes are hashed with the given seed.
+     */
+    public Distribution hyperANF(int log2m, long seed, int threads) {
+        if (log2m < 4 || log2m > 16) {
+            throw new IllegalArgumentException("\n!! ERROR - HyperLogLog counters should have between 2^4 and 2^16 registers !!");
+        }
+        long startTime = System.nanoTime();
+        final int m = 1 << log2m;
+        final double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1.0 + 1.079 / m);
+
+        /* registers in an array per node, as n*m may well exceed the length of a single array */
+        byte[][] current = new byte[n][m];
+        for (int u = 0; u < n; ++u) {
+            long hash = mix(seed ^ mix(u + 0x9e3779b97f4a7c15L));
+            int register = (int) (hash >>> (64 - log2m));
+            current[u][register] = (byte) (Long.numberOfLeadingZeros((hash << log2m) | (1L << (log2m - 1))) + 1);
+        }
+        byte[][] next = new byte[n][m];
+        boolean[] changed = new boolean[n];
+        boolean[] changing = new boolean[n];
+        Arrays.fill(changed, true);
+
+        threads = Math.max(1, Math.min(threads, n));
+        ArrayList<Double> estimates = new ArrayList<>();
+        estimates.add((double) n);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (;;) {
+                final byte[][] from = current, into = next;
+                final boolean[] was = changed, is = changing;
+                ArrayList<Callable<double[]>> tasks = new ArrayList<>(threads);
+                for (int i = 0; i < threads; ++i) {
+                    final int low = (int) ((long) n * i / threads), high = (int) ((long) n * (i + 1) / threads);
+                    tasks.add(new Callable<double[]>() {
+                        @Override
+                        public double[] call() {
+                            double sum = 0.0, updates = 0.0;
+                            for (int v = low; v < high; ++v) {
+                                byte[] target = into[v];
+                                System.arraycopy(from[v], 0, target, 0, m);
+                                boolean dirty = false;
+                                for (int arc = graph.offsets[v]; arc < graph.offsets[v + 1]; ++arc) {
+                                    int u = graph.targets[arc];
+                                    if (was[u]) {
+                                        byte[] other = from[u];
+                                        for (int j = 0; j < m; ++j) {
+                                            if (other[j] > target[j]) {
+                                                target[j] = other[j];
+                                                dirty = true;
+                                            }
+                                        }
+                                    }
+                                }
+                                is[v] = dirty;
+                                if (dirty) {
+                                    ++updates;
+                                }
+                                double harmonic = 0.0;
+                                int zeros = 0;
+                                for (int j = 0; j < m; ++j) {
+                                    harmonic += Math.scalb(1.0, -target[j]);
+                                    if (target[j] == 0) {
+                                        ++zeros;
+                                    }
+                                }
+                                double estimate = alpha * m * m / harmonic;
+                                if (estimate <= 2.5 * m && zeros > 0) {
+                                    estimate = m * Math.log((double) m / zeros);
+                                }
+                                sum += estimate;
+                            }
+                            return new double[]{sum, updates};
+                        }
+                    });
+                }
+                double sum = 0.0, updates = 0.0;
+                for (Future<double[]> result : pool.invokeAll(tasks)) {
+                    sum += result.get()[0];
+                    updates += result.get()[1];
+                }
+                if (updates == 0.0) {
+                    break;
+                }
+                estimates.add(Math.max(sum, estimates.get(estimates.size() - 1)));
+                current = into;
+                next = from;
+                changed = is;
+                changing = was;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("\n!! ERROR - HyperANF iterations were interrupted: " + e.getMessage() + " !!");
+        } finally {
+            pool.shutdown();
+        }
+
+        double[] pairs = new double[estimates.size()];
+        for (int t = 0; t < pairs.length; ++t) {
+            pairs[t] = estimates.get(t);
+        }
+        Distribution distribution = new Distribution(pairs, false);
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Computed the " + distribution + " with 2^"
+                + log2m + " registers per node and " + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return distribution;
+    }
+
+    public Distribution hyperANF(int log2m) {
+        return hyperANF(log2m, 0L, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Compares the exact engine to HyperANF on a DIMACS file or on a random
+     * graph; use as: HopStatistics [file | nodes] [log2m] [threads]
+     */
+    public static void main(String[] args) throws java.io.IOException, java.text.ParseException {
+        int log2m = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Graph<Long> graph = new DirectedGraph<>();
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            new EdgeListParser(true, true, threads).parseInto(graph, args[0]);
+        } else {
+            long nodes = args.length > 0 ? Long.parseLong(args[0]) : 5000L;
+            for (long u = 0; u < nodes; ++u) {
+                graph.addNode(u);
+            }
+            graph.setErdosRenyiGraph((float) Math.log(nodes) / nodes);
+        }
+
+        HopStatistics<Long> statistics = new HopStatistics<>(graph);
+        System.out.println("** " + statistics.exact(threads));
+        System.out.println("** " + statistics.hyperANF(log2m, 0L, threads));
+    }
+}
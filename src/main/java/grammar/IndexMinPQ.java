@@ -0,0 +1,320 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed min priority queue of non-negative int items with float priorities,
+ * implemented as a d-ary heap on primitive arrays. Every item appears at most
+ * once, and the position of each item in the heap is tracked, so that
+ * <em>contains</em> takes constant time, while <em>decrease-key</em>,
+ * <em>increase-key</em> and <em>delete</em> of arbitrary items take
+ * logarithmic time. Nothing gets allocated per operation, apart from growing
+ * the arrays when an item larger than the current capacity shows up.
+ * <p>
+ * Shortest path computations should therefore update the priority of a node
+ * that is already queued instead of pushing another copy of it.
+ */
+public final class IndexMinPQ {
+
+    private static final int DEFAULT_ARITY = 4;
+
+    private final int arity;
+    private int[] heap;         // heap position --> item
+    private float[] keys;       // heap position --> priority of the item there
+    private int[] positions;    // item --> heap position, or -1 when absent
+    private int N = 0;
+
+    public IndexMinPQ() {
+        this(64);
+    }
+
+    public IndexMinPQ(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    public IndexMinPQ(int capacity, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("\n!! ERROR - Heap arity should be at least two !!");
+        }
+        this.arity = arity;
+        capacity = Math.max(capacity, 1);
+        heap = new int[capacity];
+        keys = new float[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    public int size() {
+        return N;
+    }
+
+    public boolean contains(int item) {
+        return item < positions.length && positions[item] >= 0;
+    }
+
+    /**
+     * @return the priority of the item, or Float.NaN when it is not queued.
+     */
+    public float priorityOf(int item) {
+        return contains(item) ? keys[positions[item]] : Float.NaN;
+    }
+
+    public void clear() {
+        while (N > 0) {
+            positions[heap[--N]] = -1;
+        }
+    }
+
+    public void insert(int item, float priority) {
+        if (item < 0) {
+            throw new IllegalArgumentException("\n!! ERROR - Negative items cannot be indexed !!");
+        }
+        if (contains(item)) {
+            throw new IllegalArgumentException("\n!! ERROR - Item " + item + " is already queued !!");
+        }
+        if (item >= positions.length) {
+            int capacity = Math.max(item + 1, positions.length << 1);
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, oldLength, capacity, -1);
+        }
+        if (N == heap.length) {
+            heap = Arrays.copyOf(heap, N << 1);
+            keys = Arrays.copyOf(keys, N << 1);
+        }
+        swim(N++, item, priority);
+    }
+
+    /**
+     * Inserts the item, or lowers its priority when already queued with a
+     * larger one; typical for relaxing an edge in Dijkstra's algorithm.
+     * @return false if the item was already queued with a smaller or equal priority.
+     */
+    public boolean offer(int item, float priority) {
+        if (!contains(item)) {
+            insert(item, priority);
+            return true;
+        } else if (priority < keys[positions[item]]) {
+            swim(positions[item], item, priority);
+            return true;
+        }
+        return false;
+    }
+
+    public void decreaseKey(int item, float priority) {
+        if (!contains(item)) {
+            throw new NoSuchElementException("\n!! ERROR - Item " + item + " is not queued !!");
+        }
+        if (priority > keys[positions[item]]) {
+            throw new IllegalArgumentException("\n!! ERROR - New priority is larger than the current one !!");
+        }
+        swim(positions[item], item, priority);
+    }
+
+    public void increaseKey(int item, float priority) {
+        if (!contains(item)) {
+            throw new NoSuchElementException("\n!! ERROR - Item " + item + " is not queued !!");
+        }
+        if (priority < keys[positions[item]]) {
+            throw new IllegalArgumentException("\n!! ERROR - New priority is smaller than the current one !!");
+        }
+        sink(positions[item], item, priority);
+    }
+
+    public int minIndex() {
+        if (N == 0) {
+            throw new NoSuchElementException("Priority queue underflow");
+        }
+        return heap[0];
+    }
+
+    public float minPriority() {
+        if (N == 0) {
+            throw new NoSuchElementException("Priority queue underflow");
+        }
+        return keys[0];
+    }
+
+    public int delMin() {
+        if (N == 0) {
+            throw new NoSuchElementException("Priority queue underflow");
+        }
+        int min = heap[0];
+        positions[min] = -1;
+        if (--N > 0) {
+            sink(0, heap[N], keys[N]);
+        }
+        return min;
+    }
+
+    public void delete(int item) {
+        if (!contains(item)) {
+            throw new NoSuchElementException("\n!! ERROR - Item " + item + " is not queued !!");
+        }
+        int pos = positions[item];
+        positions[item] = -1;
+        if (pos == --N) {
+            return;
+        }
+        int last = heap[N];
+        float lastKey = keys[N];
+        if (pos > 0 && lastKey < keys[(pos - 1) / arity]) {
+            swim(pos, last, lastKey);
+        } else {
+            sink(pos, last, lastKey);
+        }
+    }
+
+    /* moves the hole at pos upwards until the item fits there */
+    private void swim(int pos, int item, float priority) {
+        while (pos > 0) {
+            int parent = (pos - 1) / arity;
+            if (keys[parent] <= priority) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            keys[pos] = keys[parent];
+            positions[heap[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = item;
+        keys[pos] = priority;
+        positions[item] = pos;
+    }
+
+    /* moves the hole at pos downwards until the item fits there */
+    private void sink(int pos, int item, float priority) {
+        for (int first = pos * arity + 1; first < N; first = pos * arity + 1) {
+            int child = first;
+            int last = Math.min(first + arity, N);
+            for (int j = first + 1; j < last; ++j) {
+                if (keys[j] < keys[child]) {
+                    child = j;
+                }
+            }
+            if (keys[child] >= priority) {
+                break;
+            }
+            heap[pos] = heap[child];
+            keys[pos] = keys[child];
+            positions[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = item;
+        keys[pos] = priority;
+        positions[item] = pos;
+    }
+
+    /**
+     * Microbenchmark against MinPQ, replaying the access pattern of Dijkstra's
+     * algorithm on a random graph: MinPQ gets a new Edge for every successful
+     * relaxation and skips the stale ones on removal, while IndexMinPQ
+     * updates the priority of the queued node in place.
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int degree = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Random rand = new Random(13);
+        int[][] adjacency = new int[n][degree];
+        float[][] weights = new float[n][degree];
+        for (int u = 0; u < n; ++u) {
+            for (int k = 0; k < degree; ++k) {
+                adjacency[u][k] = rand.nextInt(n);
+                weights[u][k] = rand.nextFloat();
+            }
+        }
+
+        for (int round = 0; round < rounds; ++round) {
+            float[] dists = new float[n];
+            int source = rand.nextInt(n);
+
+            Arrays.fill(dists, Float.POSITIVE_INFINITY);
+            dists[source] = 0.0f;
+            long pushes = 0, maxsize = 0;
+            long startTime = System.nanoTime();
+            MinPQ<Edge<Integer>> edges = new MinPQ<>();
+            edges.insert(new Edge<>(source, source, 0.0f));
+            while (!edges.isEmpty()) {
+                Edge<Integer> top = edges.delMin();
+                if (top.weight > dists[top.to]) {
+                    continue;
+                }
+                for (int k = 0; k < degree; ++k) {
+                    int v = adjacency[top.to][k];
+                    float newdist = top.weight + weights[top.to][k];
+                    if (newdist < dists[v]) {
+                        dists[v] = newdist;
+                        edges.insert(new Edge<>(top.to, v, newdist));
+                        ++pushes;
+                    }
+                }
+                if (edges.size() > maxsize) {
+                    maxsize = edges.size();
+                }
+            }
+            long minpqTime = System.nanoTime() - startTime;
+            float minpqSum = 0.0f;
+            for (float dist : dists) {
+                minpqSum += dist < Float.POSITIVE_INFINITY ? dist : 0.0f;
+            }
+
+            Arrays.fill(dists, Float.POSITIVE_INFINITY);
+            dists[source] = 0.0f;
+            long updates = 0, maxindexed = 0;
+            startTime = System.nanoTime();
+            IndexMinPQ heap = new IndexMinPQ(n);
+            heap.insert(source, 0.0f);
+            while (!heap.isEmpty()) {
+                float dist = heap.minPriority();
+                int u = heap.delMin();
+                for (int k = 0; k < degree; ++k) {
+                    int v = adjacency[u][k];
+                    float newdist = dist + weights[u][k];
+                    if (newdist < dists[v]) {
+                        dists[v] = newdist;
+                        heap.offer(v, newdist);
+                        ++updates;
+                    }
+                }
+                if (heap.size() > maxindexed) {
+                    maxindexed = heap.size();
+                }
+            }
+            long indexedTime = System.nanoTime() - startTime;
+            float indexedSum = 0.0f;
+            for (float dist : dists) {
+                indexedSum += dist < Float.POSITIVE_INFINITY ? dist : 0.0f;
+            }
+
+            System.out.println("** Round " + round + ": MinPQ took " + minpqTime / Math.pow(10, 9) + " secs for "
+                    + pushes + " pushes (max size " + maxsize + "), IndexMinPQ took " + indexedTime / Math.pow(10, 9)
+                    + " secs for " + updates + " updates (max size " + maxindexed + "), summed distances "
+                    + minpqSum + "/" + indexedSum);
+        }
+    }
+}
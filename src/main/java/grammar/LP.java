@@ -2,8 +2,8 @@
  *  The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit
  *  Copyright (C) 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
  *
- *  The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or 
- *  modify it under the terms of the GNU General Public License as published 
+ *  The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as published
  *  by the Free Software Foundation, either version 3 of the License, or
  *  (at your option) any later version.
  *
@@ -18,20 +18,536 @@
 
 package grammar;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Linear program over non-negative variables, minimizing (or maximizing) the
+ * objective subject to constraints of the form a'x &lt;= b, a'x = b or a'x &gt;= b;
+ * the objective is the single row 0 of its matrix, the constraints are rows
+ * of variables, and the bounds are the column 0 of their matrix.
+ * <p>
+ * Revised simplex, in two phases with artificial variables: the basis is kept
+ * as the sparse LU factorization of {@link MatrixCsr} followed by the eta
+ * vectors of the pivots since, and is refactorized every so many pivots.
+ * Entering variables are priced either by Bland's rule or by steepest edge,
+ * with the exact reference weights of Goldfarb and Reid; the latter falls
+ * back to Bland's rule for as long as it stalls on degenerate pivots. A basis
+ * of a previous solution warm-starts the next one, if still feasible.
+ */
 public class LP {
+
+    private static final Logger logger = Logger.getLogger(LP.class);
+
+    private static final double TOLERANCE = 1e-9;
+    private static final int REFACTORIZATION = 64;
+    private static final int STALLING = 50;
+
+    public enum Sense {LESS_EQUAL, EQUAL, GREATER_EQUAL}
+
+    public enum Pricing {BLAND, STEEPEST_EDGE}
+
+    public enum Status {UNSOLVED, OPTIMAL, INFEASIBLE, UNBOUNDED, ITERATION_LIMIT}
+
     private final MatrixSparse<Long,Long> objective = new MatrixSparse<>(0.0f);
     private final MatrixSparse<Long,Long> constraints = new MatrixSparse<>(0.0f);
     private final MatrixSparse<Long,Long> bounds = new MatrixSparse<>(0.0f);
+    private final HashMap<Long,Sense> senses = new HashMap<>();
+
+    private boolean maximize = false;
+    private Pricing pricing = Pricing.STEEPEST_EDGE;
+    private int iterationLimit = Integer.MAX_VALUE;
+
+    private Status status = Status.UNSOLVED;
+    private double objectiveValue = Double.NaN;
+    private int iterations = 0;
+    private Basis basis = null;
+
+    /**
+     * The columns of an optimal basis, as positions among the variables,
+     * slacks and artificials of the program that produced it.
+     */
+    public static final class Basis {
+        private final int[] columns;
+        private final int rows;
+        private final int width;
+
+        private Basis (int[] columns, int width) {
+            this.columns = columns.clone();
+            this.rows = columns.length;
+            this.width = width;
+        }
+    }
 
-    LP () {}
+    public LP () {}
 
-    void pivot () {
-        
+    public void setObjective (long variable, float coefficient) {objective.set(0L, variable, coefficient);}
+    public void setConstraint (long row, long variable, float coefficient) {constraints.set(row, variable, coefficient);}
+    public void setBound (long row, Sense sense, float value) {
+        bounds.set(row, 0L, value);
+        senses.put(row, sense);
     }
 
+    public void setMaximize (boolean maximize) {this.maximize = maximize;}
+    public void setPricing (Pricing pricing) {this.pricing = pricing;}
+    public void setIterationLimit (int limit) {iterationLimit = limit;}
+
+    public Status getStatus () {return status;}
+    public double getObjectiveValue () {return objectiveValue;}
+    public int getIterations () {return iterations;}
+    public Basis getBasis () {return basis;}
+
+    /* the program in standard form, its columns being the variables, then the slacks, then the artificials */
+    private ArrayList<Long> rowLabels;
+    private ArrayList<Long> variableLabels;
+    private int m, n, width, firstArtificial;
+    private int[] columnOffsets, columnRows;
+    private double[] columnValues, rhs, costs, phaseOneCosts;
+    private int[] initialBasis;
+
+    /* the state of the simplex */
+    private int[] basic;
+    private int[] positions;
+    private double[] values;
+    private MatrixCsr<Integer,Integer>.LU factorization;
+    private final ArrayList<int[]> etaIndices = new ArrayList<>();
+    private final ArrayList<double[]> etaValues = new ArrayList<>();
+    private final ArrayList<Integer> etaRows = new ArrayList<>();
+
+    private void standardize () {
+        TreeSet<Long> rowSet = new TreeSet<>(constraints.rowSet);
+        rowSet.addAll(bounds.rowSet);
+        rowSet.addAll(senses.keySet());
+        TreeSet<Long> variableSet = new TreeSet<>(constraints.columnSet);
+        variableSet.addAll(objective.columnSet);
+        rowLabels = new ArrayList<>(rowSet);
+        variableLabels = new ArrayList<>(variableSet);
+        m = rowLabels.size();
+        n = variableLabels.size();
+        HashMap<Long,Integer> variableIndex = new HashMap<>();
+        for (int j=0; j<n; ++j) variableIndex.put(variableLabels.get(j), j);
+
+        /* rows of negative bound are negated, so that every slack of coefficient +1 starts in the basis */
+        rhs = new double[m];
+        double[] signs = new double[m];
+        int slacks = 0, artificials = 0;
+        boolean[] needsArtificial = new boolean[m];
+        for (int i=0; i<m; ++i) {
+            Long row = rowLabels.get(i);
+            Sense sense = senses.containsKey(row) ? senses.get(row) : Sense.LESS_EQUAL;
+            double b = bounds.get(row, 0L);
+            signs[i] = b < 0.0 ? -1.0 : 1.0;
+            rhs[i] = signs[i] * b;
+            if (sense != Sense.EQUAL) ++slacks;
+            double slackSign = sense == Sense.LESS_EQUAL ? signs[i] : sense == Sense.GREATER_EQUAL ? -signs[i] : 0.0;
+            needsArtificial[i] = slackSign <= 0.0;
+            if (needsArtificial[i]) ++artificials;
+        }
+        firstArtificial = n + slacks;
+        width = firstArtificial + artificials;
+
+        int[] counts = new int[width + 1];
+        for (int i=0; i<m; ++i) {
+            Map<Long,Float> row = constraints.mat.get(rowLabels.get(i));
+            if (row != null) for (Long variable : row.keySet()) ++counts[variableIndex.get(variable) + 1];
+        }
+        for (int j=n; j<width; ++j) counts[j + 1] = 1;
+        columnOffsets = new int[width + 1];
+        for (int j=0; j<width; ++j) columnOffsets[j + 1] = columnOffsets[j] + counts[j + 1];
+        columnRows = new int[columnOffsets[width]];
+        columnValues = new double[columnOffsets[width]];
+        int[] fill = Arrays.copyOf(columnOffsets, width);
+        for (int i=0; i<m; ++i) {
+            Map<Long,Float> row = constraints.mat.get(rowLabels.get(i));
+            if (row == null) continue;
+            for (Entry<Long,Float> entry : row.entrySet()) {
+                int at = fill[variableIndex.get(entry.getKey())]++;
+                columnRows[at] = i;
+                columnValues[at] = signs[i] * entry.getValue();
+            }
+        }
+
+        initialBasis = new int[m];
+        int slack = n, artificial = firstArtificial;
+        for (int i=0; i<m; ++i) {
+            Sense sense = senses.containsKey(rowLabels.get(i)) ? senses.get(rowLabels.get(i)) : Sense.LESS_EQUAL;
+            if (sense != Sense.EQUAL) {
+                columnRows[columnOffsets[slack]] = i;
+                columnValues[columnOffsets[slack]] = sense == Sense.LESS_EQUAL ? signs[i] : -signs[i];
+                if (!needsArtificial[i]) initialBasis[i] = slack;
+                ++slack;
+            }
+            if (needsArtificial[i]) {
+                columnRows[columnOffsets[artificial]] = i;
+                columnValues[columnOffsets[artificial]] = 1.0;
+                initialBasis[i] = artificial++;
+            }
+        }
+
+        costs = new double[width];
+        for (int j=0; j<n; ++j) costs[j] = (maximize ? -1.0 : 1.0) * objective.get(0L, variableLabels.get(j));
+        phaseOneCosts = new double[width];
+        for (int j=firstArtificial; j<width; ++j) phaseOneCosts[j] = 1.0;
+    }
+
+    /* factorizes the basis anew and recomputes the values of the basic variables */
+    private boolean refactorize () {
+        int[] offsets = new int[m + 1];
+        for (int k=0; k<m; ++k)
+            for (int pos=columnOffsets[basic[k]]; pos<columnOffsets[basic[k] + 1]; ++pos)
+                ++offsets[columnRows[pos] + 1];
+        for (int i=0; i<m; ++i) offsets[i + 1] += offsets[i];
+        int[] indices = new int[offsets[m]];
+        float[] entries = new float[offsets[m]];
+        int[] fill = Arrays.copyOf(offsets, m);
+        for (int k=0; k<m; ++k) {
+            for (int pos=columnOffsets[basic[k]]; pos<columnOffsets[basic[k] + 1]; ++pos) {
+                int at = fill[columnRows[pos]]++;
+                indices[at] = k;
+                entries[at] = (float) columnValues[pos];
+            }
+        }
+        ArrayList<Integer> labels = new ArrayList<>(m);
+        for (int i=0; i<m; ++i) labels.add(i);
+        factorization = new MatrixCsr<>(labels, labels, offsets, indices, entries).lu();
+        etaIndices.clear();
+        etaValues.clear();
+        etaRows.clear();
+        if (factorization.isSingular()) return false;
+        values = factorization.solve(rhs);
+        return true;
+    }
+
+    /* B^-1 a for the given column a */
+    private double[] ftran (double[] a) {
+        double[] x = factorization.solve(a);
+        for (int e=0; e<etaRows.size(); ++e) {
+            int r = etaRows.get(e);
+            int[] indices = etaIndices.get(e);
+            double[] entries = etaValues.get(e);
+            double pivotValue = 0.0;
+            for (int k=0; k<indices.length; ++k) if (indices[k] == r) pivotValue = entries[k];
+            double xr = x[r] / pivotValue;
+            for (int k=0; k<indices.length; ++k) if (indices[k] != r) x[indices[k]] -= entries[k] * xr;
+            x[r] = xr;
+        }
+        return x;
+    }
+
+    /* y such that B'y = c */
+    private double[] btran (double[] c) {
+        double[] y = c.clone();
+        for (int e=etaRows.size()-1; e>=0; --e) {
+            int r = etaRows.get(e);
+            int[] indices = etaIndices.get(e);
+            double[] entries = etaValues.get(e);
+            double sum = y[r], pivotValue = 0.0;
+            for (int k=0; k<indices.length; ++k) {
+                if (indices[k] == r) pivotValue = entries[k];
+                else sum -= entries[k] * y[indices[k]];
+            }
+            y[r] = sum / pivotValue;
+        }
+        return factorization.solveTransposed(y);
+    }
+
+    private double[] column (int j) {
+        double[] a = new double[m];
+        for (int pos=columnOffsets[j]; pos<columnOffsets[j + 1]; ++pos) a[columnRows[pos]] = columnValues[pos];
+        return a;
+    }
+
+    private double dot (int j, double[] y) {
+        double sum = 0.0;
+        for (int pos=columnOffsets[j]; pos<columnOffsets[j + 1]; ++pos) sum += columnValues[pos] * y[columnRows[pos]];
+        return sum;
+    }
+
+    /* replaces the basic variable of row r by the entering column q, of B^-1 a_q equal to d */
+    private void pivot (int r, int q, double[] d, double step) {
+        for (int i=0; i<m; ++i) values[i] -= step * d[i];
+        values[r] = step;
+        positions[basic[r]] = -1;
+        basic[r] = q;
+        positions[q] = r;
+
+        int count = 0;
+        for (int i=0; i<m; ++i) if (d[i] != 0.0) ++count;
+        int[] indices = new int[count];
+        double[] entries = new double[count];
+        count = 0;
+        for (int i=0; i<m; ++i) {
+            if (d[i] != 0.0) {
+                indices[count] = i;
+                entries[count++] = d[i];
+            }
+        }
+        etaRows.add(r);
+        etaIndices.add(indices);
+        etaValues.add(entries);
+        if (etaRows.size() >= REFACTORIZATION && !refactorize())
+            throw new RuntimeException ("\n!! ERROR - Singular basis after " + iterations + " simplex iterations !!");
+    }
+
+    /* exact steepest edge weights 1 + |B^-1 a_j|^2 of the nonbasic columns that may enter */
+    private double[] weights (boolean phaseOne) {
+        double[] weights = new double[width];
+        for (int j=0; j<width; ++j) {
+            if (positions[j] >= 0 || (!phaseOne && j >= firstArtificial)) continue;
+            double[] d = ftran(column(j));
+            double sum = 1.0;
+            for (double x : d) sum += x * x;
+            weights[j] = sum;
+        }
+        return weights;
+    }
+
+    /**
+     * Runs one phase of the simplex on the given costs.
+     * @return OPTIMAL, UNBOUNDED or ITERATION_LIMIT
+     */
+    private Status phase (double[] cost, boolean phaseOne) {
+        boolean steepest = pricing == Pricing.STEEPEST_EDGE;
+        double[] gammas = steepest ? weights(phaseOne) : null;
+        int degenerate = 0;
+        while (iterations < iterationLimit) {
+            double[] basicCosts = new double[m];
+            for (int i=0; i<m; ++i) basicCosts[i] = cost[basic[i]];
+            double[] y = btran(basicCosts);
+
+            boolean bland = !steepest || degenerate >= STALLING;
+            int q = -1;
+            double best = 0.0;
+            for (int j=0; j<width; ++j) {
+                if (positions[j] >= 0 || (!phaseOne && j >= firstArtificial)) continue;
+                double reduced = cost[j] - dot(j, y);
+                if (reduced < -TOLERANCE) {
+                    if (bland) {
+                        q = j;
+                        break;
+                    }
+                    double score = reduced * reduced / gammas[j];
+                    if (score > best) {
+                        best = score;
+                        q = j;
+                    }
+                }
+            }
+            if (q < 0) return Status.OPTIMAL;
+
+            double[] d = ftran(column(q));
+            int r = -1;
+            double step = Double.POSITIVE_INFINITY;
+            for (int i=0; i<m; ++i) {
+                double ratio;
+                if (d[i] > TOLERANCE) ratio = Math.max(0.0, values[i]) / d[i];
+                else if (!phaseOne && basic[i] >= firstArtificial && Math.abs(d[i]) > TOLERANCE) ratio = 0.0; // artificials stay at zero
+                else continue;
+                if (r < 0 || ratio < step - TOLERANCE
+                        || (ratio <= step + TOLERANCE && (bland ? basic[i] < basic[r] : Math.abs(d[i]) > Math.abs(d[r])))) {
+                    r = i;
+                    step = ratio;
+                }
+            }
+            if (r < 0) return Status.UNBOUNDED;
+
+            if (steepest) {
+                double alpha = d[r], gamma = 1.0;
+                for (double x : d) gamma += x * x;
+                double[] unit = new double[m];
+                unit[r] = 1.0;
+                double[] rho = btran(unit);
+                double[] w = btran(d);
+                for (int j=0; j<width; ++j) {
+                    if (positions[j] >= 0 || j == q || (!phaseOne && j >= firstArtificial)) continue;
+                    double alphaj = dot(j, rho);
+                    if (alphaj == 0.0) continue;
+                    double ratio = alphaj / alpha;
+                    gammas[j] = Math.max(gammas[j] - 2.0 * ratio * dot(j, w) + ratio * ratio * gamma, 1.0 + ratio * ratio);
+                }
+                gammas[basic[r]] = Math.max(gamma / (alpha * alpha), 1.0);
+            }
+
+            degenerate = step <= TOLERANCE ? degenerate + 1 : 0;
+            pivot(r, q, d, step);
+            ++iterations;
+        }
+        return Status.ITERATION_LIMIT;
+    }
+
+    public MatrixSparse<Long,Long> solve () {return solve(null);}
+
     /**
-     * Simplex java implementation
-     * @return 
+     * Simplex java implementation; starts from the given basis of an earlier
+     * solution, if any and still feasible, or else from slacks and artificials.
+     * @return the values of the variables as column 0 of a matrix, or null if
+     * there is no optimum, as told by {@link #getStatus()}
      */
-    MatrixSparse<Long,Long> solve () {return null;}
+    public MatrixSparse<Long,Long> solve (Basis warm) {
+        long startTime = System.nanoTime();
+        standardize();
+        iterations = 0;
+        objectiveValue = Double.NaN;
+        positions = new int[width];
+        boolean warmed = false;
+        if (warm != null && warm.rows == m && warm.width == width) {
+            basic = warm.columns.clone();
+            Arrays.fill(positions, -1);
+            for (int k=0; k<m; ++k) positions[basic[k]] = k;
+            warmed = refactorize();
+            if (warmed) {
+                for (int k=0; k<m; ++k) {
+                    if (values[k] < -1e-7 || (basic[k] >= firstArtificial && values[k] > 1e-7)) warmed = false;
+                }
+            }
+        }
+        if (!warmed) {
+            basic = initialBasis.clone();
+            Arrays.fill(positions, -1);
+            for (int k=0; k<m; ++k) positions[basic[k]] = k;
+            if (!refactorize()) throw new RuntimeException ("\n!! ERROR - Singular initial basis !!");
+            status = firstArtificial < width ? phase(phaseOneCosts, true) : Status.OPTIMAL;
+            if (status == Status.OPTIMAL) {
+                double infeasibility = 0.0, scale = 1.0;
+                for (int k=0; k<m; ++k) {
+                    if (basic[k] >= firstArtificial) infeasibility += Math.max(0.0, values[k]);
+                    scale = Math.max(scale, Math.abs(rhs[k]));
+                }
+                if (infeasibility > 1e-6 * scale) status = Status.INFEASIBLE;
+            }
+        } else status = Status.OPTIMAL;
+        if (status == Status.OPTIMAL) status = phase(costs, false);
+
+        MatrixSparse<Long,Long> solution = null;
+        if (status == Status.OPTIMAL) {
+            basis = new Basis(basic, width);
+            solution = new MatrixSparse<>(0.0f);
+            solution.rowSet.addAll(variableLabels);
+            solution.columnSet.add(0L);
+            double value = 0.0;
+            for (int k=0; k<m; ++k) {
+                if (basic[k] < n && values[k] > TOLERANCE) {
+                    solution.set(variableLabels.get(basic[k]), 0L, (float) values[k]);
+                    value += costs[basic[k]] * values[k];
+                }
+            }
+            objectiveValue = maximize ? -value : value;
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Simplex on " + m + " constraints and " + n
+                + " variables " + (warmed ? "from a warm basis " : "") + "ended " + status + " after " + iterations + " iterations with "
+                + pricing + " pricing in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return solution;
+    }
+
+    /* max sum c'x subject to Ax <= b over random non-negative data */
+    private static LP packing (int rows, int columns, float density, Random rand) {
+        LP lp = new LP();
+        lp.setMaximize(true);
+        for (long j=0; j<columns; ++j) lp.setObjective(j, 1.0f + rand.nextInt(20));
+        for (long i=0; i<rows; ++i) {
+            for (long j=0; j<columns; ++j)
+                if (rand.nextFloat() < density) lp.setConstraint(i, j, 1.0f + rand.nextInt(9));
+            lp.setBound(i, Sense.LESS_EQUAL, 10.0f + rand.nextInt(90));
+        }
+        return lp;
+    }
+
+    /* transportation from as many supplies as demands, with equal totals */
+    private static LP transportation (int sources, int sinks, Random rand) {
+        LP lp = new LP();
+        int total = 0;
+        int[] supplies = new int[sources];
+        for (int s=0; s<sources; ++s) total += supplies[s] = 10 + rand.nextInt(50);
+        int[] demands = new int[sinks];
+        int left = total;
+        for (int t=0; t<sinks; ++t) left -= demands[t] = t == sinks - 1 ? left : Math.min(left, total / sinks);
+        for (int s=0; s<sources; ++s) {
+            for (int t=0; t<sinks; ++t) {
+                long variable = (long) s * sinks + t;
+                lp.setObjective(variable, 1.0f + rand.nextInt(100));
+                lp.setConstraint(s, variable, 1.0f);
+                lp.setConstraint(sources + t, variable, 1.0f);
+            }
+            lp.setBound(s, Sense.LESS_EQUAL, supplies[s]);
+        }
+        for (int t=0; t<sinks; ++t) lp.setBound(sources + t, Sense.GREATER_EQUAL, demands[t]);
+        return lp;
+    }
+
+    /**
+     * Maximum flow from the first to the last node as a program, with a
+     * variable per pipe, a conservation row per node and a capacity row per pipe.
+     */
+    public static <NodeT> LP maximumFlow (CsrGraph<NodeT> pipes, int source, int target) {
+        LP lp = new LP();
+        lp.setMaximize(true);
+        int nodes = pipes.numberNodes();
+        for (int u=0; u<nodes; ++u) {
+            for (int arc=pipes.offsets[u]; arc<pipes.offsets[u + 1]; ++arc) {
+                int v = pipes.targets[arc];
+                if (u == v) continue;
+                if (u == source) lp.setObjective(arc, 1.0f);
+                if (v == source) lp.setObjective(arc, -1.0f);
+                if (u != source && u != target) lp.setConstraint(u, arc, -1.0f);
+                if (v != source && v != target) lp.setConstraint(v, arc, 1.0f);
+                lp.setConstraint(nodes + arc, arc, 1.0f);
+                lp.setBound(nodes + arc, Sense.LESS_EQUAL, Math.max(0.0f, pipes.weights[arc]));
+            }
+        }
+        for (int u=0; u<nodes; ++u) if (u != source && u != target) lp.setBound(u, Sense.EQUAL, 0.0f);
+        return lp;
+    }
+
+    /**
+     * Benchmark of generated programs, solved with either pricing, and
+     * re-solved from the optimal basis after perturbing the objective;
+     * use as: LP [scale]
+     */
+    public static void main (String[] args) {
+        int scale = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        Random rand = new Random(17);
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<LP> programs = new ArrayList<>();
+        names.add("packing " + 50 * scale + "x" + 100 * scale);
+        programs.add(packing(50 * scale, 100 * scale, 0.1f, rand));
+        names.add("transportation " + 15 * scale + "x" + 20 * scale);
+        programs.add(transportation(15 * scale, 20 * scale, rand));
+        DirectedGraph<Integer> network = new DirectedGraph<>();
+        for (int u=0; u<100*scale; ++u) network.addNode(u);
+        network.setErdosRenyiGraph((float) Math.log(100 * scale) / (100 * scale));
+        for (Edge<Integer> edge : network) network.setEdge(edge.from, edge.to, 1.0f + rand.nextInt(10));
+        names.add("maximum flow over " + network.numberEdges() + " pipes");
+        programs.add(maximumFlow(network.freeze(), 0, 100 * scale - 1));
+
+        for (int p=0; p<programs.size(); ++p) {
+            LP lp = programs.get(p);
+            StringBuilder line = new StringBuilder("** " + names.get(p) + ":");
+            for (Pricing rule : Pricing.values()) {
+                lp.setPricing(rule);
+                long startTime = System.nanoTime();
+                lp.solve();
+                line.append(String.format(" %s %s %.4f in %d iterations and %.3f secs;", rule, lp.getStatus(), lp.getObjectiveValue(),
+                        lp.getIterations(), (System.nanoTime() - startTime) / Math.pow(10, 9)));
+            }
+            Basis warm = lp.getBasis();
+            for (Long variable : new ArrayList<>(lp.objective.columnSet))
+                lp.setObjective(variable, lp.objective.get(0L, variable) * (0.9f + 0.2f * rand.nextFloat()));
+            lp.solve();
+            int cold = lp.getIterations();
+            long startTime = System.nanoTime();
+            lp.solve(warm);
+            line.append(String.format(" perturbed objective: cold %d, warm %d iterations in %.3f secs.", cold, lp.getIterations(),
+                    (System.nanoTime() - startTime) / Math.pow(10, 9)));
+            System.out.println(line);
+        }
+    }
 }
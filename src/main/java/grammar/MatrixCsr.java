@@ -0,0 +1,769 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Immutable sparse matrix in compressed sparse rows, with zero as the value
+ * of the entries not stored, and the labels of its rows and columns mapped to
+ * consecutive indices. The columns of each row are sorted. The compressed
+ * sparse columns of a matrix are the rows of its transpose, which takes a
+ * counting sort of the entries by column.
+ * <p>
+ * Products follow Gustavson's algorithm, row by row of the left operand
+ * through a dense accumulator, with ranges of rows shared among threads.
+ * Square matrices are factorized as PAQ = LU: the columns are ordered by
+ * minimum degree on the pattern of A+A', and the rows are picked by partial
+ * pivoting that keeps to the diagonal unless it falls below a tenth of the
+ * largest candidate. Each column of L and U comes from a sparse triangular
+ * solve, whose pattern is found by a depth-first search over L beforehand.
+ */
+public final class MatrixCsr<RowT, ColT> {
+
+    private static final Logger logger = Logger.getLogger(MatrixCsr.class);
+
+    /* least ratio of a diagonal pivot to the largest candidate of its column */
+    private static final double PIVOT_THRESHOLD = 0.1;
+
+    private final ArrayList<RowT> rows;
+    private final ArrayList<ColT> columns;
+    private final HashMap<RowT, Integer> rowDictionary;
+    private final HashMap<ColT, Integer> columnDictionary;
+
+    final int[] offsets;
+    final int[] indices;
+    final float[] values;
+
+    MatrixCsr(ArrayList<RowT> rows, ArrayList<ColT> columns, int[] offsets, int[] indices, float[] values) {
+        if (offsets.length != rows.size() + 1 || indices.length != values.length || offsets[rows.size()] != indices.length) {
+            throw new IllegalArgumentException("\n!! ERROR - Inconsistent CSR arrays !!");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.offsets = offsets;
+        this.indices = indices;
+        this.values = values;
+        rowDictionary = dictionary(rows);
+        columnDictionary = dictionary(columns);
+    }
+
+    /**
+     * Compresses the given matrix, whose default value should be zero; square
+     * matrices with the same labels for rows and columns get them in the
+     * same order, so that the diagonal stays the diagonal.
+     */
+    @SuppressWarnings("unchecked")
+    public MatrixCsr(MatrixSparse<RowT, ColT> matrix) {
+        long startTime = System.nanoTime();
+        if (matrix.predefined != 0.0f) {
+            throw new RuntimeException("\n!! ERROR - Only matrices of zero default value can be compressed !!");
+        }
+        rows = new ArrayList<>(matrix.rowSet);
+        HashSet<ColT> columnSet = new HashSet<>(matrix.columnSet);
+        for (Map<ColT, Float> row : matrix.mat.values()) {
+            columnSet.addAll(row.keySet());
+        }
+        if (columnSet.equals(new HashSet<Object>(rows))) {
+            columns = (ArrayList<ColT>) new ArrayList<Object>(rows);
+        } else {
+            columns = new ArrayList<>(columnSet);
+        }
+        rowDictionary = dictionary(rows);
+        columnDictionary = dictionary(columns);
+
+        int m = rows.size();
+        offsets = new int[m + 1];
+        int maxLength = 0;
+        for (int i = 0; i < m; ++i) {
+            Map<ColT, Float> row = matrix.mat.get(rows.get(i));
+            int length = row == null ? 0 : row.size();
+            offsets[i + 1] = offsets[i] + length;
+            maxLength = Math.max(maxLength, length);
+        }
+        indices = new int[offsets[m]];
+        values = new float[offsets[m]];
+        long[] packed = new long[maxLength];
+        for (int i = 0; i < m; ++i) {
+            Map<ColT, Float> row = matrix.mat.get(rows.get(i));
+            if (row == null) {
+                continue;
+            }
+            int length = 0;
+            for (Entry<ColT, Float> entry : row.entrySet()) {
+                packed[length++] = ((long) columnDictionary.get(entry.getKey()) << 32) | (Float.floatToRawIntBits(entry.getValue()) & 0xffffffffL);
+            }
+            Arrays.sort(packed, 0, length);
+            for (int pos = offsets[i], k = 0; k < length; ++k, ++pos) {
+                indices[pos] = (int) (packed[k] >>> 32);
+                values[pos] = Float.intBitsToFloat((int) packed[k]);
+            }
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Compressed a " + m + "x" + columns.size() + " matrix of "
+                + indices.length + " entries in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+    }
+
+    private static <T> HashMap<T, Integer> dictionary(ArrayList<T> labels) {
+        HashMap<T, Integer> dictionary = new HashMap<>((labels.size() << 2) / 3 + 1);
+        for (int i = 0; i < labels.size(); ++i) {
+            dictionary.put(labels.get(i), i);
+        }
+        return dictionary;
+    }
+
+    public MatrixSparse<RowT, ColT> toSparse() {
+        MatrixSparse<RowT, ColT> matrix = new MatrixSparse<>(0.0f);
+        matrix.rowSet.addAll(rows);
+        matrix.columnSet.addAll(columns);
+        for (int i = 0; i < rows.size(); ++i) {
+            if (offsets[i] < offsets[i + 1]) {
+                HashMap<ColT, Float> row = new HashMap<>(((offsets[i + 1] - offsets[i]) << 2) / 3 + 1);
+                for (int pos = offsets[i]; pos < offsets[i + 1]; ++pos) {
+                    if (values[pos] != 0.0f) {
+                        row.put(columns.get(indices[pos]), values[pos]);
+                    }
+                }
+                if (!row.isEmpty()) {
+                    matrix.putRow(rows.get(i), row);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    public int numberRows() {
+        return rows.size();
+    }
+
+    public int numberColumns() {
+        return columns.size();
+    }
+
+    public int numberNonZeros() {
+        return indices.length;
+    }
+
+    public ArrayList<RowT> getRows() {
+        return new ArrayList<>(rows);
+    }
+
+    public ArrayList<ColT> getColumns() {
+        return new ArrayList<>(columns);
+    }
+
+    public int rowIndexOf(RowT row) {
+        Integer index = rowDictionary.get(row);
+        return index == null ? -1 : index;
+    }
+
+    public int columnIndexOf(ColT column) {
+        Integer index = columnDictionary.get(column);
+        return index == null ? -1 : index;
+    }
+
+    public float get(RowT row, ColT column) {
+        Integer i = rowDictionary.get(row), j = columnDictionary.get(column);
+        if (i == null || j == null) {
+            return 0.0f;
+        }
+        int pos = Arrays.binarySearch(indices, offsets[i], offsets[i + 1], j);
+        return pos < 0 ? 0.0f : values[pos];
+    }
+
+    /**
+     * Counting sort of the entries by column, i.e. the compressed sparse
+     * columns of this matrix; the rows of each column come out sorted.
+     */
+    public MatrixCsr<ColT, RowT> transpose() {
+        int m = rows.size(), n = columns.size();
+        int[] transposedOffsets = new int[n + 1];
+        for (int pos = 0; pos < indices.length; ++pos) {
+            ++transposedOffsets[indices[pos] + 1];
+        }
+        for (int j = 0; j < n; ++j) {
+            transposedOffsets[j + 1] += transposedOffsets[j];
+        }
+        int[] transposedIndices = new int[indices.length];
+        float[] transposedValues = new float[indices.length];
+        int[] fill = Arrays.copyOf(transposedOffsets, n);
+        for (int i = 0; i < m; ++i) {
+            for (int pos = offsets[i]; pos < offsets[i + 1]; ++pos) {
+                int at = fill[indices[pos]]++;
+                transposedIndices[at] = i;
+                transposedValues[at] = values[pos];
+            }
+        }
+        return new MatrixCsr<>(columns, rows, transposedOffsets, transposedIndices, transposedValues);
+    }
+
+    public double[] times(double[] vector) {
+        if (vector.length != columns.size()) {
+            throw new RuntimeException("\n!! ERROR - Matrix dimensions do not match for multiplication !!");
+        }
+        double[] product = new double[rows.size()];
+        for (int i = 0; i < rows.size(); ++i) {
+            double sum = 0.0;
+            for (int pos = offsets[i]; pos < offsets[i + 1]; ++pos) {
+                sum += values[pos] * vector[indices[pos]];
+            }
+            product[i] = sum;
+        }
+        return product;
+    }
+
+    public <OtherT> MatrixCsr<RowT, OtherT> times(MatrixCsr<ColT, OtherT> other) {
+        return times(other, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Gustavson's product, with the rows of this matrix split in as many
+     * ranges as threads; the columns of this matrix are matched by label to
+     * the rows of the other.
+     */
+    public <OtherT> MatrixCsr<RowT, OtherT> times(final MatrixCsr<ColT, OtherT> other, int threads) {
+        long startTime = System.nanoTime();
+        if (columns.size() != other.rows.size()) {
+            throw new RuntimeException("\n!! ERROR - Matrix dimensions do not match for multiplication !!");
+        }
+        final int[] match = new int[columns.size()];
+        for (int j = 0; j < columns.size(); ++j) {
+            Integer row = other.rowDictionary.get(columns.get(j));
+            if (row == null) {
+                throw new RuntimeException("\n!! ERROR - Column " + columns.get(j) + " is not a row of the other matrix !!");
+            }
+            match[j] = row;
+        }
+
+        final int m = rows.size(), n = other.columns.size();
+        threads = Math.max(1, Math.min(threads, m));
+        ArrayList<Callable<Object[]>> tasks = new ArrayList<>(threads);
+        for (int t = 0; t < threads; ++t) {
+            final int low = (int) ((long) m * t / threads), high = (int) ((long) m * (t + 1) / threads);
+            tasks.add(new Callable<Object[]>() {
+                @Override
+                public Object[] call() {
+                    double[] accumulator = new double[n];
+                    int[] stamps = new int[n];
+                    Arrays.fill(stamps, -1);
+                    int[] pattern = new int[n];
+                    int[] lengths = new int[high - low];
+                    int[] chunkIndices = new int[16];
+                    float[] chunkValues = new float[16];
+                    int count = 0;
+                    for (int i = low; i < high; ++i) {
+                        int size = 0;
+                        for (int pos = offsets[i]; pos < offsets[i + 1]; ++pos) {
+                            int k = match[indices[pos]];
+                            double a = values[pos];
+                            for (int at = other.offsets[k]; at < other.offsets[k + 1]; ++at) {
+                                int j = other.indices[at];
+                                if (stamps[j] != i) {
+                                    stamps[j] = i;
+                                    accumulator[j] = 0.0;
+                                    pattern[size++] = j;
+                                }
+                                accumulator[j] += a * other.values[at];
+                            }
+                        }
+                        Arrays.sort(pattern, 0, size);
+                        if (count + size > chunkIndices.length) {
+                            int capacity = Math.max(count + size, chunkIndices.length << 1);
+                            chunkIndices = Arrays.copyOf(chunkIndices, capacity);
+                            chunkValues = Arrays.copyOf(chunkValues, capacity);
+                        }
+                        for (int k = 0; k < size; ++k) {
+                            chunkIndices[count] = pattern[k];
+                            chunkValues[count++] = (float) accumulator[pattern[k]];
+                        }
+                        lengths[i - low] = size;
+                    }
+                    return new Object[]{lengths, chunkIndices, chunkValues};
+                }
+            });
+        }
+
+        int[] productOffsets = new int[m + 1];
+        ArrayList<Object[]> chunks = new ArrayList<>(threads);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<Object[]> result : pool.invokeAll(tasks)) {
+                chunks.add(result.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("\n!! ERROR - Sparse matrix multiplication was interrupted: " + e.getMessage() + " !!");
+        } finally {
+            pool.shutdown();
+        }
+        int i = 0;
+        for (Object[] chunk : chunks) {
+            for (int length : (int[]) chunk[0]) {
+                productOffsets[i + 1] = productOffsets[i] + length;
+                ++i;
+            }
+        }
+        int[] productIndices = new int[productOffsets[m]];
+        float[] productValues = new float[productOffsets[m]];
+        int at = 0;
+        for (Object[] chunk : chunks) {
+            int length = 0;
+            for (int rowLength : (int[]) chunk[0]) {
+                length += rowLength;
+            }
+            System.arraycopy((int[]) chunk[1], 0, productIndices, at, length);
+            System.arraycopy((float[]) chunk[2], 0, productValues, at, length);
+            at += length;
+        }
+        MatrixCsr<RowT, OtherT> product = new MatrixCsr<>(rows, other.columns, productOffsets, productIndices, productValues);
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Multiplied a " + m + "x" + columns.size() + " by a "
+                + other.rows.size() + "x" + n + " matrix into " + productIndices.length + " entries with " + threads + " threads in "
+                + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return product;
+    }
+
+    /**
+     * Minimum degree ordering on the pattern of A+A', eliminating one node
+     * at a time and joining its neighbours into a clique; ties go to the
+     * lowest index.
+     */
+    int[] minimumDegreeOrder() {
+        int n = rows.size();
+        int[] degrees = new int[n];
+        for (int i = 0; i < n; ++i) {
+            for (int pos = offsets[i]; pos < offsets[i + 1]; ++pos) {
+                if (indices[pos] != i) {
+                    ++degrees[i];
+                    ++degrees[indices[pos]];
+                }
+            }
+        }
+        int[][] neighbours = new int[n][];
+        for (int i = 0; i < n; ++i) {
+            neighbours[i] = new int[degrees[i]];
+        }
+        Arrays.fill(degrees, 0);
+        for (int i = 0; i < n; ++i) {
+            for (int pos = offsets[i]; pos < offsets[i + 1]; ++pos) {
+                int j = indices[pos];
+                if (j != i) {
+                    neighbours[i][degrees[i]++] = j;
+                    neighbours[j][degrees[j]++] = i;
+                }
+            }
+        }
+        PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, n));
+        for (int i = 0; i < n; ++i) {
+            neighbours[i] = distinct(neighbours[i], neighbours[i].length, -1);
+            queue.add(((long) neighbours[i].length << 32) | i);
+        }
+
+        boolean[] eliminated = new boolean[n];
+        int[] order = new int[n];
+        int[] marks = new int[n];
+        Arrays.fill(marks, -1);
+        int[] buffer = new int[n];
+        int count = 0, stamp = 0;
+        while (count < n) {
+            long top = queue.remove();
+            int v = (int) top;
+            if (eliminated[v] || (int) (top >>> 32) != neighbours[v].length) {
+                continue; // stale entry
+            }
+            eliminated[v] = true;
+            order[count++] = v;
+            int[] clique = neighbours[v];
+            for (int u : clique) {
+                ++stamp;
+                marks[u] = marks[v] = stamp;
+                int length = 0;
+                for (int w : neighbours[u]) {
+                    if (marks[w] != stamp) {
+                        marks[w] = stamp;
+                        buffer[length++] = w;
+                    }
+                }
+                for (int w : clique) {
+                    if (marks[w] != stamp) {
+                        marks[w] = stamp;
+                        buffer[length++] = w;
+                    }
+                }
+                neighbours[u] = Arrays.copyOf(buffer, length);
+                queue.add(((long) length << 32) | u);
+            }
+            neighbours[v] = null;
+        }
+        return order;
+    }
+
+    /* sorts the first items and drops the repeated ones, along with the excluded one */
+    private static int[] distinct(int[] items, int length, int excluded) {
+        Arrays.sort(items, 0, length);
+        int size = 0;
+        for (int k = 0; k < length; ++k) {
+            if (items[k] != excluded && (size == 0 || items[size - 1] != items[k])) {
+                items[size++] = items[k];
+            }
+        }
+        return size == items.length ? items : Arrays.copyOf(items, size);
+    }
+
+    public LU lu() {
+        return new LU();
+    }
+
+    /**
+     * Sparse LU factorization PAQ = LU of a square matrix, with L of unit
+     * diagonal; L and U are kept by columns, the diagonal first in those of L
+     * and last in those of U.
+     */
+    public final class LU {
+
+        private final int n;
+        private final int[] columnOrder; // q
+        private final int[] pivotOf; // the step at which each row was pivoted, P^-1
+        private final boolean singular;
+
+        private int[] lowerOffsets;
+        private int[] lowerIndices;
+        private double[] lowerValues;
+        private int[] upperOffsets;
+        private int[] upperIndices;
+        private double[] upperValues;
+
+        private LU() {
+            long startTime = System.nanoTime();
+            n = rows.size();
+            if (columns.size() != n) {
+                throw new RuntimeException("\n!! ERROR - Only square matrices can be factorized !!");
+            }
+            columnOrder = minimumDegreeOrder();
+            MatrixCsr<ColT, RowT> byColumns = transpose();
+            int[] byColumnsOffsets = byColumns.offsets, byColumnsIndices = byColumns.indices;
+            float[] byColumnsValues = byColumns.values;
+
+            int capacity = Math.max(16, 4 * indices.length + n);
+            lowerOffsets = new int[n + 1];
+            lowerIndices = new int[capacity];
+            lowerValues = new double[capacity];
+            upperOffsets = new int[n + 1];
+            upperIndices = new int[capacity];
+            upperValues = new double[capacity];
+            pivotOf = new int[n];
+            Arrays.fill(pivotOf, -1);
+
+            double[] x = new double[n];
+            int[] pattern = new int[n];
+            int[] stack = new int[n];
+            int[] cursors = new int[n];
+            int[] marks = new int[n];
+            Arrays.fill(marks, -1);
+            int lowerSize = 0, upperSize = 0;
+            boolean failed = false;
+
+            for (int k = 0; k < n; ++k) {
+                lowerOffsets[k] = lowerSize;
+                upperOffsets[k] = upperSize;
+                if (lowerSize + n > lowerIndices.length) {
+                    lowerIndices = Arrays.copyOf(lowerIndices, 2 * lowerIndices.length + n);
+                    lowerValues = Arrays.copyOf(lowerValues, lowerIndices.length);
+                }
+                if (upperSize + n > upperIndices.length) {
+                    upperIndices = Arrays.copyOf(upperIndices, 2 * upperIndices.length + n);
+                    upperValues = Arrays.copyOf(upperValues, upperIndices.length);
+                }
+
+                /* x = L \ A(:,q[k]), over the pattern reached from A(:,q[k]) in the graph of L */
+                int column = columnOrder[k];
+                int top = n;
+                for (int pos = byColumnsOffsets[column]; pos < byColumnsOffsets[column + 1]; ++pos) {
+                    int root = byColumnsIndices[pos];
+                    if (marks[root] == k) {
+                        continue;
+                    }
+                    int depth = 0;
+                    stack[0] = root;
+                    marks[root] = k;
+                    cursors[0] = pivotOf[root] < 0 ? 0 : lowerOffsets[pivotOf[root]] + 1;
+                    while (depth >= 0) {
+                        int i = stack[depth], step = pivotOf[i];
+                        boolean descended = false;
+                        if (step >= 0) {
+                            int end = lowerOffsets[step + 1];
+                            while (cursors[depth] < end) {
+                                int child = lowerIndices[cursors[depth]++];
+                                if (marks[child] != k) {
+                                    marks[child] = k;
+                                    stack[++depth] = child;
+                                    cursors[depth] = pivotOf[child] < 0 ? 0 : lowerOffsets[pivotOf[child]] + 1;
+                                    descended = true;
+                                    break;
+                                }
+                            }
+                        }
+                        if (!descended) {
+                            pattern[--top] = i;
+                            --depth;
+                        }
+                    }
+                }
+                for (int p = top; p < n; ++p) {
+                    x[pattern[p]] = 0.0;
+                }
+                for (int pos = byColumnsOffsets[column]; pos < byColumnsOffsets[column + 1]; ++pos) {
+                    x[byColumnsIndices[pos]] = byColumnsValues[pos];
+                }
+                for (int p = top; p < n; ++p) {
+                    int j = pattern[p], step = pivotOf[j];
+                    if (step < 0) {
+                        continue;
+                    }
+                    for (int pos = lowerOffsets[step] + 1; pos < lowerOffsets[step + 1]; ++pos) {
+                        x[lowerIndices[pos]] -= lowerValues[pos] * x[j];
+                    }
+                }
+
+                /* the rows pivoted already go to U, the largest of the rest is the pivot */
+                int pivot = -1;
+                double largest = -1.0;
+                for (int p = top; p < n; ++p) {
+                    int i = pattern[p];
+                    if (pivotOf[i] < 0) {
+                        if (Math.abs(x[i]) > largest) {
+                            largest = Math.abs(x[i]);
+                            pivot = i;
+                        }
+                    } else {
+                        upperIndices[upperSize] = pivotOf[i];
+                        upperValues[upperSize++] = x[i];
+                    }
+                }
+                if (pivot < 0 || largest <= 0.0) {
+                    failed = true;
+                    break;
+                }
+                if (pivotOf[column] < 0 && marks[column] == k && Math.abs(x[column]) >= PIVOT_THRESHOLD * largest) {
+                    pivot = column;
+                }
+                double diagonal = x[pivot];
+                upperIndices[upperSize] = k;
+                upperValues[upperSize++] = diagonal;
+                pivotOf[pivot] = k;
+                lowerIndices[lowerSize] = pivot;
+                lowerValues[lowerSize++] = 1.0;
+                for (int p = top; p < n; ++p) {
+                    int i = pattern[p];
+                    if (pivotOf[i] < 0) {
+                        lowerIndices[lowerSize] = i;
+                        lowerValues[lowerSize++] = x[i] / diagonal;
+                    }
+                }
+            }
+            singular = failed;
+            if (!singular) {
+                lowerOffsets[n] = lowerSize;
+                upperOffsets[n] = upperSize;
+                for (int pos = 0; pos < lowerSize; ++pos) {
+                    lowerIndices[pos] = pivotOf[lowerIndices[pos]];
+                }
+            }
+
+            long endTime = System.nanoTime();
+            logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Factorized a " + n + "x" + n + " matrix of "
+                    + indices.length + " entries" + (singular ? ", found singular," : " into " + (lowerSize + upperSize) + " entries of L and U")
+                    + " in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        }
+
+        public boolean isSingular() {
+            return singular;
+        }
+
+        public int numberNonZeros() {
+            return singular ? 0 : lowerOffsets[n] + upperOffsets[n];
+        }
+
+        public double determinant() {
+            if (singular) {
+                return 0.0;
+            }
+            double product = 1.0;
+            for (int k = 0; k < n; ++k) {
+                product *= upperValues[upperOffsets[k + 1] - 1];
+            }
+            return parity(pivotOf) * parity(columnOrder) * product;
+        }
+
+        /* +1 or -1 as the permutation is even or odd */
+        private int parity(int[] permutation) {
+            boolean[] visited = new boolean[permutation.length];
+            int sign = 1;
+            for (int i = 0; i < permutation.length; ++i) {
+                if (!visited[i]) {
+                    int length = 0;
+                    for (int j = i; !visited[j]; j = permutation[j]) {
+                        visited[j] = true;
+                        ++length;
+                    }
+                    if ((length & 1) == 0) {
+                        sign = -sign;
+                    }
+                }
+            }
+            return sign;
+        }
+
+        /**
+         * @return x such that Ax = b, by x = Q (U \ (L \ Pb)).
+         */
+        public double[] solve(double[] b) {
+            if (singular) {
+                throw new RuntimeException("\n!! ERROR - Cannot solve a system of singular matrix !!");
+            }
+            if (b.length != n) {
+                throw new RuntimeException("\n!! ERROR - Matrix dimensions do not match for solving !!");
+            }
+            double[] y = new double[n];
+            for (int i = 0; i < n; ++i) {
+                y[pivotOf[i]] = b[i];
+            }
+            for (int k = 0; k < n; ++k) {
+                for (int pos = lowerOffsets[k] + 1; pos < lowerOffsets[k + 1]; ++pos) {
+                    y[lowerIndices[pos]] -= lowerValues[pos] * y[k];
+                }
+            }
+            for (int k = n - 1; k >= 0; --k) {
+                y[k] /= upperValues[upperOffsets[k + 1] - 1];
+                for (int pos = upperOffsets[k]; pos < upperOffsets[k + 1] - 1; ++pos) {
+                    y[upperIndices[pos]] -= upperValues[pos] * y[k];
+                }
+            }
+            double[] x = new double[n];
+            for (int k = 0; k < n; ++k) {
+                x[columnOrder[k]] = y[k];
+            }
+            return x;
+        }
+
+        /**
+         * @return y such that A'y = c, by y = P' (L' \ (U' \ Q'c)).
+         */
+        public double[] solveTransposed(double[] c) {
+            if (singular) {
+                throw new RuntimeException("\n!! ERROR - Cannot solve a system of singular matrix !!");
+            }
+            if (c.length != n) {
+                throw new RuntimeException("\n!! ERROR - Matrix dimensions do not match for solving !!");
+            }
+            double[] z = new double[n];
+            for (int k = 0; k < n; ++k) {
+                z[k] = c[columnOrder[k]];
+            }
+            for (int k = 0; k < n; ++k) {
+                double sum = z[k];
+                for (int pos = upperOffsets[k]; pos < upperOffsets[k + 1] - 1; ++pos) {
+                    sum -= upperValues[pos] * z[upperIndices[pos]];
+                }
+                z[k] = sum / upperValues[upperOffsets[k + 1] - 1];
+            }
+            for (int k = n - 1; k >= 0; --k) {
+                double sum = z[k];
+                for (int pos = lowerOffsets[k] + 1; pos < lowerOffsets[k + 1]; ++pos) {
+                    sum -= lowerValues[pos] * z[lowerIndices[pos]];
+                }
+                z[k] = sum;
+            }
+            double[] y = new double[n];
+            for (int i = 0; i < n; ++i) {
+                y[i] = z[pivotOf[i]];
+            }
+            return y;
+        }
+
+        /**
+         * @return X such that AX = B, column by column of B, labelled by the
+         * columns of A and of B respectively.
+         */
+        public <OtherT> MatrixSparse<ColT, OtherT> solve(MatrixSparse<RowT, OtherT> b) {
+            MatrixSparse<ColT, OtherT> solution = new MatrixSparse<>(0.0f);
+            solution.rowSet.addAll(columns);
+            HashSet<OtherT> targets = new HashSet<>(b.columnSet);
+            for (Map<OtherT, Float> row : b.mat.values()) {
+                targets.addAll(row.keySet());
+            }
+            for (OtherT target : targets) {
+                double[] rhs = new double[n];
+                for (int i = 0; i < n; ++i) {
+                    rhs[i] = b.get(rows.get(i), target);
+                }
+                double[] x = solve(rhs);
+                solution.columnSet.add(target);
+                for (int j = 0; j < n; ++j) {
+                    if (x[j] != 0.0) {
+                        solution.set(columns.get(j), target, (float) x[j]);
+                    }
+                }
+            }
+            return solution;
+        }
+    }
+
+    /**
+     * Times the product, the factorization and a solve on a random sparse
+     * matrix of dominant diagonal; use as: MatrixCsr [size] [entries per row] [threads]
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int perRow = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        java.util.Random rand = new java.util.Random(13);
+        MatrixSparse<Integer, Integer> sparse = new MatrixSparse<>(0.0f);
+        for (int i = 0; i < size; ++i) {
+            sparse.set(i, i, 2.0f * perRow);
+            for (int k = 0; k < perRow; ++k) {
+                sparse.set(i, rand.nextInt(size), rand.nextFloat() * 2.0f - 1.0f);
+            }
+        }
+        MatrixCsr<Integer, Integer> matrix = new MatrixCsr<>(sparse);
+        matrix.times(matrix, threads);
+        MatrixCsr<Integer, Integer>.LU lu = matrix.lu();
+        double[] b = new double[size];
+        Arrays.fill(b, 1.0);
+        double[] r = matrix.times(lu.solve(b));
+        double residual = 0.0;
+        for (int i = 0; i < size; ++i) {
+            residual = Math.max(residual, Math.abs(r[i] - b[i]));
+        }
+        System.out.println("** " + matrix.numberNonZeros() + " entries, " + lu.numberNonZeros() + " in L and U, residual " + residual);
+    }
+}
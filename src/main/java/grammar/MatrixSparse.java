@@ -25,11 +25,13 @@ import java.util.Map.Entry;
 
 import java.util.Scanner;
 import java.io.File;
+import java.io.IOException;
 import java.io.FileNotFoundException;
 
 import java.text.Format;
 import java.text.NumberFormat;
 import java.text.ParsePosition;
+import java.text.ParseException;
 
 
 final class ThreeDigitPositiveInteger implements Comparable<ThreeDigitPositiveInteger> {
@@ -91,6 +93,21 @@ final public class MatrixSparse<RowT, ColT> { //extends Matrix<RowT,ColT> {
 		while (unweighted==predefined)
 			unweighted+=1.0;
 
+		if (format instanceof NumberFormat) {
+			try{
+				EdgeListParser parser = new EdgeListParser (true,true);
+				parser.setDefaultWeight (unweighted);
+				parser.parseInto (this,filename);
+			}catch (FileNotFoundException e){
+				System.err.println ("\n!! Input file '"+filename+"' does not exist !!");
+			}catch (ParseException e){
+				System.err.println ("\n!! Unable to parse file '"+filename+"': "+e.getMessage()+" !!");
+			}catch (IOException e){
+				System.err.println ("\n!! IOException while processing file '"+filename+"' !!");
+			}
+			return;
+		}
+
 		try{
 			Scanner in = new Scanner (new File(this.getClass().getClassLoader().getResource(filename).getFile())) ;
 
@@ -178,6 +195,12 @@ final public class MatrixSparse<RowT, ColT> { //extends Matrix<RowT,ColT> {
                 }
 	}
 
+	/* adopts the given map as a row that is not already present, leaving the column set to the caller */
+	void putRow (RowT row, Map<ColT,Float> colvec) {
+		rowSet.add (row);
+		mat.put (row, colvec);
+	}
+
 	@SuppressWarnings ("unchecked")
         @Override
 	public boolean equals (Object other) {
@@ -256,29 +279,29 @@ final public class MatrixSparse<RowT, ColT> { //extends Matrix<RowT,ColT> {
 	}
 
         /** 
-         * Assumes predefined == 0 
+         * Assumes predefined == 0; computed from the sparse LU factorization of {@link MatrixCsr}.
          * @return Matrix determinant
          */
 	public float determinant () {
-            float product = 1.0f;
-            HashSet<ColT> processedColumns = new HashSet<>();
-            for (Entry<RowT,Map<ColT,Float>> rowEntry : echelon().mat.entrySet()) {
-                for (Entry<ColT,Float> entry : rowEntry.getValue().entrySet()) {
-                    if (!processedColumns.contains (entry.getKey())) {
-                        processedColumns.add (entry.getKey());
-                        product *= entry.getValue();
-                        break;
-                    }
-                }
-            }
-            return product;
+            if (rowSet.size()!=columnSet.size()) throw new RuntimeException ("\n!! ERROR - Determinant is defined only for square matrices !!");
+            if (rowSet.isEmpty()) return 1.0f;
+            return (float) new MatrixCsr<>(this).lu().determinant();
         }
 
         /**
-         * Assumes predefined == 0 
+         * Assumes predefined == 0; det(A) inv(A) from the LU factorization, 
+         * falling back to cofactors for singular matrices.
          * @return the adjoint matrix
          */
         public MatrixSparse<ColT,RowT> adjoint () {
+            MatrixCsr<RowT,ColT> compressed = new MatrixCsr<>(this);
+            MatrixCsr<RowT,ColT>.LU lu = compressed.lu();
+            if (!lu.isSingular()) {
+                MatrixSparse<RowT,RowT> identity = new MatrixSparse<>(0.0f);
+                for (RowT row : compressed.getRows()) identity.set (row, row, 1.0f);
+                return lu.solve(identity).times((float) lu.determinant());
+            }
+
             int i=1, j=1;
             MatrixSparse<ColT,RowT> adjoint = new MatrixSparse<> (predefined);
             for (Entry<RowT,Map<ColT,Float>> rowEntry : mat.entrySet()) {
@@ -423,6 +446,14 @@ final public class MatrixSparse<RowT, ColT> { //extends Matrix<RowT,ColT> {
             }
 	}
 **/
+	/**
+	 * Assumes both default values are zero; Gustavson's product over the compressed rows of {@link MatrixCsr}.
+	 */
+	public <OtherT> MatrixSparse<RowT,OtherT> times (MatrixSparse<ColT,OtherT> other) {
+		if (other==null) throw new NullPointerException ("\n!! Multiplication not defined for null objects !!");
+		return new MatrixCsr<>(this).times(new MatrixCsr<>(other)).toSparse();
+	}
+
         public MatrixSparse<RowT,ColT> echelon () {return echelon (true,true);}
 
 	@SuppressWarnings ("unchecked")
@@ -533,19 +564,12 @@ final public class MatrixSparse<RowT, ColT> { //extends Matrix<RowT,ColT> {
 		return echelon;
 	}
 
+	/**
+	 * Assumes predefined == 0; solves AX = other column by column over the sparse LU factorization of {@link MatrixCsr}.
+	 */
 	public MatrixSparse<ColT,RowT> solve (MatrixSparse<RowT,RowT> other) {
                 if (other == null) throw new NullPointerException();
-                
-		MatrixSparse<ColT,RowT> solution; 
-		if (predefined!=0.0) solution = new MatrixSparse<>(other.predefined / predefined);
-		else solution = new MatrixSparse<>(0.0f);
-
-		for (RowT column : other.columnSet) {
-			MatrixSparse<ColT,RowT> partial = triangular_solve (other.getColumn(column));
-			for (Entry<ColT,Map<RowT,Float>> entry : partial.mat.entrySet())
-				solution.set (entry.getKey(), column, entry.getValue().get(column) );
-		}
-		return solution;
+                return new MatrixCsr<>(this).lu().solve(other);
 	}
 
 	@SuppressWarnings ("unchecked")
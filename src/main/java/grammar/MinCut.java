@@ -0,0 +1,405 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Global minimum cut by Karger-Stein recursive contraction, over an edge
+ * array drawn from the CSR snapshot of a graph; arcs of directed graphs are
+ * taken as undirected edges, parallel ones adding up their weights.
+ * <p>
+ * A contraction down to t nodes is Kruskal's algorithm over the edges sorted
+ * by exponential random keys of rate equal to their weights, which picks
+ * every next edge with probability proportional to its weight, and stops as
+ * soon as the union-find is left with t components. The contracted graph
+ * keeps one edge per pair of components. Every graph of n nodes is contracted
+ * twice, independently, down to 1+n/sqrt(2) nodes, and each contraction is
+ * solved recursively, until at most six nodes remain, whose cuts are
+ * enumerated. Independent trials run in parallel with seeded generators.
+ */
+public final class MinCut<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(MinCut.class);
+
+    /* nodes up to which all cuts are enumerated */
+    private static final int BASE = 6;
+
+    private final CsrGraph<NodeT> graph;
+    private final int n;
+
+    /* one entry per pair of adjacent nodes, u < v */
+    private final int[] heads;
+    private final int[] tails;
+    private final float[] weights;
+
+    /**
+     * A cut along with the nodes of one of its sides.
+     */
+    public static final class Cut<NodeT> {
+
+        public final float value;
+        public final ArrayList<NodeT> side;
+
+        Cut(float value, ArrayList<NodeT> side) {
+            this.value = value;
+            this.side = side;
+        }
+
+        @Override
+        public String toString() {
+            return "cut of " + value + " separating " + side.size() + " nodes";
+        }
+    }
+
+    public MinCut(Graph<NodeT> graph) {
+        this(graph.freeze());
+    }
+
+    public MinCut(CsrGraph<NodeT> graph) {
+        if (graph.containsNegativeWeightEdges()) {
+            throw new RuntimeException("\n!! ERROR - Minimum cuts cannot be computed in the presence of edges with negative weights !!");
+        }
+        this.graph = graph;
+        n = graph.numberNodes();
+
+        int m = 0;
+        int[] us = new int[graph.numberArcs()], vs = new int[graph.numberArcs()];
+        float[] ws = new float[graph.numberArcs()];
+        for (int u = 0; u < n; ++u) {
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                int v = graph.targets[arc];
+                if (v != u && (graph.isDirected() || u < v)) {
+                    us[m] = Math.min(u, v);
+                    vs[m] = Math.max(u, v);
+                    ws[m++] = graph.weights[arc];
+                }
+            }
+        }
+        Edges edges = merge(n, us, vs, ws, m, null);
+        heads = edges.heads;
+        tails = edges.tails;
+        weights = edges.weights;
+    }
+
+    public int numberNodes() {
+        return n;
+    }
+
+    public int numberEdges() {
+        return heads.length;
+    }
+
+    /* edges of a (contracted) graph */
+    private static final class Edges {
+
+        final int[] heads;
+        final int[] tails;
+        final float[] weights;
+
+        Edges(int[] heads, int[] tails, float[] weights) {
+            this.heads = heads;
+            this.tails = tails;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * Relabels the ends of the edges by the given map, if any, dropping the
+     * loops and adding up the weights of parallel edges.
+     */
+    private static Edges merge(int n, int[] us, int[] vs, float[] ws, int m, int[] map) {
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < m; ++e) {
+            int a = map == null ? us[e] : map[us[e]], b = map == null ? vs[e] : map[vs[e]];
+            if (a != b) {
+                ++offsets[Math.min(a, b) + 1];
+            }
+        }
+        for (int u = 0; u < n; ++u) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] others = new int[offsets[n]];
+        float[] values = new float[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < m; ++e) {
+            int a = map == null ? us[e] : map[us[e]], b = map == null ? vs[e] : map[vs[e]];
+            if (a != b) {
+                int pos = fill[Math.min(a, b)]++;
+                others[pos] = Math.max(a, b);
+                values[pos] = ws[e];
+            }
+        }
+
+        /* accumulate the weights of each row towards every other node, noting the ones touched */
+        float[] sums = new float[n];
+        int[] stamps = new int[n];
+        Arrays.fill(stamps, -1);
+        int[] touched = new int[n];
+        int count = 0;
+        int[] heads = new int[offsets[n]], tails = new int[offsets[n]];
+        float[] weights = new float[offsets[n]];
+        for (int a = 0; a < n; ++a) {
+            int size = 0;
+            for (int pos = offsets[a]; pos < offsets[a + 1]; ++pos) {
+                int b = others[pos];
+                if (stamps[b] != a) {
+                    stamps[b] = a;
+                    sums[b] = 0.0f;
+                    touched[size++] = b;
+                }
+                sums[b] += values[pos];
+            }
+            for (int i = 0; i < size; ++i) {
+                heads[count] = a;
+                tails[count] = touched[i];
+                weights[count++] = sums[touched[i]];
+            }
+        }
+        return new Edges(Arrays.copyOf(heads, count), Arrays.copyOf(tails, count), Arrays.copyOf(weights, count));
+    }
+
+    /**
+     * @return the number of independent trials for finding a minimum cut with
+     * at least the given probability, given that a single trial of
+     * Karger-Stein succeeds with probability at least 1/(2 log2 n).
+     */
+    public static int trialsFor(int n, double probability) {
+        if (probability <= 0.0 || probability >= 1.0) {
+            throw new IllegalArgumentException("\n!! ERROR - Success probability should be in (0,1) !!");
+        }
+        double single = 1.0 / (2.0 * Math.max(1.0, Math.log(Math.max(2, n)) / Math.log(2.0)));
+        return (int) Math.max(1L, (long) Math.ceil(Math.log(1.0 - probability) / Math.log(1.0 - single)));
+    }
+
+    /* a single trial, with its own generator, keeping the best cut found so far */
+    private final class Trial implements Callable<Trial> {
+
+        final Random rand;
+        final ArrayList<int[]> maps = new ArrayList<>(); // from the nodes of each level to the ones of the next
+        double best = Double.POSITIVE_INFINITY;
+        boolean[] side = null;
+
+        Trial(long seed) {
+            rand = new Random(seed);
+        }
+
+        @Override
+        public Trial call() {
+            solve(n, new Edges(heads, tails, weights));
+            return this;
+        }
+
+        private void solve(int size, Edges edges) {
+            if (size <= BASE) {
+                enumerate(size, edges);
+                return;
+            }
+            int target = (int) Math.ceil(1.0 + size / Math.sqrt(2.0));
+            for (int repeat = 0; repeat < 2; ++repeat) {
+                int[] map = new int[size];
+                int reached = contract(size, edges, target, map);
+                maps.add(map);
+                solve(reached, merge(reached, edges.heads, edges.tails, edges.weights, edges.heads.length, map));
+                maps.remove(maps.size() - 1);
+            }
+        }
+
+        /* @return the number of components left, which is target for connected graphs */
+        private int contract(int size, Edges edges, int target, int[] map) {
+            int m = edges.heads.length;
+            long[] keys = new long[m];
+            for (int e = 0; e < m; ++e) {
+                float w = edges.weights[e];
+                float key = w > 0.0f ? (float) (-Math.log(1.0 - rand.nextDouble()) / w) : Float.POSITIVE_INFINITY;
+                keys[e] = ((long) Float.floatToIntBits(key) << 32) | e;
+            }
+            Arrays.sort(keys);
+
+            int[] parents = new int[size];
+            for (int u = 0; u < size; ++u) {
+                parents[u] = u;
+            }
+            int components = size;
+            for (int i = 0; i < m && components > target; ++i) {
+                int e = (int) keys[i];
+                int a = find(parents, edges.heads[e]), b = find(parents, edges.tails[e]);
+                if (a != b) {
+                    parents[a] = b;
+                    --components;
+                }
+            }
+
+            int[] ids = new int[size];
+            Arrays.fill(ids, -1);
+            int count = 0;
+            for (int u = 0; u < size; ++u) {
+                int root = find(parents, u);
+                if (ids[root] < 0) {
+                    ids[root] = count++;
+                }
+                map[u] = ids[root];
+            }
+            return count;
+        }
+
+        private void enumerate(int size, Edges edges) {
+            if (size < 2) {
+                return;
+            }
+            /* the last node stays on the other side, so that each cut is met once */
+            for (int mask = 1; mask < (1 << (size - 1)); ++mask) {
+                double value = 0.0;
+                for (int e = 0; e < edges.heads.length; ++e) {
+                    if (((mask >>> edges.heads[e]) & 1) != ((mask >>> edges.tails[e]) & 1)) {
+                        value += edges.weights[e];
+                    }
+                }
+                if (value < best) {
+                    best = value;
+                    side = new boolean[n];
+                    for (int u = 0; u < n; ++u) {
+                        int id = u;
+                        for (int[] map : maps) {
+                            id = map[id];
+                        }
+                        side[u] = ((mask >>> id) & 1) != 0;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int find(int[] parents, int u) {
+        while (parents[u] != u) {
+            parents[u] = parents[parents[u]];
+            u = parents[u];
+        }
+        return u;
+    }
+
+    public Cut<NodeT> kargerStein(double probability) {
+        return kargerStein(trialsFor(n, probability), System.nanoTime(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs the given number of independent trials, seeded by consecutive
+     * numbers from the given one, with the given number of threads.
+     * @return the least cut found; of zero value, along with the nodes of a
+     * single component, if the graph is disconnected.
+     */
+    public Cut<NodeT> kargerStein(int trials, long seed, int threads) {
+        long startTime = System.nanoTime();
+        if (n < 2) {
+            return new Cut<>(Float.NaN, new ArrayList<NodeT>());
+        }
+
+        int[] labels = ConnectedComponents.weak(graph, 1);
+        if (ConnectedComponents.count(labels) > 1) {
+            ArrayList<NodeT> side = new ArrayList<>();
+            for (int u = 0; u < n; ++u) {
+                if (labels[u] == 0) {
+                    side.add(graph.getNode(u));
+                }
+            }
+            return new Cut<>(0.0f, side);
+        }
+
+        ArrayList<Trial> tasks = new ArrayList<>(trials);
+        for (int i = 0; i < trials; ++i) {
+            tasks.add(new Trial(seed + i));
+        }
+        Trial best = null;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            for (Future<Trial> result : pool.invokeAll(tasks)) {
+                Trial trial = result.get();
+                if (best == null || trial.best < best.best) {
+                    best = trial;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("\n!! ERROR - Karger-Stein trials were interrupted: " + e.getMessage() + " !!");
+        } finally {
+            pool.shutdown();
+        }
+
+        ArrayList<NodeT> side = new ArrayList<>();
+        for (int u = 0; u < n; ++u) {
+            if (best.side[u]) {
+                side.add(graph.getNode(u));
+            }
+        }
+        Cut<NodeT> cut = new Cut<>((float) best.best, side);
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Karger-Stein found a " + cut + " in " + trials
+                + " trials with " + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return cut;
+    }
+
+    /**
+     * Compares Karger-Stein against repeated single contractions of
+     * Graph.karger on two random cliques joined by a few light edges;
+     * use as: MinCut [nodes per clique] [probability] [threads]
+     */
+    public static void main(String[] args) {
+        int half = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        double probability = args.length > 1 ? Double.parseDouble(args[1]) : 0.99;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Random rand = new Random(7);
+        Graph<Integer> graph = new UndirectedGraph<>();
+        for (int u = 0; u < 2 * half; ++u) {
+            for (int v = u + 1; v < 2 * half; ++v) {
+                if (u / half == v / half && rand.nextFloat() < 0.5f) {
+                    graph.setEdge(u, v, 1.0f + rand.nextFloat());
+                }
+            }
+        }
+        float expected = 0.0f;
+        for (int i = 0; i < 3; ++i) {
+            graph.setEdge(rand.nextInt(half), half + rand.nextInt(half), 0.5f);
+            expected += 0.5f;
+        }
+
+        MinCut<Integer> engine = new MinCut<>(graph);
+        int trials = trialsFor(engine.numberNodes(), probability);
+        long startTime = System.nanoTime();
+        Cut<Integer> cut = engine.kargerStein(trials, 7L, threads);
+        long steinTime = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        float karger = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < trials; ++i) {
+            karger = Math.min(karger, graph.karger());
+        }
+        long kargerTime = System.nanoTime() - startTime;
+
+        System.out.println("** planted cut of " + expected + "; Karger-Stein found " + cut + " in " + steinTime / Math.pow(10, 9)
+                + " secs, " + trials + " runs of Graph.karger found " + karger + " in " + kargerTime / Math.pow(10, 9) + " secs.");
+    }
+}
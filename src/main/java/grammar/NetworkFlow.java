@@ -19,13 +19,18 @@
 package grammar;
 
 import java.util.Stack;
+import java.util.ArrayList;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.PriorityQueue;
 
 public class NetworkFlow<NodeT> {
     private final DirectedGraph<NodeT> network = new DirectedGraph<>();
-    private final DirectedGraph<NodeT> flows = new DirectedGraph<>();
+    private DirectedGraph<NodeT> flows = new DirectedGraph<>();
+
+    /* residual network left by the last max-flow engine run, and its terminals */
+    private FlowNetwork<NodeT> residual = null;
+    private NodeT residualSource = null, residualTarget = null;
 
     public NetworkFlow () {}
     
@@ -35,6 +40,7 @@ public class NetworkFlow<NodeT> {
         Float flow = flows.getEdgeWeight(from, to);
         if (flow.equals(Float.NaN) || capacity >= flow) {
             network.setEdge (from, to, capacity);
+            residual = null;
             return true;
         }else return false;
     }
@@ -189,8 +195,77 @@ public class NetworkFlow<NodeT> {
         return value;
     }
 
+    /**
+     * Dinic's algorithm with level graphs and current-arc pointers, upon a
+     * compact residual network of the pipes. Previous flows are discarded
+     * and replaced by the ones of the maximum flow.
+     * @param source, the node where the flow starts from.
+     * @param target, the node where the flow finishes.
+     * @return the value of the maximum flow.
+     */
+    public Float dinic (NodeT source, NodeT target) {
+        return maxFlow (source, target, true);
+    }
+
+    /**
+     * Highest-label push-relabel with global relabeling and the gap
+     * heuristic, upon a compact residual network of the pipes. Previous
+     * flows are discarded and replaced by the ones of the maximum flow.
+     * @param source, the node where the flow starts from.
+     * @param target, the node where the flow finishes.
+     * @return the value of the maximum flow.
+     */
+    public Float pushRelabel (NodeT source, NodeT target) {
+        return maxFlow (source, target, false);
+    }
+
+    private Float maxFlow (NodeT source, NodeT target, boolean dinic) {
+        if (source.equals(target))
+            throw new RuntimeException ("\n!! ERROR - Source and target of the flow should differ !!");
+
+        CsrGraph<NodeT> pipes = network.freeze();
+        int s = pipes.indexOf(source), t = pipes.indexOf(target);
+        flows = new DirectedGraph<>();
+        residual = null;
+        if (s<0 || t<0) return 0.0f;
+
+        FlowNetwork<NodeT> engine = new FlowNetwork<>(pipes);
+        double value = dinic ? engine.dinic(s,t) : engine.pushRelabel(s,t);
+        for (int u=0; u<pipes.numberNodes(); ++u)
+            for (int arc=pipes.firstOut(u); arc<pipes.endOut(u); ++arc) {
+                double flow = engine.flow(arc);
+                if (flow>0.0) flows.setEdge (pipes.getNode(u), pipes.getNode(pipes.target(arc)), (float) flow);
+            }
+
+        residual = engine;
+        residualSource = source;
+        residualTarget = target;
+        return (float) value;
+    }
+
+    /**
+     * Reads the minimum cut off the residual network of the maximum flow,
+     * which is computed with push-relabel unless the last engine run was
+     * for the same terminals and no pipe has changed since.
+     * @return the pipes from the nodes that cannot reach the target in the
+     * residual network to the ones that can; their capacities add up to the
+     * value of the maximum flow.
+     */
     public Collection<Edge<NodeT>> minCutEdges (NodeT source, NodeT target) {
-        return null;
+        if (residual==null || !source.equals(residualSource) || !target.equals(residualTarget))
+            pushRelabel (source, target);
+
+        ArrayList<Edge<NodeT>> cut = new ArrayList<>();
+        if (residual==null) return cut;
+
+        CsrGraph<NodeT> pipes = residual.pipes;
+        boolean[] side = residual.sourceSide(pipes.indexOf(target));
+        for (int u=0; u<pipes.numberNodes(); ++u)
+            if (side[u])
+                for (int arc=pipes.firstOut(u); arc<pipes.endOut(u); ++arc)
+                    if (!side[pipes.target(arc)])
+                        cut.add (new Edge<>(pipes.getNode(u), pipes.getNode(pipes.target(arc)), pipes.weight(arc)));
+        return cut;
     }
 
     public static void main (String[] args) {
@@ -256,6 +331,10 @@ public class NetworkFlow<NodeT> {
         Float flow = nf.fulkerson (0,7);
         System.out.println("!! Ford-Fulkerson's algorithm increments value by " + flow + " units !!");
 
+        System.out.println("!! Dinic's algorithm finds a maximum flow of " + nf.dinic(0,7) + " units !!");
+        System.out.println("!! Push-relabel finds a maximum flow of " + nf.pushRelabel(0,7) + " units !!");
+        System.out.println("!! Minimum cut: " + nf.minCutEdges(0,7) + " !!");
+
         System.out.println ("!! Done processing demo network flow !!");
     }
 }
@@ -0,0 +1,66 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.HashMap;
+import java.util.ArrayList;
+
+/**
+ * Numbers nodes in the order they are discovered, for searches that key the
+ * int-indexed {@link IndexMinPQ} by node.
+ */
+final class NodeIndex<NodeT> {
+
+    private final HashMap<NodeT, Integer> index = new HashMap<>();
+    private final ArrayList<NodeT> nodes = new ArrayList<>();
+
+    /**
+     * @return the number of the node, assigning the next free one to nodes
+     * never seen before.
+     */
+    public int get(NodeT u) {
+        Integer i = index.get(u);
+        if (i == null) {
+            i = nodes.size();
+            index.put(u, i);
+            nodes.add(u);
+        }
+        return i;
+    }
+
+    /**
+     * @return the number of the node, or -1 if it has not been numbered.
+     */
+    public int find(NodeT u) {
+        Integer i = index.get(u);
+        return i == null ? -1 : i;
+    }
+
+    public NodeT node(int i) {
+        return nodes.get(i);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public void clear() {
+        index.clear();
+        nodes.clear();
+    }
+}
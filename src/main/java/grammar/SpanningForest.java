@@ -0,0 +1,439 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Minimum spanning forests of undirected graphs over primitive edge arrays,
+ * drawn from the CSR snapshot of a graph; edges are referred to by index.
+ * Ties among equal weights are broken by index, so that all edges are
+ * totally ordered and the minimum spanning forest is unique.
+ * <p>
+ * Boruvka's algorithm selects the lightest edge leaving every component in
+ * parallel, each component keeping its best edge in an atomic array updated
+ * through compare-and-set, merges the components along the selected edges,
+ * and drops the edges that fall within a component before the next round.
+ * Filter-Kruskal partitions the edges around a pivot weight like quicksort,
+ * solves the lighter part first and then filters out of the heavier part the
+ * edges whose ends are already connected, so that most heavy edges are never
+ * sorted at all.
+ */
+public final class SpanningForest<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(SpanningForest.class);
+
+    /* edges below which filter-Kruskal sorts instead of partitioning */
+    private static final int KRUSKAL_THRESHOLD = 1024;
+
+    private final CsrGraph<NodeT> graph;
+
+    /* one entry per undirected edge, u < v; self-loops are dropped */
+    private final int[] heads;
+    private final int[] tails;
+    private final float[] weights;
+
+    public SpanningForest(UndirectedGraph<NodeT> graph) {
+        this(graph.freeze());
+    }
+
+    public SpanningForest(CsrGraph<NodeT> graph) {
+        if (graph.isDirected()) {
+            throw new RuntimeException("\n!! ERROR - Minimum spanning forests are computed for undirected graphs only !!");
+        }
+        this.graph = graph;
+
+        int n = graph.numberNodes(), m = 0;
+        for (int u = 0; u < n; ++u) {
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                if (graph.targets[arc] > u) {
+                    ++m;
+                }
+            }
+        }
+        heads = new int[m];
+        tails = new int[m];
+        weights = new float[m];
+        m = 0;
+        for (int u = 0; u < n; ++u) {
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                if (graph.targets[arc] > u) {
+                    heads[m] = u;
+                    tails[m] = graph.targets[arc];
+                    weights[m++] = graph.weights[arc];
+                }
+            }
+        }
+    }
+
+    public int numberEdges() {
+        return heads.length;
+    }
+
+    /**
+     * @return the total weight of the given edges.
+     */
+    public double cost(int[] forest) {
+        double cost = 0.0;
+        for (int e : forest) {
+            cost += weights[e];
+        }
+        return cost;
+    }
+
+    /**
+     * @return a graph of the given edges, along with the nodes of the
+     * snapshot that none of them is incident to.
+     */
+    public UndirectedGraph<NodeT> toGraph(int[] forest) {
+        GraphBuilder<NodeT> builder = new GraphBuilder<>(forest.length);
+        for (int e : forest) {
+            builder.add(graph.getNode(heads[e]), graph.getNode(tails[e]), weights[e]);
+        }
+        UndirectedGraph<NodeT> result = new UndirectedGraph<>();
+        result.setEdges(builder);
+        for (NodeT u : graph.getNodes()) {
+            if (!result.containsNode(u)) {
+                result.addNode(u);
+            }
+        }
+        return result;
+    }
+
+    /* whether edge e precedes edge f in the total order of weights and indices */
+    private boolean lighter(int e, int f) {
+        return weights[e] < weights[f] || (weights[e] == weights[f] && e < f);
+    }
+
+    private static int find(int[] parents, int u) {
+        while (parents[u] != u) {
+            parents[u] = parents[parents[u]];
+            u = parents[u];
+        }
+        return u;
+    }
+
+    /* union by rank, so that the depth of the trees stays logarithmic for the finds that do not compress */
+    private static boolean union(int[] parents, byte[] ranks, int u, int v) {
+        u = find(parents, u);
+        v = find(parents, v);
+        if (u == v) {
+            return false;
+        }
+        if (ranks[u] < ranks[v]) {
+            parents[u] = v;
+        } else if (ranks[u] > ranks[v]) {
+            parents[v] = u;
+        } else {
+            parents[v] = u;
+            ++ranks[u];
+        }
+        return true;
+    }
+
+    public int[] boruvka() {
+        return boruvka(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Boruvka's algorithm, with the lightest edges of the components selected
+     * in parallel by the given number of threads.
+     * @return the indices of the edges of the minimum spanning forest.
+     */
+    public int[] boruvka(int threads) {
+        long startTime = System.nanoTime();
+        final int n = graph.numberNodes();
+        final int[] parents = new int[n];
+        final byte[] ranks = new byte[n];
+        final int[] components = new int[n]; // the root of every node, as of the start of the round
+        for (int u = 0; u < n; ++u) {
+            parents[u] = components[u] = u;
+        }
+        final AtomicIntegerArray best = new AtomicIntegerArray(n);
+        for (int u = 0; u < n; ++u) {
+            best.set(u, -1);
+        }
+
+        final int[] alive = new int[heads.length];
+        for (int e = 0; e < alive.length; ++e) {
+            alive[e] = e;
+        }
+        int countAlive = alive.length, rounds = 0;
+        int[] forest = new int[Math.max(0, n - 1)];
+        int size = 0;
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            while (countAlive > 0) {
+                ++rounds;
+                final int count = countAlive;
+                final int chunks = count < KRUSKAL_THRESHOLD ? 1 : pool.getParallelism() << 2;
+                final int[] kept = new int[chunks];
+                ArrayList<Callable<Void>> tasks = new ArrayList<>(chunks);
+                for (int c = 0; c < chunks; ++c) {
+                    final int chunk = c, from = (int) ((long) count * c / chunks), to = (int) ((long) count * (c + 1) / chunks);
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            int pos = from;
+                            for (int i = from; i < to; ++i) {
+                                int e = alive[i], u = components[heads[e]], v = components[tails[e]];
+                                if (u != v) {
+                                    alive[pos++] = e;
+                                    offer(best, u, e);
+                                    offer(best, v, e);
+                                }
+                            }
+                            kept[chunk] = pos - from;
+                            return null;
+                        }
+                    });
+                }
+                invoke(pool, tasks);
+
+                /* close the gaps the chunks left behind */
+                countAlive = 0;
+                for (int c = 0; c < chunks; ++c) {
+                    int from = (int) ((long) count * c / chunks);
+                    System.arraycopy(alive, from, alive, countAlive, kept[c]);
+                    countAlive += kept[c];
+                }
+
+                for (int u = 0; u < n; ++u) {
+                    int e = best.get(u);
+                    if (e >= 0) {
+                        best.set(u, -1);
+                        if (union(parents, ranks, heads[e], tails[e])) {
+                            forest[size++] = e;
+                        }
+                    }
+                }
+
+                tasks.clear();
+                for (int c = 0; c < chunks; ++c) {
+                    final int from = (int) ((long) n * c / chunks), to = (int) ((long) n * (c + 1) / chunks);
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            for (int u = from; u < to; ++u) {
+                                int root = u;
+                                while (parents[root] != root) {
+                                    root = parents[root];
+                                }
+                                components[u] = root;
+                            }
+                            return null;
+                        }
+                    });
+                }
+                invoke(pool, tasks);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Boruvka's algorithm selected " + size + " out of "
+                + heads.length + " edges in " + rounds + " rounds with " + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return Arrays.copyOf(forest, size);
+    }
+
+    /* keeps edge e as the best one of component u, if lighter than the current one */
+    private void offer(AtomicIntegerArray best, int u, int e) {
+        for (;;) {
+            int current = best.get(u);
+            if (current >= 0 && !lighter(e, current)) {
+                return;
+            } else if (best.compareAndSet(u, current, e)) {
+                return;
+            }
+        }
+    }
+
+    private static void invoke(ForkJoinPool pool, ArrayList<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("\n!! ERROR - Boruvka's algorithm was interrupted: " + e.getMessage() + " !!");
+        }
+    }
+
+    /* keys whose signed order is the order of the weights and then of the indices of the edges */
+    private long key(int e) {
+        int bits = Float.floatToIntBits(weights[e]);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | e;
+    }
+
+    /**
+     * Filter-Kruskal.
+     * @return the indices of the edges of the minimum spanning forest.
+     */
+    public int[] filterKruskal() {
+        long startTime = System.nanoTime();
+        int n = graph.numberNodes();
+        long[] keys = new long[heads.length];
+        for (int e = 0; e < keys.length; ++e) {
+            keys[e] = key(e);
+        }
+        int[] parents = new int[n];
+        for (int u = 0; u < n; ++u) {
+            parents[u] = u;
+        }
+        Forest forest = new Forest(parents, new byte[n], Math.max(0, n - 1));
+        filterKruskal(keys, 0, keys.length, forest, new Random(keys.length));
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Filter-Kruskal selected " + forest.size + " out of "
+                + heads.length + " edges in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return Arrays.copyOf(forest.edges, forest.size);
+    }
+
+    private static final class Forest {
+
+        final int[] parents;
+        final byte[] ranks;
+        final int[] edges;
+        int size = 0;
+
+        Forest(int[] parents, byte[] ranks, int capacity) {
+            this.parents = parents;
+            this.ranks = ranks;
+            this.edges = new int[capacity];
+        }
+    }
+
+    private void filterKruskal(long[] keys, int from, int to, Forest forest, Random rand) {
+        while (to - from > KRUSKAL_THRESHOLD && forest.size < forest.edges.length) {
+            /* pivot is the median of a small sample */
+            long[] sample = new long[31];
+            for (int i = 0; i < sample.length; ++i) {
+                sample[i] = keys[from + rand.nextInt(to - from)];
+            }
+            Arrays.sort(sample);
+            long pivot = sample[sample.length >> 1];
+
+            int middle = from;
+            for (int i = from; i < to; ++i) {
+                if (keys[i] <= pivot) {
+                    long swap = keys[i];
+                    keys[i] = keys[middle];
+                    keys[middle++] = swap;
+                }
+            }
+            filterKruskal(keys, from, middle, forest, rand);
+
+            /* heavy edges within a component of the forest so far are never needed */
+            int kept = middle;
+            for (int i = middle; i < to; ++i) {
+                int e = (int) keys[i];
+                if (find(forest.parents, heads[e]) != find(forest.parents, tails[e])) {
+                    keys[kept++] = keys[i];
+                }
+            }
+            from = middle;
+            to = kept;
+        }
+
+        if (forest.size < forest.edges.length) {
+            Arrays.sort(keys, from, to);
+            for (int i = from; i < to && forest.size < forest.edges.length; ++i) {
+                int e = (int) keys[i];
+                if (union(forest.parents, forest.ranks, heads[e], tails[e])) {
+                    forest.edges[forest.size++] = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the engines against the ones of {@link UndirectedGraph} on a
+     * grid of random weights, like a road network, and on an Erdos-Renyi
+     * graph; use as: SpanningForest [side] [nodes] [average degree] [threads]
+     */
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int degree = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Random rand = new Random(7);
+        GraphBuilder<Integer> grid = new GraphBuilder<>(side * side * 2);
+        for (int i = 0; i < side; ++i) {
+            for (int j = 0; j < side; ++j) {
+                int u = i * side + j;
+                if (i + 1 < side) {
+                    grid.add(u, u + side, 1.0f + 9.0f * rand.nextFloat());
+                }
+                if (j + 1 < side) {
+                    grid.add(u, u + 1, 1.0f + 9.0f * rand.nextFloat());
+                }
+            }
+        }
+        GraphBuilder<Integer> random = new GraphBuilder<>(n * degree / 2);
+        for (long e = 0; e < (long) n * degree / 2; ++e) {
+            random.add(rand.nextInt(n), rand.nextInt(n), rand.nextFloat());
+        }
+
+        for (GraphBuilder<Integer> builder : Arrays.asList(grid, random)) {
+            UndirectedGraph<Integer> graph = new UndirectedGraph<>();
+            graph.setEdges(builder);
+            StringBuilder timings = new StringBuilder();
+
+            long startTime = System.nanoTime();
+            float cost = sum(graph.prim());
+            timings.append(String.format(" prim %.3f (%.1f)", (System.nanoTime() - startTime) / Math.pow(10, 9), cost));
+            startTime = System.nanoTime();
+            cost = sum(graph.kruskal());
+            timings.append(String.format(" kruskal %.3f (%.1f)", (System.nanoTime() - startTime) / Math.pow(10, 9), cost));
+            startTime = System.nanoTime();
+            cost = sum(graph.boruvka());
+            timings.append(String.format(" boruvka %.3f (%.1f)", (System.nanoTime() - startTime) / Math.pow(10, 9), cost));
+
+            startTime = System.nanoTime();
+            SpanningForest<Integer> engine = new SpanningForest<>(graph.freeze());
+            double parallel = engine.cost(engine.boruvka(threads));
+            timings.append(String.format(" parallel boruvka %.3f (%.1f)", (System.nanoTime() - startTime) / Math.pow(10, 9), parallel));
+            startTime = System.nanoTime();
+            engine = new SpanningForest<>(graph.freeze());
+            double filtered = engine.cost(engine.filterKruskal());
+            timings.append(String.format(" filter-kruskal %.3f (%.1f)", (System.nanoTime() - startTime) / Math.pow(10, 9), filtered));
+
+            System.out.println("** " + graph.numberNodes() + " nodes, " + graph.numberEdges() + " edges, secs (cost):" + timings);
+        }
+    }
+
+    private static float sum(Graph<Integer> forest) {
+        float cost = 0.0f;
+        for (Edge<Integer> edge : forest) {
+            cost += edge.weight;
+        }
+        return cost;
+    }
+}
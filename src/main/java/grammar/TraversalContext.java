@@ -0,0 +1,319 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.ArrayList;
+
+/**
+ * Scratch space of graph traversals on int-indexed nodes, meant to be reused
+ * by one traversal after the other: a visited bitmap, an int queue and an int
+ * stack, the latter with an int cursor per entry for traversals that resume
+ * the scan of a node's arcs, as postorder ones do.
+ * <p>
+ * The bitmap is never cleared as a whole. Every word of it is stamped with
+ * the traversal that wrote it last, and {@link #begin} only advances the
+ * current stamp, so that stale words read as empty and are zeroed lazily on
+ * their first write. Once grown to the size of the graph, a context serves
+ * any number of traversals without allocating.
+ * <p>
+ * For graphs whose nodes are not indexed, as are the ones kept in hash maps,
+ * the context also numbers the nodes in the order it first sees them; these
+ * numbers are kept across traversals, so later ones only look them up.
+ * <p>
+ * A context serves one traversal at a time and is not thread-safe. Graphs
+ * lend theirs out of a {@link Pool}, one per search in progress, so that
+ * nested and concurrent searches never share a context, and the numbering
+ * of the nodes goes away along with the graph.
+ */
+public final class TraversalContext<NodeT> {
+
+    /**
+     * Idle contexts of a single graph. A search acquires a context and
+     * releases it once done, typically in a finally block; a search that
+     * starts while another one holds the context, e.g. from a comparator
+     * callback, is given a context of its own.
+     */
+    public static final class Pool<NodeT> {
+
+        private final ArrayDeque<TraversalContext<NodeT>> idle = new ArrayDeque<>();
+
+        /**
+         * @param capacity the number of nodes of the graph, for contexts
+         * created anew.
+         * @return a context with a traversal begun.
+         */
+        public TraversalContext<NodeT> acquire(int capacity) {
+            TraversalContext<NodeT> context;
+            synchronized (idle) {
+                context = idle.poll();
+            }
+            if (context == null) {
+                context = new TraversalContext<>(capacity);
+            }
+            context.begin();
+            return context;
+        }
+
+        /**
+         * Takes the context back; its numbering is dropped once it has grown
+         * well beyond the nodes of the graph, as by nodes since removed.
+         */
+        public void release(TraversalContext<NodeT> context, int numberNodes) {
+            if (context.numberNodes() > 2 * numberNodes + 64) {
+                context.clear();
+            }
+            synchronized (idle) {
+                idle.push(context);
+            }
+        }
+    }
+
+    private long[] marked;
+    private int[] stamps;       // a word of the bitmap holds only if stamped by the current traversal
+    private int stamp = 1;
+    private int numberMarked = 0;
+
+    private int[] queue;
+    private int head = 0, tail = 0;
+
+    private int[] stack;
+    private int[] cursors;
+    private int top = 0;
+
+    private IndexMinPQ heap = null;
+
+    private final HashMap<NodeT, Integer> index = new HashMap<>();
+    private final ArrayList<NodeT> nodes = new ArrayList<>();
+
+    public TraversalContext() {
+        this(64);
+    }
+
+    /**
+     * @param capacity the number of nodes expected, so that the context does
+     * not have to grow during the first traversals.
+     */
+    public TraversalContext(int capacity) {
+        capacity = Math.max(capacity, 1);
+        marked = new long[((capacity - 1) >>> 6) + 1];
+        stamps = new int[marked.length];
+        queue = new int[capacity];
+        stack = new int[capacity];
+        cursors = new int[capacity];
+    }
+
+    /**
+     * Starts a new traversal, by unmarking all nodes in constant time and
+     * emptying the queue, the stack and the heap.
+     */
+    public void begin() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        numberMarked = 0;
+        head = tail = 0;
+        top = 0;
+        if (heap != null) {
+            heap.clear();
+        }
+    }
+
+    /**
+     * Starts a new traversal over nodes indexed from 0 to n-1, growing the
+     * bitmap at once rather than on demand.
+     */
+    public void begin(int n) {
+        begin();
+        if (n > marked.length << 6) {
+            grow(n - 1);
+        }
+    }
+
+    private void grow(int u) {
+        int words = Math.max((u >>> 6) + 1, marked.length << 1);
+        marked = Arrays.copyOf(marked, words);
+        stamps = Arrays.copyOf(stamps, words);
+    }
+
+    /**
+     * @return true if the node was not marked before within the current traversal.
+     */
+    public boolean mark(int u) {
+        int word = u >>> 6;
+        if (word >= marked.length) {
+            grow(u);
+        }
+        if (stamps[word] != stamp) {
+            stamps[word] = stamp;
+            marked[word] = 0L;
+        }
+        long bit = 1L << u;
+        if ((marked[word] & bit) != 0) {
+            return false;
+        }
+        marked[word] |= bit;
+        ++numberMarked;
+        return true;
+    }
+
+    public boolean isMarked(int u) {
+        int word = u >>> 6;
+        return word < marked.length && stamps[word] == stamp && (marked[word] & (1L << u)) != 0;
+    }
+
+    /**
+     * @return the number of nodes marked within the current traversal.
+     */
+    public int numberMarked() {
+        return numberMarked;
+    }
+
+    public void enqueue(int u) {
+        if (tail == queue.length) {
+            if (head > 0) {
+                System.arraycopy(queue, head, queue, 0, tail - head);
+                tail -= head;
+                head = 0;
+            } else {
+                queue = Arrays.copyOf(queue, queue.length << 1);
+            }
+        }
+        queue[tail++] = u;
+    }
+
+    public int dequeue() {
+        if (head == tail) {
+            throw new RuntimeException("\n!! ERROR - Traversal queue is empty !!");
+        }
+        return queue[head++];
+    }
+
+    public boolean isQueueEmpty() {
+        return head == tail;
+    }
+
+    public int queueSize() {
+        return tail - head;
+    }
+
+    public void push(int u) {
+        push(u, 0);
+    }
+
+    /**
+     * Pushes a node along with a cursor, typically the position of the next
+     * arc of the node to examine.
+     */
+    public void push(int u, int cursor) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top << 1);
+            cursors = Arrays.copyOf(cursors, top << 1);
+        }
+        cursors[top] = cursor;
+        stack[top++] = u;
+    }
+
+    public int pop() {
+        if (top == 0) {
+            throw new RuntimeException("\n!! ERROR - Traversal stack is empty !!");
+        }
+        return stack[--top];
+    }
+
+    public int peek() {
+        if (top == 0) {
+            throw new RuntimeException("\n!! ERROR - Traversal stack is empty !!");
+        }
+        return stack[top - 1];
+    }
+
+    /**
+     * @return the cursor of the node on top of the stack.
+     */
+    public int cursor() {
+        if (top == 0) {
+            throw new RuntimeException("\n!! ERROR - Traversal stack is empty !!");
+        }
+        return cursors[top - 1];
+    }
+
+    public void setCursor(int cursor) {
+        if (top == 0) {
+            throw new RuntimeException("\n!! ERROR - Traversal stack is empty !!");
+        }
+        cursors[top - 1] = cursor;
+    }
+
+    public boolean isStackEmpty() {
+        return top == 0;
+    }
+
+    public int stackSize() {
+        return top;
+    }
+
+    /**
+     * @return a heap keyed by node numbers, for best-first traversals; it
+     * is created upon the first call, as large as the bitmap.
+     */
+    public IndexMinPQ heap() {
+        if (heap == null) {
+            heap = new IndexMinPQ(marked.length << 6);
+        }
+        return heap;
+    }
+
+    /**
+     * @return the number of the node within this context, assigning the next
+     * free one to nodes never seen before.
+     */
+    public int indexOf(NodeT u) {
+        Integer i = index.get(u);
+        if (i == null) {
+            i = nodes.size();
+            index.put(u, i);
+            nodes.add(u);
+        }
+        return i;
+    }
+
+    public NodeT node(int i) {
+        return nodes.get(i);
+    }
+
+    /**
+     * @return the number of nodes numbered by the context so far.
+     */
+    public int numberNodes() {
+        return nodes.size();
+    }
+
+    /**
+     * Forgets the numbering of the nodes, e.g. before moving on to another
+     * graph, and starts a new traversal.
+     */
+    public void clear() {
+        index.clear();
+        nodes.clear();
+        begin();
+    }
+}
@@ -0,0 +1,448 @@
+/**
+ * The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit Copyright (C)
+ * 2014 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ * The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package grammar;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Triangle counting over the CSR snapshot of a graph. Every edge is oriented
+ * from the end of lower degree towards the one of higher degree, ties broken
+ * by index, so that each triangle is found exactly once from its lowest
+ * ranked node, by merging two sorted rows of the oriented graph, none of which
+ * has more than O(sqrt(m)) entries. Nodes are processed in parallel in ranges.
+ * <p>
+ * Triangles of undirected graphs are counted once each. In directed graphs
+ * the transitive triads u-&gt;v, v-&gt;w, u-&gt;w are counted instead, as many
+ * times as the triangle of their nodes contains such triads. Self-loops are
+ * ignored. For graphs too large for an exact count, {@link #estimate} samples
+ * paths of two edges uniformly at random and checks whether they are closed.
+ */
+public final class TriangleCounter<NodeT> {
+
+    private static final Logger logger = Logger.getLogger(TriangleCounter.class);
+
+    /* nodes per task, below which ranges are no longer split */
+    private static final int GRAIN = 1024;
+
+    /*
+     * Triangles of nodes (0,1,2) are described by six bits, two per pair of
+     * nodes (0,1), (0,2) and (1,2): the first one for the arc from the node
+     * of the lower position to the other one, the second one for the reverse.
+     * For each description the number of transitive triads and the number of
+     * them whose source is each of the three nodes are precomputed.
+     */
+    private static final int[] TRIADS = new int[64];
+    private static final int[][] SOURCES = new int[64][3];
+
+    static {
+        int[][] perms = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+        for (int mask = 0; mask < 64; ++mask) {
+            for (int[] p : perms) {
+                if (arc(mask, p[0], p[1]) && arc(mask, p[1], p[2]) && arc(mask, p[0], p[2])) {
+                    ++TRIADS[mask];
+                    ++SOURCES[mask][p[0]];
+                }
+            }
+        }
+    }
+
+    private static boolean arc(int mask, int from, int to) {
+        int pair = from + to - 1; // (0,1)->0, (0,2)->1, (1,2)->2
+        return (mask >>> (pair << 1) & (from < to ? 1 : 2)) != 0;
+    }
+
+    private final CsrGraph<NodeT> graph;
+
+    /* the oriented graph, built upon the first exact count */
+    private int[] offsets;
+    private int[] heads;
+    private byte[] masks; // bit 0 for the arc of the original graph along the orientation, bit 1 for the reverse one
+
+    private long triangles = -1L;
+    private long[] local;
+
+    public TriangleCounter(Graph<NodeT> graph) {
+        this(graph.freeze());
+    }
+
+    public TriangleCounter(CsrGraph<NodeT> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Merges the outgoing and the incoming arcs of node u, both sorted by
+     * index, into neighbors sorted by index along with the direction bits;
+     * @return the number of distinct neighbors besides u itself.
+     */
+    private int neighbors(int u, int[] into, byte[] bits) {
+        int i = graph.offsets[u], iend = graph.offsets[u + 1];
+        int j = graph.reverseOffsets[u], jend = graph.reverseOffsets[u + 1];
+        int count = 0;
+        while (i < iend || j < jend) {
+            int out = i < iend ? graph.targets[i] : Integer.MAX_VALUE;
+            int in = j < jend ? graph.sources[j] : Integer.MAX_VALUE;
+            int v = Math.min(out, in);
+            byte mask = 0;
+            if (out == v) {
+                mask |= 1;
+                ++i;
+            }
+            if (in == v) {
+                mask |= 2;
+                ++j;
+            }
+            if (v != u) {
+                if (into != null) {
+                    into[count] = v;
+                    bits[count] = mask;
+                }
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private void orient() {
+        long startTime = System.nanoTime();
+        int n = graph.numberNodes();
+        int[] degrees = new int[n];
+        int maxDegree = 0;
+        for (int u = 0; u < n; ++u) {
+            degrees[u] = neighbors(u, null, null);
+            maxDegree = Math.max(maxDegree, degrees[u]);
+        }
+
+        int[] row = new int[maxDegree];
+        byte[] bits = new byte[maxDegree];
+        offsets = new int[n + 1];
+        for (int u = 0; u < n; ++u) {
+            int count = neighbors(u, row, bits);
+            for (int k = 0; k < count; ++k) {
+                if (higher(degrees, u, row[k])) {
+                    ++offsets[u + 1];
+                }
+            }
+            offsets[u + 1] += offsets[u];
+        }
+
+        heads = new int[offsets[n]];
+        masks = new byte[offsets[n]];
+        for (int u = 0; u < n; ++u) {
+            int count = neighbors(u, row, bits), pos = offsets[u];
+            for (int k = 0; k < count; ++k) {
+                if (higher(degrees, u, row[k])) {
+                    heads[pos] = row[k];
+                    masks[pos++] = bits[k];
+                }
+            }
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Oriented " + heads.length
+                + " edges by degree in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+    }
+
+    private static boolean higher(int[] degrees, int u, int v) {
+        return degrees[v] > degrees[u] || (degrees[v] == degrees[u] && v > u);
+    }
+
+    /* counts the triangles of the lowest ranked nodes in [from,to) */
+    private final class Range extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+        private final AtomicLongArray counts;
+
+        Range(int from, int to, AtomicLongArray counts) {
+            this.from = from;
+            this.to = to;
+            this.counts = counts;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                Range left = new Range(from, middle, counts);
+                left.fork();
+                long right = new Range(middle, to, counts).compute();
+                return right + left.join();
+            }
+
+            boolean directed = graph.isDirected();
+            long sum = 0L;
+            for (int u = from; u < to; ++u) {
+                int ubegin = offsets[u], uend = offsets[u + 1];
+                for (int uv = ubegin; uv < uend; ++uv) {
+                    int v = heads[uv];
+                    int i = ubegin, j = offsets[v], jend = offsets[v + 1];
+                    while (i < uend && j < jend) {
+                        if (heads[i] < heads[j]) {
+                            ++i;
+                        } else if (heads[i] > heads[j]) {
+                            ++j;
+                        } else {
+                            int w = heads[i];
+                            if (directed) {
+                                int mask = masks[uv] | masks[i] << 2 | masks[j] << 4;
+                                sum += TRIADS[mask];
+                                if (TRIADS[mask] > 0) {
+                                    addTo(u, SOURCES[mask][0]);
+                                    addTo(v, SOURCES[mask][1]);
+                                    addTo(w, SOURCES[mask][2]);
+                                }
+                            } else {
+                                ++sum;
+                                addTo(u, 1);
+                                addTo(v, 1);
+                                addTo(w, 1);
+                            }
+                            ++i;
+                            ++j;
+                        }
+                    }
+                }
+            }
+            return sum;
+        }
+
+        private void addTo(int u, int count) {
+            if (count > 0) {
+                counts.addAndGet(u, count);
+            }
+        }
+    }
+
+    public long count() {
+        return count(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the number of triangles of an undirected graph, or of transitive
+     * triads of a directed one, counted with the given number of threads.
+     */
+    public synchronized long count(int threads) {
+        if (triangles >= 0L) {
+            return triangles;
+        }
+        if (offsets == null) {
+            orient();
+        }
+
+        long startTime = System.nanoTime();
+        int n = graph.numberNodes();
+        AtomicLongArray counts = new AtomicLongArray(n);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            triangles = pool.invoke(new Range(0, n, counts));
+        } finally {
+            pool.shutdown();
+        }
+        local = new long[n];
+        for (int u = 0; u < n; ++u) {
+            local[u] = counts.get(u);
+        }
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Counted " + triangles + " triangles with "
+                + threads + " threads in " + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return triangles;
+    }
+
+    /**
+     * @return for each node, indexed like the snapshot, the number of
+     * triangles it belongs to in an undirected graph, or the number of
+     * transitive triads it is the source of in a directed one.
+     */
+    public long[] localCounts() {
+        count();
+        return Arrays.copyOf(local, local.length);
+    }
+
+    /**
+     * @return for each node, indexed like the snapshot, the fraction of pairs
+     * of its (out-)neighbors that are linked themselves, or NaN if it has
+     * fewer than two of them.
+     */
+    public float[] localClusteringCoefficients() {
+        count();
+        int n = graph.numberNodes();
+        float[] coefficients = new float[n];
+        for (int u = 0; u < n; ++u) {
+            int degree = 0;
+            for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; ++arc) {
+                if (graph.targets[arc] != u) {
+                    ++degree;
+                }
+            }
+            long pairs = (long) degree * (degree - 1);
+            if (pairs == 0L) {
+                coefficients[u] = Float.NaN;
+            } else {
+                coefficients[u] = (graph.isDirected() ? local[u] : 2L * local[u]) / (float) pairs;
+            }
+        }
+        return coefficients;
+    }
+
+    /**
+     * Result of the sampling estimator; the true count lies within the bounds
+     * with at least the requested confidence, by Hoeffding's inequality.
+     */
+    public static final class Estimate {
+
+        public final long samples;
+        public final double confidence;
+        public final double closedFraction;
+        public final double triangles;
+        public final double lowerBound;
+        public final double upperBound;
+
+        Estimate(long samples, double confidence, double closedFraction, double triangles, double lowerBound, double upperBound) {
+            this.samples = samples;
+            this.confidence = confidence;
+            this.closedFraction = closedFraction;
+            this.triangles = triangles;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f in [%.1f, %.1f] with confidence %.3f over %d samples", triangles, lowerBound, upperBound, confidence, samples);
+        }
+    }
+
+    /**
+     * Estimates the count by sampling paths u-&gt;v-&gt;w of distinct nodes
+     * uniformly at random, through their middle nodes v drawn in proportion
+     * to their in-degree times their out-degree, and checking for arc u-&gt;w.
+     * Every triangle of an undirected graph closes six such paths, every
+     * triad of a directed one exactly one. Needs O(n) space besides the
+     * snapshot, whatever the number of triangles.
+     * @param samples number of closed or open paths sampled
+     * @param confidence probability that the true count lies within the bounds
+     */
+    public Estimate estimate(long samples, double confidence, long seed) {
+        if (samples <= 0L || confidence <= 0.0 || confidence >= 1.0) {
+            throw new IllegalArgumentException("\n!! ERROR - Positive number of samples and confidence in (0,1) are required !!");
+        }
+        long startTime = System.nanoTime();
+        int n = graph.numberNodes();
+
+        /* exact number of paths of distinct nodes, and cumulative weights of the middle nodes */
+        long[] cumulative = new long[n + 1];
+        long paths = 0L;
+        for (int v = 0; v < n; ++v) {
+            long in = graph.reverseOffsets[v + 1] - graph.reverseOffsets[v];
+            long out = graph.offsets[v + 1] - graph.offsets[v];
+            cumulative[v + 1] = cumulative[v] + in * out;
+
+            int i = graph.offsets[v], j = graph.reverseOffsets[v];
+            long loops = 0L, reciprocal = 0L;
+            while (i < graph.offsets[v + 1] && j < graph.reverseOffsets[v + 1]) {
+                if (graph.targets[i] < graph.sources[j]) {
+                    ++i;
+                } else if (graph.targets[i] > graph.sources[j]) {
+                    ++j;
+                } else {
+                    if (graph.targets[i] == v) {
+                        ++loops;
+                    } else {
+                        ++reciprocal;
+                    }
+                    ++i;
+                    ++j;
+                }
+            }
+            paths += (in - loops) * (out - loops) - reciprocal;
+        }
+
+        Random rand = new Random(seed);
+        long total = cumulative[n], closed = 0L, drawn = 0L;
+        if (paths > 0L) {
+            while (drawn < samples) {
+                long r = (long) (rand.nextDouble() * total);
+                int low = 0, high = n; // the first v with cumulative[v+1] > r
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (cumulative[middle + 1] > r) {
+                        high = middle;
+                    } else {
+                        low = middle + 1;
+                    }
+                }
+                int v = low;
+                int u = graph.sources[graph.reverseOffsets[v] + rand.nextInt(graph.reverseOffsets[v + 1] - graph.reverseOffsets[v])];
+                int w = graph.targets[graph.offsets[v] + rand.nextInt(graph.offsets[v + 1] - graph.offsets[v])];
+                if (u == v || w == v || u == w) {
+                    continue;
+                }
+                ++drawn;
+                if (Arrays.binarySearch(graph.targets, graph.offsets[u], graph.offsets[u + 1], w) >= 0) {
+                    ++closed;
+                }
+            }
+        }
+
+        double fraction = drawn > 0L ? closed / (double) drawn : 0.0;
+        double margin = Math.sqrt(Math.log(2.0 / (1.0 - confidence)) / (2.0 * samples));
+        double scale = paths / (graph.isDirected() ? 1.0 : 6.0);
+        Estimate estimate = new Estimate(samples, confidence, fraction, fraction * scale,
+                Math.max(0.0, fraction - margin) * scale, Math.min(1.0, fraction + margin) * scale);
+
+        long endTime = System.nanoTime();
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Estimated " + estimate + " in "
+                + (endTime - startTime) / Math.pow(10, 9) + " secs.");
+        return estimate;
+    }
+
+    /**
+     * Compares the exact count against the estimate on a random undirected
+     * graph; use as: TriangleCounter [nodes] [edges per node] [samples]
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int degree = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long samples = args.length > 2 ? Long.parseLong(args[2]) : 1000000L;
+
+        Random rand = new Random(7);
+        GraphBuilder<Integer> builder = new GraphBuilder<>(n * degree);
+        for (int u = 0; u < n; ++u) {
+            for (int i = 0; i < degree; ++i) {
+                /* preferential to nearby nodes, for a fair share of triangles */
+                int v = Math.abs(u + (int) (rand.nextGaussian() * degree * 4)) % n;
+                builder.add(u, v, 1.0f);
+            }
+        }
+        Graph<Integer> graph = new UndirectedGraph<>();
+        graph.setEdges(builder);
+
+        TriangleCounter<Integer> counter = new TriangleCounter<>(graph);
+        long exact = counter.count();
+        Estimate estimate = counter.estimate(samples, 0.99, 7L);
+        System.out.println("** " + exact + " triangles, estimated " + estimate);
+    }
+}
@@ -20,7 +20,6 @@ package grammar;
 
 import java.util.Stack;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Map.Entry;
 import java.util.Iterator;
@@ -53,6 +52,7 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
                 throw new IllegalArgumentException ("\n!! ERROR - Neither end of the edge should be null !!");
             Float previous = getEdgeWeight (from, to);
             if (!weight.equals(Float.NaN) && !previous.equals(weight)) {
+                modified(from,to,previous,weight);
 		if (previous.equals(Float.NaN)) {
                     if (weight<0) ++countNegativeWeightEdges;
                     if (from.equals(to)) ++countSelfLoops;
@@ -65,12 +65,13 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
                 }
 		matrix.set(from,to,weight);
 		matrix.set(to,from,weight);
-                resetCache();
             }
 	}
 
 	@Override
 	public boolean removeEdge (NodeT from, NodeT to) {
+		Float weight = getEdgeWeight (from, to);
+		if (!weight.equals(Float.NaN)) modified(from,to,weight,Float.NaN);
 		Float weightFromTo = matrix.remove (from, to);
 		Float weightToFrom = matrix.remove (to, from);
 		if (!weightFromTo.equals(weightToFrom))
@@ -82,7 +83,6 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
 				--countNegativeWeightEdges;
 			if (from.equals(to))
 				--countSelfLoops;
-                        resetCache();
 			return true;
 		}else return false;
 	}
@@ -92,13 +92,16 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
 		if (containsNode(u)) {
 			if (sinks.contains(u)) return sinks.remove(u);
 
+			/* cached distances first, while all edges are still in place */
+			modified(u);
+			cached.remove(u,u);
+
 			for (Entry<NodeT,Float> entry :  matrix.mat.get(u).entrySet()) {
 				assert (matrix.mat.get(entry.getKey()).containsKey(u));
                                 --countEdges;
                                 if (entry.getKey().equals(u)) --countSelfLoops;
 				if (matrix.mat.get(entry.getKey()).remove(u).compareTo(0.0f)<0)
 					--countNegativeWeightEdges;
-                                resetCache();
 			}
 			matrix.mat.get(u).clear();
 			matrix.mat.remove(u);
@@ -117,11 +120,12 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
                 v = swap;
             }
             */
+            /* one structural update: the cache is dropped once, rather than repaired per moved edge */
+            modified();
             for (Edge<NodeT> edge : getEdgesFrom(v)) {
                 if (!edge.to.equals(u)) {
                     if (containsEdge(u,edge.to)) setEdge(u,edge.to,getEdgeWeight(u,edge.to)+edge.weight);
                     else setEdge(u,edge.to,edge.weight);
-                    resetCache();
                 }
             }
             removeNode(v);
@@ -135,6 +139,8 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
 				result.add (new Edge<>(entry.getKey(),to,entry.getValue()));
 		return result;
 	}
+	@Override
+	public EdgeCursor<NodeT> getEdgesTo (NodeT to, EdgeCursor<NodeT> cursor) {return cursor.reset(to,matrix.mat.get(to),false);}
 	public boolean hasEdges (NodeT u) {return matrix.mat.containsKey(u) && !matrix.mat.get(u).isEmpty();}
 	public int getDegree (NodeT u) {return matrix.mat.containsKey(u)?matrix.mat.get(u).size():0;}
         @Override public int getInDegree (NodeT u) {return getDegree(u);}
@@ -183,13 +189,6 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
 		return triples;
 	}
 
-	@Override
-	public long numberTriangles () {
-		long triangles=super.numberTriangles();
-		assert (triangles%6L==0L);
-		return triangles/6L;
-	}
-
         @Override
         public boolean containsCycles () {
             BitsetSparse<NodeT> marked = new BitsetSparse<>();
@@ -284,63 +283,29 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
 	}
 */
 	/**
-	 * Computes the weakly connected components of the graph.
-	 * @return The number of weakly connected components in the graph.
+	 * Computes the connected components of the graph.
+	 * @return The number of connected components in the graph.
 	 */
         @Override
 	public int numberConnectedComponents () {
                 if (isEmpty()) return 0;
-                if (getActiveNodesShallowCopy().isEmpty()) return sinks.size();
-		BitsetSparse<NodeT> marked = new BitsetSparse<>();
-		Stack<NodeT> stack = new Stack<>();
-		int counter = 0;
-		for (NodeT u : getActiveNodesShallowCopy()) {
-			if (!marked.get(u)) {
-				marked.set(u);
-				stack.push(u);
-				while (!stack.isEmpty()) {
-					NodeT v = stack.pop();
-					for (NodeT w : getNeighbors(v)) {
-						if (!marked.get(w)) {
-							marked.set(w);
-							stack.push(w);
-						}
-					}
-				}
-				++counter;
-			}
-		}
-		return counter + sinks.size();
+		return ConnectedComponents.count(ConnectedComponents.weak(freeze()));
 	}
 
 	/**
-	 * Computes the weakly connected components of the graph.
-	 * @return A mapping of each node to the component it beIntegers.
+	 * Computes the connected components of the graph, in parallel by a
+	 * union-find upon a snapshot of it.
+	 * @return A mapping of each node to the component it belongs.
 	 */
 	@Override
 	public Map<NodeT,Integer> getConnectedComponents () {
-		Map<NodeT,Integer> components = new TreeMap<>();
-		Stack<NodeT> stack = new Stack<>();
-		int counterid = 0;
-		for (NodeT u : getActiveNodesShallowCopy()) {
-			if (!components.containsKey(u)) {
-				components.put(u,counterid);
-				stack.push(u);
-				while (!stack.isEmpty()) {
-					NodeT v = stack.pop();
-					for (NodeT w : getNeighbors(v)) {
-						if (!components.containsKey(w)) {
-							components.put(w,counterid);
-							stack.push(w);
-						}
-					}
-				}
-				++counterid;
-			}
-		}
-		for (NodeT v : sinks) 
-			components.put(v,counterid++);
-		return components;
+		CsrGraph<NodeT> frozen = freeze();
+		return ConnectedComponents.toMap(frozen,ConnectedComponents.weak(frozen));
+	}
+
+	@Override
+	public int[] getComponentLabels (CsrGraph<NodeT> frozen) {
+		return ConnectedComponents.weak(frozen);
 	}
 
 	public UndirectedGraph<NodeT> kruskal () {
@@ -437,6 +402,25 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
             return mst;
         }
 
+	/**
+	 * Boruvka's algorithm upon primitive edge arrays of a snapshot of the
+	 * graph, with the lightest edges of the components selected in parallel.
+	 * @return The minimum spanning forest of the graph.
+	 */
+	public UndirectedGraph<NodeT> parallelBoruvka () {
+		SpanningForest<NodeT> engine = new SpanningForest<>(freeze());
+		return engine.toGraph(engine.boruvka());
+	}
+
+	/**
+	 * Filter-Kruskal upon primitive edge arrays of a snapshot of the graph.
+	 * @return The minimum spanning forest of the graph.
+	 */
+	public UndirectedGraph<NodeT> filterKruskal () {
+		SpanningForest<NodeT> engine = new SpanningForest<>(freeze());
+		return engine.toGraph(engine.filterKruskal());
+	}
+
 	private class GraphEdgesIterable  implements Iterator<Edge<NodeT>>, Iterable<Edge<NodeT>> {
 		private final TreeSet<NodeT> processedNodes = new TreeSet<>();
 		private final Iterator<NodeT> nodesIterator = matrix.mat.keySet().iterator();
@@ -489,13 +473,15 @@ public final class UndirectedGraph<NodeT> extends Graph<NodeT> {
 		sinks.addAll (getActiveNodesShallowCopy());
 		TreeSet<NodeT> allNodes = new TreeSet<>(sinks);
 		matrix.clear();
+		GraphBuilder<NodeT> edges = new GraphBuilder<>((int) Math.min(Integer.MAX_VALUE-8,(long)(p*allNodes.size()*allNodes.size()/2)));
 		for (NodeT u : allNodes) {
 			for (NodeT v : allNodes) {
 				if (u.equals(v)) break;
 				if (Math.random()<p) 
-					setEdge (u,v,weight);
+					edges.add (u,v,weight);
 			}
 		}
+		setEdges (edges);
 	}
 
 	@Override
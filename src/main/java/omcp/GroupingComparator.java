@@ -4,6 +4,8 @@ package omcp;
 import oscp.Group;
 import grammar.Graph;
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 
 abstract public class GroupingComparator<NodeT> {
@@ -11,6 +13,7 @@ abstract public class GroupingComparator<NodeT> {
     final protected Graph<NodeT> graph;
     final protected HashMap<Group<NodeT>,Float> locache = new HashMap<>();
     final protected HashMap<Group<NodeT>,Float> hicache = new HashMap<>();
+    final protected HashMap<NodeT,HashMap<NodeT,Float>> distances = new HashMap<>();
 
     final public Comparator<Group<NodeT>> BYLOWERBOUND = new LowerBoundsComparator();
     final public Comparator<Group<NodeT>> BYUPPERBOUND = new UpperBoundsComparator();
@@ -21,6 +24,25 @@ abstract public class GroupingComparator<NodeT> {
 
     public GroupingComparator (Graph<NodeT> network) {graph=network;}
 
+    /* Fills the distances from the sources to the targets, e.g. from the travelers to candidate
+     * meeting locations, out of one many-to-many distance table rather than a search per pair */
+    public void prefetch (Collection<NodeT> sources,Collection<NodeT> targets) {
+        ArrayList<NodeT> rows = new ArrayList<>(sources), columns = new ArrayList<>(targets);
+        float[][] table = graph.distanceTable(rows,columns);
+        for (int i=0; i<rows.size(); ++i) {
+            HashMap<NodeT,Float> row = distances.get(rows.get(i));
+            if (row==null) distances.put(rows.get(i),row=new HashMap<>());
+            for (int j=0; j<columns.size(); ++j) row.put(columns.get(j),table[i][j]);
+        }
+    }
+
+    /* network distance, out of the prefetched ones when there */
+    protected float distance (NodeT from,NodeT to) {
+        HashMap<NodeT,Float> row = distances.get(from);
+        Float dist = row==null?null:row.get(to);
+        return dist==null?graph.getPathCost(from,to):dist;
+    }
+
     private class LowerBoundsComparator implements Comparator<Group<NodeT>> {
         @Override
         public int compare (Group<NodeT> x, Group<NodeT> y) {
@@ -66,7 +66,7 @@ final public class GroupingComparatorMinMax<NodeT> extends GroupingComparator<No
                 Group<NodeT> previous = traveler;
                 for (Group<NodeT> meetup : path)
                     if (meetup.getTarget()!=null)
-                        tscore += weight * graph.getPathCost(previous.getTarget(),meetup.getTarget());
+                        tscore += weight * distance(previous.getTarget(),meetup.getTarget());
                     else return Float.MAX_VALUE;
                 if (tscore>score) score = tscore;
             }
@@ -48,7 +48,7 @@ final public class GroupingComparatorMinSum<NodeT> extends GroupingComparator<No
                         throw new RuntimeException("!! ERROR - Nulled lambda value for self-subgroup containment !!");
                     }
                     float lambda = subgroup.getLambdas().get(subgroup);
-                    float pathCost = graph.getPathCost(subgroup.getTarget(), group.getTarget());
+                    float pathCost = distance(subgroup.getTarget(), group.getTarget());
                     score += lambda * pathCost;
                 }else return Float.MAX_VALUE;
             }
@@ -71,7 +71,7 @@ final public class GroupingComparatorMinSum<NodeT> extends GroupingComparator<No
                     relaxation *= over.getLambdas().get(under);
                 score += computeScore (over);
                 if (group.getTarget()!=null)
-                    score += relaxation * graph.getPathCost (over.getTarget(),group.getTarget());
+                    score += relaxation * distance (over.getTarget(),group.getTarget());
                 else return Float.MAX_VALUE;
             }
             locache.put(group, score);
@@ -20,10 +20,11 @@ package oscp;
 
 import shortestpath.ScatterMap;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.ArrayList;
 import grammar.MinPQ;
-import grammar.Edge;
+import grammar.EdgeCursor;
 import grammar.Graph;
+import grammar.TraversalContext;
 import grammar.UndirectedGraph;
 
 final public class ComputeBnBMeetingLocation {
@@ -38,30 +39,36 @@ final public class ComputeBnBMeetingLocation {
         return compute (group,graph,null,cmp);
     }
     public static<NodeT> NodeT compute (Group<NodeT> group,Graph<NodeT> graph,ScatterMap<NodeT> map,Comparator<NodeT> cmp) {
-        HashSet<NodeT> marked = new HashSet<>();
         MinPQ<NodeT> queue = new MinPQ<>(cmp);
+        EdgeCursor<NodeT> edges = new EdgeCursor<>();
+        ArrayList<NodeT> batch = new ArrayList<>();
 
         NodeT mu = map==null?group.getTarget():ComputeEuclideanMeetingLocation.compute (group,graph,map);
 
-        marked.add(mu);
-        queue.insert(mu);
-        while (!queue.isEmpty()) {
-            NodeT top = queue.delMin();
-            for (Edge<NodeT> e : graph.getEdgesTo(top)) {
-                NodeT u = e.from;
-                if (!marked.contains(u)) {
-                    marked.add(u);
-                    if (cmp.compare(u,top)<=0) {
-                        queue.insert(u);
+        TraversalContext<NodeT> context = graph.acquireTraversalContext(); // marks the nodes, reused from query to query
+        try {
+            context.mark(context.indexOf(mu));
+            queue.insert(mu);
+            while (!queue.isEmpty()) {
+                NodeT top = queue.delMin();
+                SearchConnectingLocation.prefetch (cmp,graph,top,context,edges,batch);
+                for (graph.getEdgesTo(top,edges); edges.next(); ) {
+                    NodeT u = edges.from();
+                    if (context.mark(context.indexOf(u))) {
+                        if (cmp.compare(u,top)<=0) {
+                            queue.insert(u);
+                        }
                     }
                 }
-            }
-            if (cmp.compare(top, mu)<0) mu = top;
+                if (cmp.compare(top, mu)<0) mu = top;
 
-            if (marked.size()>maxSetSize) maxSetSize = marked.size();
-            if (queue.size()>maxHeapSize) maxHeapSize = queue.size();
+                if (context.numberMarked()>maxSetSize) maxSetSize = context.numberMarked();
+                if (queue.size()>maxHeapSize) maxHeapSize = queue.size();
+            }
+            return mu;
+        } finally {
+            graph.releaseTraversalContext(context);
         }
-        return mu;
     }
 
     public static void main (String[] args) {
@@ -20,6 +20,9 @@ package oscp;
 
 import shortestpath.ShortestPath;
 import java.util.Comparator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import grammar.Graph;
@@ -95,6 +98,31 @@ final public class LocationComparatorMinMax<NodeT> implements Comparator<NodeT>
         return true;
     }
 
+    /* Scores at once the candidates not scored yet, out of many-to-many distance tables
+     * rather than a point-to-point search per pair; the legs of the travelers go through
+     * the shortest path oracle instead, when the comparator is given one */
+    public void prefetch (Collection<NodeT> candidates) {
+        ArrayList<NodeT> locations = new ArrayList<>();
+        for (NodeT u : candidates) if (!cache.containsKey(u)) locations.add(u);
+        if (locations.isEmpty()) return;
+        ArrayList<NodeT> travelers = new ArrayList<>();
+        for (Group<NodeT> group : grouping.getSubgroups()) travelers.add(group.getTarget());
+
+        float[][] fromTravelers = sp==null?graph.distanceTable(travelers,locations,true):null;
+        float[][] toTarget = graph.distanceTable(locations,Collections.singleton(target),true);
+        for (int j=0; j<locations.size(); ++j) {
+            float score = 0.0f;
+            for (int i=0; i<travelers.size(); ++i) {
+                Group<NodeT> group = grouping.getSubgroups().get(i);
+                float leg = sp==null?fromTravelers[i][j]:sp.getPathCost(travelers.get(i),locations.get(j));
+                float newscore = group.getLambdas().get(group) * leg;
+                if (newscore > score) score = newscore;
+            }
+            score += relaxation * toTarget[j][0];
+            cache.put(locations.get(j), score);
+        }
+    }
+
     public float computeScore (NodeT u) {
         if (cache.containsKey(u)) {
             return cache.get(u);
@@ -18,13 +18,12 @@
 
 package oscp;
 
-import grammar.MinPQ;
-import grammar.Edge;
+import grammar.IndexMinPQ;
+import grammar.EdgeCursor;
 import grammar.Graph;
-import java.util.Stack;
-import java.util.TreeSet;
-import java.util.ArrayDeque;
+import grammar.TraversalContext;
 import java.util.Comparator;
+import java.util.ArrayList;
 
 /**
  * Baseline search method for the Optimum Connecting Point problem
@@ -48,76 +47,123 @@ public class SearchConnectingLocation {
         }
     }
 
+    /* the searches below run on a traversal context lent by the graph, which
+     * numbers the nodes and is reused from query to query, and read the
+     * incoming edges of each node by a cursor rather than edge objects */
+
     public static<NodeT> NodeT DFS (Group<NodeT> grouping,Graph<NodeT> graph,Comparator<NodeT> cmp) {
-        TreeSet<NodeT> marked = new TreeSet<>();
-        Stack<NodeT> stack = new Stack<>();
-        marked.add (grouping.getTarget());
-        stack.push (grouping.getTarget());
+        TraversalContext<NodeT> context = graph.acquireTraversalContext();
+        try {return DFS (grouping,graph,cmp,context);}
+        finally {graph.releaseTraversalContext(context);}
+    }
+    private static<NodeT> NodeT DFS (Group<NodeT> grouping,Graph<NodeT> graph,Comparator<NodeT> cmp,TraversalContext<NodeT> context) {
+        int target = context.indexOf(grouping.getTarget());
+        context.mark (target);
+        context.push (target);
+        EdgeCursor<NodeT> edges = new EdgeCursor<>();
+        ArrayList<NodeT> batch = new ArrayList<>();
         NodeT mu = null;
-        while (!stack.isEmpty()) {
-            NodeT top = stack.pop();
+        while (!context.isStackEmpty()) {
+            NodeT top = context.node(context.pop());
             if (cmp.compare(top,mu)<0) mu = top;
-            for (Edge<NodeT> e : graph.getEdgesTo(top)) {
-                NodeT u = e.from;
-                if (!marked.contains(u)) {
-                    marked.add(u);
+            prefetch (cmp,graph,top,context,edges,batch);
+            for (graph.getEdgesTo(top,edges); edges.next(); ) {
+                NodeT u = edges.from();
+                int i = context.indexOf(u);
+                if (context.mark(i)) {
                     if (cmp.compare(u,grouping.getTarget())<0)
-                        stack.push(u);
+                        context.push(i);
                 }
             }
 
-            if (marked.size()>maxSetSize) maxSetSize = marked.size();
-            if (stack.size()>maxStructSize) maxStructSize = stack.size();
+            if (context.numberMarked()>maxSetSize) maxSetSize = context.numberMarked();
+            if (context.stackSize()>maxStructSize) maxStructSize = context.stackSize();
         }
         return mu;
     }
 
     public static<NodeT> NodeT BFS (Group<NodeT> grouping, Graph<NodeT> graph,Comparator<NodeT> cmp) {
-        ArrayDeque<NodeT> queue = new ArrayDeque<>();
-        TreeSet<NodeT> marked = new TreeSet<>();
-        queue.addLast (grouping.getTarget());
-        marked.add (grouping.getTarget());
+        TraversalContext<NodeT> context = graph.acquireTraversalContext();
+        try {return BFS (grouping,graph,cmp,context);}
+        finally {graph.releaseTraversalContext(context);}
+    }
+    private static<NodeT> NodeT BFS (Group<NodeT> grouping, Graph<NodeT> graph,Comparator<NodeT> cmp,TraversalContext<NodeT> context) {
+        int target = context.indexOf(grouping.getTarget());
+        context.mark (target);
+        context.enqueue (target);
+        EdgeCursor<NodeT> edges = new EdgeCursor<>();
+        ArrayList<NodeT> batch = new ArrayList<>();
         NodeT mu = null;
-        while (!queue.isEmpty()) {
-            NodeT top = queue.removeFirst();
+        while (!context.isQueueEmpty()) {
+            NodeT top = context.node(context.dequeue());
             if (cmp.compare(top,mu)<0) mu = top;
-            for (Edge<NodeT> e : graph.getEdgesTo(top)) {
-                NodeT u = e.from;
-                if (!marked.contains(u)) {
-                    marked.add(u);
+            prefetch (cmp,graph,top,context,edges,batch);
+            for (graph.getEdgesTo(top,edges); edges.next(); ) {
+                NodeT u = edges.from();
+                int i = context.indexOf(u);
+                if (context.mark(i)) {
                     if (cmp.compare(u,grouping.getTarget())<0)
-                        queue.addLast(u);
+                        context.enqueue(i);
                 }
             }
 
-            if (marked.size()>maxSetSize) maxSetSize = marked.size();
-            if (queue.size()>maxStructSize) maxStructSize = queue.size();
+            if (context.numberMarked()>maxSetSize) maxSetSize = context.numberMarked();
+            if (context.queueSize()>maxStructSize) maxStructSize = context.queueSize();
         }
         return mu;
     }
 
     public static<NodeT> NodeT BestFirstSearch (Group<NodeT> grouping, Graph<NodeT> graph,Comparator<NodeT> cmp) {
-        TreeSet<NodeT> marked = new TreeSet<>();
-        MinPQ<NodeT> queue = new MinPQ<>();
-        queue.insert (grouping.getTarget());
-        marked.add (grouping.getTarget());
+        TraversalContext<NodeT> context = graph.acquireTraversalContext();
+        try {return BestFirstSearch (grouping,graph,cmp,context);}
+        finally {graph.releaseTraversalContext(context);}
+    }
+    private static<NodeT> NodeT BestFirstSearch (Group<NodeT> grouping, Graph<NodeT> graph,Comparator<NodeT> cmp,TraversalContext<NodeT> context) {
+        IndexMinPQ queue = context.heap();
+        int target = context.indexOf(grouping.getTarget());
+        context.mark (target);
+        queue.insert (target,score(cmp,grouping.getTarget(),0));
+        EdgeCursor<NodeT> edges = new EdgeCursor<>();
+        ArrayList<NodeT> batch = new ArrayList<>();
         NodeT mu = null;
         while (!queue.isEmpty()) {
-            NodeT top = queue.delMin();
+            NodeT top = context.node(queue.delMin());
             if (cmp.compare(top,mu)<0) mu = top;
-            for (Edge<NodeT> e : graph.getEdgesTo(top)) {
-                NodeT u = e.from;
-                if (!marked.contains(u)) {
-                    marked.add(u);
+            prefetch (cmp,graph,top,context,edges,batch);
+            for (graph.getEdgesTo(top,edges); edges.next(); ) {
+                NodeT u = edges.from();
+                int i = context.indexOf(u);
+                if (context.mark(i)) {
                     if (cmp.compare(u,grouping.getTarget())<0)
-                        queue.insert(u);
+                        queue.insert(i,score(cmp,u,context.numberMarked()-1));
                 }
             }
 
-            if (marked.size()>maxSetSize) maxSetSize = marked.size();
+            if (context.numberMarked()>maxSetSize) maxSetSize = context.numberMarked();
             if (queue.size()>maxStructSize) maxStructSize = queue.size();
         }
         return mu;
     }
-}
 
+    /* scores at once the nodes about to be discovered out of top, for comparators
+     * that score candidates in batches, before they are compared one by one */
+    @SuppressWarnings("unchecked")
+    static<NodeT> void prefetch (Comparator<NodeT> cmp,Graph<NodeT> graph,NodeT top,TraversalContext<NodeT> context,EdgeCursor<NodeT> edges,ArrayList<NodeT> batch) {
+        if (!(cmp instanceof LocationComparatorMinSum<?>) && !(cmp instanceof LocationComparatorMinMax<?>)) return;
+        batch.clear();
+        for (graph.getEdgesTo(top,edges); edges.next(); )
+            if (!context.isMarked(context.indexOf(edges.from()))) batch.add(edges.from());
+        if (batch.isEmpty()) return;
+        if (cmp instanceof LocationComparatorMinSum<?>) ((LocationComparatorMinSum<NodeT>)cmp).prefetch(batch);
+        else ((LocationComparatorMinMax<NodeT>)cmp).prefetch(batch);
+    }
+
+    /* priority of a node in the best-first search, as scored by the comparator;
+     * comparators that do not expose scores are served in order of discovery */
+    @SuppressWarnings("unchecked")
+    private static<NodeT> float score (Comparator<NodeT> cmp,NodeT u,int discovery) {
+        if (cmp instanceof LocationComparatorMinSum<?>) return ((LocationComparatorMinSum<NodeT>)cmp).computeScore(u);
+        else if (cmp instanceof LocationComparatorMinMax<?>) return ((LocationComparatorMinMax<NodeT>)cmp).computeScore(u);
+        else return discovery;
+    }
+}
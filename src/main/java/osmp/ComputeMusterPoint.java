@@ -21,8 +21,9 @@ package osmp;
 import oscp.Group;
 import grammar.MinPQ;
 import grammar.Graph;
+import grammar.EdgeCursor;
+import grammar.TraversalContext;
 import java.util.Comparator;
-import java.util.TreeSet;
 
 public class ComputeMusterPoint {
 
@@ -41,24 +42,29 @@ public class ComputeMusterPoint {
         if (mu==null) throw new RuntimeException ("!! ERROR - Cannot initialize graph search !!");
 
         MinPQ<NodeT> queue = new MinPQ<>(cmp);
-        TreeSet<NodeT> marked = new TreeSet<>();
-        queue.insert(mu);
-        marked.add(mu);
-        while (!queue.isEmpty()) {
-            NodeT top = queue.delMin();
-            for (NodeT u : graph.getNeighbors(top)) {
-                if (!marked.contains(u)) {
-                    marked.add(u);
-                    if (cmp.compare(u,top)<=0)
-                        queue.insert(u);
+        EdgeCursor<NodeT> edges = new EdgeCursor<>();
+        TraversalContext<NodeT> context = graph.acquireTraversalContext(); // marks the nodes, reused from query to query
+        try {
+            queue.insert(mu);
+            context.mark(context.indexOf(mu));
+            while (!queue.isEmpty()) {
+                NodeT top = queue.delMin();
+                for (graph.getEdgesFrom(top,edges); edges.next(); ) {
+                    NodeT u = edges.to();
+                    if (context.mark(context.indexOf(u))) {
+                        if (cmp.compare(u,top)<=0)
+                            queue.insert(u);
+                    }
                 }
-            }
-            if (cmp.compare(top, mu)<0) mu = top;
+                if (cmp.compare(top, mu)<0) mu = top;
 
-            if (marked.size()>maxSetSize) maxSetSize = marked.size();
-            if (queue.size()>maxHeapSize) maxHeapSize = queue.size();
+                if (context.numberMarked()>maxSetSize) maxSetSize = context.numberMarked();
+                if (queue.size()>maxHeapSize) maxHeapSize = queue.size();
+            }
+            return mu;
+        } finally {
+            graph.releaseTraversalContext(context);
         }
-        return mu;
     }
 }
 
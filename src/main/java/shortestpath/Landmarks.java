@@ -0,0 +1,199 @@
+/**
+ *  The GRAph and Matrix MAnipulation Resource (GRA.M.MA.R) toolkit
+ *  Copyright (C) 2015 George Tsatsanifos <gtsatsanifos@gmail.com>
+ *
+ *  The GRA.M.MA.R. toolkit is free software: you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as published
+ *  by the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shortestpath;
+
+import grammar.Graph;
+import grammar.CsrGraph;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.ArrayList;
+import org.apache.log4j.Logger;
+
+/**
+ * Landmark distances for the ALT lower bounds of A* searches. For each
+ * landmark L the distances from L and to L are stored, and by the triangle
+ * inequality d(u,v) is at least both d(L,v)-d(L,u) and d(u,L)-d(v,L). The
+ * bounds are admissible and consistent, so A* settles each node once and may
+ * stop as soon as the target is settled.
+ * <p>
+ * Landmarks are picked at random, farthest from the ones already picked, or
+ * with the avoid heuristic, which grows a shortest path tree from a random
+ * root and descends to the leaf of the subtree whose distances are the worst
+ * covered by the current bounds.
+ */
+final public class Landmarks<NodeT> {
+    private static final Logger logger = Logger.getLogger(Landmarks.class);
+
+    public enum Selection {RANDOM, FARTHEST, AVOID}
+
+    final private CsrGraph<NodeT> frozen;
+    final private int[] landmarks;
+    final private float[][] fromLandmark;
+    final private float[][] toLandmark;
+    final private Random rand;
+
+    public Landmarks (Graph<NodeT> graph,int count) {this(graph,count,Selection.AVOID,new Random());}
+
+    public Landmarks (Graph<NodeT> graph,int count,Selection selection,Random rand) {
+        long startTime = System.nanoTime();
+        frozen = graph.freeze();
+        if (frozen.containsNegativeWeightEdges())
+            throw new RuntimeException("\n!! ERROR - Landmark bounds cannot be computed in the presence of edges with negative weights !!");
+        if (count<=0)
+            throw new IllegalArgumentException("\n!! ERROR - At least one landmark is needed !!");
+
+        this.rand = rand;
+        count = Math.min(count,frozen.numberNodes());
+        landmarks = new int[count];
+        fromLandmark = new float[count][];
+        toLandmark = new float[count][];
+        for (int i=0;i<count;++i) {
+            switch (selection) {
+                case RANDOM: landmarks[i] = randomLandmark(i); break;
+                case FARTHEST: landmarks[i] = farthestLandmark(i); break;
+                default: landmarks[i] = i==0 ? farthestLandmark(i) : avoidLandmark(i);
+            }
+            fromLandmark[i] = frozen.dijkstraDistances(landmarks[i]);
+            toLandmark[i] = frozen.isDirected() ? frozen.reverseDijkstraDistances(landmarks[i]) : fromLandmark[i];
+        }
+        long endTime = System.nanoTime();
+        logger.info (Thread.currentThread().getName()+"<"+Thread.currentThread().getId()+"> Selected "+count+" landmarks ("+selection
+                    +") out of "+frozen.numberNodes()+" nodes in "+(endTime-startTime)/Math.pow(10,9)+" secs.");
+    }
+
+    public int numberLandmarks () {return landmarks.length;}
+
+    public ArrayList<NodeT> getLandmarks () {
+        ArrayList<NodeT> result = new ArrayList<>(landmarks.length);
+        for (int l : landmarks) result.add(frozen.getNode(l));
+        return result;
+    }
+
+    /* 8 bytes per landmark and node, halved for undirected graphs */
+    public long getMaxMemRequirements () {return (long)landmarks.length*frozen.numberNodes()*(frozen.isDirected()?8:4);}
+
+    /**
+     * @return a lower bound on the cost of any path from u to v, which is
+     * Float.POSITIVE_INFINITY if the landmarks prove that v is not reachable
+     * from u, or 0 for nodes unknown to the landmarks.
+     */
+    public float lowerBound (NodeT u,NodeT v) {
+        int i = frozen.indexOf(u), j = frozen.indexOf(v);
+        return i<0 || j<0 ? 0.0f : lowerBound(i,j,landmarks.length);
+    }
+
+    /* comparisons skip the NaN differences of nodes unreachable from or to a landmark */
+    private float lowerBound (int u,int v,int count) {
+        float bound = 0.0f;
+        for (int i=0;i<count;++i) {
+            float forward = fromLandmark[i][v] - fromLandmark[i][u];
+            if (forward>bound) bound = forward;
+            float backward = toLandmark[i][u] - toLandmark[i][v];
+            if (backward>bound) bound = backward;
+        }
+        return bound;
+    }
+
+    private int randomLandmark (int count) {
+        for (;;) {
+            int candidate = rand.nextInt(frozen.numberNodes());
+            if (!isLandmark(candidate,count)) return candidate;
+        }
+    }
+
+    private boolean isLandmark (int u,int count) {
+        for (int i=0;i<count;++i)
+            if (landmarks[i]==u) return true;
+        return false;
+    }
+
+    /* the reachable node farthest from the landmarks picked so far, or from a random one to begin with */
+    private int farthestLandmark (int count) {
+        int n = frozen.numberNodes();
+        float[] closest = new float[n];
+        if (count==0) {
+            closest = frozen.dijkstraDistances(rand.nextInt(n));
+        }else{
+            Arrays.fill (closest,Float.POSITIVE_INFINITY);
+            for (int i=0;i<count;++i)
+                for (int u=0;u<n;++u)
+                    if (fromLandmark[i][u]<closest[u]) closest[u] = fromLandmark[i][u];
+        }
+
+        int farthest = -1;
+        for (int u=0;u<n;++u)
+            if (closest[u]<Float.POSITIVE_INFINITY && !isLandmark(u,count) && (farthest<0 || closest[u]>closest[farthest]))
+                farthest = u;
+        return farthest<0 ? randomLandmark(count) : farthest;
+    }
+
+    private int avoidLandmark (int count) {
+        int n = frozen.numberNodes();
+        int root = randomLandmark(count);
+        float[] dists = new float[n];
+        int[] paths = frozen.dijkstraTree(root,dists);
+
+        /* children are visited before their parents in decreasing distance order */
+        Integer[] order = new Integer[n];
+        for (int u=0;u<n;++u) order[u] = u;
+        final float[] keys = dists;
+        Arrays.sort (order,new java.util.Comparator<Integer>() {
+            @Override public int compare (Integer u,Integer v) {return Float.compare(keys[v],keys[u]);}
+        });
+
+        float[] sizes = new float[n];
+        boolean[] covered = new boolean[n];
+        int[] heaviest = new int[n];
+        Arrays.fill (heaviest,-1);
+        for (int u : order) {
+            if (paths[u]<0) continue;
+            if (isLandmark(u,count)) covered[u] = true;
+            if (covered[u]) sizes[u] = 0.0f;
+            else sizes[u] += dists[u] - lowerBound(root,u,count);
+
+            int parent = paths[u];
+            if (parent!=u) {
+                if (covered[u]) covered[parent] = true;
+                sizes[parent] += sizes[u];
+                if (heaviest[parent]<0 || sizes[u]>sizes[heaviest[parent]]) heaviest[parent] = u;
+            }
+        }
+
+        int leaf = root;
+        while (heaviest[leaf]>=0 && sizes[heaviest[leaf]]>0.0f) leaf = heaviest[leaf];
+        return isLandmark(leaf,count) ? farthestLandmark(count) : leaf;
+    }
+
+    public static void main (String[] args) {
+        Graph<Long> graph = new grammar.UndirectedGraph<>(args[0],java.text.NumberFormat.getNumberInstance(),true);
+        int count = args.length>1 ? Integer.parseInt(args[1]) : 16;
+        for (Selection selection : Selection.values()) {
+            Landmarks<Long> landmarks = new Landmarks<>(graph,count,selection,new Random(7));
+            ShortestPath<Long> sp = new ShortestPath<>(graph,landmarks);
+            Random rand = new Random(13);
+            ArrayList<Long> nodes = graph.getNodes();
+            long startTime = System.nanoTime();
+            for (int i=0;i<1000;++i)
+                sp.getPathCost(nodes.get(rand.nextInt(nodes.size())),nodes.get(rand.nextInt(nodes.size())));
+            long endTime = System.nanoTime();
+            System.out.println ("** "+selection+" landmarks: "+sp.getSettledNodes()/(float)sp.getQueries()+" settled nodes per query, "
+                                +(endTime-startTime)/Math.pow(10,9)+" secs for "+sp.getQueries()+" queries.");
+        }
+    }
+}
@@ -18,11 +18,16 @@
 
 package shortestpath;
 
+import grammar.BinarySnapshot;
+import grammar.EdgeListParser;
+
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.Iterator;
 import java.util.Scanner;
 import java.text.Format;
+import java.text.NumberFormat;
 import java.io.File;
 import java.util.Set;
 import java.util.Map;
@@ -121,8 +126,93 @@ final public class ScatterMap<NodeT> implements Iterable<Entry<NodeT,Point2D>> {
         return result;
     }
 
+    /**
+     * Stores the coordinates in a binary snapshot, to be loaded by
+     * {@link #fromSnapshot(String)} without parsing them again.
+     */
+    public void saveSnapshot (String filename) {
+        long startTime = System.nanoTime();
+        float[] xs = new float[records], ys = new float[records];
+        int i = 0;
+        for (Point2D p : vertexmap.values()) {
+            xs[i] = p.x();
+            ys[i++] = p.y();
+        }
+        try{
+            BinarySnapshot.Writer out = new BinarySnapshot.Writer (filename,BinarySnapshot.COORDINATES,
+                    BinarySnapshot.keyTypeOf(vertexmap.isEmpty()?null:vertexmap.keySet().iterator().next()));
+            try{
+                out.writeInt (records);
+                out.writeFloats (xs,0,records);
+                out.writeFloats (ys,0,records);
+                for (NodeT vertex : vertexmap.keySet()) out.writeNode (vertex);
+            }finally{
+                out.close();
+            }
+        }catch (IOException e){
+            throw new RuntimeException ("\n!! ERROR - Unable to save snapshot '"+filename+"': "+e.getMessage()+" !!");
+        }
+        long endTime = System.nanoTime();
+        System.out.println("!! Saved "+records+" points in "+(endTime-startTime)/Math.pow(10,9)+" secs !!");
+    }
+
+    @SuppressWarnings ("unchecked")
+    public static<NodeT> ScatterMap<NodeT> fromSnapshot (String filename) {
+        ScatterMap<NodeT> map = new ScatterMap<>();
+        long startTime = System.nanoTime();
+        try{
+            BinarySnapshot.Reader in = new BinarySnapshot.Reader (filename,BinarySnapshot.COORDINATES);
+            try{
+                int n = in.readInt();
+                float[] xs = new float[n], ys = new float[n];
+                in.readFloats (xs,0,n);
+                in.readFloats (ys,0,n);
+                for (int i=0; i<n; ++i) map.load ((NodeT) in.readNode(),new Point2D (xs[i],ys[i]));
+                map.records = map.vertexmap.size();
+            }finally{
+                in.close();
+            }
+        }catch (IOException e){
+            throw new RuntimeException ("\n!! ERROR - Unable to load snapshot '"+filename+"': "+e.getMessage()+" !!");
+        }
+        long endTime = System.nanoTime();
+        System.out.println("!! Loaded "+map.size()+" points in "+(endTime-startTime)/Math.pow(10,9)+" secs !!");
+        return map;
+    }
+
+    /* unlike put, keeps every vertex even if others share its position, as the loaders always have */
+    private void load (NodeT id, Point2D p) {
+        vertexmap.put (id,p);
+        pointmap.put (p,id);
+        kdtree.add(p);
+
+        if (LOX>p.x()) {LOX=p.x();pointLOX=p;}
+        if (LOY>p.y()) {LOY=p.y();pointLOY=p;}
+        if (HIX<p.x()) {HIX=p.x();pointHIX=p;}
+        if (HIY<p.y()) {HIY=p.y();pointHIY=p;}
+    }
+
     @SuppressWarnings ("unchecked")
     private void loadMap (String filename, Format format) {
+        if (format instanceof NumberFormat) {
+            try{
+                EdgeListParser.Coordinates coordinates = new EdgeListParser(true,true).parseCoordinates(filename);
+                for (int i=0; i<coordinates.size; ++i) {
+                    Point2D p = new Point2D (coordinates.xs[i],coordinates.ys[i]);
+                    NodeT id = (NodeT) Long.valueOf (coordinates.ids[i]);
+                    load (id,p);
+                }
+                records = vertexmap.size();
+            }catch (FileNotFoundException e){
+                System.out.println ("\n!! Input file '"+filename+"' does not exist !!");
+            }catch (ParseException e){
+                System.out.println ("\n!! Unable to parse file '"+filename+"': "+e.getMessage()+" !!");
+            }catch (IOException e){
+                System.out.println ("\n!! IOException while processing file '"+filename+"' !!");
+            }
+            return;
+        }
+
         try{
             Scanner in = new Scanner(new File(this.getClass().getClassLoader().getResource(filename).getFile())) ;
             System.out.println ("!! Importing now data from file '" + filename + "'... !!");
@@ -134,14 +224,7 @@ final public class ScatterMap<NodeT> implements Iterable<Entry<NodeT,Point2D>> {
 
                 Point2D p = new Point2D (Float.parseFloat(line[1]),Float.parseFloat(line[2]));
                 NodeT id = (NodeT) (format==null? line[0] : format.parseObject(line[0]));
-                vertexmap.put (id,p);
-                pointmap.put (p,id);
-                kdtree.add(p);
-
-                if (LOX>p.x()) {LOX=p.x();pointLOX=p;}
-                if (LOY>p.y()) {LOY=p.y();pointLOY=p;}
-                if (HIX<p.x()) {HIX=p.x();pointHIX=p;}
-                if (HIY<p.y()) {HIY=p.y();pointHIY=p;}
+                load (id,p);
 
                 if ((i%1000000)==0) System.out.println("!! So far " +i + " points have been read !!");
             }
@@ -155,4 +238,10 @@ final public class ScatterMap<NodeT> implements Iterable<Entry<NodeT,Point2D>> {
             System.out.println ("\n!! Incorrectly defined domain type in input file '"+filename+"' !!");
         }
     }
+
+    /* converts a coordinates file to a snapshot; use as: ScatterMap coordinates snapshot */
+    public static void main (String[] args) {
+        if (args.length<2) throw new IllegalArgumentException ("!! ERROR - Should provide the paths to a coordinates file and the snapshot to be produced !!");
+        new ScatterMap<Long> (args[0],NumberFormat.getNumberInstance()).saveSnapshot(args[1]);
+    }
 }
@@ -21,23 +21,44 @@ package shortestpath;
 import grammar.UndirectedGraph;
 import grammar.Graph;
 import grammar.Edge;
-import grammar.MinPQ;
+import grammar.IndexMinPQ;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Map.Entry;
+import java.util.ArrayList;
 import java.util.ArrayDeque;
-import java.util.Comparator;
 import java.text.NumberFormat;
 
+/**
+ * A* searches guided either by the coordinates of the nodes (SCATTER), whose
+ * estimates scale the Euclidean distance to the destination by the detour
+ * ratio experienced so far and are not admissible, or by the triangle
+ * inequality lower bounds of a set of landmarks (LANDMARKS), which are, so
+ * that the search stops as soon as the destination is settled.
+ */
 final public class ShortestPath<NodeT> {
+    public enum Heuristic {SCATTER, LANDMARKS}
+
     final private ScatterMap<NodeT> scatter;
+    final private Landmarks<NodeT> landmarks;
     final private Graph<NodeT> graph;
 
     final private Map<NodeT,Map<NodeT,Float>> cached = new HashMap<>();
 
+    private long queries = 0;
+    private long settledNodes = 0;
+
     public int getMaxMemRequirements () {return cached.size()<<1;}
 
-    public ShortestPath (Graph<NodeT> network,ScatterMap<NodeT> map) {graph=network;scatter=map;}
+    public ShortestPath (Graph<NodeT> network,ScatterMap<NodeT> map) {graph=network;scatter=map;landmarks=null;}
+    public ShortestPath (Graph<NodeT> network,Landmarks<NodeT> alt) {graph=network;scatter=null;landmarks=alt;}
+
+    public Heuristic getHeuristic () {return landmarks==null ? Heuristic.SCATTER : Heuristic.LANDMARKS;}
+
+    /* statistics of the searches carried out, excluding the ones answered by the cache */
+    public long getQueries () {return queries;}
+    public long getSettledNodes () {return settledNodes;}
+    public void resetStatistics () {queries=0;settledNodes=0;}
     private float distance (NodeT from,NodeT to) {return scatter.getSpatialPosition(from).distanceTo(scatter.getSpatialPosition(to));}
 
     public float getPathCost (NodeT from,NodeT to) {
@@ -55,12 +76,19 @@ final public class ShortestPath<NodeT> {
         float Threshold = Float.MAX_VALUE;
         HashMap<NodeT,NodeT> paths = new HashMap<>();
         HashMap<NodeT,Float> dists = new HashMap<>();
-        MinPQ<NodeT> heap = new MinPQ<>(new PathComparator(from,to,dists));
+        HashMap<NodeT,Integer> index = new HashMap<>();
+        ArrayList<NodeT> nodes = new ArrayList<>();
+        IndexMinPQ heap = new IndexMinPQ();
         if (storeCache) paths.put (from,from);
         dists.put (from,0.0f);
-        heap.insert (from);
+        index.put (from,0);
+        nodes.add (from);
+        heap.insert (0,0.0f);
+        ++queries;
         while (!heap.isEmpty()) {
-            NodeT top = heap.delMin();
+            if (landmarks!=null && heap.minPriority()>=Threshold) break; // admissible estimates
+            NodeT top = nodes.get(heap.delMin());
+            ++settledNodes;
             float topdist = dists.get(top);
             if (top.equals(to)) 
                 if (dists.get(to)<Threshold)
@@ -70,7 +98,14 @@ final public class ShortestPath<NodeT> {
                     if (topdist+edge.weight<Threshold) {
                         if (storeCache) paths.put (edge.to,top);
                         dists.put (edge.to,topdist+edge.weight);
-                        heap.insert (edge.to);
+
+                        Integer i = index.get(edge.to);
+                        if (i==null) {
+                            i = nodes.size();
+                            index.put (edge.to,i);
+                            nodes.add (edge.to);
+                        }
+                        heap.offer (i,estimate(from,to,edge.to,topdist+edge.weight));
                     }
                 }
             }
@@ -118,33 +153,14 @@ final public class ShortestPath<NodeT> {
         return null; // no such path exists
     }
 
-    final private class PathComparator implements Comparator<NodeT> {
-        private final NodeT source, destination;
-        private final HashMap<NodeT,Float> dists;
-        public PathComparator (NodeT src,NodeT dest,HashMap<NodeT,Float> dsx) {source=src;destination=dest;dists=dsx;}
-        @Override
-        public int compare (NodeT u,NodeT v) {
-            if (u==null && v==null) return 0;
-            else if (v==null) return -1;
-            else if (u==null) return 1;
-
-            float Csu = dists.get (u);
-            float Csv = dists.get (v);
-            float Hsu = distance (source,u);
-            float Hsv = distance (source,v);
-            float Hud = distance (u,destination);
-            float Hvd = distance (v,destination);
-
-            float Cud = Csu * Hud / Hsu; // approximation of remaining route cost
-            float Cvd = Csv * Hvd / Hsv; // approximation 
-            float balance = Csu-Csv+Cud-Cvd;
-            //float balance = Hud-Hvd;
-            //float balance = Cud-Cvd;
-
-            if (balance<0) return -1;
-            else if (balance>0) return 1;
-            else return 0;
-        }
+    /* path cost from the source to u, plus either the landmark lower bound of
+     * the remaining route cost or an approximation of it scaling the Euclidean
+     * distance to the destination by the detour ratio experienced so far */
+    private float estimate (NodeT source,NodeT destination,NodeT u,float Csu) {
+        if (landmarks!=null) return Csu + landmarks.lowerBound(u,destination);
+        float Hsu = distance (source,u);
+        float Hud = distance (u,destination);
+        return Hsu>0.0f ? Csu + Csu * Hud / Hsu : Csu;
     }
 
     public void resetCache () {
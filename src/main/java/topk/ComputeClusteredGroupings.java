@@ -61,18 +61,26 @@ public class ComputeClusteredGroupings {
             seen.add (grouping);
         }else{
             System.out.println("!! Computing meeting locations of targetless groupings !!");
-            int i = 0;
+            ArrayList<NodeT> locations = new ArrayList<>();
             for (NodeT mu : new ConnectingLocationsIterable<>(grouping,graph,null,useMinSum)) {
                 if (mu == null) {
                     throw new RuntimeException("!! Targetless meeting location should not be null !!");
                 }
-                if (i++>=k) break;
-                else{
-                    Group<NodeT> newgrouping = new Group<> (mu,grouping.getSubgroups(),grouping.getLambdas(),graph,useMinSum);
-                    groupings.insert (newgrouping);
-                    result.insert (newgrouping);
-                    seen.add (newgrouping);
-                }
+                if (locations.size()>=k) break;
+                else locations.add (mu);
+            }
+
+            /* the distances of the travelers to all the candidate locations at once */
+            ArrayList<NodeT> travelers = new ArrayList<>();
+            for (Group<NodeT> subgroup : grouping.getSubgroups()) 
+                if (subgroup.getTarget()!=null) travelers.add (subgroup.getTarget());
+            cmp.prefetch (travelers,locations);
+
+            for (NodeT mu : locations) {
+                Group<NodeT> newgrouping = new Group<> (mu,grouping.getSubgroups(),grouping.getLambdas(),graph,useMinSum);
+                groupings.insert (newgrouping);
+                result.insert (newgrouping);
+                seen.add (newgrouping);
             }
         }
 
@@ -40,6 +40,7 @@ import setbased.ComputeMeetingLocation;
 import shortestpath.ScatterMap;
 import shortestpath.Point2D;
 import grammar.DirectedGraph;
+import grammar.BinarySnapshot;
 import grammar.Graph;
 import oscp.Group;
 
@@ -117,6 +118,19 @@ public final class WebRoadNet {
 		NElng = new ArrayList<>();
 	}
 
+	/* binary snapshots next to the text files, e.g. 'USA-road-d.NY.gr.bin', are loaded instead of parsing the latter */
+	private Graph<Long> loadGraph (String resource) {
+		URL snapshot = getClass().getClassLoader().getResource(resource+".bin");
+		return snapshot!=null ? BinarySnapshot.<Long>loadGraph(snapshot.getFile())
+			: new DirectedGraph<Long>(resource,NumberFormat.getNumberInstance(),true);
+	}
+
+	private ScatterMap<Long> loadMap (String resource) {
+		URL snapshot = getClass().getClassLoader().getResource(resource+".bin");
+		return snapshot!=null ? ScatterMap.<Long>fromSnapshot(snapshot.getFile())
+			: new ScatterMap<Long>(resource,NumberFormat.getNumberInstance());
+	}
+
 	public void loadSanFrancisco() {
 		if (loadedmap.compareTo("francisco")!=0) {
 			lats = ""; 
@@ -127,8 +141,8 @@ public final class WebRoadNet {
 			predestination = "";
 			resultsize = "10";
 			option = "minsum";
-			graph = new DirectedGraph<>("roadnets/USA-road-d.BAY.gr",NumberFormat.getNumberInstance(),true);
-			map = new ScatterMap<>("roadnets/USA-road-d.BAY.coord",NumberFormat.getNumberInstance());
+			graph = loadGraph("roadnets/USA-road-d.BAY.gr");
+			map = loadMap("roadnets/USA-road-d.BAY.coord");
 			loadedmap = "francisco";
 		}
 	}
@@ -143,8 +157,8 @@ public final class WebRoadNet {
 			predestination = "";
 			resultsize = "10";
 			option = "minsum";
-			graph = new DirectedGraph<>("roadnets/USA-road-d.NY.gr",NumberFormat.getNumberInstance(),true);
-			map = new ScatterMap<>("roadnets/USA-road-d.NY.coord",NumberFormat.getNumberInstance());
+			graph = loadGraph("roadnets/USA-road-d.NY.gr");
+			map = loadMap("roadnets/USA-road-d.NY.coord");
 			loadedmap = "newyork";
 		}
 	}
@@ -159,9 +173,9 @@ public final class WebRoadNet {
                         predestination = "";
                         resultsize = "10";
                         option = "minsum";
-                        graph = new DirectedGraph<>("roadnets/USA-road-d.NW.gr",NumberFormat.getNumberInstance(),true);
+                        graph = loadGraph("roadnets/USA-road-d.NW.gr");
                         //graph = new DirectedGraph<Long>("roadnets/seattle.graph",NumberFormat.getNumberInstance(),true);
-                        map = new ScatterMap<>("roadnets/USA-road-d.NW.co",NumberFormat.getNumberInstance());
+                        map = loadMap("roadnets/USA-road-d.NW.co");
                         //map = new ScatterMap<Long>("roadnets/seattle.cnode",NumberFormat.getNumberInstance());
                         loadedmap = "washington";
                 }
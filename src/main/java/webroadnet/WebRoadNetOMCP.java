@@ -52,6 +52,14 @@ public final class WebRoadNetOMCP {
 	private Graph<Long> graph;
 	private ScatterMap<Long> map;
 
+	/* graphs are shared among requests, so point-to-point queries are served by
+	 * a read-only view rather than through the distance cache of the graph */
+	private static Graph<Long> loadGraph (String filename) {
+		Graph<Long> loaded = new DirectedGraph<Long>(filename,NumberFormat.getNumberInstance(),true);
+		loaded.setDistanceOracle(loaded.view());
+		return loaded;
+	}
+
 	private String predestination;
 	public void setPredestination (String _predestination) {predestination = _predestination;}
 	public String getPredestination () {return predestination;}
@@ -129,13 +137,15 @@ public final class WebRoadNetOMCP {
                         destination = "";
                         predestination = "";
 
-                        if (washingtonGraph==null) 
-                        washingtonGraph = new DirectedGraph<Long>("roadnets/USA-road-d.NW.gr",NumberFormat.getNumberInstance(),true);
-                        if (washingtonMap==null)
-                        washingtonMap = new ScatterMap<Long>("roadnets/USA-road-d.NW.co",NumberFormat.getNumberInstance());
+                        synchronized (WebRoadNetOMCP.class) {
+                                if (washingtonGraph==null)
+                                        washingtonGraph = loadGraph("roadnets/USA-road-d.NW.gr");
+                                if (washingtonMap==null)
+                                        washingtonMap = new ScatterMap<Long>("roadnets/USA-road-d.NW.co",NumberFormat.getNumberInstance());
 
-                        graph = washingtonGraph;
-                        map = washingtonMap;
+                                graph = washingtonGraph;
+                                map = washingtonMap;
+                        }
 
                         loadedmap = "washington";
                         mapname = "washington";
@@ -150,12 +160,14 @@ public final class WebRoadNetOMCP {
 			destination = "";
 			predestination = "";
 
-                        if (sanfranciscoGraph==null)
-			sanfranciscoGraph = new DirectedGraph<Long>("roadnets/USA-road-d.BAY.gr",NumberFormat.getNumberInstance(),true);
-                        if (sanfranciscoMap==null)
-			sanfranciscoMap = new ScatterMap<Long>("roadnets/USA-road-d.BAY.co",NumberFormat.getNumberInstance());
-			graph = sanfranciscoGraph;
-			map = sanfranciscoMap;
+			synchronized (WebRoadNetOMCP.class) {
+				if (sanfranciscoGraph==null)
+					sanfranciscoGraph = loadGraph("roadnets/USA-road-d.BAY.gr");
+				if (sanfranciscoMap==null)
+					sanfranciscoMap = new ScatterMap<Long>("roadnets/USA-road-d.BAY.co",NumberFormat.getNumberInstance());
+				graph = sanfranciscoGraph;
+				map = sanfranciscoMap;
+			}
 
 			loadedmap = "francisco";
 			mapname = "francisco";
@@ -170,13 +182,15 @@ public final class WebRoadNetOMCP {
 			destination = "";
 			predestination = "";
 
-			if (newyorkGraph==null)
-				newyorkGraph = new DirectedGraph<Long>("roadnets/USA-road-d.NY.gr",NumberFormat.getNumberInstance(),true);
-			if (newyorkMap==null)
-				newyorkMap = new ScatterMap<Long>("roadnets/USA-road-d.NY.co",NumberFormat.getNumberInstance());
+			synchronized (WebRoadNetOMCP.class) {
+				if (newyorkGraph==null)
+					newyorkGraph = loadGraph("roadnets/USA-road-d.NY.gr");
+				if (newyorkMap==null)
+					newyorkMap = new ScatterMap<Long>("roadnets/USA-road-d.NY.co",NumberFormat.getNumberInstance());
 
-			graph = newyorkGraph;
-			map = newyorkMap;
+				graph = newyorkGraph;
+				map = newyorkMap;
+			}
 
 			loadedmap = "newyork";
 			mapname = "newyork";
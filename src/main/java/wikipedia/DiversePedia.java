@@ -159,21 +159,7 @@ public class DiversePedia {
             //BufferedReader br = new BufferedReader(new FileReader(new File(this.getClass().getClassLoader().getResource(titlelist).getFile())));
             for(String line; (line=br.readLine())!=null; ) {
                 int split = line.indexOf(' ');
-                String filename = line.substring(0,split);
-                titles.put(filename,line.substring(split+1));
-
-                Set<String> set = new TreeSet<>();
-                titlesets.put (filename,set);
-                for (String word : line.substring(split+1).split(" ")) {
-                    word = word.toLowerCase();
-                    Set<String> collection = invertedTitle.get(word);
-                    if (collection==null) {
-                        collection = new TreeSet<>();
-                        invertedTitle.put (word,collection);
-                    }
-                    collection.add (filename);
-                    set.add (word);
-                }
+                indexTitle (line.substring(0,split),line.substring(split+1));
             }
             logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Loaded " + titlesets.size() + " titles from file '" + titlelist + "'.");
         }catch(IOException e){e.printStackTrace();}
@@ -184,6 +170,46 @@ public class DiversePedia {
         removeNonArticleLinks();
     }
 
+    /**
+     * Assembles an instance out of the parts stored by
+     * {@link DiversePediaBinaryStorage}; the term frequencies are not needed
+     * once the model has been produced.
+     */
+    DiversePedia (Graph<String> graph, Map<String,Map<String,Float>> model, Map<String,String> titlemap) {
+        index = new TreeMap<>();
+        invertedIndex = new TreeMap<>();
+        maxFreqs = new TreeMap<>();
+
+        titles = new TreeMap<>();
+        titlesets = new TreeMap<>();
+        invertedTitle = new TreeMap<>();
+
+        this.graph = graph;
+        context = new ContentSimilarity<>(model);
+        for (Entry<String,String> entry : titlemap.entrySet())
+            indexTitle (entry.getKey(),entry.getValue());
+        titlesArray = titles.keySet().toArray (new String [titles.size()]);
+    }
+
+    private void indexTitle (String filename, String title) {
+        titles.put(filename,title);
+
+        Set<String> set = new TreeSet<>();
+        titlesets.put (filename,set);
+        for (String word : title.split(" ")) {
+            word = word.toLowerCase();
+            Set<String> collection = invertedTitle.get(word);
+            if (collection==null) {
+                collection = new TreeSet<>();
+                invertedTitle.put (word,collection);
+            }
+            collection.add (filename);
+            set.add (word);
+        }
+    }
+
+    Map<String,Map<String,Float>> getModel () {return context.getModel();}
+
     private void removeNonArticleLinks () {
         int removed = 0;
         for (String sink : graph.getSinks()) {
@@ -15,27 +15,180 @@
  *  You should have received a copy of the GNU General Public License
  *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package wikipedia;
 
+import grammar.Graph;
+import grammar.BinarySnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Map.Entry;
+import org.apache.log4j.Logger;
+
+/**
+ * Stores the graph, the content model and the titles of a DiversePedia
+ * instance as binary snapshots in a directory, so that it is restored by
+ * {@link #read(String)} without going through the text files again.
+ */
 public class DiversePediaBinaryStorage {
 
+    private static final Logger logger = Logger.getLogger (DiversePediaBinaryStorage.class);
+
+    public static final String GRAPH_FILE = "graph.bin";
+    public static final String MODEL_FILE = "model.bin";
+    public static final String FREQUENCIES_FILE = "frequencies.bin";
+    public static final String TITLES_FILE = "titles.bin";
+
     DiversePedia dp;
+    String dirname;
 
-    public DiversePediaBinaryStorage (DiversePedia _dp) {
+    public DiversePediaBinaryStorage (DiversePedia _dp, String _dirname) {
         dp = _dp;
+        dirname = _dirname;
     }
-    
-    
+
+    public void write () {
+        writeGraph();
+        writeModel();
+        writeTitles();
+    }
+
+    /**
+     * The raw term frequencies are only retained while the model is being
+     * produced, hence this stores whatever is left of them.
+     */
     public void writeFrequencies () {
-        
+        writeVectors (dp.getFrequencies(),new File(dirname,FREQUENCIES_FILE).getPath());
     }
     
     public void writeModel () {
-        
+        writeVectors (dp.getModel(),new File(dirname,MODEL_FILE).getPath());
     }
     
     public void writeGraph () {
-        
+        BinarySnapshot.saveGraph (dp.getGraph(),new File(dirname,GRAPH_FILE).getPath());
+    }
+
+    public void writeTitles () {
+        String filename = new File(dirname,TITLES_FILE).getPath();
+        try{
+            BinarySnapshot.Writer out = new BinarySnapshot.Writer (filename,BinarySnapshot.TABLE,BinarySnapshot.STRING_KEYS);
+            try{
+                out.writeInt (dp.getTitles().size());
+                for (Entry<String,String> entry : dp.getTitles().entrySet()) {
+                    out.writeNode (entry.getKey());
+                    out.writeString (entry.getValue());
+                }
+            }finally{
+                out.close();
+            }
+        }catch (IOException e){
+            throw new RuntimeException ("\n!! ERROR - Unable to save snapshot '"+filename+"': "+e.getMessage()+" !!");
+        }
+    }
+
+    public static DiversePedia read (String dirname) {
+        long start = System.currentTimeMillis();
+
+        Graph<String> graph = BinarySnapshot.loadGraph (new File(dirname,GRAPH_FILE).getPath());
+        Map<String,Map<String,Float>> model = readVectors (new File(dirname,MODEL_FILE).getPath());
+
+        String filename = new File(dirname,TITLES_FILE).getPath();
+        Map<String,String> titles = new TreeMap<>();
+        try{
+            BinarySnapshot.Reader in = new BinarySnapshot.Reader (filename,BinarySnapshot.TABLE);
+            try{
+                for (int i=in.readInt(); i>0; --i) {
+                    String key = (String) in.readNode();
+                    titles.put (key,in.readString());
+                }
+            }finally{
+                in.close();
+            }
+        }catch (IOException e){
+            throw new RuntimeException ("\n!! ERROR - Unable to load snapshot '"+filename+"': "+e.getMessage()+" !!");
+        }
+
+        DiversePedia dp = new DiversePedia (graph,model,titles);
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Restored " + model.size() + " descriptions and " + titles.size() + " titles from directory '" + dirname + "' in " + (System.currentTimeMillis() - start) / 1000.0 + " seconds.");
+        return dp;
+    }
+
+    /* the lemmas are stored once in a vocabulary, and each vector refers to them by their index */
+    private static void writeVectors (Map<String,Map<String,Float>> vectors, String filename) {
+        Map<String,Integer> vocabulary = new HashMap<>();
+        ArrayList<String> lemmas = new ArrayList<>();
+        for (Map<String,Float> vector : vectors.values()) {
+            for (String lemma : vector.keySet()) {
+                if (!vocabulary.containsKey(lemma)) {
+                    vocabulary.put (lemma,lemmas.size());
+                    lemmas.add (lemma);
+                }
+            }
+        }
+
+        try{
+            BinarySnapshot.Writer out = new BinarySnapshot.Writer (filename,BinarySnapshot.CONTENT_MODEL,BinarySnapshot.STRING_KEYS);
+            try{
+                out.writeInt (lemmas.size());
+                for (String lemma : lemmas) out.writeString (lemma);
+                out.writeInt (vectors.size());
+                for (Entry<String,Map<String,Float>> over : vectors.entrySet()) {
+                    int size = over.getValue().size(), i = 0;
+                    int[] terms = new int [size];
+                    float[] weights = new float [size];
+                    for (Entry<String,Float> under : over.getValue().entrySet()) {
+                        terms[i] = vocabulary.get(under.getKey());
+                        weights[i++] = under.getValue();
+                    }
+                    out.writeNode (over.getKey());
+                    out.writeInt (size);
+                    out.writeInts (terms,0,size);
+                    out.writeFloats (weights,0,size);
+                }
+            }finally{
+                out.close();
+            }
+        }catch (IOException e){
+            throw new RuntimeException ("\n!! ERROR - Unable to save snapshot '"+filename+"': "+e.getMessage()+" !!");
+        }
+        logger.info(Thread.currentThread().getName() + "<" + Thread.currentThread().getId() + "> Saved " + vectors.size() + " descriptions over " + lemmas.size() + " lemmas to snapshot '" + filename + "'.");
+    }
+
+    private static Map<String,Map<String,Float>> readVectors (String filename) {
+        Map<String,Map<String,Float>> vectors = new TreeMap<>();
+        try{
+            BinarySnapshot.Reader in = new BinarySnapshot.Reader (filename,BinarySnapshot.CONTENT_MODEL);
+            try{
+                String[] lemmas = new String [in.readInt()];
+                for (int i=0; i<lemmas.length; ++i) lemmas[i] = in.readString();
+
+                int[] terms = new int [16];
+                float[] weights = new float [16];
+                for (int j=in.readInt(); j>0; --j) {
+                    String key = (String) in.readNode();
+                    int size = in.readInt();
+                    if (size>terms.length) {
+                        terms = new int [size];
+                        weights = new float [size];
+                    }
+                    in.readInts (terms,0,size);
+                    in.readFloats (weights,0,size);
+
+                    Map<String,Float> vector = new TreeMap<>();
+                    for (int i=0; i<size; ++i) vector.put (lemmas[terms[i]],weights[i]);
+                    vectors.put (key,vector);
+                }
+            }finally{
+                in.close();
+            }
+        }catch (IOException e){
+            throw new RuntimeException ("\n!! ERROR - Unable to load snapshot '"+filename+"': "+e.getMessage()+" !!");
+        }
+        return vectors;
     }
 }
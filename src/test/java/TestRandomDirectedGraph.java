@@ -16,16 +16,54 @@
  *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.util.Map;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.Map.Entry;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.text.NumberFormat;
+import java.text.ParseException;
 
 import grammar.Edge;
+import grammar.EdgeCursor;
 import grammar.Graph;
+import grammar.CsrGraph;
+import grammar.GraphView;
+import grammar.GraphBuilder;
+import grammar.BinarySnapshot;
+import grammar.BoundedDistanceCache;
+import grammar.EdgeListParser;
 import grammar.DirectedGraph;
+import grammar.DistanceTable;
+import grammar.HopStatistics;
+import grammar.MatrixCsr;
+import grammar.MatrixSparse;
+import grammar.LP;
+import grammar.MinCut;
+import grammar.NetworkFlow;
+import grammar.ConnectedComponents;
+import grammar.TriangleCounter;
+import grammar.TraversalContext;
+import grammar.UndirectedGraph;
+import contraction.ContractionHierarchy;
+import oscp.Group;
+import oscp.LocationComparatorMinSum;
+import oscp.SearchConnectingLocation;
+import omcp.GroupingComparatorMinSum;
+import shortestpath.Landmarks;
+import shortestpath.ScatterMap;
+import shortestpath.ShortestPath;
+import wikipedia.DiversePedia;
+import wikipedia.DiversePediaBinaryStorage;
 
 import org.junit.Test;
 import org.junit.Ignore;
@@ -264,6 +302,909 @@ public class TestRandomDirectedGraph {
 	}
     }
 
+    @Test
+    public void testBidirectionalSearch () {
+	System.out.println("!! Testing bidirectional point-to-point searches !!");
+        ArrayList<Long> nodes = graph.getNodes();
+        try{
+            for (long u : nodes.subList(0,25)) {
+                for (long v : nodes) {
+                    graph.setPointToPointSearch(Graph.PointToPointSearch.UNIDIRECTIONAL);
+                    float expected = graph.getPathCost(u,v,false);
+                    graph.setPointToPointSearch(Graph.PointToPointSearch.BIDIRECTIONAL);
+                    float actual = graph.getPathCost(u,v,false);
+                    assertEquals ("\n!! Different bidirectional path cost from " + u + " to " + v + " !!",expected,actual,1e-4f);
+                    if (u!=v && expected<Float.MAX_VALUE) {
+                        float sum = 0.0f;
+                        Long previous = null;
+                        for (Long w : graph.getPath(u,v,false)) {
+                            if (previous!=null) sum += graph.getEdgeWeight(previous,w);
+                            previous = w;
+                        }
+                        assertEquals ("\n!! Bidirectional path from " + u + " to " + v + " is not a shortest one !!",expected,sum,1e-4f);
+                    }
+                }
+            }
+        }finally{
+            graph.setPointToPointSearch(Graph.PointToPointSearch.UNIDIRECTIONAL);
+        }
+    }
+
+    @Test
+    public void testContractionHierarchy () {
+	System.out.println("!! Testing point-to-point queries on the contraction hierarchy !!");
+        ContractionHierarchy<Long> hierarchy = new ContractionHierarchy<>(graph);
+        ArrayList<Long> nodes = graph.getNodes();
+        try{
+            for (long u : nodes.subList(0,25)) {
+                for (long v : nodes) {
+                    float expected = graph.getPathCost(u,v,false);
+                    graph.setDistanceOracle(hierarchy);
+                    float actual = graph.getPathCost(u,v,false);
+                    assertEquals ("\n!! Different contraction hierarchy path cost from " + u + " to " + v + " !!",expected,actual,1e-3f);
+                    if (u!=v && expected<Float.MAX_VALUE) {
+                        float sum = 0.0f;
+                        Long previous = null;
+                        for (Long w : graph.getPath(u,v,false)) {
+                            if (previous!=null) sum += graph.getEdgeWeight(previous,w);
+                            previous = w;
+                        }
+                        assertEquals ("\n!! Unpacked path from " + u + " to " + v + " is not a shortest one !!",expected,sum,1e-3f);
+                    }
+                    graph.setDistanceOracle(null);
+                }
+            }
+        }finally{
+            graph.setDistanceOracle(null);
+        }
+    }
+
+    @Test
+    public void testLandmarkBounds () {
+	System.out.println("!! Testing A* searches with landmark lower bounds !!");
+        ArrayList<Long> nodes = graph.getNodes();
+        for (Landmarks.Selection selection : Landmarks.Selection.values()) {
+            Landmarks<Long> landmarks = new Landmarks<>(graph,8,selection,new java.util.Random(7));
+            ShortestPath<Long> sp = new ShortestPath<>(graph,landmarks);
+            for (long u : nodes.subList(0,10)) {
+                for (long v : nodes) {
+                    float expected = graph.getPathCost(u,v,false);
+                    assertTrue ("\n!! Landmark bound from " + u + " to " + v + " is not admissible !!",expected==Float.MAX_VALUE || landmarks.lowerBound(u,v)<=expected+1e-3f);
+                    assertEquals ("\n!! Different A* path cost from " + u + " to " + v + " with " + selection + " landmarks !!",expected,sp.getPathCost(u,v),1e-3f);
+                }
+            }
+            assertTrue ("\n!! A* with landmarks settled more nodes than the graph has !!",sp.getSettledNodes()<=sp.getQueries()*graph.numberNodes());
+        }
+    }
+
+    @Test
+    public void testDeltaStepping () {
+	System.out.println("!! Testing delta-stepping single-source shortest paths !!");
+        ArrayList<Long> nodes = graph.getNodes();
+        try{
+            for (float delta : new float[]{Float.NaN,0.1f,10.0f}) {
+                graph.setDelta(delta);
+                for (long u : nodes.subList(0,25)) {
+                    graph.setSingleSourceSearch(Graph.SingleSourceSearch.DIJKSTRA);
+                    Map<Long,Float> expected = graph.dijkstraDistances(u);
+                    graph.setSingleSourceSearch(Graph.SingleSourceSearch.DELTA_STEPPING);
+                    Map<Long,Float> actual = graph.dijkstraDistances(u);
+                    assertEquals ("\n!! Different number of nodes reached by delta-stepping from " + u + " !!",expected.size(),actual.size());
+                    for (Entry<Long,Float> entry : expected.entrySet())
+                        assertEquals ("\n!! Different delta-stepping distance from " + u + " to " + entry.getKey() + " !!",
+                            entry.getValue(),actual.get(entry.getKey()),1e-3f);
+                }
+            }
+        }finally{
+            graph.setSingleSourceSearch(Graph.SingleSourceSearch.DIJKSTRA);
+            graph.setDelta(Float.NaN);
+        }
+    }
+
+    @Test
+    public void testDistanceTable () {
+	System.out.println("!! Testing many-to-many distance tables !!");
+        ArrayList<Long> nodes = graph.getNodes();
+        List<Long> few = nodes.subList(0,10), many = nodes.subList(10,110);
+        float[][] forwards = graph.distanceTable(few,many);
+        float[][] backwards = graph.distanceTable(many,few);
+        for (int i=0; i<few.size(); ++i) {
+            for (int j=0; j<many.size(); ++j) {
+                assertEquals ("\n!! Different distance from " + few.get(i) + " to " + many.get(j) + " in the table !!",
+                    graph.getPathCost(few.get(i),many.get(j),false),forwards[i][j],1e-3f);
+                assertEquals ("\n!! Different distance from " + many.get(j) + " to " + few.get(i) + " in the table !!",
+                    graph.getPathCost(many.get(j),few.get(i),false),backwards[j][i],1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalCacheMaintenance () {
+	System.out.println("!! Testing the maintenance of cached distances on edge updates !!");
+        DirectedGraph<Long> copy = new DirectedGraph<>();
+        for (Edge<Long> edge : graph) copy.setEdge(edge.from,edge.to,edge.weight);
+        copy.setMaxCachingRadius(Integer.MAX_VALUE);
+        ArrayList<Long> nodes = copy.getNodes();
+        java.util.Random rand = new java.util.Random(7);
+        for (int round=0; round<20; ++round) {
+            for (int i=0; i<50; ++i) copy.getPathCost(nodes.get(rand.nextInt(nodes.size())),nodes.get(rand.nextInt(nodes.size())));
+            long u = nodes.get(rand.nextInt(nodes.size())), v = nodes.get(rand.nextInt(nodes.size()));
+            switch (round%4) {
+                case 0: copy.setEdge(u,v,rand.nextFloat()); break;
+                case 1: copy.setEdge(u,v,10.0f+rand.nextFloat()); break;
+                case 2: for (long w : copy.getNeighbors(u)) {copy.removeEdge(u,w); break;} break;
+                default: for (long w : copy.getNeighbors(u)) {copy.setEdge(u,w,2.0f*copy.getEdgeWeight(u,w)); break;}
+            }
+            for (int i=0; i<50; ++i) {
+                long s = nodes.get(rand.nextInt(nodes.size())), t = nodes.get(rand.nextInt(nodes.size()));
+                assertEquals ("\n!! Stale cached distance from " + s + " to " + t + " after an edge update !!",
+                    copy.getPathCost(s,t,false),copy.getPathCost(s,t),1e-3f);
+            }
+        }
+        assertTrue ("\n!! No cached distance has been repaired or invalidated !!",copy.getRepairedEntries()+copy.getInvalidatedEntries()>0);
+
+        for (int round=0; round<10; ++round) {
+            for (int i=0; i<50; ++i) copy.getPathCost(nodes.get(rand.nextInt(nodes.size())),nodes.get(rand.nextInt(nodes.size())));
+            assertTrue ("\n!! Unable to remove a node !!",copy.removeNode(nodes.remove(rand.nextInt(nodes.size()))));
+            for (int i=0; i<50; ++i) {
+                long s = nodes.get(rand.nextInt(nodes.size())), t = nodes.get(rand.nextInt(nodes.size()));
+                assertEquals ("\n!! Stale cached distance from " + s + " to " + t + " after a node removal !!",
+                    copy.getPathCost(s,t,false),copy.getPathCost(s,t),1e-3f);
+            }
+        }
+
+        for (int i=0; i<50; ++i) copy.getPathCost(nodes.get(rand.nextInt(nodes.size())),nodes.get(rand.nextInt(nodes.size())));
+        long repaired = copy.getRepairedEntries();
+        copy.mergeNodes(nodes.get(0),nodes.remove(1));
+        assertEquals ("\n!! Cached distances were repaired per edge of a merge !!",repaired,copy.getRepairedEntries());
+        for (int i=0; i<50; ++i) {
+            long s = nodes.get(rand.nextInt(nodes.size())), t = nodes.get(rand.nextInt(nodes.size()));
+            assertEquals ("\n!! Stale cached distance from " + s + " to " + t + " after a merge !!",
+                copy.getPathCost(s,t,false),copy.getPathCost(s,t),1e-3f);
+        }
+    }
+
+    @Test
+    public void testConcurrentView () throws InterruptedException {
+	System.out.println("!! Testing the read-only view from concurrent threads !!");
+        final GraphView<Long> view = graph.view();
+        final ArrayList<Long> nodes = graph.getNodes();
+        final java.util.Random rand = new java.util.Random(7);
+        final int queries = 200;
+        final long[] froms = new long[queries], tos = new long[queries];
+        final float[] costs = new float[queries];
+        final List<ArrayList<Long>> ranges = new ArrayList<>(), nearest = new ArrayList<>(), reverse = new ArrayList<>();
+        for (int i=0; i<queries; ++i) {
+            froms[i] = nodes.get(rand.nextInt(nodes.size()));
+            tos[i] = nodes.get(rand.nextInt(nodes.size()));
+            costs[i] = view.getPathCost(froms[i],tos[i]);
+            assertEquals ("\n!! Different distance from " + froms[i] + " to " + tos[i] + " in the view !!",
+                graph.getPathCost(froms[i],tos[i],false),costs[i],1e-3f);
+            ranges.add(view.rangeQuery(froms[i],2.0f*costs[i]/3.0f));
+            nearest.add(view.nearestQuery(froms[i],10));
+            reverse.add(view.reverseNearestQuery(tos[i],10));
+        }
+
+        final java.util.concurrent.atomic.AtomicInteger mismatches = new java.util.concurrent.atomic.AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t=0; t<threads.length; ++t) {
+            final int offset = t*queries/threads.length;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int round=0; round<3; ++round) {
+                            for (int j=0; j<queries; ++j) {
+                                int i = (offset+j)%queries;
+                                if (view.getPathCost(froms[i],tos[i])!=costs[i]) mismatches.incrementAndGet();
+                                if (!view.rangeQuery(froms[i],2.0f*costs[i]/3.0f).equals(ranges.get(i))) mismatches.incrementAndGet();
+                                if (!view.nearestQuery(froms[i],10).equals(nearest.get(i))) mismatches.incrementAndGet();
+                                if (!view.reverseNearestQuery(tos[i],10).equals(reverse.get(i))) mismatches.incrementAndGet();
+                                if (froms[i]!=tos[i] && costs[i]<Float.MAX_VALUE && view.getPath(froms[i],tos[i]).getLast()!=tos[i])
+                                    mismatches.incrementAndGet();
+                            }
+                        }
+                    }catch (RuntimeException e) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals ("\n!! Concurrent queries on the view differ from the single-threaded ones !!",0,mismatches.get());
+    }
+
+    @Test
+    public void testBulkInsertion () {
+	System.out.println("!! Testing the bulk insertion of edges !!");
+        DirectedGraph<Long> bulk = new DirectedGraph<>();
+        bulk.addNode(-1L);
+        GraphBuilder<Long> builder = new GraphBuilder<>();
+        for (Edge<Long> edge : graph) {
+            builder.add(edge.from,edge.to,-edge.weight);
+            builder.add(edge.from,edge.to,edge.weight); // the last weight prevails
+        }
+        bulk.setEdges(builder);
+        assertEquals ("\n!! Problematic vertex insertion in bulk !!",graph.numberNodes()+1,bulk.numberNodes());
+        assertEquals ("\n!! Problematic edge insertion in bulk !!",graph.numberEdges(),bulk.numberEdges());
+        assertEquals ("\n!! Problematic negative edge count in bulk !!",graph.numberNegativeEdges(),bulk.numberNegativeEdges());
+        for (long u : graph.getNodes()) {
+            assertEquals ("\n!! Different in-degree after bulk insertion !!",graph.getInDegree(u),bulk.getInDegree(u));
+            assertEquals ("\n!! Different out-degree after bulk insertion !!",graph.getOutDegree(u),bulk.getOutDegree(u));
+        }
+        for (Edge<Long> edge : graph)
+            assertEquals ("\n!! Different weight of edge " + edge + " after bulk insertion !!",edge.weight,bulk.getEdgeWeight(edge.from,edge.to),0.0f);
+
+        /* on a graph with edges the cache is dropped once rather than repaired per edge */
+        DirectedGraph<Long> chain = new DirectedGraph<>();
+        chain.setMaxCachingRadius(1000);
+        for (long u=0; u<100; ++u) chain.setEdge(u,u+1,1.0f);
+        for (long v=0; v<=100; ++v) chain.getPathCost(0L,v);
+        GraphBuilder<Long> shortcuts = new GraphBuilder<>();
+        for (long v=2; v<=100; v+=7) shortcuts.add(0L,v,0.5f);
+        chain.setEdges(shortcuts);
+        assertEquals ("\n!! Cached distances were repaired per edge of a bulk insertion !!",0L,chain.getRepairedEntries());
+        for (long v=0; v<=100; ++v)
+            assertEquals ("\n!! Stale distance after bulk insertion !!",chain.getPathCost(0L,v,false),chain.getPathCost(0L,v),1e-4f);
+    }
+
+    @Test
+    public void testReverseAdjacency () {
+	System.out.println("!! Testing the reverse adjacency of the graph !!");
+        DirectedGraph<Long> copy = new DirectedGraph<>(graph);
+        ArrayList<Long> nodes = copy.getNodes();
+        for (int i=0; i<nodes.size(); i+=10) copy.removeNode(nodes.get(i));
+        for (long u : copy.getNodes()) {
+            for (long v : copy.getNeighbors(u)) {
+                if (u%3==0) copy.removeEdge(u,v);
+                else copy.setEdge(u,v,2.0f*copy.getEdgeWeight(u,v));
+            }
+        }
+        int incoming = 0;
+        for (long v : copy.getNodes()) {
+            assertEquals ("\n!! In-degree differs from the number of incoming edges !!",copy.getInDegree(v),copy.getEdgesTo(v).size());
+            for (Edge<Long> edge : copy.getEdgesTo(v)) {
+                assertEquals ("\n!! Stale weight of incoming edge " + edge + " !!",copy.getEdgeWeight(edge.from,edge.to),edge.weight,0.0f);
+                ++incoming;
+            }
+        }
+        assertEquals ("\n!! Incoming edges do not add up to the edges of the graph !!",copy.numberEdges(),incoming);
+
+        DirectedGraph<Long> hub = new DirectedGraph<>();
+        for (long u=1; u<=300; ++u) hub.setEdge(u,0L,(float)u);
+        for (long u=1; u<=300; u+=2) hub.setEdge(u,0L,-(float)u);
+        for (long u=1; u<=300; u+=3) hub.removeEdge(u,0L);
+        assertEquals ("\n!! In-degree of the hub differs from its incoming edges !!",hub.getInDegree(0L),hub.getEdgesTo(0L).size());
+        for (Edge<Long> edge : hub.getEdgesTo(0L)) {
+            assertTrue ("\n!! Removed edge " + edge + " still leads to the hub !!",(edge.from-1)%3!=0);
+            assertEquals ("\n!! Stale weight of hub edge " + edge + " !!",edge.from%2==1?-edge.from:edge.from,edge.weight,0.0f);
+        }
+        for (long u=1; u<=300; ++u) hub.removeEdge(u,0L);
+        assertEquals ("\n!! Hub edges left after removing them all !!",0,hub.getEdgesTo(0L).size());
+    }
+
+    @Test
+    public void testTriangleCounting () {
+	System.out.println("!! Testing the counting of triangles !!");
+        DirectedGraph<Long> dense = new DirectedGraph<>();
+        UndirectedGraph<Long> symmetric = new UndirectedGraph<>();
+        java.util.Random rand = new java.util.Random(5);
+        for (int i=0; i<4000; ++i) {
+            long u = rand.nextInt(200), v = rand.nextInt(200);
+            dense.setEdge(u,v,1.0f);
+            symmetric.setEdge(u,v,1.0f);
+        }
+        for (Graph<Long> g : Arrays.<Graph<Long>>asList(graph,dense,symmetric)) {
+            long closed = 0L;
+            for (long u : g.getNodes())
+                for (long v : g.getNeighbors(u))
+                    for (long w : g.getNeighbors(u))
+                        if (u!=v && u!=w && v!=w && g.containsEdge(v,w)) ++closed;
+            long expected = g instanceof UndirectedGraph ? closed/6L : closed;
+            assertEquals ("\n!! Wrong number of triangles !!",expected,g.numberTriangles());
+
+            TriangleCounter.Estimate estimate = new TriangleCounter<>(g.freeze()).estimate(200000L,0.999,11L);
+            assertTrue ("\n!! Triangles out of the estimated bounds " + estimate + " !!",
+                    estimate.lowerBound<=expected && expected<=estimate.upperBound);
+        }
+    }
+
+    @Test
+    public void testComponentLabels () {
+	System.out.println("!! Testing the labels of connected components !!");
+        DirectedGraph<Long> chain = new DirectedGraph<>(graph);
+        long first = -1L;
+        for (long i=first; i>-200000L; --i) chain.setEdge(i,i-1,1.0f); // deep enough for a recursive search to overflow
+        chain.setEdge(-200000L,first,1.0f);
+        CsrGraph<Long> frozen = chain.freeze();
+        int[] labels = chain.getComponentLabels(frozen);
+        for (int[] other : new int[][] {ConnectedComponents.tarjan(frozen),ConnectedComponents.gabow(frozen),
+                ConnectedComponents.kosaraju(frozen),ConnectedComponents.strong(frozen,4)}) {
+            assertEquals ("\n!! Different number of strongly connected components !!",ConnectedComponents.count(labels),ConnectedComponents.count(other));
+            int[] mapping = new int[labels.length];
+            java.util.Arrays.fill(mapping,-1);
+            for (int u=0; u<labels.length; ++u) {
+                if (mapping[labels[u]]<0) mapping[labels[u]] = other[u];
+                assertEquals ("\n!! Node " + frozen.getNode(u) + " in a different strongly connected component !!",mapping[labels[u]],other[u]);
+            }
+        }
+        Map<Long,Integer> components = chain.getConnectedComponents();
+        assertEquals ("\n!! Chain cycle split in strongly connected components !!",components.get(first),components.get(-200000L));
+        for (long u : graph.getNodes())
+            for (long v : chain.getNeighbors(u))
+                if (chain.pathExistence(v,u))
+                    assertEquals ("\n!! Nodes on a cycle in different components !!",components.get(u),components.get(v));
+                else assertTrue ("\n!! Nodes off a cycle in the same component !!",!components.get(u).equals(components.get(v)));
+
+        UndirectedGraph<Long> symmetric = new UndirectedGraph<>();
+        for (Edge<Long> edge : chain) symmetric.setEdge(edge.from,edge.to,edge.weight);
+        Map<Long,Integer> weak = symmetric.getConnectedComponents();
+        assertEquals ("\n!! Different weakly connected components !!",ConnectedComponents.count(ConnectedComponents.weak(frozen,4)),symmetric.numberConnectedComponents());
+        for (long u : symmetric.getNodes())
+            for (long v : symmetric.getNeighbors(u))
+                assertEquals ("\n!! Adjacent nodes in different components !!",weak.get(u),weak.get(v));
+    }
+
+    @Test
+    public void testSpanningForest () {
+	System.out.println("!! Testing the minimum spanning forest engines !!");
+        UndirectedGraph<Long> symmetric = new UndirectedGraph<>();
+        for (Edge<Long> edge : graph) symmetric.setEdge(edge.from,edge.to,edge.weight);
+        float expected = 0.0f;
+        for (Edge<Long> edge : symmetric.prim()) expected += edge.weight;
+        int components = symmetric.numberConnectedComponents();
+        for (UndirectedGraph<Long> forest : java.util.Arrays.asList(symmetric.parallelBoruvka(),symmetric.filterKruskal())) {
+            float cost = 0.0f;
+            for (Edge<Long> edge : forest) {
+                assertEquals ("\n!! Spanning forest edge " + edge + " not in the graph !!",symmetric.getEdgeWeight(edge.from,edge.to),edge.weight,0.0f);
+                cost += edge.weight;
+            }
+            assertEquals ("\n!! Spanning forest of wrong size !!",symmetric.numberNodes()-components,forest.numberEdges());
+            assertEquals ("\n!! Spanning forest nodes missing !!",symmetric.numberNodes(),forest.numberNodes());
+            assertEquals ("\n!! Spanning forest not of minimum cost !!",expected,cost,1e-3f*Math.max(1.0f,expected));
+        }
+    }
+
+    @Test
+    public void testMaximumFlow () {
+	System.out.println("!! Testing the maximum flow engines !!");
+        NetworkFlow<Long> network = new NetworkFlow<>();
+        for (Edge<Long> edge : graph) network.setPipe(edge.from,edge.to,edge.weight);
+        ArrayList<Long> nodes = graph.getNodes();
+        java.util.Random rand = new java.util.Random(9);
+        for (int i=0; i<10; ++i) {
+            long s = nodes.get(rand.nextInt(nodes.size())), t = nodes.get(rand.nextInt(nodes.size()));
+            if (s==t) continue;
+            float dinic = network.dinic(s,t);
+            float pushRelabel = network.pushRelabel(s,t);
+            float cut = 0.0f;
+            for (Edge<Long> edge : network.minCutEdges(s,t)) cut += edge.weight;
+            assertEquals ("\n!! Dinic's and push-relabel flows differ !!",dinic,pushRelabel,1e-3f*Math.max(1.0f,dinic));
+            assertEquals ("\n!! Minimum cut differs from the maximum flow !!",pushRelabel,cut,1e-3f*Math.max(1.0f,cut));
+        }
+    }
+
+    @Test
+    public void testMinimumCut () {
+	System.out.println("!! Testing Karger-Stein minimum cuts !!");
+        java.util.Random rand = new java.util.Random(11);
+        for (int round=0; round<5; ++round) {
+            Graph<Integer> small = new UndirectedGraph<>();
+            int n = 14;
+            for (int u=0; u<n; ++u)
+                for (int v=u+1; v<n; ++v)
+                    if (rand.nextFloat()<0.4f) small.setEdge(u,v,1.0f+rand.nextInt(5));
+            for (int u=1; u<n; ++u) small.setEdge(u-1,u,small.containsEdge(u-1,u)?small.getEdgeWeight(u-1,u):1.0f);
+
+            float exact = Float.POSITIVE_INFINITY;
+            for (int mask=1; mask<(1<<(n-1)); ++mask) {
+                float value = 0.0f;
+                for (int u=0; u<n; ++u)
+                    for (int v=u+1; v<n; ++v)
+                        if (((mask>>>u)&1)!=((mask>>>v)&1) && small.containsEdge(u,v)) value += small.getEdgeWeight(u,v);
+                exact = Math.min(exact,value);
+            }
+
+            MinCut<Integer> engine = new MinCut<>(small);
+            MinCut.Cut<Integer> cut = engine.kargerStein(MinCut.trialsFor(n,0.999),round,2);
+            assertEquals ("\n!! Karger-Stein missed the minimum cut !!",exact,cut.value,1e-4f);
+            float crossing = 0.0f;
+            TreeSet<Integer> side = new TreeSet<>(cut.side);
+            for (int u=0; u<n; ++u)
+                for (int v=u+1; v<n; ++v)
+                    if (side.contains(u)!=side.contains(v) && small.containsEdge(u,v)) crossing += small.getEdgeWeight(u,v);
+            assertEquals ("\n!! The side returned does not match the cut value !!",cut.value,crossing,1e-4f);
+        }
+
+        Graph<Integer> split = new UndirectedGraph<>();
+        split.setEdge(0,1,3.0f);
+        split.setEdge(2,3,4.0f);
+        assertEquals ("\n!! Disconnected graphs should have an empty minimum cut !!",0.0f,split.kargerStein(0.9),0.0f);
+    }
+
+    @Test
+    public void testHopStatistics () {
+	System.out.println("!! Testing bit-parallel BFS and HyperANF hop statistics !!");
+        long sumhops = 0L, pairs = 0L;
+        int maxhops = 0;
+        for (long u : graph.getNodes()) {
+            Map<Long,Integer> hops = new java.util.HashMap<>();
+            ArrayDeque<Long> queue = new ArrayDeque<>();
+            hops.put(u,0);
+            queue.add(u);
+            while (!queue.isEmpty()) {
+                long v = queue.remove();
+                for (long w : graph.getNeighbors(v))
+                    if (!hops.containsKey(w)) {
+                        hops.put(w,hops.get(v)+1);
+                        queue.add(w);
+                        sumhops += hops.get(w);
+                        maxhops = Math.max(maxhops,hops.get(w));
+                        ++pairs;
+                    }
+            }
+        }
+        HopStatistics<Long> statistics = new HopStatistics<>(graph);
+        HopStatistics.Distribution exact = statistics.exact(3);
+        assertEquals ("\n!! Wrong number of reachable pairs !!",pairs,exact.reachablePairs(),0.0);
+        assertEquals ("\n!! Wrong average number of hops !!",sumhops/(double)pairs,exact.averageDistance(),1e-4);
+        assertEquals ("\n!! Wrong maximum number of hops !!",maxhops,exact.diameter());
+        assertEquals ("\n!! Wrong maximum number of hops from the graph !!",maxhops,graph.getMaxPathHops());
+
+        HopStatistics.Distribution estimated = statistics.hyperANF(12,1L,2);
+        assertEquals ("\n!! HyperANF is far off the reachable pairs !!",1.0,estimated.reachablePairs()/pairs,0.1);
+        assertEquals ("\n!! HyperANF is far off the average distance !!",exact.averageDistance(),estimated.averageDistance(),0.1*exact.averageDistance());
+        assertEquals ("\n!! HyperANF is far off the effective diameter !!",exact.effectiveDiameter(),estimated.effectiveDiameter(),0.1*exact.effectiveDiameter());
+
+        Graph<Integer> chain = new DirectedGraph<>();
+        Graph<Integer> path = new UndirectedGraph<>();
+        chain.setEdge(0,1,1.0f); chain.setEdge(1,2,1.0f);
+        path.setEdge(0,1,1.0f); path.setEdge(1,2,1.0f);
+        assertEquals ("\n!! Wrong maximum number of hops along a directed path !!",2,chain.getMaxPathHops());
+        assertEquals ("\n!! Wrong average number of hops along a directed path !!",4.0f/3.0f,chain.getAveragePathHops(),1e-4f);
+        assertEquals ("\n!! Wrong maximum number of hops along an undirected path !!",2,path.getMaxPathHops());
+        assertEquals ("\n!! Wrong average number of hops along an undirected path !!",4.0f/3.0f,path.getAveragePathHops(),1e-4f);
+    }
+
+    @Test
+    public void testSparseLinearAlgebra () {
+	System.out.println("!! Testing compressed sparse matrices !!");
+        MatrixSparse<Long,Long> sparse = new MatrixSparse<>(0.0f);
+        for (Edge<Long> edge : graph) sparse.set(edge.from,edge.to,edge.weight);
+        for (long u : graph.getNodes()) sparse.set(u,u,1.0f+graph.getOutDegree(u)*100.0f);
+        MatrixCsr<Long,Long> compressed = new MatrixCsr<>(sparse);
+        assertEquals ("\n!! Problematic compression of the matrix !!",graph.numberEdges()+graph.numberNodes(),compressed.numberNonZeros());
+
+        MatrixCsr<Long,Long> transposed = compressed.transpose();
+        for (Edge<Long> edge : graph)
+            assertEquals ("\n!! Problematic transpose of the matrix !!",edge.weight,transposed.get(edge.to,edge.from),0.0f);
+        assertTrue ("\n!! Problematic round trip of the matrix !!",sparse.equals(compressed.toSparse()) && compressed.toSparse().equals(sparse));
+
+        MatrixCsr<Long,Long> square = compressed.times(transposed,3);
+        for (long u : graph.getNodes()) {
+            for (long v : graph.getNeighbors(u)) {
+                float expected = 0.0f;
+                for (long w : graph.getNodes()) expected += sparse.get(u,w)*sparse.get(v,w);
+                assertEquals ("\n!! Problematic sparse matrix product !!",expected,square.get(u,v),1e-3f*Math.abs(expected));
+            }
+        }
+
+        MatrixCsr<Long,Long>.LU lu = compressed.lu();
+        double[] b = new double[compressed.numberRows()];
+        for (int i=0; i<b.length; ++i) b[i] = i%7-3;
+        double[] r = compressed.times(lu.solve(b));
+        for (int i=0; i<b.length; ++i)
+            assertEquals ("\n!! Problematic solution by the LU factorization !!",b[i],r[i],1e-6);
+
+        MatrixSparse<Integer,Integer> small = new MatrixSparse<>(0.0f);
+        small.set(0,1,2.0f);
+        small.set(0,2,1.0f);
+        small.set(1,0,3.0f);
+        small.set(1,2,-1.0f);
+        small.set(2,0,1.0f);
+        small.set(2,1,4.0f);
+        assertEquals ("\n!! Wrong determinant !!",10.0f,small.determinant(),1e-4f);
+        MatrixSparse<Integer,Integer> adjoint = small.adjoint();
+        assertEquals ("\n!! Wrong adjoint !!",4.0f,adjoint.get(0,0),1e-4f);
+        assertEquals ("\n!! Wrong adjoint !!",4.0f,adjoint.get(0,1),1e-4f);
+        assertEquals ("\n!! Wrong adjoint !!",-1.0f,adjoint.get(1,0),1e-4f);
+        MatrixSparse<Integer,Integer> identity = small.solve(small);
+        for (int i=0; i<3; ++i)
+            for (int j=0; j<3; ++j)
+                assertEquals ("\n!! Problematic solution of AX=A !!",i==j?1.0f:0.0f,identity.get(i,j),1e-4f);
+        MatrixSparse<Integer,Integer> product = small.times(small.adjoint());
+        for (int i=0; i<3; ++i)
+            for (int j=0; j<3; ++j)
+                assertEquals ("\n!! Problematic product by the adjoint !!",i==j?10.0f:0.0f,product.get(i,j),1e-4f);
+    }
+
+    @Test
+    public void testLinearProgramming () {
+	System.out.println("!! Testing the revised simplex !!");
+        for (LP.Pricing pricing : LP.Pricing.values()) {
+            LP lp = new LP();
+            lp.setPricing(pricing);
+            lp.setMaximize(true);
+            lp.setObjective(0L,3.0f);
+            lp.setObjective(1L,5.0f);
+            lp.setConstraint(0L,0L,1.0f);
+            lp.setBound(0L,LP.Sense.LESS_EQUAL,4.0f);
+            lp.setConstraint(1L,1L,2.0f);
+            lp.setBound(1L,LP.Sense.LESS_EQUAL,12.0f);
+            lp.setConstraint(2L,0L,3.0f);
+            lp.setConstraint(2L,1L,2.0f);
+            lp.setBound(2L,LP.Sense.LESS_EQUAL,18.0f);
+            MatrixSparse<Long,Long> x = lp.solve();
+            assertEquals ("\n!! Wrong optimum of the simplex !!",36.0,lp.getObjectiveValue(),1e-6);
+            assertEquals ("\n!! Wrong solution of the simplex !!",2.0f,x.get(0L,0L),1e-6f);
+            assertEquals ("\n!! Wrong solution of the simplex !!",6.0f,x.get(1L,0L),1e-6f);
+
+            lp = new LP();
+            lp.setPricing(pricing);
+            lp.setObjective(0L,1.0f);
+            lp.setObjective(1L,1.0f);
+            lp.setConstraint(0L,0L,1.0f);
+            lp.setConstraint(0L,1L,2.0f);
+            lp.setBound(0L,LP.Sense.GREATER_EQUAL,4.0f);
+            lp.setConstraint(1L,0L,1.0f);
+            lp.setConstraint(1L,1L,-1.0f);
+            lp.setBound(1L,LP.Sense.EQUAL,1.0f);
+            lp.solve();
+            assertEquals ("\n!! Wrong optimum of the simplex with equalities !!",3.0,lp.getObjectiveValue(),1e-6);
+            LP.Basis warm = lp.getBasis();
+            lp.setObjective(1L,2.0f);
+            lp.solve(warm);
+            assertEquals ("\n!! Wrong optimum of the warm-started simplex !!",4.0,lp.getObjectiveValue(),1e-6);
+
+            lp.setBound(2L,LP.Sense.GREATER_EQUAL,5.0f);
+            lp.setConstraint(2L,0L,1.0f);
+            lp.setBound(3L,LP.Sense.LESS_EQUAL,4.0f);
+            lp.setConstraint(3L,0L,1.0f);
+            assertTrue ("\n!! Infeasible program not detected !!",lp.solve()==null && lp.getStatus()==LP.Status.INFEASIBLE);
+
+            lp = new LP();
+            lp.setPricing(pricing);
+            lp.setMaximize(true);
+            lp.setObjective(0L,1.0f);
+            lp.setConstraint(0L,0L,1.0f);
+            lp.setConstraint(0L,1L,-1.0f);
+            lp.setBound(0L,LP.Sense.LESS_EQUAL,1.0f);
+            assertTrue ("\n!! Unbounded program not detected !!",lp.solve()==null && lp.getStatus()==LP.Status.UNBOUNDED);
+        }
+
+        NetworkFlow<Long> network = new NetworkFlow<>();
+        for (Edge<Long> edge : graph) network.setPipe(edge.from,edge.to,edge.weight);
+        CsrGraph<Long> pipes = graph.freeze();
+        int s = 0, t = pipes.numberNodes()-1;
+        LP lp = LP.maximumFlow(pipes,s,t);
+        lp.solve();
+        assertEquals ("\n!! The flow relaxation differs from the maximum flow !!",network.dinic(pipes.getNode(s),pipes.getNode(t)),lp.getObjectiveValue(),1e-3);
+    }
+
+    @Test
+    public void testTraversalContext () {
+	System.out.println("!! Testing reusable traversal contexts !!");
+        CsrGraph<Long> frozen = graph.freeze();
+        TraversalContext<Long> context = new TraversalContext<>();
+        ArrayList<Long> nodes = graph.getNodes();
+        for (int k=0; k<nodes.size(); k+=25) {
+            Long u = nodes.get(k);
+            ArrayList<Long> expected = new ArrayList<>(), reused = new ArrayList<>();
+            for (Long v : graph.BFS(u)) expected.add(v);
+            for (Long v : graph.BFS(u,context)) reused.add(v);
+            assertEquals ("\n!! BFS differs upon a reused traversal context !!",expected,reused);
+
+            expected.clear(); reused.clear();
+            for (Long v : frozen.DFS(u)) expected.add(v);
+            for (Long v : frozen.DFS(u,context)) reused.add(v);
+            assertEquals ("\n!! DFS on the snapshot differs upon a reused traversal context !!",expected,reused);
+
+            TreeSet<Long> reachable = new TreeSet<>(expected);
+            for (int l=0; l<nodes.size(); l+=50) {
+                Long w = nodes.get(l);
+                assertEquals ("\n!! Erroneous path existence from "+u+" to "+w+" !!",reachable.contains(w),graph.pathExistence(u,w));
+                assertEquals ("\n!! Erroneous path existence on the snapshot from "+u+" to "+w+" !!",reachable.contains(w),frozen.pathExistence(u,w));
+            }
+        }
+
+        TreeSet<Long> visited = new TreeSet<>();
+        for (Long u : graph.postorder(context))
+            assertTrue ("\n!! Node "+u+" visited twice in postorder !!",visited.add(u));
+        assertEquals ("\n!! Not all nodes were visited in postorder !!",graph.numberNodes(),visited.size());
+        visited.clear();
+        for (Long u : frozen.preorder(context))
+            assertTrue ("\n!! Node "+u+" visited twice in preorder !!",visited.add(u));
+        assertEquals ("\n!! Not all nodes were visited in preorder !!",graph.numberNodes(),visited.size());
+
+        context.begin();
+        for (int i=0; i<context.numberNodes(); ++i)
+            assertTrue ("\n!! Node "+i+" still marked by a previous traversal !!",!context.isMarked(i));
+
+        TraversalContext<Long> outer = graph.acquireTraversalContext();
+        try {
+            int marked = outer.indexOf(nodes.get(0));
+            outer.mark(marked);
+            TraversalContext<Long> inner = graph.acquireTraversalContext();
+            assertTrue ("\n!! Nested searches were lent the same traversal context !!",inner!=outer);
+            graph.releaseTraversalContext(inner);
+            graph.pathExistence(nodes.get(0),nodes.get(nodes.size()-1));
+            assertTrue ("\n!! A nested search wiped the marks of the outer one !!",outer.isMarked(marked));
+        } finally {
+            graph.releaseTraversalContext(outer);
+        }
+    }
+
+    @Test
+    public void testEdgeCursor () {
+	System.out.println("!! Testing the allocation-free edge cursors !!");
+        EdgeCursor<Long> cursor = new EdgeCursor<>();
+        for (Long u : graph.getNodes()) {
+            ArrayList<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+            for (Edge<Long> e : graph.getEdgesFrom(u)) expected.add(e.from+"->"+e.to+":"+e.weight);
+            for (graph.getEdgesFrom(u,cursor); cursor.next(); ) {
+                assertEquals ("\n!! Outgoing edge of "+u+" does not start from it !!",u,cursor.from());
+                actual.add(cursor.from()+"->"+cursor.to()+":"+cursor.weight());
+            }
+            for (Edge<Long> e : graph.getEdgesTo(u)) expected.add(e.from+"->"+e.to+":"+e.weight);
+            for (graph.getEdgesTo(u,cursor); cursor.next(); ) {
+                assertEquals ("\n!! Incoming edge of "+u+" does not lead to it !!",u,cursor.to());
+                actual.add(cursor.edge().from+"->"+cursor.edge().to+":"+cursor.edge().weight);
+            }
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals ("\n!! Edge cursor differs from the edges of node "+u+" !!",expected,actual);
+        }
+    }
+
+    @Test
+    public void testBoundedDistanceCache () {
+	System.out.println("!! Testing the bounded distance cache !!");
+        BoundedDistanceCache<Long> cache = new BoundedDistanceCache<>(100, BoundedDistanceCache.Policy.LRU);
+        for (long u=0; u<20; ++u)
+            for (long v=0; v<10; ++v)
+                cache.put(u,v,(float)(u+v));
+        assertTrue ("\n!! Cache exceeds its capacity: "+cache+" !!",cache.size()<=100);
+        assertTrue ("\n!! No rows were evicted: "+cache+" !!",cache.getEvictions()>0);
+        assertTrue ("\n!! The most recent row was evicted !!",cache.getSources().contains(19L));
+        assertTrue ("\n!! The least recent row was kept !!",!cache.getSources().contains(0L));
+
+        for (long v=0; v<10; ++v) cache.remove(19L,v);
+        assertTrue ("\n!! An emptied row was left in the cache !!",!cache.getSources().contains(19L));
+        cache.put(19L,3L,1.0f);
+        assertEquals ("\n!! Distance lost after its row was emptied !!",1.0f,cache.get(19L,3L),0.0f);
+
+        float max = 0.0f;
+        for (long u : cache.getSources())
+            for (float dist : cache.getDistancesFrom(u).values()) max = Math.max(max,dist);
+        assertTrue ("\n!! Cached distances exceed the bound of "+cache.getMaxCachedDistance()+" !!",max<=cache.getMaxCachedDistance());
+        cache.clear();
+        assertEquals ("\n!! Bound on cached distances kept after clearing !!",0.0f,cache.getMaxCachedDistance(),0.0f);
+
+        cache.resetStatistics();
+        cache.put(1L,2L,3.0f);
+        assertEquals ("\n!! Wrong cached distance !!",3.0f,cache.get(1L,2L),0.0f);
+        assertTrue ("\n!! Distance found for a target never cached !!",cache.get(1L,3L)==null);
+        assertTrue ("\n!! Distance found for a source never cached !!",cache.get(2L,2L)==null);
+        cache.get(1L,2L);
+        assertEquals ("\n!! Wrong number of cache hits: "+cache+" !!",2L,cache.getHits());
+        assertEquals ("\n!! Wrong number of cache misses: "+cache+" !!",2L,cache.getMisses());
+
+        BoundedDistanceCache<Long> frequent = new BoundedDistanceCache<>(100, BoundedDistanceCache.Policy.LFU);
+        for (long u=0; u<9; ++u)
+            for (long v=0; v<10; ++v)
+                frequent.put(u,v,(float)(u+v));
+        for (int i=0; i<50; ++i) frequent.get(0L,(long)(i%10));
+        for (long u=9; u<12; ++u)
+            for (long v=0; v<10; ++v)
+                frequent.put(u,v,(float)(u+v));
+        assertTrue ("\n!! Cache exceeds its capacity: "+frequent+" !!",frequent.size()<=100);
+        assertTrue ("\n!! No rows were evicted: "+frequent+" !!",frequent.getEvictions()>0);
+        assertTrue ("\n!! The most frequently used row was evicted !!",frequent.getSources().contains(0L));
+        assertEquals ("\n!! Distance lost from the most frequently used row !!",5.0f,frequent.get(0L,5L),0.0f);
+    }
+
+    @Test
+    public void testBatchedLocationScoring () {
+	System.out.println("!! Testing the batched scoring of candidate meeting locations and groupings !!");
+        int side = 40;
+        DirectedGraph<Long> grid = new DirectedGraph<>();
+        for (long x=0; x<side; ++x) {
+            for (long y=0; y<side; ++y) {
+                if (x+1<side) {
+                    grid.setEdge(x*side+y,(x+1)*side+y,1.0f+(x*y)%3);
+                    grid.setEdge((x+1)*side+y,x*side+y,1.0f+(x*y)%3);
+                }
+                if (y+1<side) {
+                    grid.setEdge(x*side+y,x*side+y+1,1.0f+(x+y)%2);
+                    grid.setEdge(x*side+y+1,x*side+y,1.0f+(x+y)%2);
+                }
+            }
+        }
+        Long[] sources = {5L*side+5,5L*side+30,30L*side+15};
+        float[][] lambdas = {{.5f,.25f,.25f},{.25f,.5f,.25f},{.25f,.25f,.5f}};
+        Group<Long> group = new Group<>(20L*side+35,sources,lambdas,grid,true);
+
+        grid.resetCache();
+        grid.resetSettledNodes();
+        final LocationComparatorMinSum<Long> oneByOne = new LocationComparatorMinSum<>(group,grid,null,false);
+        Long expected = SearchConnectingLocation.DFS(group,grid,new Comparator<Long>() {
+            @Override
+            public int compare (Long x, Long y) {return oneByOne.compare(x,y);}
+        });
+        long settledOneByOne = grid.getSettledNodes();
+
+        grid.resetCache();
+        grid.resetSettledNodes();
+        LocationComparatorMinSum<Long> batched = new LocationComparatorMinSum<>(group,grid,null,false);
+        Long mu = SearchConnectingLocation.DFS(group,grid,batched);
+        long settledBatched = grid.getSettledNodes();
+
+        assertEquals ("\n!! Batched scoring leads to another meeting location !!",expected,mu);
+        assertEquals ("\n!! Different score of the meeting location !!",oneByOne.computeScore(mu),batched.computeScore(mu),1e-3f);
+        assertTrue ("\n!! Batched scoring settles "+settledBatched+" nodes against "+settledOneByOne+" one by one !!",
+            settledBatched<settledOneByOne);
+
+        ArrayList<Long> travelers = new ArrayList<>(), locations = new ArrayList<>();
+        for (Group<Long> subgroup : group.getSubgroups()) travelers.add(subgroup.getTarget());
+        for (long w=0; w<side*side; w+=side*side/30) locations.add(w);
+        GroupingComparatorMinSum<Long> pairwise = new GroupingComparatorMinSum<>(grid), tabled = new GroupingComparatorMinSum<>(grid);
+        grid.resetSettledNodes();
+        float[] scores = new float[locations.size()];
+        for (int i=0; i<locations.size(); ++i)
+            scores[i] = pairwise.computeScore(new Group<>(locations.get(i),group.getSubgroups(),group.getLambdas(),grid,true));
+        settledOneByOne = grid.getSettledNodes();
+        grid.resetSettledNodes();
+        tabled.prefetch(travelers,locations);
+        for (int i=0; i<locations.size(); ++i)
+            assertEquals ("\n!! Different score of grouping at "+locations.get(i)+" out of the distance table !!",scores[i],
+                tabled.computeScore(new Group<>(locations.get(i),group.getSubgroups(),group.getLambdas(),grid,true)),1e-3f);
+        settledBatched = grid.getSettledNodes();
+        assertTrue ("\n!! Grouping scores settle "+settledBatched+" nodes out of a table against "+settledOneByOne+" one by one !!",
+            settledBatched<settledOneByOne);
+    }
+
+    @Test
+    public void testFrozenSnapshot () {
+	System.out.println("!! Testing the CSR snapshot of the graph !!");
+        CsrGraph<Long> frozen = graph.freeze();
+        assertEquals ("\n!! Problematic vertex insertion in the CSR snapshot !!",graph.numberNodes(),frozen.numberNodes());
+        assertEquals ("\n!! Problematic edge insertion in the CSR snapshot !!",graph.numberEdges(),frozen.numberArcs());
+	for (long u : graph.getNodes()) {
+            assertEquals ("\n!! Different in-degree in the CSR snapshot !!",graph.getInDegree(u),frozen.getInDegree(u));
+            Map<Long,Float> expected = graph.dijkstraDistances(u);
+            Map<Long,Float> actual = frozen.dijkstraDistances(u);
+            assertEquals ("\n!! Different number of reachable nodes in the CSR snapshot !!",expected.size(),actual.size());
+            for (Entry<Long,Float> entry : expected.entrySet())
+                assertEquals ("\n!! Different distance from " + u + " to " + entry.getKey() + " in the CSR snapshot !!",
+                    entry.getValue(),actual.get(entry.getKey()),1e-4f);
+	}
+    }
+
+    @Test
+    public void testBinarySnapshot () throws IOException {
+	System.out.println("!! Testing the binary snapshot of the graph !!");
+        File file = File.createTempFile("graph",".bin");
+        file.deleteOnExit();
+        BinarySnapshot.saveGraph(graph,file.getPath());
+        Graph<Long> loaded = BinarySnapshot.loadGraph(file.getPath());
+        assertEquals ("\n!! Problematic vertex insertion from the binary snapshot !!",graph.numberNodes(),loaded.numberNodes());
+        assertEquals ("\n!! Problematic edge insertion from the binary snapshot !!",graph.numberEdges(),loaded.numberEdges());
+        for (Edge<Long> edge : graph)
+            assertEquals ("\n!! Different weight of edge " + edge + " in the binary snapshot !!",
+                edge.weight,loaded.getEdgeWeight(edge.from,edge.to),0.0f);
+    }
+
+    @Test
+    public void testCoordinateSnapshot () throws IOException {
+	System.out.println("!! Testing the binary snapshot of coordinates !!");
+        File co = File.createTempFile("coordinates",".co");
+        co.deleteOnExit();
+        PrintWriter out = new PrintWriter(co);
+        out.print("p aux sp co 3\nv 1 10 20\nv 2 10 20\nv 3 30 40\n");
+        out.close();
+        ScatterMap<Long> parsed = new ScatterMap<>(co.getPath(),NumberFormat.getNumberInstance());
+        assertEquals ("\n!! Co-located vertices were dropped by the parser !!",3,parsed.size());
+
+        File file = File.createTempFile("coordinates",".bin");
+        file.deleteOnExit();
+        parsed.saveSnapshot(file.getPath());
+        ScatterMap<Long> loaded = ScatterMap.fromSnapshot(file.getPath());
+        assertEquals ("\n!! Co-located vertices were dropped by the coordinate snapshot !!",parsed.size(),loaded.size());
+        for (long u=1; u<=3; ++u) {
+            assertEquals ("\n!! Different x of vertex " + u + " in the coordinate snapshot !!",parsed.getSpatialPosition(u).x(),loaded.getSpatialPosition(u).x(),0.0f);
+            assertEquals ("\n!! Different y of vertex " + u + " in the coordinate snapshot !!",parsed.getSpatialPosition(u).y(),loaded.getSpatialPosition(u).y(),0.0f);
+        }
+        assertEquals ("\n!! Different spread of the coordinate snapshot !!",parsed.getDiagonalSpread(),loaded.getDiagonalSpread(),0.0f);
+
+        ScatterMap<String> named = new ScatterMap<>();
+        named.put("Ωmega",new shortestpath.Point2D(1.0f,2.0f));
+        named.put("alpha beta",new shortestpath.Point2D(3.0f,4.0f));
+        named.saveSnapshot(file.getPath());
+        ScatterMap<String> reloaded = ScatterMap.fromSnapshot(file.getPath());
+        assertEquals ("\n!! Problematic string keys in the coordinate snapshot !!",named.getVertices(),reloaded.getVertices());
+        assertEquals ("\n!! Different position of a string key in the coordinate snapshot !!",3.0f,reloaded.getSpatialPosition("alpha beta").x(),0.0f);
+    }
+
+    @Test
+    public void testContentModelSnapshot () throws IOException {
+	System.out.println("!! Testing the binary storage of DiversePedia !!");
+        /* DiversePedia reads its text files off the classpath */
+        File root = new File(getClass().getClassLoader().getResource("").getFile());
+        File edges = File.createTempFile("edges",".txt",root), freqs = File.createTempFile("freqs",".txt",root), titles = File.createTempFile("titles",".txt",root);
+        edges.deleteOnExit(); freqs.deleteOnExit(); titles.deleteOnExit();
+        PrintWriter out = new PrintWriter(edges,"UTF8");
+        out.print("A B 1\nB C 2\nC A 1\nC E 3\nA D 1\n");
+        out.close();
+        out = new PrintWriter(freqs,"UTF8");
+        out.print("A ärger:3 paradies:1 common:2\nB beta:4 common:1\nC gamma:2 common:5 paradies:2\nE epsilon:1 common:1\n");
+        out.close();
+        out = new PrintWriter(titles,"UTF8");
+        out.print("A Ärger im Paradies\nB Beta title\nC Gamma\nE Epsilon\n");
+        out.close();
+        DiversePedia dp = new DiversePedia(edges.getName(),freqs.getName(),titles.getName());
+
+        File dir = Files.createTempDirectory("diversepedia").toFile();
+        dir.deleteOnExit();
+        new DiversePediaBinaryStorage(dp,dir.getPath()).write();
+        for (File file : dir.listFiles()) file.deleteOnExit();
+        DiversePedia loaded = DiversePediaBinaryStorage.read(dir.getPath());
+
+        assertEquals ("\n!! Different titles in the binary storage !!",dp.getTitles(),loaded.getTitles());
+        assertEquals ("\n!! Different title words in the binary storage !!",dp.getTitleSets(),loaded.getTitleSets());
+        assertEquals ("\n!! Problematic vertex insertion from the binary storage !!",dp.getGraph().numberNodes(),loaded.getGraph().numberNodes());
+        assertEquals ("\n!! Problematic edge insertion from the binary storage !!",dp.getGraph().numberEdges(),loaded.getGraph().numberEdges());
+        for (Edge<String> edge : dp.getGraph())
+            assertEquals ("\n!! Different weight of edge " + edge + " in the binary storage !!",
+                edge.weight,loaded.getGraph().getEdgeWeight(edge.from,edge.to),0.0f);
+        assertTrue ("\n!! Articles sharing lemmas should be similar !!",dp.getContextSimilarity("A","C")>0.0f);
+        for (String u : dp.getTitles().keySet())
+            for (String v : dp.getTitles().keySet())
+                assertEquals ("\n!! Different similarity of " + u + " and " + v + " in the binary storage !!",
+                    dp.getContextSimilarity(u,v),loaded.getContextSimilarity(u,v),0.0f);
+    }
+
+    @Test
+    public void testEdgeListParser () throws IOException, ParseException {
+	System.out.println("!! Testing the parallel edge-list parser !!");
+        File file = File.createTempFile("graph",".gr");
+        file.deleteOnExit();
+        PrintWriter out = new PrintWriter(file);
+        out.println("c random digraph\np sp " + graph.numberNodes() + " " + graph.numberEdges());
+        for (Edge<Long> edge : graph) out.println("a " + edge.from + " " + edge.to + " " + edge.weight);
+        out.close();
+        Graph<Long> parsed = new DirectedGraph<>();
+        assertEquals ("\n!! Not every edge has been read by the parser !!",graph.numberEdges(),new EdgeListParser(true,true,4).parseInto(parsed,file.getPath()));
+        assertEquals ("\n!! Problematic edge insertion by the parser !!",graph.numberEdges(),parsed.numberEdges());
+        for (Edge<Long> edge : graph)
+            assertEquals ("\n!! Different weight of parsed edge " + edge + " !!",edge.weight,parsed.getEdgeWeight(edge.from,edge.to),0.0f);
+    }
+
+    @Test
+    public void testBareDimacsComments () throws IOException, ParseException {
+	System.out.println("!! Testing DIMACS files with bare comment lines !!");
+        File gr = File.createTempFile("graph",".gr");
+        gr.deleteOnExit();
+        PrintWriter out = new PrintWriter(gr);
+        out.print("c 9th DIMACS Implementation Challenge\nc\r\np sp 3 2\nc\na 1 2 5\nc\na 2 3 7\nc");
+        out.close();
+        Graph<Long> parsed = new DirectedGraph<>();
+        assertEquals ("\n!! Not every edge has been read by the parser !!",2L,new EdgeListParser(true,true,2).parseInto(parsed,gr.getPath()));
+        assertEquals ("\n!! Wrong weight of a parsed edge !!",5.0f,parsed.getEdgeWeight(1L,2L),0.0f);
+        assertEquals ("\n!! Wrong weight of a parsed edge !!",7.0f,parsed.getEdgeWeight(2L,3L),0.0f);
+
+        File co = File.createTempFile("graph",".co");
+        co.deleteOnExit();
+        out = new PrintWriter(co);
+        out.print("c 9th DIMACS Implementation Challenge\nc\np aux sp co 3\nc\nv 1 10 20\nv 2 30 40\nc\nv 3 50 60\nc");
+        out.close();
+        EdgeListParser.Coordinates coordinates = new EdgeListParser(true,true,2).parseCoordinates(co.getPath());
+        assertEquals ("\n!! Not every coordinate has been read by the parser !!",3,coordinates.size);
+        float sum = 0.0f;
+        for (int i=0; i<coordinates.size; ++i) sum += coordinates.ids[i] + coordinates.xs[i] + coordinates.ys[i];
+        assertEquals ("\n!! Wrong coordinates read by the parser !!",216.0f,sum,0.0f);
+    }
+
     @Test
     public void testAllPairsShortestPaths () {
 	System.out.println("!! Testing methods for computing APSPs !!");
@@ -285,6 +1226,27 @@ public class TestRandomDirectedGraph {
 	}
     }
 
+    @Test
+    public void testParallelAllPairsShortestPaths () throws IOException {
+	System.out.println("!! Testing the parallel APSP engines !!");
+        DistanceTable<Long> johnson = graph.johnsonDistances();
+        DistanceTable<Long> floyd = graph.floydDistances();
+        File file = File.createTempFile("table",".bin");
+        file.deleteOnExit();
+        johnson.save(file.getPath());
+        DistanceTable<Long> loaded = DistanceTable.load(file.getPath());
+        assertEquals ("\n!! There should be a row for each node in the distance table !!",graph.numberNodes(),johnson.numberSources());
+        ArrayList<Long> nodes = graph.getNodes();
+        for (long u : nodes.subList(0,25)) {
+            for (long v : nodes) {
+                float expected = graph.getPathCost(u,v,false);
+                assertEquals ("\n!! Different Johnson's distance from " + u + " to " + v + " !!",expected,johnson.get(u,v),1e-3f);
+                assertEquals ("\n!! Different Floyd-Warshall distance from " + u + " to " + v + " !!",expected,floyd.get(u,v),1e-3f);
+                assertEquals ("\n!! Different distance from " + u + " to " + v + " in the stored table !!",johnson.get(u,v),loaded.get(u,v),0.0f);
+            }
+        }
+    }
+
     public static void main(String[] args) {
         Result result = JUnitCore.runClasses(TestRandomDirectedGraph.class);
         for (Failure failure : result.getFailures())